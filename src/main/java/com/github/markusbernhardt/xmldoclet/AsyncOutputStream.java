@@ -0,0 +1,186 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * OutputStream handing the written data over to a background thread, which
+ * writes it to the target stream. Used to compress the output while the
+ * calling thread keeps marshalling.
+ * <p>
+ * The data is collected in fixed size buffers. Full buffers are queued for
+ * the background thread and recycled afterwards, so at most a few buffers
+ * are allocated. If the queue is full, the writing thread waits. A failure
+ * of the background thread is rethrown by the next write, flush or close.
+ * <p>
+ * {@link #flush()} only hands the current buffer over, it does not wait for
+ * the target stream. {@link #close()} waits until everything has been
+ * written and closes the target stream. Instances must be used by a single
+ * thread.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private static final int QUEUED_BUFFERS = 4;
+
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	protected final BlockingQueue<ByteBuffer> filledBuffers = new ArrayBlockingQueue<ByteBuffer>(QUEUED_BUFFERS);
+
+	protected final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<byte[]>(QUEUED_BUFFERS + 1);
+
+	protected final Thread thread;
+
+	protected byte[] buffer = new byte[BUFFER_SIZE];
+
+	protected int count = 0;
+
+	protected boolean closed = false;
+
+	protected volatile IOException failure;
+
+	/**
+	 * Creates the stream and starts the background thread.
+	 *
+	 * @param target
+	 *            the stream written by the background thread, it is closed
+	 *            together with this stream
+	 * @param threadName
+	 *            the name of the background thread
+	 */
+	public AsyncOutputStream(final OutputStream target, String threadName) {
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain(target);
+			}
+		}, threadName);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count == buffer.length) {
+			handOver();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == buffer.length) {
+				handOver();
+			}
+			int chunk = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, chunk);
+			count += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (count > 0) {
+			handOver();
+		}
+		checkFailure();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			try {
+				if (count > 0 && failure == null) {
+					handOver();
+				}
+			} finally {
+				// always stop the background thread, even if the last buffer
+				// failed
+				closed = true;
+				put(END);
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the background thread");
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Queues the current buffer for the background thread and continues with
+	 * a recycled or new buffer.
+	 */
+	protected void handOver() throws IOException {
+		checkFailure();
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		try {
+			put(ByteBuffer.wrap(buffer, 0, count));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the background thread");
+		}
+		buffer = freeBuffers.poll();
+		if (buffer == null) {
+			buffer = new byte[BUFFER_SIZE];
+		}
+		count = 0;
+	}
+
+	private void put(ByteBuffer byteBuffer) throws InterruptedException {
+		filledBuffers.put(byteBuffer);
+	}
+
+	private void checkFailure() throws IOException {
+		IOException e = failure;
+		if (e != null) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * The loop of the background thread. After a failure the remaining
+	 * buffers are discarded, so the writing thread never blocks forever.
+	 */
+	private void drain(OutputStream target) {
+		try {
+			while (true) {
+				ByteBuffer byteBuffer = filledBuffers.take();
+				if (byteBuffer == END) {
+					break;
+				}
+				if (failure == null) {
+					try {
+						target.write(byteBuffer.array(), 0, byteBuffer.limit());
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+				freeBuffers.offer(byteBuffer.array());
+			}
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException("Background thread interrupted");
+		} finally {
+			try {
+				target.close();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Enumeration of the compression formats of the output file.
+ */
+public enum CompressionEnum {
+	/**
+	 * GZIP file format, as written by the gzip tool
+	 */
+	GZIP(".gz") {
+		@Override
+		public OutputStream createOutputStream(OutputStream outputStream) throws IOException {
+			return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+		}
+	},
+	/**
+	 * ZLIB stream format
+	 */
+	DEFLATE(".deflate") {
+		@Override
+		public OutputStream createOutputStream(OutputStream outputStream) throws IOException {
+			return new DeflaterOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+		}
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String extension;
+
+	private CompressionEnum(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * @return the extension appended to the name of the output file
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * Wraps the given stream into a compressing stream. Closing the returned
+	 * stream closes the given one.
+	 *
+	 * @param outputStream
+	 *            the stream receiving the compressed data
+	 * @return the stream to write the uncompressed data to
+	 * @throws IOException
+	 *             if the stream can't be created
+	 */
+	public abstract OutputStream createOutputStream(OutputStream outputStream) throws IOException;
+
+	/**
+	 * Returns the compression with the given name.
+	 *
+	 * @param name
+	 *            the name, e.g. "gzip", case is ignored
+	 * @return the compression or <code>null</code> if it is unknown
+	 */
+	public static CompressionEnum fromName(String name) {
+		for (CompressionEnum compression : values()) {
+			if (compression.name().equalsIgnoreCase(name)) {
+				return compression;
+			}
+		}
+		return null;
+	}
+}
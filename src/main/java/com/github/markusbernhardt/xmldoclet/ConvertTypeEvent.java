@@ -0,0 +1,55 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the conversion of one type. Only loaded
+ * through {@link FlightRecorderEvents}.
+ */
+@Name("com.github.markusbernhardt.xmldoclet.ConvertType")
+@Label("Convert Type")
+@Category("XML Doclet")
+@Description("Conversion of a class, interface, enum or annotation type")
+public class ConvertTypeEvent extends Event {
+
+	@Label("Qualified Name")
+	protected String qualified;
+
+	@Label("Kind")
+	@Description("class, interface, enum or annotation")
+	protected String kind;
+
+	@Label("Constructors")
+	protected int constructors;
+
+	@Label("Methods")
+	@Description("Number of methods, or of elements of an annotation type")
+	protected int methods;
+
+	@Label("Fields")
+	@Description("Number of fields, or of constants of an enum")
+	protected int fields;
+
+	static Object start() {
+		ConvertTypeEvent event = new ConvertTypeEvent();
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object object, String qualified, String kind, int constructors, int methods, int fields) {
+		ConvertTypeEvent event = (ConvertTypeEvent) object;
+		event.end();
+		if (event.shouldCommit()) {
+			event.qualified = qualified;
+			event.kind = kind;
+			event.constructors = constructors;
+			event.methods = methods;
+			event.fields = fields;
+			event.commit();
+		}
+	}
+}
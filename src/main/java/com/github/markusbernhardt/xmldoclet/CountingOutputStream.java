@@ -0,0 +1,42 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * OutputStream counting the bytes written through it.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+	protected long count = 0;
+
+	/**
+	 * Creates the stream.
+	 *
+	 * @param outputStream
+	 *            the stream to write to
+	 */
+	public CountingOutputStream(OutputStream outputStream) {
+		super(outputStream);
+	}
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		count += len;
+	}
+}
@@ -0,0 +1,116 @@
+package com.github.markusbernhardt.xmldoclet;
+
+/**
+ * Emits the Java Flight Recorder events of the doclet. The events are only
+ * created if the running JVM provides the <code>jdk.jfr</code> API, as JDK 7
+ * and early JDK 8 builds do not. Otherwise all methods do nothing and the
+ * event classes are never loaded. While no recording is running, an event
+ * costs little more than its allocation.
+ */
+public class FlightRecorderEvents {
+
+	private static final boolean AVAILABLE = isFlightRecorderPresent();
+
+	private FlightRecorderEvents() {
+	}
+
+	private static boolean isFlightRecorderPresent() {
+		try {
+			java.lang.Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the events are emitted
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * Starts the event spanning the conversion of the documentation tree.
+	 * 
+	 * @return the event to hand to {@link #endParseRootDoc}
+	 */
+	public static Object beginParseRootDoc() {
+		return AVAILABLE ? ParseRootDocEvent.start() : null;
+	}
+
+	/**
+	 * Ends the event spanning the conversion of the documentation tree.
+	 * 
+	 * @param event
+	 *            the event returned by {@link #beginParseRootDoc()}
+	 * @param types
+	 *            the number of types
+	 * @param threads
+	 *            the number of threads converting the types
+	 */
+	public static void endParseRootDoc(Object event, int types, int threads) {
+		if (event != null) {
+			ParseRootDocEvent.finish(event, types, threads);
+		}
+	}
+
+	/**
+	 * Starts the event spanning the conversion of a type.
+	 * 
+	 * @return the event to hand to {@link #endConvertType}
+	 */
+	public static Object beginConvertType() {
+		return AVAILABLE ? ConvertTypeEvent.start() : null;
+	}
+
+	/**
+	 * Ends the event spanning the conversion of a type.
+	 * 
+	 * @param event
+	 *            the event returned by {@link #beginConvertType()}
+	 * @param qualified
+	 *            the qualified name of the type
+	 * @param kind
+	 *            class, interface, enum or annotation
+	 * @param constructors
+	 *            the number of constructors
+	 * @param methods
+	 *            the number of methods or annotation elements
+	 * @param fields
+	 *            the number of fields or enum constants
+	 */
+	public static void endConvertType(Object event, String qualified, String kind, int constructors, int methods,
+			int fields) {
+		if (event != null) {
+			ConvertTypeEvent.finish(event, qualified, kind, constructors, methods, fields);
+		}
+	}
+
+	/**
+	 * Starts the event spanning the output of the document.
+	 * 
+	 * @return the event to hand to {@link #endWriteDocument}
+	 */
+	public static Object beginWriteDocument() {
+		return AVAILABLE ? WriteDocumentEvent.start() : null;
+	}
+
+	/**
+	 * Ends the event spanning the output of the document.
+	 * 
+	 * @param event
+	 *            the event returned by {@link #beginWriteDocument()}
+	 * @param mode
+	 *            save, stream or split
+	 * @param file
+	 *            the output file
+	 */
+	public static void endWriteDocument(Object event, String mode, String file) {
+		if (event != null) {
+			WriteDocumentEvent.finish(event, mode, file);
+		}
+	}
+}
@@ -0,0 +1,468 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Minimal XMLStreamWriter for documents without namespaces, producing the same
+ * output as the JAXB marshaller.
+ * <p>
+ * Characters are escaped the way JAXB does it, elements without content are
+ * collapsed and nested elements are optionally indented like with
+ * <code>JAXB_FORMATTED_OUTPUT</code>. Namespace prefixes are written as given,
+ * but not managed.
+ * <p>
+ * Like JAXB, the writer behaves differently for UTF-8 and the other
+ * encodings. With UTF-8, carriage returns are written as character references
+ * and line breaks and tabs within attribute values survive a round trip, the
+ * indentation starts over every eight levels. With the other encodings, these
+ * characters are written as they are, the indentation follows the depth and
+ * every char that can't be encoded is written as a character reference of its
+ * own, even the halves of a surrogate pair.
+ */
+class FormattingXMLStreamWriter implements XMLStreamWriter {
+
+	private static final String INDENT = "    ";
+
+	private static final int SEEN_NOTHING = 0;
+	private static final int SEEN_ELEMENT = 1;
+	private static final int SEEN_DATA = 2;
+
+	protected final Writer writer;
+
+	protected final String encoding;
+
+	/**
+	 * The encoder used to detect characters that can't be encoded or
+	 * <code>null</code> if the encoding covers all characters.
+	 */
+	protected final CharsetEncoder encoder;
+
+	/**
+	 * <code>true</code> if the document is written like by the UTF-8 output of
+	 * JAXB.
+	 */
+	protected final boolean utf8;
+
+	protected final boolean indent;
+
+	/**
+	 * The names of the open elements.
+	 */
+	protected final List<String> elements = new ArrayList<String>();
+
+	/**
+	 * What has been written into the element at the corresponding depth. The
+	 * first entry belongs to the document itself.
+	 */
+	protected final List<Integer> state = new ArrayList<Integer>();
+
+	protected boolean startTagOpen = false;
+
+	protected boolean emptyElement = false;
+
+	/**
+	 * <code>true</code> if the indentation of the next start tag has already
+	 * been written.
+	 */
+	protected boolean indented = false;
+
+	protected NamespaceContext namespaceContext = new EmptyNamespaceContext();
+
+	/**
+	 * Creates the writer.
+	 *
+	 * @param outputStream
+	 *            the stream to write to, it is never closed by this class
+	 * @param encoding
+	 *            the encoding of the document
+	 * @param indent
+	 *            <code>true</code> to indent nested elements
+	 */
+	public FormattingXMLStreamWriter(OutputStream outputStream, String encoding, boolean indent) {
+		Charset charset = Charset.forName(encoding);
+		this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, charset), 64 * 1024);
+		this.encoding = encoding;
+		this.encoder = charset.name().startsWith("UTF-") ? null : charset.newEncoder();
+		this.utf8 = charset.equals(StandardCharsets.UTF_8);
+		this.indent = indent;
+		this.state.add(SEEN_NOTHING);
+	}
+
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		writeStartDocument(encoding, "1.0");
+	}
+
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		writeStartDocument(encoding, version);
+	}
+
+	@Override
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+		write("<?xml version=\"" + version + "\" encoding=\"" + encoding + "\" standalone=\"yes\"?>");
+		if (indent) {
+			write("\n");
+		}
+	}
+
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		while (!elements.isEmpty()) {
+			writeEndElement();
+		}
+		if (indent) {
+			write("\n");
+		}
+		flush();
+	}
+
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		closeStartTag();
+		int depth = elements.size();
+		state.set(depth, SEEN_ELEMENT);
+		if (indent && depth > 0 && !indented) {
+			indent(depth);
+		}
+		indented = false;
+		write("<");
+		write(localName);
+		elements.add(localName);
+		state.add(SEEN_NOTHING);
+		startTagOpen = true;
+	}
+
+	@Override
+	public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+		writeStartElement(localName);
+	}
+
+	@Override
+	public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		writeStartElement(qualify(prefix, localName));
+	}
+
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		writeStartElement(localName);
+		emptyElement = true;
+	}
+
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+		writeEmptyElement(localName);
+	}
+
+	@Override
+	public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		writeEmptyElement(qualify(prefix, localName));
+	}
+
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		if (startTagOpen && !emptyElement) {
+			// nothing has been written into the element, collapse it
+			startTagOpen = false;
+			write("/>");
+			int depth = elements.size();
+			elements.remove(depth - 1);
+			state.remove(depth);
+			return;
+		}
+
+		closeStartTag();
+		if (elements.isEmpty()) {
+			throw new XMLStreamException("No open element");
+		}
+
+		int depth = elements.size();
+		String localName = elements.remove(depth - 1);
+		if (indent && state.remove(depth) == SEEN_ELEMENT) {
+			indent(depth - 1);
+		}
+		write("</");
+		write(localName);
+		write(">");
+	}
+
+	@Override
+	public void writeAttribute(String localName, String value) throws XMLStreamException {
+		if (!startTagOpen) {
+			throw new XMLStreamException("Attribute written outside of a start tag: " + localName);
+		}
+		write(" ");
+		write(localName);
+		write("=\"");
+		escape(value, true);
+		write("\"");
+	}
+
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI, String localName, String value)
+			throws XMLStreamException {
+		writeAttribute(qualify(prefix, localName), value);
+	}
+
+	@Override
+	public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+		writeAttribute(localName, value);
+	}
+
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+		if (prefix == null || prefix.length() == 0 || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+			writeDefaultNamespace(namespaceURI);
+		} else {
+			writeAttribute(XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, namespaceURI);
+		}
+	}
+
+	@Override
+	public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+		writeAttribute(XMLConstants.XMLNS_ATTRIBUTE, namespaceURI);
+	}
+
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		closeStartTag();
+		if (text.length() > 0) {
+			state.set(elements.size(), SEEN_DATA);
+			escape(text, false);
+		}
+	}
+
+	@Override
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		writeCharacters(new String(text, start, len));
+	}
+
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		closeStartTag();
+		state.set(elements.size(), SEEN_DATA);
+		write("<![CDATA[" + data + "]]>");
+	}
+
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		closeStartTag();
+		write("<!--" + data + "-->");
+	}
+
+	@Override
+	public void writeProcessingInstruction(String target) throws XMLStreamException {
+		closeStartTag();
+		write("<?" + target + "?>");
+	}
+
+	@Override
+	public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+		closeStartTag();
+		write("<?" + target + " " + data + "?>");
+	}
+
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+		write(dtd);
+	}
+
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		closeStartTag();
+		state.set(elements.size(), SEEN_DATA);
+		write("&" + name + ";");
+	}
+
+	/**
+	 * Writes everything preceding the next start tag: the end of a pending
+	 * start tag and the indentation. Afterwards the next start tag is the
+	 * next thing written, e.g. to record its position in the stream.
+	 */
+	public void prepareStartElement() throws XMLStreamException {
+		closeStartTag();
+		int depth = elements.size();
+		if (indent && depth > 0 && !indented) {
+			indent(depth);
+			indented = true;
+		}
+	}
+
+	/**
+	 * Flushes the buffered characters to the underlying stream.
+	 */
+	@Override
+	public void flush() throws XMLStreamException {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Flushes the buffered characters. The underlying stream is not closed.
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+		flush();
+	}
+
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		return namespaceContext.getPrefix(uri);
+	}
+
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+	}
+
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+	}
+
+	@Override
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+		this.namespaceContext = context;
+	}
+
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		throw new IllegalArgumentException("Property not supported: " + name);
+	}
+
+	/**
+	 * Finishes a pending start tag, if any.
+	 */
+	protected void closeStartTag() throws XMLStreamException {
+		if (!startTagOpen) {
+			return;
+		}
+		startTagOpen = false;
+		if (emptyElement) {
+			emptyElement = false;
+			write("/>");
+			int depth = elements.size();
+			elements.remove(depth - 1);
+			state.remove(depth);
+		} else {
+			write(">");
+		}
+	}
+
+	private void indent(int depth) throws XMLStreamException {
+		write("\n");
+		// the UTF-8 output of JAXB starts over every eight levels
+		int levels = utf8 ? depth % 8 : depth;
+		for (int i = 0; i < levels; i++) {
+			write(INDENT);
+		}
+	}
+
+	private static String qualify(String prefix, String localName) {
+		if (prefix == null || prefix.length() == 0) {
+			return localName;
+		}
+		return prefix + ":" + localName;
+	}
+
+	/**
+	 * Writes text or an attribute value, escaping the same characters as the
+	 * JAXB marshaller.
+	 */
+	private void escape(String text, boolean attribute) throws XMLStreamException {
+		try {
+			int length = text.length();
+			int start = 0;
+			for (int i = 0; i < length; i++) {
+				char c = text.charAt(i);
+				String replacement = null;
+				switch (c) {
+				case '&':
+					replacement = "&amp;";
+					break;
+				case '<':
+					replacement = "&lt;";
+					break;
+				case '>':
+					replacement = "&gt;";
+					break;
+				case '\r':
+					replacement = utf8 ? "&#xD;" : null;
+					break;
+				case '"':
+					replacement = attribute ? "&quot;" : null;
+					break;
+				case '\n':
+					replacement = attribute && utf8 ? "&#xA;" : null;
+					break;
+				case '\t':
+					replacement = attribute && utf8 ? "&#x9;" : null;
+					break;
+				default:
+					if (encoder != null && c >= 0x80 && !encoder.canEncode(c)) {
+						replacement = "&#" + (int) c + ";";
+					}
+				}
+				if (replacement != null) {
+					writer.write(text, start, i - start);
+					writer.write(replacement);
+					start = i + 1;
+				}
+			}
+			writer.write(text, start, length - start);
+		} catch (IOException e) {
+			throw new XMLStreamException(e.getMessage(), e);
+		}
+	}
+
+	private void write(String string) throws XMLStreamException {
+		try {
+			writer.write(string);
+		} catch (IOException e) {
+			throw new XMLStreamException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Namespace context for documents without namespaces.
+	 */
+	private static class EmptyNamespaceContext implements NamespaceContext {
+
+		@Override
+		public String getNamespaceURI(String prefix) {
+			return XMLConstants.NULL_NS_URI;
+		}
+
+		@Override
+		public String getPrefix(String namespaceURI) {
+			return null;
+		}
+
+		@Override
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			return Collections.<String> emptyList().iterator();
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.SourcePosition;
+
+/**
+ * Persistent cache of converted classes, used to skip the conversion of
+ * classes whose source file did not change since the last run.
+ * <p>
+ * Every fragment is stored as a small XML file, keyed on the qualified name
+ * of the class, the content hashes of its source file and of the source files
+ * of its superclasses and interfaces, the doclet version and the options
+ * influencing the conversion, including a digest of the classpath. The number
+ * of fragments is bounded: when the cache is closed, the least recently used
+ * fragments exceeding the limit are deleted. Classes without a source file are
+ * never cached.
+ * <p>
+ * Other dependencies are not part of the key, e.g. the classes referenced by
+ * annotation values or the content of class directories on the classpath.
+ * Clear the cache directory when these change. This class is thread safe.
+ */
+public class FragmentCache {
+
+	private final static Logger log = LoggerFactory.getLogger(FragmentCache.class);
+
+	private static final String SUFFIX = ".xml";
+
+	protected final File directory;
+
+	protected final int maxSize;
+
+	protected final String variant;
+
+	protected final JAXBContext context;
+
+	/**
+	 * The content hashes of the source files, computed once per run.
+	 */
+	protected final ConcurrentMap<File, String> fileHashes = new ConcurrentHashMap<File, String>();
+
+	/**
+	 * The fragment files of the classes, computed once per run.
+	 */
+	protected final ConcurrentMap<ClassDoc, File> fragmentFiles = new ConcurrentHashMap<ClassDoc, File>();
+
+	protected final AtomicLong hits = new AtomicLong();
+
+	protected final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param directory
+	 *            the directory holding the fragments, created if necessary
+	 * @param maxSize
+	 *            the maximum number of fragments kept
+	 * @param variant
+	 *            the doclet version and the options influencing the
+	 *            conversion, part of every key
+	 * @throws JAXBException
+	 *             if the JAXB context can't be created
+	 */
+	public FragmentCache(File directory, int maxSize, String variant) throws JAXBException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new XmlDocletException("Unable to create the cache directory " + directory);
+		}
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.variant = variant;
+		this.context = JaxbSupport.getContext();
+	}
+
+	/**
+	 * Returns the cached fragment of the class.
+	 *
+	 * @param classDoc
+	 *            the class
+	 * @param type
+	 *            the node type of the class
+	 * @return the cached node or <code>null</code> if there is none
+	 */
+	public <T> T get(ClassDoc classDoc, java.lang.Class<T> type) {
+		File file = getFragmentFile(classDoc);
+		if (file == null || !file.isFile()) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		try {
+			T node = context.createUnmarshaller().unmarshal(new StreamSource(file), type).getValue();
+			file.setLastModified(System.currentTimeMillis());
+			hits.incrementAndGet();
+			return node;
+		} catch (JAXBException e) {
+			log.debug("Ignoring unreadable fragment " + file, e);
+			file.delete();
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * Caches the fragment of the class.
+	 *
+	 * @param classDoc
+	 *            the class
+	 * @param type
+	 *            the node type of the class
+	 * @param node
+	 *            the converted class
+	 * @return the given node
+	 */
+	public <T> T put(ClassDoc classDoc, java.lang.Class<T> type, T node) {
+		File file = getFragmentFile(classDoc);
+		if (file == null) {
+			return node;
+		}
+
+		File temporaryFile = null;
+		Marshaller marshaller = null;
+		try {
+			temporaryFile = File.createTempFile("fragment", ".tmp", directory);
+			marshaller = JaxbSupport.acquireMarshaller();
+			marshaller.marshal(new JAXBElement<T>(new QName("fragment"), type, node), temporaryFile);
+			if (!temporaryFile.renameTo(file)) {
+				temporaryFile.delete();
+			}
+		} catch (JAXBException e) {
+			log.warn("Unable to cache " + classDoc.qualifiedName() + ": " + e.getMessage());
+		} catch (IOException e) {
+			log.warn("Unable to cache " + classDoc.qualifiedName() + ": " + e.getMessage());
+		} finally {
+			JaxbSupport.releaseMarshaller(marshaller);
+			if (temporaryFile != null && temporaryFile.exists()) {
+				temporaryFile.delete();
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Deletes the least recently used fragments exceeding the maximum size and
+	 * reports the hits and misses of this run.
+	 */
+	public void close() {
+		File[] files = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.getName().endsWith(SUFFIX);
+			}
+		});
+
+		int evicted = 0;
+		if (files != null && files.length > maxSize) {
+			final long[] lastModified = new long[files.length];
+			Integer[] order = new Integer[files.length];
+			for (int i = 0; i < files.length; i++) {
+				lastModified[i] = files[i].lastModified();
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer left, Integer right) {
+					return Long.valueOf(lastModified[left]).compareTo(lastModified[right]);
+				}
+			});
+			for (int i = 0; i < files.length - maxSize; i++) {
+				if (files[order[i]].delete()) {
+					evicted++;
+				}
+			}
+		}
+
+		log.info("Parse cache: " + getHits() + " hits, " + getMisses() + " misses, " + evicted + " evicted");
+	}
+
+	/**
+	 * @return the number of classes taken from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of classes not found in the cache
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the fragment file of the class.
+	 *
+	 * @param classDoc
+	 *            the class
+	 * @return the fragment file or <code>null</code> if the class has no
+	 *         readable source file
+	 */
+	protected File getFragmentFile(ClassDoc classDoc) {
+		File fragmentFile = fragmentFiles.get(classDoc);
+		if (fragmentFile != null) {
+			return fragmentFile;
+		}
+
+		SourcePosition position = classDoc.position();
+		if (position == null || position.file() == null) {
+			return null;
+		}
+		String fileHash = getFileHash(position.file());
+		if (fileHash == null) {
+			return null;
+		}
+
+		StringBuilder key = new StringBuilder(variant).append('\u0000').append(classDoc.qualifiedName())
+				.append('\u0000').append(fileHash);
+		appendSupertypeHashes(classDoc, key, new HashSet<ClassDoc>());
+		fragmentFile = new File(directory, sha1(key.toString()) + SUFFIX);
+		fragmentFiles.putIfAbsent(classDoc, fragmentFile);
+		return fragmentFile;
+	}
+
+	/**
+	 * Appends the content hashes of the source files of all superclasses and
+	 * interfaces. Supertypes without a readable source file, e.g. the ones
+	 * from the classpath, are covered by the classpath digest of the variant.
+	 */
+	private void appendSupertypeHashes(ClassDoc classDoc, StringBuilder key, Set<ClassDoc> visited) {
+		List<ClassDoc> supertypes = new ArrayList<ClassDoc>(Arrays.asList(classDoc.interfaces()));
+		if (classDoc.superclass() != null) {
+			supertypes.add(classDoc.superclass());
+		}
+		for (ClassDoc supertype : supertypes) {
+			if (!visited.add(supertype)) {
+				continue;
+			}
+			SourcePosition position = supertype.position();
+			if (position != null && position.file() != null && position.file().isFile()) {
+				String fileHash = getFileHash(position.file());
+				if (fileHash != null) {
+					key.append('\u0000').append(supertype.qualifiedName()).append('\u0000').append(fileHash);
+				}
+			}
+			appendSupertypeHashes(supertype, key, visited);
+		}
+	}
+
+	private String getFileHash(File file) {
+		String fileHash = fileHashes.get(file);
+		if (fileHash != null) {
+			return fileHash;
+		}
+
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+			InputStream inputStream = new FileInputStream(file);
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = inputStream.read(buffer)) != -1) {
+					messageDigest.update(buffer, 0, read);
+				}
+			} finally {
+				inputStream.close();
+			}
+			fileHash = toHex(messageDigest.digest());
+		} catch (IOException e) {
+			log.debug("Unable to hash " + file, e);
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+
+		fileHashes.putIfAbsent(file, fileHash);
+		return fileHash;
+	}
+
+	private static String sha1(String string) {
+		try {
+			return toHex(MessageDigest.getInstance("SHA-1").digest(string.getBytes("UTF-8")));
+		} catch (NoSuchAlgorithmException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} catch (UnsupportedEncodingException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder stringBuilder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			stringBuilder.append(Character.forDigit((b >> 4) & 0xf, 16));
+			stringBuilder.append(Character.forDigit(b & 0xf, 16));
+		}
+		return stringBuilder.toString();
+	}
+}
@@ -0,0 +1,124 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Shares one JAXBContext and a pool of marshallers between all doclet runs in
+ * the same class loader. Creating the context introspects the whole object
+ * model and is by far the most expensive part of a small run.
+ * <p>
+ * The context is created lazily on first use. It is immutable and thread
+ * safe, marshallers are not: each one is used by a single thread between
+ * {@link #acquireMarshaller()} and {@link #releaseMarshaller(Marshaller)}.
+ */
+public final class JaxbSupport {
+
+	private static final int MAX_POOLED_MARSHALLERS = 16;
+
+	private static final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+
+	private JaxbSupport() {
+	}
+
+	/**
+	 * Lazily creates the context, on first access of the holder class.
+	 */
+	private static class ContextHolder {
+
+		private static final long creationNanos;
+
+		private static final JAXBContext context;
+
+		private static final JAXBException exception;
+
+		static {
+			long start = System.nanoTime();
+			JAXBContext newContext = null;
+			JAXBException newException = null;
+			try {
+				newContext = JAXBContext.newInstance(Root.class);
+			} catch (JAXBException e) {
+				newException = e;
+			}
+			context = newContext;
+			exception = newException;
+			creationNanos = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Returns the shared context for the doclet's object model.
+	 *
+	 * @return the context
+	 * @throws JAXBException
+	 *             if the context can't be created
+	 */
+	public static JAXBContext getContext() throws JAXBException {
+		if (ContextHolder.exception != null) {
+			throw ContextHolder.exception;
+		}
+		return ContextHolder.context;
+	}
+
+	/**
+	 * Returns the time it took to create the shared context.
+	 *
+	 * @return the creation time in nanoseconds
+	 */
+	public static long getContextCreationNanos() {
+		return ContextHolder.creationNanos;
+	}
+
+	/**
+	 * Takes a marshaller from the pool or creates a new one. Its properties
+	 * are reset to the defaults: unformatted UTF-8 output of a complete
+	 * document, using the default event handler.
+	 *
+	 * @return the marshaller, to be released after use
+	 * @throws JAXBException
+	 *             if the marshaller can't be created
+	 */
+	public static Marshaller acquireMarshaller() throws JAXBException {
+		Marshaller marshaller = marshallers.poll();
+		if (marshaller == null) {
+			return getContext().createMarshaller();
+		}
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, false);
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+		marshaller.setEventHandler(null);
+		return marshaller;
+	}
+
+	/**
+	 * Returns a marshaller to the pool. The caller must not use it afterwards.
+	 *
+	 * @param marshaller
+	 *            the marshaller obtained via {@link #acquireMarshaller()} or
+	 *            <code>null</code>
+	 */
+	public static void releaseMarshaller(Marshaller marshaller) {
+		if (marshaller != null && marshallers.size() < MAX_POOLED_MARSHALLERS) {
+			marshallers.offer(marshaller);
+		}
+	}
+
+	/**
+	 * Creates an unmarshaller for the shared context.
+	 *
+	 * @return the unmarshaller
+	 * @throws JAXBException
+	 *             if the unmarshaller can't be created
+	 */
+	public static Unmarshaller createUnmarshaller() throws JAXBException {
+		return getContext().createUnmarshaller();
+	}
+}
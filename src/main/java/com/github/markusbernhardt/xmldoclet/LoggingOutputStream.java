@@ -1,13 +1,33 @@
 package com.github.markusbernhardt.xmldoclet;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 
 import org.slf4j.Logger;
 
+/**
+ * Output stream logging every line written to it as one message. The bytes
+ * are collected in a reused buffer and decoded with the given charset once
+ * the line is complete, so multi-byte characters are never split. Lines
+ * longer than the maximum line length are logged in several messages. The
+ * line separator has to be encoded as byte <code>'\n'</code>, which is true
+ * for all ASCII compatible charsets. This class is thread safe.
+ */
 class LoggingOutputStream extends java.io.OutputStream {
 
+	/**
+	 * The default maximum number of bytes of a logged message.
+	 */
+	public static final int DEFAULT_MAX_LINE_LENGTH = 8192;
+
+	private static final int INITIAL_CAPACITY = 256;
+
 	protected Logger log;
-	protected LoggingLevelEnum loggingLevel;
+	protected LoggingLevel loggingLevel;
 
 	/**
 	 * Used to maintain the contract of {@link #close()}.
@@ -15,29 +35,76 @@ class LoggingOutputStream extends java.io.OutputStream {
 	protected boolean hasBeenClosed = false;
 
 	/**
-	 * The internal buffer where data is stored.
+	 * The internal buffer where the bytes of the current line are stored.
 	 */
-	protected StringBuffer buffer = new StringBuffer();
+	protected byte[] buffer = new byte[INITIAL_CAPACITY];
 
 	/**
-	 * Creates the LoggingOutputStream to flush to the given Category.
-	 * 
+	 * The number of valid bytes in the buffer.
+	 */
+	protected int count;
+
+	/**
+	 * The maximum number of bytes of a logged message.
+	 */
+	protected int maxLineLength;
+
+	protected CharsetDecoder decoder;
+
+	/**
+	 * The decoded characters of the current line, reused for every line.
+	 */
+	protected CharBuffer chars;
+
+	/**
+	 * Creates the LoggingOutputStream decoding the platform charset, as
+	 * written by a {@link java.io.PrintWriter} wrapping the stream.
+	 *
 	 * @param log
 	 *            the Logger to write to
-	 * 
+	 *
 	 * @param loggingLevel
 	 *            the log level
-	 * 
+	 *
 	 * @exception IllegalArgumentException
-	 *                if cat == null or priority == null
+	 *                if log == null
 	 */
-	public LoggingOutputStream(Logger log, LoggingLevelEnum loggingLevel) throws IllegalArgumentException {
+	public LoggingOutputStream(Logger log, LoggingLevel loggingLevel) throws IllegalArgumentException {
+		this(log, loggingLevel, Charset.defaultCharset(), DEFAULT_MAX_LINE_LENGTH);
+	}
+
+	/**
+	 * Creates the LoggingOutputStream to flush to the given logger.
+	 *
+	 * @param log
+	 *            the Logger to write to
+	 * @param loggingLevel
+	 *            the log level
+	 * @param charset
+	 *            the charset of the written bytes
+	 * @param maxLineLength
+	 *            the maximum number of bytes of a logged message, at least 16
+	 *
+	 * @exception IllegalArgumentException
+	 *                if log == null, charset == null or maxLineLength &lt; 16
+	 */
+	public LoggingOutputStream(Logger log, LoggingLevel loggingLevel, Charset charset, int maxLineLength)
+			throws IllegalArgumentException {
 		if (log == null) {
 			throw new IllegalArgumentException("log == null");
 		}
+		if (charset == null) {
+			throw new IllegalArgumentException("charset == null");
+		}
+		if (maxLineLength < 16) {
+			throw new IllegalArgumentException("maxLineLength < 16");
+		}
 
 		this.loggingLevel = loggingLevel;
 		this.log = log;
+		this.maxLineLength = maxLineLength;
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
 	}
 
 	/**
@@ -47,9 +114,11 @@ class LoggingOutputStream extends java.io.OutputStream {
 	 * operations and cannot be reopened.
 	 */
 	@Override
-	public void close() {
-		flush();
-		hasBeenClosed = true;
+	public synchronized void close() {
+		if (!hasBeenClosed) {
+			logLine(true);
+			hasBeenClosed = true;
+		}
 	}
 
 	/**
@@ -57,24 +126,52 @@ class LoggingOutputStream extends java.io.OutputStream {
 	 * <code>write</code> is that one byte is written to the output stream. The
 	 * byte to be written is the eight low-order bits of the argument
 	 * <code>b</code>. The 24 high-order bits of <code>b</code> are ignored.
-	 * 
+	 *
 	 * @param b
 	 *            the <code>byte</code> to write
 	 */
 	@Override
-	public void write(final int b) throws IOException {
-		if (hasBeenClosed) {
-			throw new IOException("The stream has been closed.");
+	public synchronized void write(final int b) throws IOException {
+		ensureOpen();
+		if (b == '\n') {
+			logLine(true);
+		} else {
+			if (count == maxLineLength) {
+				logLine(false);
+			}
+			ensureCapacity(count + 1);
+			buffer[count++] = (byte) b;
 		}
+	}
 
-		byte[] bytes = new byte[1];
-		bytes[0] = (byte) (b & 0xff);
-		String s = new String(bytes);
-		if (s.equals("\n")) {
-			flush();
-		} else {
-			buffer.append(s);
+	/**
+	 * Writes <code>len</code> bytes from the specified byte array starting at
+	 * offset <code>off</code> to this output stream. Every complete line is
+	 * logged.
+	 *
+	 * @param b
+	 *            the data
+	 * @param off
+	 *            the start offset in the data
+	 * @param len
+	 *            the number of bytes to write
+	 */
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || off + len > b.length || off + len < 0) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureOpen();
+		int end = off + len;
+		int start = off;
+		for (int i = off; i < end; i++) {
+			if (b[i] == '\n') {
+				append(b, start, i - start);
+				logLine(true);
+				start = i + 1;
+			}
 		}
+		append(b, start, end - start);
 	}
 
 	/**
@@ -82,18 +179,84 @@ class LoggingOutputStream extends java.io.OutputStream {
 	 * written out. The general contract of <code>flush</code> is that calling
 	 * it is an indication that, if any bytes previously written have been
 	 * buffered by the implementation of the output stream, such bytes should
-	 * immediately be written to their intended destination.
+	 * immediately be written to their intended destination. The bytes of an
+	 * incomplete character are kept until the character is complete.
 	 */
 	@Override
-	public void flush() {
-		String message = buffer.toString().trim();
-		if (message.length() > 0) {
-			loggingLevel.log(log, message);
+	public synchronized void flush() {
+		logLine(false);
+	}
+
+	private void ensureOpen() throws IOException {
+		if (hasBeenClosed) {
+			throw new IOException("The stream has been closed.");
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > buffer.length) {
+			byte[] newBuffer = new byte[Math.min(Math.max(2 * buffer.length, capacity), maxLineLength)];
+			System.arraycopy(buffer, 0, newBuffer, 0, count);
+			buffer = newBuffer;
 		}
-		reset();
 	}
 
-	private void reset() {
-		buffer = new StringBuffer();
+	/**
+	 * Appends bytes without line separator to the current line and logs the
+	 * line whenever it reaches the maximum length.
+	 */
+	private void append(byte[] b, int off, int len) {
+		while (len > 0) {
+			if (count == maxLineLength) {
+				logLine(false);
+			}
+			int n = Math.min(len, maxLineLength - count);
+			ensureCapacity(count + n);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Decodes and logs the buffered bytes, leaving out leading and trailing
+	 * whitespace. Empty lines are not logged.
+	 *
+	 * @param endOfLine
+	 *            <code>true</code> if the line is complete, otherwise the bytes
+	 *            of an incomplete trailing character stay in the buffer
+	 */
+	private void logLine(boolean endOfLine) {
+		if (count == 0) {
+			return;
+		}
+		int maxChars = (int) Math.ceil(count * (double) decoder.maxCharsPerByte());
+		if (chars == null || chars.capacity() < maxChars) {
+			chars = CharBuffer.allocate(maxChars);
+		}
+		chars.clear();
+		ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+		decoder.decode(bytes, chars, endOfLine);
+		if (endOfLine) {
+			decoder.flush(chars);
+			decoder.reset();
+		}
+		int remaining = bytes.remaining();
+		System.arraycopy(buffer, bytes.position(), buffer, 0, remaining);
+		count = remaining;
+
+		char[] array = chars.array();
+		int start = 0;
+		int end = chars.position();
+		while (start < end && array[start] <= ' ') {
+			start++;
+		}
+		while (end > start && array[end - 1] <= ' ') {
+			end--;
+		}
+		if (end > start) {
+			loggingLevel.log(log, new String(array, start, end - start));
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+/**
+ * Negative cache of annotation types that are not on the classpath. After the
+ * first failed lookup of a type its later occurrences are only counted, so
+ * the parser does not have to fail again for each of them. The missing types
+ * are reported once with their number of occurrences. This class is thread
+ * safe.
+ * <p>
+ * The same name written in the source can denote different types, depending
+ * on the imports of the compilation unit. Lookups are therefore scoped, e.g.
+ * by the top level class, while the occurrences are counted by the qualified
+ * name reported for the placeholder of the missing type.
+ * <p>
+ * Runs with the same classpath and source path can share the failed lookups
+ * while counting their occurrences on their own, see
+ * {@link #MissingAnnotationTypes(MissingAnnotationTypes)}.
+ */
+public class MissingAnnotationTypes {
+
+	protected final ConcurrentMap<String, AtomicLong> occurrences = new ConcurrentHashMap<String, AtomicLong>();
+
+	protected final ConcurrentMap<String, String> firstProgramElements = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * The scoped names known to be missing, mapped to the name their
+	 * occurrences are counted by.
+	 */
+	protected final ConcurrentMap<String, String> lookups;
+
+	/**
+	 * The scoped names whose first lookup reported a qualified name, mapped to
+	 * that name.
+	 */
+	protected final ConcurrentMap<String, String> qualifiedNames;
+
+	/**
+	 * Creates an empty cache.
+	 */
+	public MissingAnnotationTypes() {
+		lookups = new ConcurrentHashMap<String, String>();
+		qualifiedNames = new ConcurrentHashMap<String, String>();
+	}
+
+	/**
+	 * Creates a cache sharing the failed lookups with the given one, but
+	 * counting and reporting only its own occurrences. The lookups are only
+	 * valid for the same classpath and source path.
+	 *
+	 * @param lookupsFrom
+	 *            the cache whose failed lookups are shared
+	 */
+	public MissingAnnotationTypes(MissingAnnotationTypes lookupsFrom) {
+		lookups = lookupsFrom.lookups;
+		qualifiedNames = lookupsFrom.qualifiedNames;
+	}
+
+	/**
+	 * Checks whether a type is known to be missing.
+	 *
+	 * @param scope
+	 *            the scope of the name, e.g. the top level class
+	 * @param name
+	 *            the name of the annotation type as written in the source
+	 * @return <code>true</code> if the type has been added before
+	 */
+	public boolean contains(String scope, String name) {
+		return lookups.containsKey(scope + '\u0000' + name);
+	}
+
+	/**
+	 * @return <code>true</code> if no type is known to be missing. Used as
+	 *         fast path, as long as every annotation type could be resolved.
+	 */
+	public boolean isEmpty() {
+		return lookups.isEmpty();
+	}
+
+	/**
+	 * Counts an occurrence of a missing annotation type without scope.
+	 *
+	 * @see #add(String, String, String, String)
+	 */
+	public String add(String name, String qualifiedName, String programElement) {
+		return add("", name, qualifiedName, programElement);
+	}
+
+	/**
+	 * Counts an occurrence of a missing annotation type.
+	 *
+	 * @param scope
+	 *            the scope of the name, e.g. the top level class
+	 * @param name
+	 *            the name of the annotation type as written in the source
+	 * @param qualifiedName
+	 *            the qualified name reported for the type by the failed
+	 *            lookup, only used for the first occurrence within the scope.
+	 *            May be <code>null</code>.
+	 * @param programElement
+	 *            the annotated element, reported for the first occurrence
+	 * @return the qualified name given for the first occurrence within the
+	 *         scope or <code>null</code> if there was none
+	 */
+	public String add(String scope, String name, String qualifiedName, String programElement) {
+		String lookup = scope + '\u0000' + name;
+		String key = lookups.get(lookup);
+		if (key == null) {
+			if (qualifiedName != null) {
+				qualifiedNames.putIfAbsent(lookup, qualifiedName);
+			}
+			lookups.putIfAbsent(lookup, qualifiedName != null ? qualifiedName : name);
+			key = lookups.get(lookup);
+		}
+
+		AtomicLong count = occurrences.get(key);
+		if (count == null) {
+			firstProgramElements.putIfAbsent(key, programElement);
+			AtomicLong newCount = new AtomicLong();
+			count = occurrences.putIfAbsent(key, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+		count.incrementAndGet();
+		return qualifiedNames.get(lookup);
+	}
+
+	/**
+	 * @return the missing types with their number of occurrences, sorted by
+	 *         qualified name
+	 */
+	public Map<String, Long> getOccurrences() {
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : occurrences.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().get());
+		}
+		return result;
+	}
+
+	/**
+	 * Logs one summary of all missing types, if there are any.
+	 *
+	 * @param log
+	 *            the logger to write the error to
+	 */
+	public void logSummary(Logger log) {
+		if (occurrences.isEmpty()) {
+			return;
+		}
+		StringBuilder message = new StringBuilder();
+		message.append("Unable to obtain type data about ").append(occurrences.size())
+				.append(" annotation types. Add to the classpath the class/jar that defines these annotations:");
+		for (Map.Entry<String, Long> entry : getOccurrences().entrySet()) {
+			message.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue())
+					.append(" occurrences, first found on: ").append(firstProgramElements.get(entry.getKey()));
+		}
+		log.error(message.toString());
+	}
+}
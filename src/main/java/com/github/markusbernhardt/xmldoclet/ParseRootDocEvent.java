@@ -0,0 +1,41 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the conversion of the whole documentation
+ * tree. Only loaded through {@link FlightRecorderEvents}.
+ */
+@Name("com.github.markusbernhardt.xmldoclet.ParseRootDoc")
+@Label("Parse RootDoc")
+@Category("XML Doclet")
+@Description("Conversion of the javadoc documentation tree into the XML object model")
+public class ParseRootDocEvent extends Event {
+
+	@Label("Types")
+	@Description("Number of documented types")
+	protected int types;
+
+	@Label("Threads")
+	protected int threads;
+
+	static Object start() {
+		ParseRootDocEvent event = new ParseRootDocEvent();
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object object, int types, int threads) {
+		ParseRootDocEvent event = (ParseRootDocEvent) object;
+		event.end();
+		if (event.shouldCommit()) {
+			event.types = types;
+			event.threads = threads;
+			event.commit();
+		}
+	}
+}
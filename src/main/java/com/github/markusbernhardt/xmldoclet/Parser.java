@@ -1,7 +1,17 @@
 package com.github.markusbernhardt.xmldoclet;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +41,7 @@ import com.sun.javadoc.AnnotationTypeElementDoc;
 import com.sun.javadoc.AnnotationValue;
 import com.sun.javadoc.ClassDoc;
 import com.sun.javadoc.ConstructorDoc;
+import com.sun.javadoc.ExecutableMemberDoc;
 import com.sun.javadoc.FieldDoc;
 import com.sun.javadoc.MethodDoc;
 import com.sun.javadoc.PackageDoc;
@@ -57,6 +68,40 @@ public class Parser {
 
 	protected ObjectFactory objectFactory = new ObjectFactory();
 
+	protected int threads = 1;
+
+	protected TypeInfoCache typeInfoCache = new TypeInfoCache();
+
+	protected MissingAnnotationTypes missingAnnotationTypes = new MissingAnnotationTypes();
+
+	protected TypeTable typeTable;
+
+	protected FragmentCache fragmentCache;
+
+	/**
+	 * The fragments loaded on the calling thread before a parallel run, or
+	 * <code>null</code> if the fragments are loaded while parsing.
+	 */
+	protected Map<ClassDoc, Object> loadedFragments;
+
+	/**
+	 * Set while a type is parsed if one of its annotation types is missing.
+	 * Such a type is not cached, so every run reports its missing annotation
+	 * types and takes them from the classpath once they are added.
+	 */
+	protected final ThreadLocal<Boolean> missingAnnotationParsed = new ThreadLocal<Boolean>();
+
+	/**
+	 * The top level class of the type being parsed. The name of a missing
+	 * annotation type is resolved against the imports of its compilation
+	 * unit, so the negative cache is scoped by it.
+	 */
+	protected final ThreadLocal<String> annotationScope = new ThreadLocal<String>();
+
+	protected boolean compact = false;
+
+	protected Statistics statistics;
+
 	/**
 	 * The entry point into parsing the javadoc.
 	 * 
@@ -65,30 +110,610 @@ public class Parser {
 	 * @return The root node, containing everything parsed from javadoc doclet
 	 */
 	public Root parseRootDoc(RootDoc rootDoc) {
-		Root rootNode = objectFactory.createRoot();
+		RootBuilder rootBuilder = new RootBuilder();
+		parseRootDoc(rootDoc, rootBuilder);
+		return rootBuilder.getRoot();
+	}
+
+	/**
+	 * The entry point into parsing the javadoc without building the whole
+	 * object model in memory. Every type is handed to the listener as soon as
+	 * it has been parsed and is not referenced by the parser afterwards.
+	 * 
+	 * @param rootDoc
+	 *            The RootDoc intstance obtained via the doclet API
+	 * @param listener
+	 *            The listener receiving the parsed nodes in document order
+	 */
+	public void parseRootDoc(RootDoc rootDoc, RootListener listener) {
+		if (statistics != null) {
+			listener = statistics.createListener(listener);
+		}
+		ClassDoc[] classes = rootDoc.classes();
+		Object event = FlightRecorderEvents.beginParseRootDoc();
+		try {
+			Root rootNode = objectFactory.createRoot();
+			listener.startRoot(rootNode);
 
-		for (ClassDoc classDoc : rootDoc.classes()) {
-			PackageDoc packageDoc = classDoc.containingPackage();
+			Collection<List<ClassDoc>> classDocsByPackage = groupByPackage(classes).values();
+			if (threads > 1) {
+				parsePackagesInParallel(classDocsByPackage, listener);
+			} else {
+				for (List<ClassDoc> classDocs : classDocsByPackage) {
+					Package packageNode = startPackage(classDocs.get(0).containingPackage(), listener);
+					parseClassDocs(classDocs, listener);
+					listener.endPackage(packageNode);
+				}
+			}
 
-			Package packageNode = packages.get(packageDoc.name());
-			if (packageNode == null) {
-				packageNode = parsePackage(packageDoc);
-				packages.put(packageDoc.name(), packageNode);
-				rootNode.getPackage().add(packageNode);
+			if (typeTable != null) {
+				rootNode.setTypes(typeTable.createTypesNode());
 			}
+			listener.endRoot(rootNode);
+
+			missingAnnotationTypes.logSummary(log);
+			log.debug(typeInfoCache.toString());
+			if (statistics != null) {
+				statistics.setDistinctTypeInfos(typeInfoCache.size());
+			}
+		} finally {
+			FlightRecorderEvents.endParseRootDoc(event, classes.length, threads);
+		}
+	}
+
+	/**
+	 * Enables the type table output mode. Every distinct type is written once
+	 * into the <code>types</code> section of the root node and all usages only
+	 * reference it by id.
+	 * 
+	 * @param typeTable
+	 *            the table collecting the types or <code>null</code> to write
+	 *            the complete type at every usage
+	 */
+	public void setTypeTable(TypeTable typeTable) {
+		this.typeTable = typeTable;
+	}
+
+	/**
+	 * Enables the incremental mode. Classes whose source file did not change
+	 * since the last run are taken from the cache instead of being parsed.
+	 * 
+	 * @param fragmentCache
+	 *            the persistent cache or <code>null</code> to parse every class
+	 */
+	public void setFragmentCache(FragmentCache fragmentCache) {
+		this.fragmentCache = fragmentCache;
+	}
+
+	/**
+	 * Enables the compact output. Boolean attributes equal to their default
+	 * value in the schema are left out of the object model.
+	 * 
+	 * @param compact
+	 *            <code>true</code> to leave out default values
+	 */
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+
+	/**
+	 * Enables the statistics. The nodes handed to the listener are counted and
+	 * the conversion time of every type is recorded.
+	 * 
+	 * @param statistics
+	 *            the statistics or <code>null</code> to disable them
+	 */
+	public void setStatistics(Statistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the statistics or <code>null</code> if they are disabled
+	 */
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the cache sharing the type nodes between all references.
+	 * 
+	 * @return the type cache, e.g. to log its hits and misses
+	 */
+	public TypeInfoCache getTypeInfoCache() {
+		return typeInfoCache;
+	}
+
+	/**
+	 * Shares the cache of type nodes, e.g. between several runs in one JVM.
+	 * Not supported together with the type table, whose nodes only reference
+	 * the types of one document.
+	 * 
+	 * @param typeInfoCache
+	 *            the cache of type nodes
+	 */
+	public void setTypeInfoCache(TypeInfoCache typeInfoCache) {
+		this.typeInfoCache = typeInfoCache;
+	}
+
+	/**
+	 * Returns the annotation types found missing so far.
+	 * 
+	 * @return the negative cache of annotation types
+	 */
+	public MissingAnnotationTypes getMissingAnnotationTypes() {
+		return missingAnnotationTypes;
+	}
+
+	/**
+	 * Shares the negative cache of annotation types, e.g. between several
+	 * runs with the same classpath.
+	 * 
+	 * @param missingAnnotationTypes
+	 *            the annotation types known to be missing
+	 */
+	public void setMissingAnnotationTypes(MissingAnnotationTypes missingAnnotationTypes) {
+		this.missingAnnotationTypes = missingAnnotationTypes;
+	}
+
+	/**
+	 * Sets the number of threads used to convert the classes. Each package is
+	 * converted as a whole by one thread. The result is identical to a single
+	 * threaded run.
+	 * 
+	 * @param threads
+	 *            the number of threads, 1 to parse on the calling thread only
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads < 1");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Parses the package and hands it to the listener.
+	 * 
+	 * @param packageDoc
+	 *            the package to start
+	 * @param listener
+	 *            the listener receiving the parsed nodes
+	 * @return the package node
+	 */
+	protected Package startPackage(PackageDoc packageDoc, RootListener listener) {
+		Package packageNode = parsePackage(packageDoc);
+		packages.put(packageDoc.name(), packageNode);
+		listener.startPackage(packageNode);
+		return packageNode;
+	}
+
+	/**
+	 * Converts the classes of every package on a ForkJoinPool and hands the
+	 * results to the listener in the original order.
+	 * <p>
+	 * The com.sun.javadoc implementation is not thread safe: lots of its
+	 * results are created lazily and cached in plain hash maps. Therefore
+	 * everything the conversion reads is prefetched on the calling thread
+	 * before any worker starts. Whether a class is taken from the fragment
+	 * cache is decided there as well: its fragment is loaded up front and only
+	 * the classes without a readable fragment are prefetched. The number of
+	 * converted packages waiting to be handed to the listener is limited to
+	 * twice the number of threads.
+	 * 
+	 * @param classDocsByPackage
+	 *            the classes grouped by package
+	 * @param listener
+	 *            the listener receiving the parsed nodes
+	 */
+	protected void parsePackagesInParallel(Collection<List<ClassDoc>> classDocsByPackage, RootListener listener) {
+		if (fragmentCache != null) {
+			loadedFragments = new ConcurrentHashMap<ClassDoc, Object>();
+		}
+		for (List<ClassDoc> classDocs : classDocsByPackage) {
+			for (ClassDoc classDoc : classDocs) {
+				Object fragment = null;
+				if (fragmentCache != null) {
+					fragment = fragmentCache.get(classDoc, getNodeType(classDoc));
+				}
+				if (fragment != null) {
+					loadedFragments.put(classDoc, fragment);
+				} else {
+					prefetch(classDoc);
+				}
+			}
+		}
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+		try {
+			Deque<ParseClassDocsTask> tasks = new ArrayDeque<ParseClassDocsTask>();
+			Iterator<List<ClassDoc>> iterator = classDocsByPackage.iterator();
+			while (iterator.hasNext() || !tasks.isEmpty()) {
+				while (iterator.hasNext() && tasks.size() < 2 * threads) {
+					ParseClassDocsTask task = new ParseClassDocsTask(iterator.next());
+					forkJoinPool.execute(task);
+					tasks.addLast(task);
+				}
+
+				ParseClassDocsTask task = tasks.removeFirst();
+				RootRecorder recorder = task.join();
+				Package packageNode = startPackage(task.classDocs.get(0).containingPackage(), listener);
+				recorder.replay(listener);
+				listener.endPackage(packageNode);
+			}
+		} finally {
+			forkJoinPool.shutdown();
+			loadedFragments = null;
+		}
+	}
+
+	/**
+	 * Returns the node type a class is converted to.
+	 * 
+	 * @param classDoc
+	 *            the class
+	 * @return the node type
+	 */
+	protected java.lang.Class<?> getNodeType(ClassDoc classDoc) {
+		if (classDoc instanceof AnnotationTypeDoc) {
+			return Annotation.class;
+		} else if (classDoc.isEnum()) {
+			return Enum.class;
+		} else if (classDoc.isInterface()) {
+			return Interface.class;
+		}
+		return Class.class;
+	}
+
+	/**
+	 * Converts the classes of one package into a recorder.
+	 */
+	protected class ParseClassDocsTask extends RecursiveTask<RootRecorder> {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final List<ClassDoc> classDocs;
+
+		protected ParseClassDocsTask(List<ClassDoc> classDocs) {
+			this.classDocs = classDocs;
+		}
+
+		@Override
+		protected RootRecorder compute() {
+			RootRecorder recorder = new RootRecorder();
+			parseClassDocs(classDocs, recorder);
+			return recorder;
+		}
+	}
+
+	/**
+	 * Touches everything the conversion of the class will read, so the lazily
+	 * created parts of the javadoc model are created on the calling thread.
+	 * 
+	 * @param classDoc
+	 *            the class to prefetch
+	 */
+	protected void prefetch(ClassDoc classDoc) {
+		prefetchProgramElement(classDoc);
+		classDoc.isAbstract();
+		classDoc.isError();
+		classDoc.isException();
+		classDoc.isExternalizable();
+		classDoc.isSerializable();
+		classDoc.isEnum();
+		classDoc.isInterface();
+
+		for (TypeVariable typeVariable : classDoc.typeParameters()) {
+			typeVariable.typeName();
+			for (Type bound : typeVariable.bounds()) {
+				prefetchType(bound);
+			}
+		}
+
+		Type superClassType = classDoc.superclassType();
+		if (superClassType != null) {
+			prefetchType(superClassType);
+		}
+		for (Type interfaceType : classDoc.interfaceTypes()) {
+			prefetchType(interfaceType);
+		}
+
+		for (ConstructorDoc constructorDoc : classDoc.constructors()) {
+			prefetchExecutableMember(constructorDoc);
+		}
+		for (MethodDoc methodDoc : classDoc.methods()) {
+			prefetchExecutableMember(methodDoc);
+			methodDoc.isAbstract();
+			prefetchType(methodDoc.returnType());
+		}
+		for (FieldDoc fieldDoc : classDoc.fields()) {
+			prefetchField(fieldDoc);
+		}
+		for (FieldDoc fieldDoc : classDoc.enumConstants()) {
+			prefetchField(fieldDoc);
+		}
+
+		if (classDoc instanceof AnnotationTypeDoc) {
+			for (AnnotationTypeElementDoc annotationTypeElementDoc : ((AnnotationTypeDoc) classDoc).elements()) {
+				annotationTypeElementDoc.qualifiedName();
+				prefetchType(annotationTypeElementDoc.returnType());
+				AnnotationValue value = annotationTypeElementDoc.defaultValue();
+				if (value != null) {
+					value.toString();
+				}
+			}
+		}
+	}
+
+	private void prefetchProgramElement(ProgramElementDoc programElementDoc) {
+		programElementDoc.containingClass();
+		programElementDoc.name();
+		programElementDoc.qualifiedName();
+		programElementDoc.commentText();
+		for (Tag tag : programElementDoc.tags()) {
+			tag.kind();
+			tag.text();
+		}
+		programElementDoc.isIncluded();
+		parseScope(programElementDoc);
+		prefetchAnnotations(programElementDoc.annotations());
+	}
+
+	private void prefetchExecutableMember(ExecutableMemberDoc executableMemberDoc) {
+		prefetchProgramElement(executableMemberDoc);
+		executableMemberDoc.isFinal();
+		executableMemberDoc.isNative();
+		executableMemberDoc.isStatic();
+		executableMemberDoc.isSynchronized();
+		executableMemberDoc.isVarArgs();
+		executableMemberDoc.signature();
+		for (Parameter parameter : executableMemberDoc.parameters()) {
+			parameter.name();
+			parameter.typeName();
+			prefetchType(parameter.type());
+			prefetchAnnotations(parameter.annotations());
+		}
+		for (Type exceptionType : executableMemberDoc.thrownExceptionTypes()) {
+			prefetchType(exceptionType);
+		}
+	}
 
+	private void prefetchField(FieldDoc fieldDoc) {
+		prefetchProgramElement(fieldDoc);
+		prefetchType(fieldDoc.type());
+		fieldDoc.isFinal();
+		fieldDoc.isStatic();
+		fieldDoc.isVolatile();
+		fieldDoc.isTransient();
+		fieldDoc.constantValueExpression();
+	}
+
+	private void prefetchAnnotations(AnnotationDesc[] annotationDescs) {
+		for (AnnotationDesc annotationDesc : annotationDescs) {
+			annotationDesc.toString();
+			try {
+				AnnotationTypeDoc annotationTypeDoc = annotationDesc.annotationType();
+				annotationTypeDoc.name();
+				annotationTypeDoc.qualifiedTypeName();
+			} catch (ClassCastException castException) {
+				// reported while parsing
+			}
+			for (AnnotationDesc.ElementValuePair elementValuePair : annotationDesc.elementValues()) {
+				elementValuePair.element().name();
+				prefetchType(elementValuePair.element().returnType());
+				prefetchAnnotationValue(elementValuePair.value());
+			}
+		}
+	}
+
+	private void prefetchAnnotationValue(AnnotationValue annotationValue) {
+		Object value = annotationValue.value();
+		if (value instanceof AnnotationValue[]) {
+			for (AnnotationValue element : (AnnotationValue[]) value) {
+				prefetchAnnotationValue(element);
+			}
+		} else if (value instanceof AnnotationDesc) {
+			prefetchAnnotations(new AnnotationDesc[] { (AnnotationDesc) value });
+		} else if (value instanceof FieldDoc) {
+			((FieldDoc) value).name();
+		} else if (value instanceof ClassDoc) {
+			((ClassDoc) value).qualifiedTypeName();
+		} else {
+			value.toString();
+		}
+	}
+
+	private void prefetchType(Type type) {
+		type.qualifiedTypeName();
+		type.dimension();
+		type.isPrimitive();
+
+		WildcardType wildcard = type.asWildcardType();
+		if (wildcard != null) {
+			for (Type extendType : wildcard.extendsBounds()) {
+				prefetchType(extendType);
+			}
+			for (Type superType : wildcard.superBounds()) {
+				prefetchType(superType);
+			}
+		}
+
+		ParameterizedType parameterized = type.asParameterizedType();
+		if (parameterized != null) {
+			for (Type typeArgument : parameterized.typeArguments()) {
+				prefetchType(typeArgument);
+			}
+		}
+	}
+
+	/**
+	 * Groups the classes by their containing package. Packages are kept in the
+	 * order of their first occurrence, classes in the order given.
+	 * 
+	 * @param classDocs
+	 *            the classes to group
+	 * @return the classes grouped by package name
+	 */
+	protected Map<String, List<ClassDoc>> groupByPackage(ClassDoc[] classDocs) {
+		Map<String, List<ClassDoc>> classDocsByPackage = new LinkedHashMap<String, List<ClassDoc>>();
+		for (ClassDoc classDoc : classDocs) {
+			String packageName = classDoc.containingPackage().name();
+			List<ClassDoc> packageClassDocs = classDocsByPackage.get(packageName);
+			if (packageClassDocs == null) {
+				packageClassDocs = new ArrayList<ClassDoc>();
+				classDocsByPackage.put(packageName, packageClassDocs);
+			}
+			packageClassDocs.add(classDoc);
+		}
+		return classDocsByPackage;
+	}
+
+	/**
+	 * Parses the classes of one package and hands them to the listener in the
+	 * order required by the schema: annotations, enums, interfaces, classes.
+	 * 
+	 * @param classDocs
+	 *            the classes of one package
+	 * @param listener
+	 *            the listener receiving the parsed nodes
+	 */
+	protected void parseClassDocs(List<ClassDoc> classDocs, RootListener listener) {
+		List<AnnotationTypeDoc> annotationTypeDocs = new ArrayList<AnnotationTypeDoc>();
+		List<ClassDoc> enumDocs = new ArrayList<ClassDoc>();
+		List<ClassDoc> interfaceDocs = new ArrayList<ClassDoc>();
+		List<ClassDoc> classOnlyDocs = new ArrayList<ClassDoc>();
+		for (ClassDoc classDoc : classDocs) {
 			if (classDoc instanceof AnnotationTypeDoc) {
-				packageNode.getAnnotation().add(parseAnnotationTypeDoc((AnnotationTypeDoc) classDoc));
+				annotationTypeDocs.add((AnnotationTypeDoc) classDoc);
 			} else if (classDoc.isEnum()) {
-				packageNode.getEnum().add(parseEnum(classDoc));
+				enumDocs.add(classDoc);
 			} else if (classDoc.isInterface()) {
-				packageNode.getInterface().add(parseInterface(classDoc));
+				interfaceDocs.add(classDoc);
 			} else {
-				packageNode.getClazz().add(parseClass(classDoc));
+				classOnlyDocs.add(classDoc);
 			}
 		}
 
-		return rootNode;
+		for (AnnotationTypeDoc annotationTypeDoc : annotationTypeDocs) {
+			Annotation annotationNode = getCachedFragment(annotationTypeDoc, Annotation.class);
+			if (annotationNode == null) {
+				Object event = FlightRecorderEvents.beginConvertType();
+				long start = System.nanoTime();
+				annotationScope.set(getTopLevelClassName(annotationTypeDoc));
+				annotationNode = putCachedFragment(annotationTypeDoc, Annotation.class,
+						parseAnnotationTypeDoc(annotationTypeDoc));
+				addTypeTime(annotationTypeDoc, start);
+				FlightRecorderEvents.endConvertType(event, annotationNode.getQualified(), "annotation", 0,
+						annotationNode.getElement().size(), 0);
+			}
+			listener.addAnnotation(annotationNode);
+		}
+		for (ClassDoc classDoc : enumDocs) {
+			Enum enumNode = getCachedFragment(classDoc, Enum.class);
+			if (enumNode == null) {
+				Object event = FlightRecorderEvents.beginConvertType();
+				long start = System.nanoTime();
+				annotationScope.set(getTopLevelClassName(classDoc));
+				enumNode = putCachedFragment(classDoc, Enum.class, parseEnum(classDoc));
+				addTypeTime(classDoc, start);
+				FlightRecorderEvents.endConvertType(event, enumNode.getQualified(), "enum", 0, 0,
+						enumNode.getConstant().size());
+			}
+			listener.addEnum(enumNode);
+		}
+		for (ClassDoc classDoc : interfaceDocs) {
+			Interface interfaceNode = getCachedFragment(classDoc, Interface.class);
+			if (interfaceNode == null) {
+				Object event = FlightRecorderEvents.beginConvertType();
+				long start = System.nanoTime();
+				annotationScope.set(getTopLevelClassName(classDoc));
+				interfaceNode = putCachedFragment(classDoc, Interface.class, parseInterface(classDoc));
+				addTypeTime(classDoc, start);
+				FlightRecorderEvents.endConvertType(event, interfaceNode.getQualified(), "interface", 0,
+						interfaceNode.getMethod().size(), interfaceNode.getField().size());
+			}
+			listener.addInterface(interfaceNode);
+		}
+		for (ClassDoc classDoc : classOnlyDocs) {
+			Class classNode = getCachedFragment(classDoc, Class.class);
+			if (classNode == null) {
+				Object event = FlightRecorderEvents.beginConvertType();
+				long start = System.nanoTime();
+				annotationScope.set(getTopLevelClassName(classDoc));
+				classNode = putCachedFragment(classDoc, Class.class, parseClass(classDoc));
+				addTypeTime(classDoc, start);
+				FlightRecorderEvents.endConvertType(event, classNode.getQualified(), "class",
+						classNode.getConstructor().size(), classNode.getMethod().size(), classNode.getField().size());
+			}
+			listener.addClass(classNode);
+		}
+	}
+
+	/**
+	 * Returns the qualified name of the top level class containing a type.
+	 * 
+	 * @param classDoc
+	 *            the type
+	 * @return the qualified name of the top level class
+	 */
+	protected String getTopLevelClassName(ClassDoc classDoc) {
+		while (classDoc.containingClass() != null) {
+			classDoc = classDoc.containingClass();
+		}
+		return classDoc.qualifiedName();
+	}
+
+	/**
+	 * Records the conversion time of a type, if the statistics are enabled.
+	 * 
+	 * @param classDoc
+	 *            the converted type
+	 * @param start
+	 *            the value of {@link System#nanoTime()} before the conversion
+	 */
+	protected void addTypeTime(ClassDoc classDoc, long start) {
+		if (statistics != null) {
+			statistics.addType(classDoc.qualifiedName(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Looks up the converted class in the fragment cache.
+	 * 
+	 * @param classDoc
+	 *            the class
+	 * @param type
+	 *            the node type of the class
+	 * @return the cached node or <code>null</code> if it has to be parsed
+	 */
+	protected <T> T getCachedFragment(ClassDoc classDoc, java.lang.Class<T> type) {
+		if (fragmentCache == null) {
+			return null;
+		}
+		if (loadedFragments != null) {
+			// hit or miss has already been decided on the calling thread
+			return type.cast(loadedFragments.remove(classDoc));
+		}
+		return fragmentCache.get(classDoc, type);
+	}
+
+	/**
+	 * Stores the converted class in the fragment cache, unless one of its
+	 * annotation types is missing.
+	 * 
+	 * @param classDoc
+	 *            the class
+	 * @param type
+	 *            the node type of the class
+	 * @param node
+	 *            the parsed node
+	 * @return the parsed node
+	 */
+	protected <T> T putCachedFragment(ClassDoc classDoc, java.lang.Class<T> type, T node) {
+		boolean missingAnnotation = missingAnnotationParsed.get() != null;
+		missingAnnotationParsed.remove();
+		if (fragmentCache == null || missingAnnotation) {
+			return node;
+		}
+		return fragmentCache.put(classDoc, type, node);
 	}
 
 	protected Package parsePackage(PackageDoc packageDoc) {
@@ -121,7 +746,9 @@ public class Parser {
 		if (comment.length() > 0) {
 			annotationNode.setComment(comment);
 		}
-		annotationNode.setIncluded(annotationTypeDoc.isIncluded());
+		if (flag(annotationTypeDoc.isIncluded(), true)) {
+			annotationNode.setIncluded(annotationTypeDoc.isIncluded());
+		}
 		annotationNode.setScope(parseScope(annotationTypeDoc));
 
 		for (AnnotationTypeElementDoc annotationTypeElementDoc : annotationTypeDoc.elements()) {
@@ -160,6 +787,21 @@ public class Parser {
 		return annotationElementNode;
 	}
 
+	/**
+	 * Returns the name of an annotation type without resolving it. The string
+	 * representation of an annotation starts with its type name as written in
+	 * the source, followed by the arguments.
+	 * 
+	 * @param annotationDesc
+	 *            the annotation instance
+	 * @return the name of the annotation type
+	 */
+	protected String annotationTypeName(AnnotationDesc annotationDesc) {
+		String annotation = annotationDesc.toString();
+		int end = annotation.indexOf('(');
+		return annotation.substring(1, end < 0 ? annotation.length() : end);
+	}
+
 	/**
 	 * Parses annotation instances of an annotable program element
 	 * 
@@ -172,13 +814,33 @@ public class Parser {
 	protected AnnotationInstance parseAnnotationDesc(AnnotationDesc annotationDesc, String programElement) {
 		AnnotationInstance annotationInstanceNode = objectFactory.createAnnotationInstance();
 
-		try {
-			AnnotationTypeDoc annotTypeInfo = annotationDesc.annotationType();
-			annotationInstanceNode.setName(annotTypeInfo.name());
-			annotationInstanceNode.setQualified(annotTypeInfo.qualifiedTypeName());
-		} catch (ClassCastException castException) {
-			log.error("Unable to obtain type data about an annotation found on: " + programElement);
-			log.error("Add to the classpath the class/jar that defines this annotation.");
+		// javadoc warns about a missing annotation type on every lookup and
+		// fails on some, so a missing type is looked up only once per
+		// compilation unit
+		String missingName = null;
+		if (!missingAnnotationTypes.isEmpty()) {
+			missingName = annotationTypeName(annotationDesc);
+		}
+		if (missingName != null && missingAnnotationTypes.contains(getAnnotationScope(), missingName)) {
+			String qualified = addMissingAnnotationType(missingName, null, programElement);
+			if (qualified != null) {
+				annotationInstanceNode.setName(qualified.substring(qualified.lastIndexOf('.') + 1));
+				annotationInstanceNode.setQualified(qualified);
+			}
+		} else {
+			try {
+				AnnotationTypeDoc annotTypeInfo = annotationDesc.annotationType();
+				annotationInstanceNode.setName(annotTypeInfo.name());
+				annotationInstanceNode.setQualified(annotTypeInfo.qualifiedTypeName());
+				// the placeholder of a missing type is a class, not an
+				// annotation type
+				if (annotTypeInfo.isClass()) {
+					addMissingAnnotationType(annotationTypeName(annotationDesc), annotTypeInfo.qualifiedTypeName(),
+							programElement);
+				}
+			} catch (ClassCastException castException) {
+				addMissingAnnotationType(annotationTypeName(annotationDesc), null, programElement);
+			}
 		}
 
 		for (AnnotationDesc.ElementValuePair elementValuesPair : annotationDesc.elementValues()) {
@@ -187,8 +849,12 @@ public class Parser {
 
 			Type annotationArgumentType = elementValuesPair.element().returnType();
 			annotationArgumentNode.setType(parseTypeInfo(annotationArgumentType));
-			annotationArgumentNode.setPrimitive(annotationArgumentType.isPrimitive());
-			annotationArgumentNode.setArray(annotationArgumentType.dimension().length() > 0);
+			if (flag(annotationArgumentType.isPrimitive(), false)) {
+				annotationArgumentNode.setPrimitive(annotationArgumentType.isPrimitive());
+			}
+			if (flag(annotationArgumentType.dimension().length() > 0, false)) {
+				annotationArgumentNode.setArray(annotationArgumentType.dimension().length() > 0);
+			}
 
 			Object objValue = elementValuesPair.value().value();
 			if (objValue instanceof AnnotationValue[]) {
@@ -213,6 +879,26 @@ public class Parser {
 		return annotationInstanceNode;
 	}
 
+	/**
+	 * Counts an occurrence of a missing annotation type and marks the type
+	 * being parsed as not cacheable.
+	 * 
+	 * @see MissingAnnotationTypes#add(String, String, String)
+	 */
+	protected String addMissingAnnotationType(String name, String qualifiedName, String programElement) {
+		missingAnnotationParsed.set(Boolean.TRUE);
+		return missingAnnotationTypes.add(getAnnotationScope(), name, qualifiedName, programElement);
+	}
+
+	/**
+	 * @return the scope of the missing annotation types of the type being
+	 *         parsed
+	 */
+	private String getAnnotationScope() {
+		String scope = annotationScope.get();
+		return scope != null ? scope : "";
+	}
+
 	protected Enum parseEnum(ClassDoc classDoc) {
 		Enum enumNode = objectFactory.createEnum();
 		enumNode.setName(classDoc.name());
@@ -221,7 +907,9 @@ public class Parser {
 		if (comment.length() > 0) {
 			enumNode.setComment(comment);
 		}
-		enumNode.setIncluded(classDoc.isIncluded());
+		if (flag(classDoc.isIncluded(), true)) {
+			enumNode.setIncluded(classDoc.isIncluded());
+		}
 		enumNode.setScope(parseScope(classDoc));
 
 		Type superClassType = classDoc.superclassType();
@@ -282,7 +970,9 @@ public class Parser {
 		if (comment.length() > 0) {
 			interfaceNode.setComment(comment);
 		}
-		interfaceNode.setIncluded(classDoc.isIncluded());
+		if (flag(classDoc.isIncluded(), true)) {
+			interfaceNode.setIncluded(classDoc.isIncluded());
+		}
 		interfaceNode.setScope(parseScope(classDoc));
 
 		for (TypeVariable typeVariable : classDoc.typeParameters()) {
@@ -321,12 +1011,24 @@ public class Parser {
 		if (comment.length() > 0) {
 			classNode.setComment(comment);
 		}
-		classNode.setAbstract(classDoc.isAbstract());
-		classNode.setError(classDoc.isError());
-		classNode.setException(classDoc.isException());
-		classNode.setExternalizable(classDoc.isExternalizable());
-		classNode.setIncluded(classDoc.isIncluded());
-		classNode.setSerializable(classDoc.isSerializable());
+		if (flag(classDoc.isAbstract(), false)) {
+			classNode.setAbstract(classDoc.isAbstract());
+		}
+		if (flag(classDoc.isError(), false)) {
+			classNode.setError(classDoc.isError());
+		}
+		if (flag(classDoc.isException(), false)) {
+			classNode.setException(classDoc.isException());
+		}
+		if (flag(classDoc.isExternalizable(), false)) {
+			classNode.setExternalizable(classDoc.isExternalizable());
+		}
+		if (flag(classDoc.isIncluded(), true)) {
+			classNode.setIncluded(classDoc.isIncluded());
+		}
+		if (flag(classDoc.isSerializable(), false)) {
+			classNode.setSerializable(classDoc.isSerializable());
+		}
 		classNode.setScope(parseScope(classDoc));
 
 		for (TypeVariable typeVariable : classDoc.typeParameters()) {
@@ -375,12 +1077,24 @@ public class Parser {
 			constructorNode.setComment(comment);
 		}
 		constructorNode.setScope(parseScope(constructorDoc));
-		constructorNode.setIncluded(constructorDoc.isIncluded());
-		constructorNode.setFinal(constructorDoc.isFinal());
-		constructorNode.setNative(constructorDoc.isNative());
-		constructorNode.setStatic(constructorDoc.isStatic());
-		constructorNode.setSynchronized(constructorDoc.isSynchronized());
-		constructorNode.setVarArgs(constructorDoc.isVarArgs());
+		if (flag(constructorDoc.isIncluded(), true)) {
+			constructorNode.setIncluded(constructorDoc.isIncluded());
+		}
+		if (flag(constructorDoc.isFinal(), false)) {
+			constructorNode.setFinal(constructorDoc.isFinal());
+		}
+		if (flag(constructorDoc.isNative(), false)) {
+			constructorNode.setNative(constructorDoc.isNative());
+		}
+		if (flag(constructorDoc.isStatic(), false)) {
+			constructorNode.setStatic(constructorDoc.isStatic());
+		}
+		if (flag(constructorDoc.isSynchronized(), false)) {
+			constructorNode.setSynchronized(constructorDoc.isSynchronized());
+		}
+		if (flag(constructorDoc.isVarArgs(), false)) {
+			constructorNode.setVarArgs(constructorDoc.isVarArgs());
+		}
 		constructorNode.setSignature(constructorDoc.signature());
 
 		for (Parameter parameter : constructorDoc.parameters()) {
@@ -412,13 +1126,27 @@ public class Parser {
 			methodNode.setComment(comment);
 		}
 		methodNode.setScope(parseScope(methodDoc));
-		methodNode.setAbstract(methodDoc.isAbstract());
-		methodNode.setIncluded(methodDoc.isIncluded());
-		methodNode.setFinal(methodDoc.isFinal());
-		methodNode.setNative(methodDoc.isNative());
-		methodNode.setStatic(methodDoc.isStatic());
-		methodNode.setSynchronized(methodDoc.isSynchronized());
-		methodNode.setVarArgs(methodDoc.isVarArgs());
+		if (flag(methodDoc.isAbstract(), false)) {
+			methodNode.setAbstract(methodDoc.isAbstract());
+		}
+		if (flag(methodDoc.isIncluded(), true)) {
+			methodNode.setIncluded(methodDoc.isIncluded());
+		}
+		if (flag(methodDoc.isFinal(), false)) {
+			methodNode.setFinal(methodDoc.isFinal());
+		}
+		if (flag(methodDoc.isNative(), false)) {
+			methodNode.setNative(methodDoc.isNative());
+		}
+		if (flag(methodDoc.isStatic(), false)) {
+			methodNode.setStatic(methodDoc.isStatic());
+		}
+		if (flag(methodDoc.isSynchronized(), false)) {
+			methodNode.setSynchronized(methodDoc.isSynchronized());
+		}
+		if (flag(methodDoc.isVarArgs(), false)) {
+			methodNode.setVarArgs(methodDoc.isVarArgs());
+		}
 		methodNode.setSignature(methodDoc.signature());
 		methodNode.setReturn(parseTypeInfo(methodDoc.returnType()));
 
@@ -463,10 +1191,18 @@ public class Parser {
 			fieldNode.setComment(comment);
 		}
 		fieldNode.setScope(parseScope(fieldDoc));
-		fieldNode.setFinal(fieldDoc.isFinal());
-		fieldNode.setStatic(fieldDoc.isStatic());
-		fieldNode.setVolatile(fieldDoc.isVolatile());
-		fieldNode.setTransient(fieldDoc.isTransient());
+		if (flag(fieldDoc.isFinal(), false)) {
+			fieldNode.setFinal(fieldDoc.isFinal());
+		}
+		if (flag(fieldDoc.isStatic(), false)) {
+			fieldNode.setStatic(fieldDoc.isStatic());
+		}
+		if (flag(fieldDoc.isVolatile(), false)) {
+			fieldNode.setVolatile(fieldDoc.isVolatile());
+		}
+		if (flag(fieldDoc.isTransient(), false)) {
+			fieldNode.setTransient(fieldDoc.isTransient());
+		}
 		fieldNode.setConstant(fieldDoc.constantValueExpression());
 
 		for (AnnotationDesc annotationDesc : fieldDoc.annotations()) {
@@ -480,7 +1216,75 @@ public class Parser {
 		return fieldNode;
 	}
 
+	/**
+	 * Returns the node describing a type reference. Structurally identical
+	 * references share the same node from the {@link TypeInfoCache}. In the
+	 * type table output mode, the returned node only references the complete
+	 * node in the {@link TypeTable}.
+	 * 
+	 * @param type
+	 *            the referenced type
+	 * @return the shared type node
+	 */
 	protected TypeInfo parseTypeInfo(Type type) {
+		String key = typeInfoKey(type, new StringBuilder()).toString();
+		TypeInfo typeInfoNode = typeInfoCache.get(key);
+		if (typeInfoNode == null) {
+			typeInfoNode = createTypeInfo(type);
+			if (typeTable != null) {
+				typeInfoNode = typeTable.add(key, typeInfoNode);
+			}
+			typeInfoNode = typeInfoCache.putIfAbsent(key, typeInfoNode);
+		}
+		return typeInfoNode;
+	}
+
+	/**
+	 * Appends the key identifying the structure of a type reference: its
+	 * qualified name, dimension, wildcard bounds and type arguments.
+	 * 
+	 * @param type
+	 *            the referenced type
+	 * @param key
+	 *            the builder to append the key to
+	 * @return the given builder
+	 */
+	protected StringBuilder typeInfoKey(Type type, StringBuilder key) {
+		key.append(type.qualifiedTypeName()).append(type.dimension());
+
+		WildcardType wildcard = type.asWildcardType();
+		if (wildcard != null) {
+			key.append(" extends(");
+			for (Type extendType : wildcard.extendsBounds()) {
+				typeInfoKey(extendType, key).append(',');
+			}
+			key.append(") super(");
+			for (Type superType : wildcard.superBounds()) {
+				typeInfoKey(superType, key).append(',');
+			}
+			key.append(')');
+		}
+
+		ParameterizedType parameterized = type.asParameterizedType();
+		if (parameterized != null) {
+			key.append('<');
+			for (Type typeArgument : parameterized.typeArguments()) {
+				typeInfoKey(typeArgument, key).append(',');
+			}
+			key.append('>');
+		}
+
+		return key;
+	}
+
+	/**
+	 * Creates a new node describing a type reference.
+	 * 
+	 * @param type
+	 *            the referenced type
+	 * @return the new type node
+	 */
+	protected TypeInfo createTypeInfo(Type type) {
 		TypeInfo typeInfoNode = objectFactory.createTypeInfo();
 		typeInfoNode.setQualified(type.qualifiedTypeName());
 		String dimension = type.dimension();
@@ -541,6 +1345,21 @@ public class Parser {
 		return tagNode;
 	}
 
+	/**
+	 * Checks whether a boolean attribute is set. In compact mode an attribute
+	 * with the default value of the schema is left unset, so it is not
+	 * written. The getters of the nodes still return the default.
+	 * 
+	 * @param value
+	 *            the value of the attribute
+	 * @param defaultValue
+	 *            the default value of the attribute in the schema
+	 * @return <code>true</code> if the attribute is set
+	 */
+	protected boolean flag(boolean value, boolean defaultValue) {
+		return !compact || value != defaultValue;
+	}
+
 	/**
 	 * Returns string representation of scope
 	 * 
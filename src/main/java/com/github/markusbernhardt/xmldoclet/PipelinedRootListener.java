@@ -0,0 +1,228 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Listener handing the parsed packages over to a writer thread, so parsing
+ * and writing overlap.
+ * <p>
+ * The events of every package are recorded and the finished package is put
+ * into a bounded queue. The writer thread replays the packages in order into
+ * the target listener. If the queue is full, the parsing thread waits, which
+ * limits the number of packages held in memory. The time both sides spent
+ * waiting for each other is logged at the end.
+ * <p>
+ * A failure of the writer thread is rethrown to the parsing thread as
+ * {@link XmlDocletException} by the next event. {@link #close()} must be
+ * called in any case, to stop the writer thread if parsing failed.
+ */
+public class PipelinedRootListener implements RootListener {
+
+	private final static Logger log = LoggerFactory.getLogger(PipelinedRootListener.class);
+
+	private static final RootRecorder END = new RootRecorder();
+
+	protected final BlockingQueue<RootRecorder> queue;
+
+	protected final Thread thread;
+
+	protected RootRecorder recorder = new RootRecorder();
+
+	protected boolean closed = false;
+
+	protected volatile Throwable failure;
+
+	protected boolean failureReported = false;
+
+	protected long producerStallNanos = 0;
+
+	protected long consumerStallNanos = 0;
+
+	protected long batches = 0;
+
+	/**
+	 * Creates the listener and starts the writer thread.
+	 *
+	 * @param target
+	 *            the listener receiving the events on the writer thread
+	 * @param depth
+	 *            the maximum number of packages waiting in the queue
+	 */
+	public PipelinedRootListener(final RootListener target, int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("depth < 1");
+		}
+		queue = new ArrayBlockingQueue<RootRecorder>(depth);
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain(target);
+			}
+		}, "xml-doclet-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void startRoot(Root rootNode) {
+		recorder.startRoot(rootNode);
+		handOver();
+	}
+
+	@Override
+	public void startPackage(Package packageNode) {
+		recorder.startPackage(packageNode);
+	}
+
+	@Override
+	public void addAnnotation(Annotation annotationNode) {
+		recorder.addAnnotation(annotationNode);
+	}
+
+	@Override
+	public void addEnum(Enum enumNode) {
+		recorder.addEnum(enumNode);
+	}
+
+	@Override
+	public void addInterface(Interface interfaceNode) {
+		recorder.addInterface(interfaceNode);
+	}
+
+	@Override
+	public void addClass(Class classNode) {
+		recorder.addClass(classNode);
+	}
+
+	@Override
+	public void endPackage(Package packageNode) {
+		recorder.endPackage(packageNode);
+		handOver();
+	}
+
+	/**
+	 * Hands the end of the document over and waits until the writer thread
+	 * has written everything.
+	 */
+	@Override
+	public void endRoot(Root rootNode) {
+		recorder.endRoot(rootNode);
+		handOver();
+		close();
+		log.info("Pipeline: " + batches + " batches, parser waited " + getProducerStallNanos() / 1000000
+				+ " ms, writer waited " + getConsumerStallNanos() / 1000000 + " ms");
+	}
+
+	/**
+	 * Stops the writer thread after the queued packages have been written and
+	 * rethrows its failure, unless it has already been thrown by an event.
+	 * Does nothing if already closed.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			put(END);
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XmlDocletException("Interrupted while waiting for the writer thread", e);
+		}
+		if (!failureReported) {
+			checkFailure();
+		}
+	}
+
+	/**
+	 * @return the time the parsing thread waited for space in the queue
+	 */
+	public long getProducerStallNanos() {
+		return producerStallNanos;
+	}
+
+	/**
+	 * @return the time the writer thread waited for the next package
+	 */
+	public long getConsumerStallNanos() {
+		return consumerStallNanos;
+	}
+
+	/**
+	 * Queues the recorded events and starts a new recording.
+	 */
+	protected void handOver() {
+		checkFailure();
+		if (closed) {
+			throw new XmlDocletException("Pipeline already closed");
+		}
+		try {
+			put(recorder);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XmlDocletException("Interrupted while waiting for the writer thread", e);
+		}
+		batches++;
+		recorder = new RootRecorder();
+	}
+
+	private void put(RootRecorder batch) throws InterruptedException {
+		if (!queue.offer(batch)) {
+			long start = System.nanoTime();
+			queue.put(batch);
+			producerStallNanos += System.nanoTime() - start;
+		}
+	}
+
+	private void checkFailure() {
+		Throwable e = failure;
+		if (e != null) {
+			failureReported = true;
+			throw new XmlDocletException("Writing failed: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * The loop of the writer thread. After a failure the remaining packages
+	 * are discarded, so the parsing thread never blocks forever.
+	 */
+	private void drain(RootListener target) {
+		try {
+			while (true) {
+				RootRecorder batch = queue.poll();
+				if (batch == null) {
+					long start = System.nanoTime();
+					batch = queue.poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+					consumerStallNanos += System.nanoTime() - start;
+				}
+				if (batch == END) {
+					break;
+				}
+				if (failure == null) {
+					try {
+						batch.replay(target);
+					} catch (RuntimeException e) {
+						failure = e;
+					} catch (Error e) {
+						failure = e;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			failure = e;
+		}
+	}
+}
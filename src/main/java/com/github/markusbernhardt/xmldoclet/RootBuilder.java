@@ -0,0 +1,68 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Listener assembling the complete object model in memory.
+ */
+public class RootBuilder implements RootListener {
+
+	protected Root rootNode;
+
+	protected Package packageNode;
+
+	/**
+	 * Returns the assembled object model.
+	 *
+	 * @return the root node or <code>null</code> if nothing has been parsed
+	 *         yet
+	 */
+	public Root getRoot() {
+		return rootNode;
+	}
+
+	@Override
+	public void startRoot(Root rootNode) {
+		this.rootNode = rootNode;
+	}
+
+	@Override
+	public void startPackage(Package packageNode) {
+		this.packageNode = packageNode;
+		rootNode.getPackage().add(packageNode);
+	}
+
+	@Override
+	public void addAnnotation(Annotation annotationNode) {
+		packageNode.getAnnotation().add(annotationNode);
+	}
+
+	@Override
+	public void addEnum(Enum enumNode) {
+		packageNode.getEnum().add(enumNode);
+	}
+
+	@Override
+	public void addInterface(Interface interfaceNode) {
+		packageNode.getInterface().add(interfaceNode);
+	}
+
+	@Override
+	public void addClass(Class classNode) {
+		packageNode.getClazz().add(classNode);
+	}
+
+	@Override
+	public void endPackage(Package packageNode) {
+		this.packageNode = null;
+	}
+
+	@Override
+	public void endRoot(Root rootNode) {
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Receives the nodes of the XML object model one by one while they are
+ * produced.
+ * <p>
+ * The events are fired in document order: {@link #startRoot(Root)}, then for
+ * every package {@link #startPackage(Package)}, the types of the package in
+ * the order required by the schema (annotations, enums, interfaces, classes)
+ * and {@link #endPackage(Package)}, and finally {@link #endRoot(Root)}. The
+ * package node handed to {@link #startPackage(Package)} only contains the
+ * package's own data (name, comment and tags), never its types.
+ */
+public interface RootListener {
+
+	/**
+	 * Called once before the first package.
+	 *
+	 * @param rootNode
+	 *            the root node, without any packages
+	 */
+	public void startRoot(Root rootNode);
+
+	/**
+	 * Called when a new package starts.
+	 *
+	 * @param packageNode
+	 *            the package node, without any types
+	 */
+	public void startPackage(Package packageNode);
+
+	/**
+	 * Called for every annotation type of the current package.
+	 *
+	 * @param annotationNode
+	 *            the annotation node
+	 */
+	public void addAnnotation(Annotation annotationNode);
+
+	/**
+	 * Called for every enum of the current package.
+	 *
+	 * @param enumNode
+	 *            the enum node
+	 */
+	public void addEnum(Enum enumNode);
+
+	/**
+	 * Called for every interface of the current package.
+	 *
+	 * @param interfaceNode
+	 *            the interface node
+	 */
+	public void addInterface(Interface interfaceNode);
+
+	/**
+	 * Called for every class of the current package.
+	 *
+	 * @param classNode
+	 *            the class node
+	 */
+	public void addClass(Class classNode);
+
+	/**
+	 * Called after the last type of the current package.
+	 *
+	 * @param packageNode
+	 *            the same package node passed to
+	 *            {@link #startPackage(Package)}
+	 */
+	public void endPackage(Package packageNode);
+
+	/**
+	 * Called once after the last package.
+	 *
+	 * @param rootNode
+	 *            the same root node passed to {@link #startRoot(Root)}
+	 */
+	public void endRoot(Root rootNode);
+}
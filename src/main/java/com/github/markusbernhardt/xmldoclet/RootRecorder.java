@@ -0,0 +1,120 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Listener recording the received events, so they can be replayed to another
+ * listener later, possibly on another thread.
+ */
+public class RootRecorder implements RootListener {
+
+	protected final List<Object> events = new ArrayList<Object>();
+
+	/**
+	 * Sends all recorded events to the given listener.
+	 *
+	 * @param listener
+	 *            the listener receiving the events
+	 */
+	public void replay(RootListener listener) {
+		for (Object event : events) {
+			if (event instanceof Annotation) {
+				listener.addAnnotation((Annotation) event);
+			} else if (event instanceof Enum) {
+				listener.addEnum((Enum) event);
+			} else if (event instanceof Interface) {
+				listener.addInterface((Interface) event);
+			} else if (event instanceof Class) {
+				listener.addClass((Class) event);
+			} else if (event instanceof Package) {
+				listener.startPackage((Package) event);
+			} else if (event instanceof Root) {
+				listener.startRoot((Root) event);
+			} else if (event instanceof End) {
+				Object node = ((End) event).node;
+				if (node instanceof Package) {
+					listener.endPackage((Package) node);
+				} else {
+					listener.endRoot((Root) node);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of recorded events.
+	 *
+	 * @return the number of recorded events
+	 */
+	public int size() {
+		return events.size();
+	}
+
+	/**
+	 * Forgets all recorded events.
+	 */
+	public void clear() {
+		events.clear();
+	}
+
+	@Override
+	public void startRoot(Root rootNode) {
+		events.add(rootNode);
+	}
+
+	@Override
+	public void startPackage(Package packageNode) {
+		events.add(packageNode);
+	}
+
+	@Override
+	public void addAnnotation(Annotation annotationNode) {
+		events.add(annotationNode);
+	}
+
+	@Override
+	public void addEnum(Enum enumNode) {
+		events.add(enumNode);
+	}
+
+	@Override
+	public void addInterface(Interface interfaceNode) {
+		events.add(interfaceNode);
+	}
+
+	@Override
+	public void addClass(Class classNode) {
+		events.add(classNode);
+	}
+
+	@Override
+	public void endPackage(Package packageNode) {
+		events.add(new End(packageNode));
+	}
+
+	@Override
+	public void endRoot(Root rootNode) {
+		events.add(new End(rootNode));
+	}
+
+	/**
+	 * The event ending a package or the root, which may have been started in
+	 * another recording.
+	 */
+	private static class End {
+
+		private final Object node;
+
+		private End(Object node) {
+			this.node = node;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Listener writing every completed package into a temporary fragment file
+ * and releasing it, so at most one package is held in memory. At the end the
+ * output file is assembled from the XML declaration and the start of the
+ * root element, the fragments, copied by {@link FileChannel#transferTo} without
+ * passing through the heap, and the types section and the end of the root
+ * element. The document is the same as the one written from the complete
+ * object model, byte for byte.
+ * <p>
+ * The fragments are written as UTF-8 by the {@link XmlModelWriter} into the
+ * directory of the output file and deleted once they have been copied, or by
+ * {@link #close()} if the run fails.
+ */
+public class SpillRootWriter implements RootListener {
+
+	private static final int FRAGMENT_BUFFER_SIZE = 64 * 1024;
+
+	protected final File file;
+
+	protected final boolean indent;
+
+	protected final CompressionEnum compression;
+
+	protected final List<File> fragments = new ArrayList<File>();
+
+	protected Package packageNode;
+
+	/**
+	 * Creates the writer.
+	 *
+	 * @param file
+	 *            the output file
+	 * @param indent
+	 *            <code>true</code> to indent nested elements
+	 * @param compression
+	 *            the compression of the output file or <code>null</code>
+	 */
+	public SpillRootWriter(File file, boolean indent, CompressionEnum compression) {
+		this.file = file;
+		this.indent = indent;
+		this.compression = compression;
+	}
+
+	/**
+	 * @return the number of fragment files not yet copied into the output
+	 *         file
+	 */
+	public int getFragmentCount() {
+		return fragments.size();
+	}
+
+	@Override
+	public void startRoot(Root rootNode) {
+	}
+
+	@Override
+	public void startPackage(Package packageNode) {
+		// the parser keeps the node it passed, so the types are collected in
+		// a copy, which is released after the package has been written
+		this.packageNode = new Package();
+		this.packageNode.setName(packageNode.getName());
+		this.packageNode.setComment(packageNode.getComment());
+		this.packageNode.getTag().addAll(packageNode.getTag());
+	}
+
+	@Override
+	public void addAnnotation(Annotation annotationNode) {
+		packageNode.getAnnotation().add(annotationNode);
+	}
+
+	@Override
+	public void addEnum(Enum enumNode) {
+		packageNode.getEnum().add(enumNode);
+	}
+
+	@Override
+	public void addInterface(Interface interfaceNode) {
+		packageNode.getInterface().add(interfaceNode);
+	}
+
+	@Override
+	public void addClass(Class classNode) {
+		packageNode.getClazz().add(classNode);
+	}
+
+	@Override
+	public void endPackage(Package packageNode) {
+		try {
+			File fragment = File.createTempFile(file.getName() + "-", ".fragment", file.getAbsoluteFile()
+					.getParentFile());
+			fragments.add(fragment);
+			OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(fragment),
+					FRAGMENT_BUFFER_SIZE);
+			try {
+				XmlModelWriter writer = new XmlModelWriter(outputStream, indent, 1);
+				writer.write(this.packageNode);
+				writer.flush();
+			} finally {
+				outputStream.close();
+			}
+		} catch (IOException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+		this.packageNode = null;
+	}
+
+	@Override
+	public void endRoot(Root rootNode) {
+		FileOutputStream fileOutputStream = null;
+		OutputStream outputStream = null;
+		try {
+			fileOutputStream = new FileOutputStream(file);
+			WritableByteChannel target;
+			if (compression == null) {
+				outputStream = fileOutputStream;
+				target = fileOutputStream.getChannel();
+			} else {
+				outputStream = new AsyncOutputStream(compression.createOutputStream(fileOutputStream),
+						"xml-doclet-compression");
+				target = Channels.newChannel(outputStream);
+			}
+
+			XmlModelWriter writer = new XmlModelWriter(outputStream, indent);
+			writer.startDocument();
+			if (!fragments.isEmpty()) {
+				writer.flushStartTag();
+			}
+			while (!fragments.isEmpty()) {
+				File fragment = fragments.remove(0);
+				transfer(fragment, target);
+				delete(fragment);
+			}
+			writer.endDocument(rootNode.getTypes());
+			outputStream.flush();
+		} catch (IOException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} finally {
+			try {
+				if (outputStream != null) {
+					outputStream.close();
+				}
+				if (fileOutputStream != null) {
+					fileOutputStream.close();
+				}
+			} catch (IOException e) {
+				throw new XmlDocletException(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the fragment files not yet copied into the output file, e.g.
+	 * after parsing failed.
+	 */
+	public void close() {
+		while (!fragments.isEmpty()) {
+			delete(fragments.remove(0));
+		}
+	}
+
+	/**
+	 * Copies a fragment to the end of the target channel. Between two files
+	 * the operating system copies the data directly.
+	 */
+	protected void transfer(File fragment, WritableByteChannel target) throws IOException {
+		FileInputStream inputStream = new FileInputStream(fragment);
+		try {
+			FileChannel source = inputStream.getChannel();
+			long size = source.size();
+			long position = 0;
+			while (position < size) {
+				position += source.transferTo(position, size - position, target);
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static void delete(File fragment) {
+		if (!fragment.delete()) {
+			fragment.deleteOnExit();
+		}
+	}
+}
@@ -0,0 +1,355 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.ObjectFactory;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Listener writing every package into a file of its own. Each file is a
+ * complete document, valid against <code>javadoc.xsd</code>, whose root node
+ * contains exactly one package.
+ * <p>
+ * The packages are collected in memory one at a time and marshalled on a
+ * small thread pool while the next package is parsed. If all threads are
+ * busy, the parsing thread writes the package itself. At the end a manifest
+ * listing all files is written:
+ *
+ * <pre>
+ * &lt;manifest&gt;
+ *     &lt;package name="com.example" file="javadoc-com.example.xml" types="12" size="40960"/&gt;
+ * &lt;/manifest&gt;
+ * </pre>
+ *
+ * The file of the unnamed package uses the name <code>default</code>, a
+ * keyword that can't be the name of any other package.
+ */
+public class SplitRootWriter implements RootListener {
+
+	protected final ObjectFactory objectFactory = new ObjectFactory();
+
+	protected final File directory;
+
+	protected final String baseName;
+
+	protected final String encoding;
+
+	protected final boolean indent;
+
+	protected final CompressionEnum compression;
+
+	protected final ThreadPoolExecutor executor;
+
+	protected final List<Future<ManifestEntry>> manifestEntries = new ArrayList<Future<ManifestEntry>>();
+
+	protected RootBuilder rootBuilder;
+
+	/**
+	 * Creates the writer.
+	 *
+	 * @param directory
+	 *            the destination directory
+	 * @param baseName
+	 *            the name of the unsplit output file, e.g. javadoc.xml
+	 * @param encoding
+	 *            the encoding of the documents
+	 * @param indent
+	 *            <code>true</code> to indent nested elements
+	 * @param compression
+	 *            the compression of the package files or <code>null</code>
+	 * @param threads
+	 *            the number of threads writing the package files
+	 */
+	public SplitRootWriter(File directory, String baseName, String encoding, boolean indent,
+			CompressionEnum compression, int threads) {
+		this.directory = directory;
+		this.baseName = getBaseName(baseName);
+		this.encoding = encoding;
+		this.indent = indent;
+		this.compression = compression;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						// never keep the javadoc tool alive after a failed run
+						Thread thread = new Thread(runnable, "xml-doclet-split");
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Returns the name of the file containing the given package.
+	 *
+	 * @param packageName
+	 *            the name of the package, empty for the unnamed package
+	 * @return the file name
+	 */
+	public String getPackageFilename(String packageName) {
+		String filename = baseName + "-" + (packageName.length() == 0 ? "default" : packageName) + ".xml";
+		if (compression != null) {
+			filename += compression.getExtension();
+		}
+		return filename;
+	}
+
+	/**
+	 * @return the name of the manifest file
+	 */
+	public String getManifestFilename() {
+		return getManifestFilename(baseName);
+	}
+
+	/**
+	 * Returns the files written for the given unsplit output file: the
+	 * manifest and, once it has been written, the package files it lists.
+	 *
+	 * @param directory
+	 *            the destination directory
+	 * @param baseName
+	 *            the name of the unsplit output file, e.g. javadoc.xml
+	 * @return the written files
+	 */
+	public static List<File> getOutputFiles(File directory, String baseName) {
+		List<File> outputFiles = new ArrayList<File>();
+		File manifestFile = new File(directory, getManifestFilename(getBaseName(baseName)));
+		outputFiles.add(manifestFile);
+		if (!manifestFile.isFile()) {
+			return outputFiles;
+		}
+
+		InputStream inputStream = null;
+		try {
+			inputStream = new FileInputStream(manifestFile);
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && "package".equals(reader.getLocalName())) {
+					outputFiles.add(new File(directory, reader.getAttributeValue(null, "file")));
+				}
+			}
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} catch (IOException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} finally {
+			try {
+				if (inputStream != null) {
+					inputStream.close();
+				}
+			} catch (IOException e) {
+				throw new XmlDocletException(e.getMessage(), e);
+			}
+		}
+		return outputFiles;
+	}
+
+	protected static String getBaseName(String filename) {
+		return filename.endsWith(".xml") ? filename.substring(0, filename.length() - 4) : filename;
+	}
+
+	protected static String getManifestFilename(String baseName) {
+		return baseName + ".manifest.xml";
+	}
+
+	@Override
+	public void startRoot(Root rootNode) {
+	}
+
+	@Override
+	public void startPackage(Package packageNode) {
+		rootBuilder = new RootBuilder();
+		rootBuilder.startRoot(objectFactory.createRoot());
+		// the parser keeps the node it passed, so the types are collected in
+		// a copy, which is released after the package has been written
+		Package packageCopy = objectFactory.createPackage();
+		packageCopy.setName(packageNode.getName());
+		packageCopy.setComment(packageNode.getComment());
+		packageCopy.getTag().addAll(packageNode.getTag());
+		rootBuilder.startPackage(packageCopy);
+	}
+
+	@Override
+	public void addAnnotation(Annotation annotationNode) {
+		rootBuilder.addAnnotation(annotationNode);
+	}
+
+	@Override
+	public void addEnum(Enum enumNode) {
+		rootBuilder.addEnum(enumNode);
+	}
+
+	@Override
+	public void addInterface(Interface interfaceNode) {
+		rootBuilder.addInterface(interfaceNode);
+	}
+
+	@Override
+	public void addClass(Class classNode) {
+		rootBuilder.addClass(classNode);
+	}
+
+	@Override
+	public void endPackage(Package packageNode) {
+		final Root packageRoot = rootBuilder.getRoot();
+		rootBuilder = null;
+		manifestEntries.add(executor.submit(new Callable<ManifestEntry>() {
+			@Override
+			public ManifestEntry call() throws Exception {
+				return writePackage(packageRoot.getPackage().get(0), packageRoot);
+			}
+		}));
+	}
+
+	@Override
+	public void endRoot(Root rootNode) {
+		List<ManifestEntry> entries = new ArrayList<ManifestEntry>();
+		try {
+			for (Future<ManifestEntry> manifestEntry : manifestEntries) {
+				entries.add(manifestEntry.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XmlDocletException("Interrupted while writing the package files", e);
+		} catch (ExecutionException e) {
+			throw new XmlDocletException(e.getCause().getMessage(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		writeManifest(entries);
+	}
+
+	/**
+	 * Stops the threads writing the package files, e.g. after parsing failed.
+	 * Package files still being written are left incomplete.
+	 */
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Marshals the document of one package.
+	 */
+	protected ManifestEntry writePackage(Package packageNode, Root packageRoot) throws JAXBException, IOException {
+		String packageName = packageNode.getName() == null ? "" : packageNode.getName();
+		File file = new File(directory, getPackageFilename(packageName));
+
+		FileOutputStream fileOutputStream = null;
+		OutputStream outputStream = null;
+		Marshaller marshaller = null;
+		try {
+			marshaller = JaxbSupport.acquireMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, indent);
+			marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+
+			fileOutputStream = new FileOutputStream(file);
+			if (compression == null) {
+				outputStream = new BufferedOutputStream(fileOutputStream, 64 * 1024);
+			} else {
+				outputStream = compression.createOutputStream(fileOutputStream);
+			}
+			marshaller.marshal(packageRoot, outputStream);
+			outputStream.flush();
+		} finally {
+			JaxbSupport.releaseMarshaller(marshaller);
+			if (outputStream != null) {
+				outputStream.close();
+			}
+			if (fileOutputStream != null) {
+				fileOutputStream.close();
+			}
+		}
+
+		int types = packageNode.getAnnotation().size() + packageNode.getEnum().size()
+				+ packageNode.getInterface().size() + packageNode.getClazz().size();
+		return new ManifestEntry(packageName, file.getName(), types, file.length());
+	}
+
+	/**
+	 * Writes the manifest listing the package files in document order.
+	 */
+	protected void writeManifest(List<ManifestEntry> entries) {
+		FileOutputStream fileOutputStream = null;
+		try {
+			fileOutputStream = new FileOutputStream(new File(directory, getManifestFilename()));
+			XMLStreamWriter writer = new FormattingXMLStreamWriter(fileOutputStream, encoding, indent);
+			writer.writeStartDocument(encoding, "1.0");
+			writer.writeStartElement("manifest");
+			for (ManifestEntry entry : entries) {
+				writer.writeStartElement("package");
+				writer.writeAttribute("name", entry.packageName);
+				writer.writeAttribute("file", entry.filename);
+				writer.writeAttribute("types", String.valueOf(entry.types));
+				writer.writeAttribute("size", String.valueOf(entry.size));
+				writer.writeEndElement();
+			}
+			writer.writeEndDocument();
+			writer.close();
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} catch (IOException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} finally {
+			try {
+				if (fileOutputStream != null) {
+					fileOutputStream.close();
+				}
+			} catch (IOException e) {
+				throw new XmlDocletException(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * One line of the manifest.
+	 */
+	protected static class ManifestEntry {
+
+		protected final String packageName;
+
+		protected final String filename;
+
+		protected final int types;
+
+		protected final long size;
+
+		protected ManifestEntry(String packageName, String filename, int types, long size) {
+			this.packageName = packageName;
+			this.filename = filename;
+			this.types = types;
+			this.size = size;
+		}
+	}
+}
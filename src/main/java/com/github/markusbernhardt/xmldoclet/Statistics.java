@@ -0,0 +1,531 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationArgument;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationElement;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Constructor;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.EnumConstant;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.MethodParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+
+/**
+ * Statistics of a doclet run: the wall and CPU time of every phase, the
+ * number of nodes in the document by kind, the size of the output, the peak
+ * heap usage and the types that took longest to convert.
+ * <p>
+ * The CPU time is the one of the whole process, so it includes the threads
+ * converting classes and compressing the output, but also the ones of other
+ * runs in the same JVM. It is reported as process CPU time. The peak heap
+ * usage is sampled at the start, at the end of every phase and of every
+ * package, without resetting the peak usage of the memory pools, which
+ * belongs to the whole JVM. It includes the heap held by concurrent runs.
+ * Phases are started and ended by one thread, the conversion times of types
+ * may be added by several.
+ */
+public class Statistics {
+
+	/**
+	 * The node kinds counted, in the order of the report.
+	 */
+	public static final String[] NODE_KINDS = { "packages", "annotations", "enums", "interfaces", "classes",
+			"constructors", "methods", "fields", "enumConstants", "annotationInstances", "typeInfos" };
+
+	private static final Comparator<TypeTime> BY_NANOS = new Comparator<TypeTime>() {
+		@Override
+		public int compare(TypeTime typeTime1, TypeTime typeTime2) {
+			return typeTime1.nanos < typeTime2.nanos ? -1 : typeTime1.nanos == typeTime2.nanos ? 0 : 1;
+		}
+	};
+
+	protected final int slowestTypes;
+
+	protected final Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+
+	protected String phase;
+
+	protected long phaseStartNanos;
+
+	protected long phaseStartCpuNanos;
+
+	protected final Map<String, Long> nodes = new LinkedHashMap<String, Long>();
+
+	protected final PriorityQueue<TypeTime> slowest;
+
+	protected final List<File> outputFiles = new ArrayList<File>();
+
+	protected int distinctTypeInfos = -1;
+
+	protected long peakHeapBytes;
+
+	/**
+	 * Creates the statistics. The time spent by javadoc since the start of the
+	 * run until the doclet was started is recorded as phase
+	 * <code>javadoc</code>.
+	 *
+	 * @param slowestTypes
+	 *            the number of slowest types to report
+	 * @param startNanos
+	 *            the value of {@link System#nanoTime()} when the run started,
+	 *            see {@link #getJvmStartNanos()} for a run started with the
+	 *            JVM
+	 * @param startProcessCpuNanos
+	 *            the CPU time of the process when the run started, see
+	 *            {@link #getProcessCpuNanos()}, 0 for a run started with the
+	 *            JVM
+	 */
+	public Statistics(int slowestTypes, long startNanos, long startProcessCpuNanos) {
+		this.slowestTypes = slowestTypes;
+		this.slowest = new PriorityQueue<TypeTime>(Math.max(1, slowestTypes), BY_NANOS);
+		for (String kind : NODE_KINDS) {
+			nodes.put(kind, 0L);
+		}
+
+		long cpuNanos = getProcessCpuNanos();
+		phases.put("javadoc", new long[] { System.nanoTime() - startNanos,
+				cpuNanos < 0 || startProcessCpuNanos < 0 ? -1 : cpuNanos - startProcessCpuNanos });
+		sampleHeap();
+	}
+
+	/**
+	 * Returns the start of the JVM on the scale of {@link System#nanoTime()},
+	 * the start of a run launched from the javadoc command line.
+	 *
+	 * @return the value {@link System#nanoTime()} had when the JVM started
+	 */
+	public static long getJvmStartNanos() {
+		return System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1000000;
+	}
+
+	/**
+	 * Starts a phase, ending the current one.
+	 *
+	 * @param name
+	 *            the name of the phase
+	 */
+	public void startPhase(String name) {
+		endPhase();
+		phase = name;
+		phaseStartNanos = System.nanoTime();
+		phaseStartCpuNanos = getProcessCpuNanos();
+	}
+
+	/**
+	 * Ends the current phase, if there is one.
+	 */
+	public void endPhase() {
+		if (phase == null) {
+			return;
+		}
+		long cpuNanos = getProcessCpuNanos();
+		phases.put(phase, new long[] { System.nanoTime() - phaseStartNanos,
+				cpuNanos < 0 ? -1 : cpuNanos - phaseStartCpuNanos });
+		phase = null;
+		sampleHeap();
+	}
+
+	/**
+	 * Samples the heap usage, keeping the maximum.
+	 */
+	public synchronized void sampleHeap() {
+		long bytes = 0;
+		for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (memoryPool.getType() == MemoryType.HEAP && memoryPool.isValid()) {
+				bytes += memoryPool.getUsage().getUsed();
+			}
+		}
+		peakHeapBytes = Math.max(peakHeapBytes, bytes);
+	}
+
+	/**
+	 * Records the conversion time of a type.
+	 *
+	 * @param qualified
+	 *            the qualified name of the type
+	 * @param nanos
+	 *            the time needed to convert it
+	 */
+	public synchronized void addType(String qualified, long nanos) {
+		if (slowestTypes <= 0) {
+			return;
+		}
+		if (slowest.size() < slowestTypes) {
+			slowest.add(new TypeTime(qualified, nanos));
+		} else if (slowest.peek().nanos < nanos) {
+			slowest.poll();
+			slowest.add(new TypeTime(qualified, nanos));
+		}
+	}
+
+	/**
+	 * Adds a file written, to report the size of the output.
+	 *
+	 * @param file
+	 *            the output file
+	 */
+	public void addOutputFile(File file) {
+		outputFiles.add(file);
+	}
+
+	/**
+	 * @param distinctTypeInfos
+	 *            the number of distinct type nodes, as held by the type cache
+	 */
+	public void setDistinctTypeInfos(int distinctTypeInfos) {
+		this.distinctTypeInfos = distinctTypeInfos;
+	}
+
+	/**
+	 * Wraps a listener, so the nodes handed to it are counted.
+	 *
+	 * @param listener
+	 *            the listener receiving the nodes
+	 * @return the counting listener
+	 */
+	public RootListener createListener(RootListener listener) {
+		return new NodeCountingListener(listener);
+	}
+
+	/**
+	 * @return the wall time of every phase in nanoseconds
+	 */
+	public Map<String, Long> getPhaseNanos() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, long[]> entry : phases.entrySet()) {
+			result.put(entry.getKey(), entry.getValue()[0]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of nodes by kind, see {@link #NODE_KINDS}
+	 */
+	public Map<String, Long> getNodes() {
+		return Collections.unmodifiableMap(nodes);
+	}
+
+	/**
+	 * @return the size of all output files
+	 */
+	public long getOutputBytes() {
+		long bytes = 0;
+		for (File file : outputFiles) {
+			bytes += file.length();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the largest heap usage sampled during the run
+	 */
+	public synchronized long getPeakHeapBytes() {
+		return peakHeapBytes;
+	}
+
+	/**
+	 * @return the slowest types, the slowest first
+	 */
+	public synchronized List<TypeTime> getSlowestTypes() {
+		List<TypeTime> result = new ArrayList<TypeTime>(slowest);
+		Collections.sort(result, Collections.reverseOrder(BY_NANOS));
+		return result;
+	}
+
+	/**
+	 * Writes the report to the log.
+	 *
+	 * @param log
+	 *            the logger
+	 */
+	public void log(Logger log) {
+		StringBuilder report = new StringBuilder("Statistics:");
+		for (Map.Entry<String, long[]> entry : phases.entrySet()) {
+			report.append("\n  phase ").append(entry.getKey()).append(": wall ")
+					.append(entry.getValue()[0] / 1000000).append(" ms, process cpu ")
+					.append(entry.getValue()[1] < 0 ? "n/a" : entry.getValue()[1] / 1000000 + " ms");
+		}
+		report.append("\n  nodes:");
+		for (Map.Entry<String, Long> entry : nodes.entrySet()) {
+			report.append(' ').append(entry.getKey()).append(' ').append(entry.getValue());
+		}
+		if (distinctTypeInfos >= 0) {
+			report.append(" (").append(distinctTypeInfos).append(" distinct)");
+		}
+		report.append("\n  output: ").append(getOutputBytes()).append(" bytes");
+		report.append("\n  peak heap (sampled): ").append(getPeakHeapBytes() / (1024 * 1024)).append(" MB");
+		List<TypeTime> slowestTypes = getSlowestTypes();
+		if (!slowestTypes.isEmpty()) {
+			report.append("\n  slowest types:");
+			for (TypeTime typeTime : slowestTypes) {
+				report.append("\n    ").append(typeTime.nanos / 1000).append(" us ").append(typeTime.qualified);
+			}
+		}
+		log.info(report.toString());
+	}
+
+	/**
+	 * Writes the report as JSON document.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public void write(File file) throws IOException {
+		StringBuilder json = new StringBuilder("{\n  \"phases\": {");
+		String separator = "\n";
+		for (Map.Entry<String, long[]> entry : phases.entrySet()) {
+			json.append(separator).append("    ").append(quote(entry.getKey())).append(": { \"wallNanos\": ")
+					.append(entry.getValue()[0]).append(", \"processCpuNanos\": ").append(entry.getValue()[1]).append(" }");
+			separator = ",\n";
+		}
+		json.append("\n  },\n  \"nodes\": {");
+		separator = "\n";
+		for (Map.Entry<String, Long> entry : nodes.entrySet()) {
+			json.append(separator).append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue());
+			separator = ",\n";
+		}
+		json.append("\n  },\n  \"distinctTypeInfos\": ").append(distinctTypeInfos);
+		json.append(",\n  \"outputBytes\": ").append(getOutputBytes());
+		json.append(",\n  \"peakHeapBytes\": ").append(getPeakHeapBytes());
+		json.append(",\n  \"slowestTypes\": [");
+		separator = "\n";
+		for (TypeTime typeTime : getSlowestTypes()) {
+			json.append(separator).append("    { \"qualified\": ").append(quote(typeTime.qualified))
+					.append(", \"nanos\": ").append(typeTime.nanos).append(" }");
+			separator = ",\n";
+		}
+		json.append("\n  ]\n}\n");
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(json.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+	protected static String quote(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * @return the CPU time used by the process or -1 if the JVM does not
+	 *         provide it
+	 */
+	public static long getProcessCpuNanos() {
+		OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+		if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) operatingSystem).getProcessCpuTime();
+		}
+		return -1;
+	}
+
+	protected void count(String kind, int count) {
+		nodes.put(kind, nodes.get(kind) + count);
+	}
+
+	/**
+	 * The conversion time of a type.
+	 */
+	public static class TypeTime {
+
+		protected final String qualified;
+
+		protected final long nanos;
+
+		protected TypeTime(String qualified, long nanos) {
+			this.qualified = qualified;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return the qualified name of the type
+		 */
+		public String getQualified() {
+			return qualified;
+		}
+
+		/**
+		 * @return the time needed to convert the type
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+	}
+
+	/**
+	 * Counts the nodes of every type handed to the wrapped listener. The
+	 * listener is called by one thread at a time.
+	 */
+	protected class NodeCountingListener implements RootListener {
+
+		protected final RootListener listener;
+
+		protected NodeCountingListener(RootListener listener) {
+			this.listener = listener;
+		}
+
+		@Override
+		public void startRoot(Root rootNode) {
+			listener.startRoot(rootNode);
+		}
+
+		@Override
+		public void startPackage(Package packageNode) {
+			count("packages", 1);
+			listener.startPackage(packageNode);
+		}
+
+		@Override
+		public void addAnnotation(Annotation annotationNode) {
+			count("annotations", 1);
+			countAnnotations(annotationNode.getAnnotation());
+			for (AnnotationElement annotationElementNode : annotationNode.getElement()) {
+				countTypeInfo(annotationElementNode.getType());
+			}
+			listener.addAnnotation(annotationNode);
+		}
+
+		@Override
+		public void addEnum(Enum enumNode) {
+			count("enums", 1);
+			countTypeInfo(enumNode.getClazz());
+			countTypeInfos(enumNode.getInterface());
+			count("enumConstants", enumNode.getConstant().size());
+			for (EnumConstant enumConstantNode : enumNode.getConstant()) {
+				countAnnotations(enumConstantNode.getAnnotation());
+			}
+			countAnnotations(enumNode.getAnnotation());
+			listener.addEnum(enumNode);
+		}
+
+		@Override
+		public void addInterface(Interface interfaceNode) {
+			count("interfaces", 1);
+			countTypeInfos(interfaceNode.getInterface());
+			countMethods(interfaceNode.getMethod());
+			countAnnotations(interfaceNode.getAnnotation());
+			countFields(interfaceNode.getField());
+			listener.addInterface(interfaceNode);
+		}
+
+		@Override
+		public void addClass(Class classNode) {
+			count("classes", 1);
+			countTypeInfo(classNode.getClazz());
+			countTypeInfos(classNode.getInterface());
+			count("constructors", classNode.getConstructor().size());
+			for (Constructor constructorNode : classNode.getConstructor()) {
+				countParameters(constructorNode.getParameter());
+				countTypeInfos(constructorNode.getException());
+				countAnnotations(constructorNode.getAnnotation());
+			}
+			countMethods(classNode.getMethod());
+			countAnnotations(classNode.getAnnotation());
+			countFields(classNode.getField());
+			listener.addClass(classNode);
+		}
+
+		@Override
+		public void endPackage(Package packageNode) {
+			listener.endPackage(packageNode);
+			sampleHeap();
+		}
+
+		@Override
+		public void endRoot(Root rootNode) {
+			listener.endRoot(rootNode);
+		}
+
+		protected void countMethods(List<Method> methodNodes) {
+			count("methods", methodNodes.size());
+			for (Method methodNode : methodNodes) {
+				countParameters(methodNode.getParameter());
+				countTypeInfo(methodNode.getReturn());
+				countTypeInfos(methodNode.getException());
+				countAnnotations(methodNode.getAnnotation());
+			}
+		}
+
+		protected void countParameters(List<MethodParameter> methodParameterNodes) {
+			for (MethodParameter methodParameterNode : methodParameterNodes) {
+				countTypeInfo(methodParameterNode.getType());
+				countAnnotations(methodParameterNode.getAnnotation());
+			}
+		}
+
+		protected void countFields(List<Field> fieldNodes) {
+			count("fields", fieldNodes.size());
+			for (Field fieldNode : fieldNodes) {
+				countTypeInfo(fieldNode.getType());
+				countAnnotations(fieldNode.getAnnotation());
+			}
+		}
+
+		protected void countAnnotations(List<AnnotationInstance> annotationInstanceNodes) {
+			count("annotationInstances", annotationInstanceNodes.size());
+			for (AnnotationInstance annotationInstanceNode : annotationInstanceNodes) {
+				for (AnnotationArgument annotationArgumentNode : annotationInstanceNode.getArgument()) {
+					countTypeInfo(annotationArgumentNode.getType());
+					countAnnotations(annotationArgumentNode.getAnnotation());
+				}
+			}
+		}
+
+		protected void countTypeInfos(List<TypeInfo> typeInfoNodes) {
+			for (TypeInfo typeInfoNode : typeInfoNodes) {
+				countTypeInfo(typeInfoNode);
+			}
+		}
+
+		protected void countTypeInfo(TypeInfo typeInfoNode) {
+			if (typeInfoNode == null) {
+				return;
+			}
+			count("typeInfos", 1);
+			countTypeInfos(typeInfoNode.getGeneric());
+			if (typeInfoNode.getWildcard() != null) {
+				countTypeInfos(typeInfoNode.getWildcard().getExtendsBound());
+				countTypeInfos(typeInfoNode.getWildcard().getSuperBound());
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.OutputStream;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.NotIdentifiableEvent;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TagInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.Types;
+
+/**
+ * Listener writing the nodes to an XMLStreamWriter as soon as they arrive.
+ * Every type is marshalled on its own via JAXB, so only one type has to be
+ * kept in memory at a time. The marshaller is returned to the shared pool
+ * once the document has been ended or, if the run fails before, by
+ * {@link #close()}. The resulting document is valid against
+ * <code>javadoc.xsd</code>.
+ */
+public class StreamingRootWriter implements RootListener {
+
+	private static final QName QNAME_ROOT = new QName("root");
+	private static final QName QNAME_PACKAGE = new QName("package");
+	private static final QName QNAME_COMMENT = new QName("comment");
+	private static final QName QNAME_TAG = new QName("tag");
+	private static final QName QNAME_ANNOTATION = new QName("annotation");
+	private static final QName QNAME_ENUM = new QName("enum");
+	private static final QName QNAME_INTERFACE = new QName("interface");
+	private static final QName QNAME_CLASS = new QName("class");
+	private static final QName QNAME_TYPES = new QName("types");
+
+	protected final FormattingXMLStreamWriter writer;
+
+	protected final Marshaller marshaller;
+
+	protected final String encoding;
+
+	protected final CountingOutputStream countingOutputStream;
+
+	protected final TypeIndex typeIndex;
+
+	protected boolean closed;
+
+	/**
+	 * Creates the streaming writer. The output stream is not closed by this
+	 * class.
+	 *
+	 * @param outputStream
+	 *            the stream to write to
+	 * @param encoding
+	 *            the encoding of the document
+	 * @param indent
+	 *            <code>true</code> to indent nested elements
+	 * @throws JAXBException
+	 *             if the marshaller can't be created
+	 */
+	public StreamingRootWriter(OutputStream outputStream, String encoding, boolean indent) throws JAXBException {
+		this(outputStream, null, encoding, indent, null);
+	}
+
+	/**
+	 * Creates the streaming writer recording the byte position of every type
+	 * element into an index. The output stream is not closed by this class.
+	 * 
+	 * @param outputStream
+	 *            the stream to write to, counting the bytes of the document
+	 * @param encoding
+	 *            the encoding of the document
+	 * @param indent
+	 *            <code>true</code> to indent nested elements
+	 * @param typeIndex
+	 *            the index receiving the positions
+	 * @throws JAXBException
+	 *             if the marshaller can't be created
+	 */
+	public StreamingRootWriter(CountingOutputStream outputStream, String encoding, boolean indent,
+			TypeIndex typeIndex) throws JAXBException {
+		this(outputStream, outputStream, encoding, indent, typeIndex);
+	}
+
+	private StreamingRootWriter(OutputStream outputStream, CountingOutputStream countingOutputStream,
+			String encoding, boolean indent, TypeIndex typeIndex) throws JAXBException {
+		this.writer = new FormattingXMLStreamWriter(outputStream, encoding, indent);
+		this.encoding = encoding;
+		this.countingOutputStream = countingOutputStream;
+		this.typeIndex = typeIndex;
+
+		this.marshaller = JaxbSupport.acquireMarshaller();
+		this.marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+		this.marshaller.setEventHandler(new ValidationEventHandler() {
+			@Override
+			public boolean handleEvent(ValidationEvent event) {
+				// types of the type table are referenced before the table
+				// itself is marshalled
+				return event instanceof NotIdentifiableEvent;
+			}
+		});
+	}
+
+	@Override
+	public void startRoot(Root rootNode) {
+		try {
+			writer.writeStartDocument(encoding, "1.0");
+			writer.writeStartElement(QNAME_ROOT.getLocalPart());
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void startPackage(Package packageNode) {
+		try {
+			writer.writeStartElement(QNAME_PACKAGE.getLocalPart());
+			if (packageNode.getName() != null) {
+				writer.writeAttribute("name", packageNode.getName());
+			}
+			if (packageNode.getComment() != null) {
+				writer.writeStartElement(QNAME_COMMENT.getLocalPart());
+				writer.writeCharacters(packageNode.getComment());
+				writer.writeEndElement();
+			}
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+
+		for (TagInfo tagNode : packageNode.getTag()) {
+			marshal(QNAME_TAG, TagInfo.class, tagNode);
+		}
+	}
+
+	@Override
+	public void addAnnotation(Annotation annotationNode) {
+		marshalType(QNAME_ANNOTATION, Annotation.class, annotationNode, annotationNode.getQualified(),
+				TypeIndex.ANNOTATION);
+	}
+
+	@Override
+	public void addEnum(Enum enumNode) {
+		marshalType(QNAME_ENUM, Enum.class, enumNode, enumNode.getQualified(), TypeIndex.ENUM);
+	}
+
+	@Override
+	public void addInterface(Interface interfaceNode) {
+		marshalType(QNAME_INTERFACE, Interface.class, interfaceNode, interfaceNode.getQualified(),
+				TypeIndex.INTERFACE);
+	}
+
+	@Override
+	public void addClass(Class classNode) {
+		marshalType(QNAME_CLASS, Class.class, classNode, classNode.getQualified(), TypeIndex.CLASS);
+	}
+
+	@Override
+	public void endPackage(Package packageNode) {
+		try {
+			writer.writeEndElement();
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void endRoot(Root rootNode) {
+		if (rootNode.getTypes() != null) {
+			marshal(QNAME_TYPES, Types.class, rootNode.getTypes());
+		}
+
+		try {
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the marshaller to the shared pool, e.g. after parsing failed.
+	 * Nothing is written afterwards. Calling it again has no effect.
+	 */
+	public void close() {
+		if (!closed) {
+			closed = true;
+			JaxbSupport.releaseMarshaller(marshaller);
+		}
+	}
+
+	/**
+	 * Marshals a type and records its position, if an index is written. The
+	 * writer is flushed before and after the element, so the counted bytes
+	 * match its boundaries exactly.
+	 * 
+	 * @param name
+	 *            the element name of the node
+	 * @param type
+	 *            the type of the node
+	 * @param node
+	 *            the node
+	 * @param qualified
+	 *            the qualified name of the type
+	 * @param kind
+	 *            the kind of the element in the index
+	 */
+	protected <T> void marshalType(QName name, java.lang.Class<T> type, T node, String qualified, byte kind) {
+		if (typeIndex == null) {
+			marshal(name, type, node);
+			return;
+		}
+
+		try {
+			writer.prepareStartElement();
+			writer.flush();
+			long offset = countingOutputStream.getCount();
+			marshal(name, type, node);
+			writer.flush();
+			typeIndex.add(qualified, kind, offset, (int) (countingOutputStream.getCount() - offset));
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Marshals a single node as XML fragment into the stream writer.
+	 *
+	 * @param name
+	 *            the element name of the node
+	 * @param type
+	 *            the type of the node
+	 * @param node
+	 *            the node
+	 */
+	protected <T> void marshal(QName name, java.lang.Class<T> type, T node) {
+		try {
+			marshaller.marshal(new JAXBElement<T>(name, type, node), writer);
+		} catch (JAXBException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+}
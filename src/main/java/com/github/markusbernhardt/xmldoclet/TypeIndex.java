@@ -0,0 +1,235 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of the byte positions of every type element within a document,
+ * written as binary sidecar file next to it. A single seek is enough to read
+ * one type from the document afterwards.
+ * <p>
+ * The index file starts with the magic number <code>XDIX</code>, a version
+ * (short) and the number of entries (int). The entries follow, sorted by
+ * qualified name: the qualified name (modified UTF-8 as written by
+ * {@link DataOutputStream#writeUTF(String)}), the kind (byte: 0 annotation,
+ * 1 enum, 2 interface, 3 class), the offset (long) and the length (int) of
+ * the element in bytes. All numbers are big endian.
+ */
+public class TypeIndex {
+
+	/**
+	 * Kind of an annotation element.
+	 */
+	public static final byte ANNOTATION = 0;
+
+	/**
+	 * Kind of an enum element.
+	 */
+	public static final byte ENUM = 1;
+
+	/**
+	 * Kind of an interface element.
+	 */
+	public static final byte INTERFACE = 2;
+
+	/**
+	 * Kind of a class element.
+	 */
+	public static final byte CLASS = 3;
+
+	private static final int MAGIC = 0x58444958;
+
+	private static final short VERSION = 1;
+
+	protected final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+	/**
+	 * Adds the position of a type element.
+	 *
+	 * @param qualified
+	 *            the qualified name of the type
+	 * @param kind
+	 *            the kind of the element
+	 * @param offset
+	 *            the offset of the start tag in bytes
+	 * @param length
+	 *            the length of the element in bytes
+	 */
+	public void add(String qualified, byte kind, long offset, int length) {
+		entries.put(qualified, new Entry(qualified, kind, offset, length));
+	}
+
+	/**
+	 * Returns the position of a type element.
+	 *
+	 * @param qualified
+	 *            the qualified name of the type
+	 * @return the entry or <code>null</code> if the type is unknown
+	 */
+	public Entry get(String qualified) {
+		return entries.get(qualified);
+	}
+
+	/**
+	 * @return all entries, sorted by qualified name
+	 */
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Writes the index file.
+	 *
+	 * @param file
+	 *            the index file
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public void write(File file) throws IOException {
+		DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			outputStream.writeInt(MAGIC);
+			outputStream.writeShort(VERSION);
+			outputStream.writeInt(entries.size());
+			for (Entry entry : entries.values()) {
+				outputStream.writeUTF(entry.qualified);
+				outputStream.writeByte(entry.kind);
+				outputStream.writeLong(entry.offset);
+				outputStream.writeInt(entry.length);
+			}
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Reads an index file.
+	 *
+	 * @param file
+	 *            the index file
+	 * @return the index
+	 * @throws IOException
+	 *             if the file can't be read or is no index file
+	 */
+	public static TypeIndex read(File file) throws IOException {
+		DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (inputStream.readInt() != MAGIC) {
+				throw new IOException("Not a type index: " + file);
+			}
+			short version = inputStream.readShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported type index version " + version + ": " + file);
+			}
+
+			TypeIndex typeIndex = new TypeIndex();
+			int size = inputStream.readInt();
+			for (int i = 0; i < size; i++) {
+				String qualified = inputStream.readUTF();
+				byte kind = inputStream.readByte();
+				long offset = inputStream.readLong();
+				int length = inputStream.readInt();
+				typeIndex.add(qualified, kind, offset, length);
+			}
+			return typeIndex;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Reads the element of one type from the document.
+	 *
+	 * @param document
+	 *            the indexed document
+	 * @param qualified
+	 *            the qualified name of the type
+	 * @return the bytes of the element or <code>null</code> if the type is
+	 *         unknown
+	 * @throws IOException
+	 *             if the document can't be read
+	 */
+	public byte[] readElement(File document, String qualified) throws IOException {
+		Entry entry = get(qualified);
+		if (entry == null) {
+			return null;
+		}
+
+		byte[] element = new byte[entry.length];
+		RandomAccessFile randomAccessFile = new RandomAccessFile(document, "r");
+		try {
+			randomAccessFile.seek(entry.offset);
+			randomAccessFile.readFully(element);
+		} finally {
+			randomAccessFile.close();
+		}
+		return element;
+	}
+
+	/**
+	 * Position of one type element.
+	 */
+	public static class Entry {
+
+		protected final String qualified;
+
+		protected final byte kind;
+
+		protected final long offset;
+
+		protected final int length;
+
+		protected Entry(String qualified, byte kind, long offset, int length) {
+			this.qualified = qualified;
+			this.kind = kind;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/**
+		 * @return the qualified name of the type
+		 */
+		public String getQualified() {
+			return qualified;
+		}
+
+		/**
+		 * @return the kind of the element, e.g. {@link TypeIndex#CLASS}
+		 */
+		public byte getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return the offset of the start tag in bytes
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @return the length of the element in bytes
+		 */
+		public int getLength() {
+			return length;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+
+/**
+ * Cache interning structurally identical type nodes, so every distinct type
+ * reference is held in memory only once. This class is thread safe.
+ * <p>
+ * The cached nodes are shared by all elements referencing the type, by all
+ * threads and, when the cache is shared, by all runs in the JVM. The
+ * generated node classes can't be frozen, so no code may modify a node once
+ * it has been cached: neither the parser nor the listeners, writers and
+ * statistics receiving the nodes, nor callers post-processing the returned
+ * model. Copy a node before changing it. <code>TypeInfoCacheTest</code>
+ * checks this for every output mode.
+ */
+public class TypeInfoCache {
+
+	protected final ConcurrentMap<String, TypeInfo> typeInfos = new ConcurrentHashMap<String, TypeInfo>();
+
+	protected final AtomicLong hits = new AtomicLong();
+
+	protected final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Looks up a type node.
+	 * 
+	 * @param key
+	 *            the key describing the structure of the type
+	 * @return the cached node or <code>null</code> if there is none
+	 */
+	public TypeInfo get(String key) {
+		TypeInfo typeInfo = typeInfos.get(key);
+		if (typeInfo != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return typeInfo;
+	}
+
+	/**
+	 * Caches a type node, unless another thread has been faster.
+	 * 
+	 * @param key
+	 *            the key describing the structure of the type
+	 * @param typeInfo
+	 *            the new node
+	 * @return the node to use, either the given one or the one cached before
+	 */
+	public TypeInfo putIfAbsent(String key, TypeInfo typeInfo) {
+		TypeInfo cachedTypeInfo = typeInfos.putIfAbsent(key, typeInfo);
+		return cachedTypeInfo != null ? cachedTypeInfo : typeInfo;
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups not answered from the cache
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of distinct type nodes
+	 */
+	public int size() {
+		return typeInfos.size();
+	}
+
+	@Override
+	public String toString() {
+		return "TypeInfo cache: " + size() + " types, " + getHits() + " hits, " + getMisses() + " misses";
+	}
+}
@@ -0,0 +1,96 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.github.markusbernhardt.xmldoclet.xjc.ObjectFactory;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.Types;
+
+/**
+ * Collects every distinct type of the type table output mode. Each type is
+ * written once into the <code>types</code> section of the document, carrying
+ * an id. All usages are replaced by nodes only referencing that id.
+ * <p>
+ * The ids are derived from the structure of the type and the table is sorted
+ * by the same key, so the output does not depend on the order in which the
+ * types have been encountered. This class is thread safe.
+ */
+public class TypeTable {
+
+	protected final ObjectFactory objectFactory = new ObjectFactory();
+
+	/**
+	 * The complete type nodes, sorted by their key.
+	 */
+	protected final Map<String, TypeInfo> types = new TreeMap<String, TypeInfo>();
+
+	/**
+	 * The nodes referencing the complete type nodes.
+	 */
+	protected final Map<String, TypeInfo> references = new HashMap<String, TypeInfo>();
+
+	protected final Set<String> ids = new HashSet<String>();
+
+	/**
+	 * Adds a type to the table, unless it is already present.
+	 *
+	 * @param key
+	 *            the key describing the structure of the type
+	 * @param typeInfo
+	 *            the complete type node
+	 * @return the node referencing the type
+	 */
+	public synchronized TypeInfo add(String key, TypeInfo typeInfo) {
+		TypeInfo reference = references.get(key);
+		if (reference == null) {
+			typeInfo.setId(createId(key));
+			types.put(key, typeInfo);
+
+			reference = objectFactory.createTypeInfo();
+			reference.setRef(typeInfo);
+			references.put(key, reference);
+		}
+		return reference;
+	}
+
+	/**
+	 * Creates the <code>types</code> section of the document.
+	 *
+	 * @return the node containing all types, sorted by their key
+	 */
+	public synchronized Types createTypesNode() {
+		Types typesNode = objectFactory.createTypes();
+		typesNode.getType().addAll(types.values());
+		return typesNode;
+	}
+
+	/**
+	 * @return the number of distinct types
+	 */
+	public synchronized int size() {
+		return types.size();
+	}
+
+	/**
+	 * Derives an id from the 64 bit FNV-1a hash of the key. In the very
+	 * unlikely case of a collision, the id is made unique by appending
+	 * underscores.
+	 */
+	private String createId(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+
+		String id = "t" + Long.toString(hash >>> 1, Character.MAX_RADIX);
+		while (!ids.add(id)) {
+			id += "_";
+		}
+		return id;
+	}
+}
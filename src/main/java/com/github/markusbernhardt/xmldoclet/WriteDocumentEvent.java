@@ -0,0 +1,41 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the output of the document. Only loaded
+ * through {@link FlightRecorderEvents}.
+ */
+@Name("com.github.markusbernhardt.xmldoclet.WriteDocument")
+@Label("Write Document")
+@Category("XML Doclet")
+@Description("Marshalling of the object model, or parsing and writing in the streaming modes")
+public class WriteDocumentEvent extends Event {
+
+	@Label("Mode")
+	@Description("save, stream or split")
+	protected String mode;
+
+	@Label("File")
+	protected String file;
+
+	static Object start() {
+		WriteDocumentEvent event = new WriteDocumentEvent();
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object object, String mode, String file) {
+		WriteDocumentEvent event = (WriteDocumentEvent) object;
+		event.end();
+		if (event.shouldCommit()) {
+			event.mode = mode;
+			event.file = file;
+			event.commit();
+		}
+	}
+}
@@ -5,13 +5,19 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Pattern;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 
@@ -20,7 +26,6 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
-import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.slf4j.Logger;
@@ -41,41 +46,45 @@ public class XmlDoclet {
 	private final static Logger log = LoggerFactory.getLogger(Parser.class);
 
 	/**
-	 * The parsed object model. Used in unit tests.
+	 * The number of slowest types listed by the statistics.
 	 */
-	public static Root root;
+	public static final int SLOWEST_TYPES = 10;
 
 	/**
-	 * The Options instance to parse command line strings.
+	 * Creates the Options instance to parse command line strings. A new
+	 * instance is created for every call, as commons-cli options are mutable
+	 * and doclet runs may share the JVM.
+	 * 
+	 * @return the options of this doclet
 	 */
-	public final static Options options;
-
-	static {
-		options = new Options();
-
-		OptionBuilder.withArgName("directory");
-		OptionBuilder.isRequired(false);
-		OptionBuilder.hasArg();
-		OptionBuilder.withDescription("Destination directory for output file.\nDefault: .");
-		options.addOption(OptionBuilder.create("d"));
-
-		OptionBuilder.withArgName("encoding");
-		OptionBuilder.isRequired(false);
-		OptionBuilder.hasArg();
-		OptionBuilder.withDescription("Encoding of the output file.\nDefault: UTF8");
-		options.addOption(OptionBuilder.create("docencoding"));
-
-		OptionBuilder.withArgName("dryrun");
-		OptionBuilder.isRequired(false);
-		OptionBuilder.hasArgs(0);
-		OptionBuilder.withDescription("Parse javadoc, but don't write output file.\nDefault: false");
-		options.addOption(OptionBuilder.create("dryrun"));
-
-		OptionBuilder.withArgName("filename");
-		OptionBuilder.isRequired(false);
-		OptionBuilder.hasArg();
-		OptionBuilder.withDescription("Name of the output file.\nDefault: javadoc.xml");
-		options.addOption(OptionBuilder.create("filename"));
+	public static Options createOptions() {
+		Options options = new Options();
+		addOption(options, "d", "directory", 1, "Destination directory for output file.\nDefault: .");
+		addOption(options, "docencoding", "encoding", 1, "Encoding of the output file.\nDefault: UTF8");
+		addOption(options, "compact", "compact", 0, "Leave out default attribute values and indentation.\nDefault: false");
+		addOption(options, "compress", "format", 1, "Compress the output file on the fly: gzip or deflate.\nDefault: none");
+		addOption(options, "dryrun", "dryrun", 0, "Parse javadoc, but don't write output file.\nDefault: false");
+		addOption(options, "filename", "filename", 1, "Name of the output file.\nDefault: javadoc.xml");
+		addOption(options, "index", "index", 0, "Write the byte position of every type into the index file <filename>.idx.\nDefault: false");
+		addOption(options, "pipeline", "depth", 1, "Write on a separate thread, with at most <depth> parsed packages waiting.\nDefault: none");
+		addOption(options, "spill", "spill", 0, "Write every parsed package into a temporary file and join these files at the end, so only one package is held in memory.\nDefault: false");
+		addOption(options, "split", "mode", 1, "Split the output into several files. Supported mode: package\nDefault: none");
+		addOption(options, "stats", "stats", 0, "Log the time of every phase, the number of nodes, the output size, the peak heap and the slowest types.\nDefault: false");
+		addOption(options, "statsfile", "file", 1, "Write the statistics as JSON into <file>, implies -stats.\nDefault: none");
+		addOption(options, "stream", "stream", 0, "Write each type as soon as it is parsed.\nDefault: false");
+		addOption(options, "threads", "threads", 1, "Number of threads converting the classes.\nDefault: 1");
+		addOption(options, "cache", "directory", 1, "Directory of the persistent parse cache. Unchanged classes are taken from it.\nDefault: none");
+		addOption(options, "cachesize", "entries", 1, "Maximum number of classes kept in the parse cache.\nDefault: 10000");
+		addOption(options, "typetable", "typetable", 0, "Write every distinct type once and reference it by id.\nDefault: false");
+		return options;
+	}
+
+	private static void addOption(Options options, String name, String argName, int args, String description) {
+		Option option = new Option(name, description);
+		option.setArgName(argName);
+		option.setRequired(false);
+		option.setArgs(args);
+		options.addOption(option);
 	}
 
 	/**
@@ -96,7 +105,7 @@ public class XmlDoclet {
 	 *         Negative value means error occurred.
 	 */
 	public static int optionLength(String optionName) {
-		Option option = options.getOption(optionName);
+		Option option = createOptions().getOption(optionName);
 		if (option == null) {
 			return 0;
 		}
@@ -123,7 +132,63 @@ public class XmlDoclet {
 	 * @return <code>true</code> if the options are valid.
 	 */
 	public static boolean validOptions(String optionsArrayArray[][], DocErrorReporter reporter) {
-		return null != parseCommandLine(optionsArrayArray);
+		CommandLine commandLine = parseCommandLine(optionsArrayArray);
+		if (commandLine == null) {
+			return false;
+		}
+		if (commandLine.hasOption("threads")) {
+			String threads = commandLine.getOptionValue("threads");
+			if (!threads.matches("[1-9][0-9]{0,3}")) {
+				reporter.printError("Invalid number of threads: " + threads);
+				return false;
+			}
+		}
+		if (commandLine.hasOption("compress") && getCompression(commandLine) == null) {
+			reporter.printError("Invalid compression: " + commandLine.getOptionValue("compress"));
+			return false;
+		}
+		if (commandLine.hasOption("pipeline")) {
+			String depth = commandLine.getOptionValue("pipeline");
+			if (!depth.matches("[1-9][0-9]{0,3}")) {
+				reporter.printError("Invalid pipeline depth: " + depth);
+				return false;
+			}
+		}
+		if (commandLine.hasOption("split")) {
+			if (!"package".equals(commandLine.getOptionValue("split"))) {
+				reporter.printError("Invalid split mode: " + commandLine.getOptionValue("split"));
+				return false;
+			}
+			if (commandLine.hasOption("typetable") || commandLine.hasOption("stream")
+					|| commandLine.hasOption("pipeline")) {
+				reporter.printError("The option -split can't be combined with -typetable, -stream or -pipeline");
+				return false;
+			}
+		}
+		if (commandLine.hasOption("index")) {
+			if (commandLine.hasOption("compress") || commandLine.hasOption("split")) {
+				reporter.printError("The option -index can't be combined with -compress or -split");
+				return false;
+			}
+		}
+		if (commandLine.hasOption("spill")) {
+			if (commandLine.hasOption("stream") || commandLine.hasOption("index") || commandLine.hasOption("split")) {
+				reporter.printError("The option -spill can't be combined with -stream, -index or -split");
+				return false;
+			}
+			if (!isUtf8(commandLine.getOptionValue("docencoding", "UTF-8"))) {
+				reporter.printError("The option -spill requires the document encoding UTF-8");
+				return false;
+			}
+		}
+		if (commandLine.hasOption("cachesize")) {
+			String cacheSize = commandLine.getOptionValue("cachesize");
+			if (!cacheSize.matches("[1-9][0-9]{0,8}")) {
+				reporter.printError("Invalid parse cache size: " + cacheSize);
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -139,15 +204,284 @@ public class XmlDoclet {
 	 * @return <code>true</code> if processing was successful.
 	 */
 	public static boolean start(RootDoc rootDoc) {
-		CommandLine commandLine = parseCommandLine(rootDoc.options());
-		Parser parser = new Parser();
-		root = parser.parseRootDoc(rootDoc);
-		save(commandLine, root);
+		process(parseCommandLine(rootDoc.options()), rootDoc);
 		return true;
 	}
 
 	/**
-	 * Save XML object model to a file via JAXB.
+	 * Parses the documentation tree and writes the document as requested by
+	 * the command line. No state is kept after the method returns.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param rootDoc
+	 *            the root of the documentation tree
+	 * @return the object model or <code>null</code> if it has been streamed
+	 *         to the output files without being held in memory
+	 */
+	public static Root process(CommandLine commandLine, RootDoc rootDoc) {
+		return process(commandLine, rootDoc, createParser(commandLine), Statistics.getJvmStartNanos(), 0);
+	}
+
+	/**
+	 * Parses the documentation tree with the given parser and writes the
+	 * document as requested by the command line.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param rootDoc
+	 *            the root of the documentation tree
+	 * @param parser
+	 *            the parser created by {@link #createParser(CommandLine)},
+	 *            possibly sharing caches with other runs
+	 * @param startNanos
+	 *            the value of {@link System#nanoTime()} when the run started,
+	 *            the end of the phase <code>javadoc</code> of the statistics
+	 * @param startProcessCpuNanos
+	 *            the CPU time of the process when the run started
+	 * @return the object model or <code>null</code> if it has been streamed
+	 *         to the output files without being held in memory
+	 */
+	public static Root process(CommandLine commandLine, RootDoc rootDoc, Parser parser, long startNanos,
+			long startProcessCpuNanos) {
+		FragmentCache fragmentCache = createFragmentCache(commandLine, rootDoc);
+		parser.setFragmentCache(fragmentCache);
+		Statistics statistics = null;
+		if (commandLine.hasOption("stats") || commandLine.hasOption("statsfile")) {
+			statistics = new Statistics(SLOWEST_TYPES, startNanos, startProcessCpuNanos);
+			parser.setStatistics(statistics);
+		}
+		Root root = null;
+		try {
+			if (commandLine.hasOption("split") && !commandLine.hasOption("dryrun")) {
+				startPhase(statistics, "parse and write");
+				Object event = FlightRecorderEvents.beginWriteDocument();
+				try {
+					split(commandLine, parser, rootDoc);
+				} finally {
+					FlightRecorderEvents.endWriteDocument(event, "split", commandLine.getOptionValue("d", "."));
+				}
+			} else if (commandLine.hasOption("spill") && !commandLine.hasOption("dryrun")) {
+				startPhase(statistics, "parse and write");
+				Object event = FlightRecorderEvents.beginWriteDocument();
+				try {
+					spill(commandLine, parser, rootDoc);
+				} finally {
+					FlightRecorderEvents.endWriteDocument(event, "spill", getFilename(commandLine));
+				}
+			} else if ((commandLine.hasOption("stream") || commandLine.hasOption("index") || commandLine
+					.hasOption("pipeline")) && !commandLine.hasOption("dryrun")) {
+				startPhase(statistics, "parse and write");
+				Object event = FlightRecorderEvents.beginWriteDocument();
+				try {
+					stream(commandLine, parser, rootDoc);
+				} finally {
+					FlightRecorderEvents.endWriteDocument(event, "stream", getFilename(commandLine));
+				}
+			} else {
+				startPhase(statistics, "parse");
+				RootBuilder rootBuilder = new RootBuilder();
+				parser.parseRootDoc(rootDoc, rootBuilder);
+				root = rootBuilder.getRoot();
+				startPhase(statistics, "write");
+				Object event = FlightRecorderEvents.beginWriteDocument();
+				try {
+					save(commandLine, root);
+				} finally {
+					FlightRecorderEvents.endWriteDocument(event, "save", getFilename(commandLine));
+				}
+			}
+		} finally {
+			if (fragmentCache != null) {
+				fragmentCache.close();
+			}
+		}
+		if (statistics != null) {
+			reportStatistics(commandLine, statistics);
+		}
+		return root;
+	}
+
+	/**
+	 * Creates the parser configured by the command line: the number of
+	 * threads, the type table and the compact output.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @return the new parser
+	 */
+	public static Parser createParser(CommandLine commandLine) {
+		Parser parser = new Parser();
+		parser.setThreads(Integer.parseInt(commandLine.getOptionValue("threads", "1")));
+		if (commandLine.hasOption("typetable")) {
+			parser.setTypeTable(new TypeTable());
+		}
+		parser.setCompact(commandLine.hasOption("compact"));
+		return parser;
+	}
+
+	private static void startPhase(Statistics statistics, String name) {
+		if (statistics != null) {
+			statistics.startPhase(name);
+		}
+	}
+
+	/**
+	 * Ends the last phase and writes the statistics to the log and, with the
+	 * option -statsfile, into a JSON file.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param statistics
+	 *            the statistics of the run
+	 */
+	public static void reportStatistics(CommandLine commandLine, Statistics statistics) {
+		statistics.endPhase();
+		if (!commandLine.hasOption("split")) {
+			for (File outputFile : getOutputFiles(commandLine)) {
+				statistics.addOutputFile(outputFile);
+			}
+		}
+		statistics.log(log);
+		if (commandLine.hasOption("statsfile")) {
+			try {
+				statistics.write(new File(commandLine.getOptionValue("statsfile")));
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Creates the persistent parse cache, if requested.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param rootDoc
+	 *            the root of the documentation tree, whose options are part
+	 *            of the cache key
+	 * @return the cache or <code>null</code> if every class has to be parsed
+	 */
+	public static FragmentCache createFragmentCache(CommandLine commandLine, RootDoc rootDoc) {
+		if (!commandLine.hasOption("cache")) {
+			return null;
+		}
+		if (commandLine.hasOption("typetable")) {
+			log.warn("The parse cache is not supported together with -typetable and is ignored");
+			return null;
+		}
+
+		try {
+			int maxSize = Integer.parseInt(commandLine.getOptionValue("cachesize", "10000"));
+			return new FragmentCache(new File(commandLine.getOptionValue("cache")), maxSize, getCacheVariant(
+					commandLine, rootDoc));
+		} catch (XmlDocletException e) {
+			log.error(e.getMessage(), e);
+		} catch (JAXBException e) {
+			log.error(e.getMessage(), e);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the options changing the parsed fragments: the version of the
+	 * doclet, the doclet options changing the model, the javadoc options
+	 * selecting the members or changing how the sources are read and the
+	 * paths the types are resolved from. The size and modification time of
+	 * every file on the classpath are part of the variant, so a changed jar
+	 * invalidates the cache.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param rootDoc
+	 *            the root of the documentation tree
+	 * @return the variant of the parse cache
+	 */
+	protected static String getCacheVariant(CommandLine commandLine, RootDoc rootDoc) {
+		StringBuilder variant = new StringBuilder("xml-doclet ").append(getVersion());
+		if (commandLine.hasOption("compact")) {
+			variant.append(" compact");
+		}
+		if (commandLine.hasOption("typetable")) {
+			variant.append(" typetable");
+		}
+
+		// the last access option wins, javadoc defaults to -protected
+		String access = "-protected";
+		StringBuilder sourceOptions = new StringBuilder();
+		for (String[] option : rootDoc.options()) {
+			String name = option[0].toLowerCase(Locale.ENGLISH);
+			if (name.equals("-public") || name.equals("-protected") || name.equals("-package")
+					|| name.equals("-private")) {
+				access = name;
+			} else if (name.equals("-encoding") || name.equals("-source")) {
+				sourceOptions.append(' ').append(name);
+				for (int i = 1; i < option.length; i++) {
+					sourceOptions.append(' ').append(option[i]);
+				}
+			} else if (name.equals("-classpath") || name.equals("-cp") || name.equals("-bootclasspath")
+					|| name.equals("-extdirs") || name.equals("-sourcepath")) {
+				sourceOptions.append(' ').append(name);
+				for (int i = 1; i < option.length; i++) {
+					for (String path : option[i].split(Pattern.quote(File.pathSeparator))) {
+						File file = new File(path);
+						sourceOptions.append(' ').append(path);
+						if (file.isFile()) {
+							sourceOptions.append(':').append(file.length()).append(':').append(file.lastModified());
+						}
+					}
+				}
+			}
+		}
+		return variant.append(' ').append(access).append(sourceOptions).toString();
+	}
+
+	/**
+	 * Returns the version of this doclet.
+	 * 
+	 * @return the version or "unknown" if it can't be determined
+	 */
+	public static String getVersion() {
+		InputStream inputStream = XmlDoclet.class.getResourceAsStream("/xml-doclet.properties");
+		if (inputStream == null) {
+			return "unknown";
+		}
+		try {
+			Properties properties = new Properties();
+			properties.load(inputStream);
+			return properties.getProperty("version", "unknown");
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+			return "unknown";
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether an encoding is UTF-8, under any of its names.
+	 * 
+	 * @param encoding
+	 *            the name of the encoding
+	 * @return <code>false</code> for other, illegal or unsupported encodings
+	 */
+	protected static boolean isUtf8(String encoding) {
+		try {
+			return Charset.forName(encoding).equals(StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			// left to JAXB, which reports the encoding
+			return false;
+		}
+	}
+
+	/**
+	 * Save XML object model to a file. UTF-8 documents, whatever name the
+	 * encoding is given, are written by the {@link XmlModelWriter} and
+	 * declared as UTF-8, all other encodings via JAXB.
 	 * 
 	 * @param commandLine
 	 *            the parsed command line arguments
@@ -160,31 +494,95 @@ public class XmlDoclet {
 		}
 
 		FileOutputStream fileOutputStream = null;
-		BufferedOutputStream bufferedOutputStream = null;
+		OutputStream outputStream = null;
+		Marshaller marshaller = null;
 		try {
-			JAXBContext contextObj = JAXBContext.newInstance(Root.class);
+			boolean formatted = !commandLine.hasOption("compact");
+			String encoding = commandLine.getOptionValue("docencoding", "UTF-8");
 
-			Marshaller marshaller = contextObj.createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			if (commandLine.hasOption("docencoding")) {
-				marshaller.setProperty(Marshaller.JAXB_ENCODING, commandLine.getOptionValue("docencoding"));
-			}
+			fileOutputStream = new FileOutputStream(getFilename(commandLine));
+			outputStream = createOutputStream(commandLine, fileOutputStream);
 
-			String filename = "javadoc.xml";
-			if (commandLine.hasOption("filename")) {
-				filename = commandLine.getOptionValue("filename");
+			if (isUtf8(encoding)) {
+				new XmlModelWriter(outputStream, formatted).write(root);
+			} else {
+				marshaller = JaxbSupport.acquireMarshaller();
+				marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+				marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+				marshaller.marshal(root, outputStream);
 			}
-			if (commandLine.hasOption("d")) {
-				filename = commandLine.getOptionValue("d") + File.separator + filename;
+			outputStream.flush();
+
+		} catch (JAXBException e) {
+			log.error(e.getMessage(), e);
+		} catch (FileNotFoundException e) {
+			log.error(e.getMessage(), e);
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		} finally {
+			JaxbSupport.releaseMarshaller(marshaller);
+			try {
+				if (outputStream != null) {
+					outputStream.close();
+				}
+				if (fileOutputStream != null) {
+					fileOutputStream.close();
+				}
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
 			}
+		}
+	}
+
+	/**
+	 * Parse the javadoc and write every type to the output file as soon as it
+	 * has been parsed. The object model is never completely held in memory.
+	 * With the option -index, the byte positions of the types are written
+	 * into a binary index file next to the output file. With the option
+	 * -pipeline, the types are written on a separate thread.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param parser
+	 *            the parser to use
+	 * @param rootDoc
+	 *            the root of the documentation tree
+	 */
+	public static void stream(CommandLine commandLine, Parser parser, RootDoc rootDoc) {
+		FileOutputStream fileOutputStream = null;
+		OutputStream outputStream = null;
+		PipelinedRootListener pipelinedRootListener = null;
+		StreamingRootWriter streamingRootWriter = null;
+		try {
+			String encoding = commandLine.getOptionValue("docencoding", "UTF-8");
 
-			fileOutputStream = new FileOutputStream(filename);
-			bufferedOutputStream = new BufferedOutputStream(fileOutputStream, 1024 * 1024);
+			fileOutputStream = new FileOutputStream(getFilename(commandLine));
+			outputStream = createOutputStream(commandLine, fileOutputStream);
 
-			marshaller.marshal(root, bufferedOutputStream);
-			bufferedOutputStream.flush();
-			fileOutputStream.flush();
+			boolean indent = !commandLine.hasOption("compact");
+			TypeIndex typeIndex = null;
+			if (commandLine.hasOption("index")) {
+				typeIndex = new TypeIndex();
+				streamingRootWriter = new StreamingRootWriter(new CountingOutputStream(outputStream), encoding,
+						indent, typeIndex);
+			} else {
+				streamingRootWriter = new StreamingRootWriter(outputStream, encoding, indent);
+			}
+			RootListener listener = streamingRootWriter;
+			if (commandLine.hasOption("pipeline")) {
+				int depth = Integer.parseInt(commandLine.getOptionValue("pipeline"));
+				pipelinedRootListener = new PipelinedRootListener(listener, depth);
+				listener = pipelinedRootListener;
+			}
+
+			parser.parseRootDoc(rootDoc, listener);
+			if (typeIndex != null) {
+				typeIndex.write(new File(getFilename(commandLine) + ".idx"));
+			}
+			outputStream.flush();
 
+		} catch (XmlDocletException e) {
+			log.error(e.getMessage(), e);
 		} catch (JAXBException e) {
 			log.error(e.getMessage(), e);
 		} catch (FileNotFoundException e) {
@@ -193,8 +591,19 @@ public class XmlDoclet {
 			log.error(e.getMessage(), e);
 		} finally {
 			try {
-				if (bufferedOutputStream != null) {
-					bufferedOutputStream.close();
+				if (pipelinedRootListener != null) {
+					// stops the writer thread, if parsing failed
+					pipelinedRootListener.close();
+				}
+			} catch (XmlDocletException e) {
+				log.error(e.getMessage(), e);
+			}
+			if (streamingRootWriter != null) {
+				streamingRootWriter.close();
+			}
+			try {
+				if (outputStream != null) {
+					outputStream.close();
 				}
 				if (fileOutputStream != null) {
 					fileOutputStream.close();
@@ -205,6 +614,167 @@ public class XmlDoclet {
 		}
 	}
 
+	/**
+	 * Parse the javadoc and write every package into a temporary fragment file
+	 * as soon as it has been parsed. The output file is assembled from the
+	 * fragments at the end. With the option -pipeline, the fragments are
+	 * written on a separate thread.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param parser
+	 *            the parser to use
+	 * @param rootDoc
+	 *            the root of the documentation tree
+	 */
+	public static void spill(CommandLine commandLine, Parser parser, RootDoc rootDoc) {
+		SpillRootWriter spillRootWriter = new SpillRootWriter(new File(getFilename(commandLine)),
+				!commandLine.hasOption("compact"), getCompression(commandLine));
+		PipelinedRootListener pipelinedRootListener = null;
+		try {
+			RootListener listener = spillRootWriter;
+			if (commandLine.hasOption("pipeline")) {
+				int depth = Integer.parseInt(commandLine.getOptionValue("pipeline"));
+				pipelinedRootListener = new PipelinedRootListener(listener, depth);
+				listener = pipelinedRootListener;
+			}
+			parser.parseRootDoc(rootDoc, listener);
+		} catch (XmlDocletException e) {
+			log.error(e.getMessage(), e);
+		} finally {
+			try {
+				if (pipelinedRootListener != null) {
+					// stops the writer thread, if parsing failed
+					pipelinedRootListener.close();
+				}
+			} catch (XmlDocletException e) {
+				log.error(e.getMessage(), e);
+			}
+			spillRootWriter.close();
+		}
+	}
+
+	/**
+	 * Parse the javadoc and write every package into a file of its own, plus a
+	 * manifest listing these files.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param parser
+	 *            the parser to use
+	 * @param rootDoc
+	 *            the root of the documentation tree
+	 */
+	public static void split(CommandLine commandLine, Parser parser, RootDoc rootDoc) {
+		File directory = new File(commandLine.getOptionValue("d", "."));
+		String baseName = commandLine.getOptionValue("filename", "javadoc.xml");
+		String encoding = commandLine.getOptionValue("docencoding", "UTF-8");
+		int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+		SplitRootWriter splitRootWriter = new SplitRootWriter(directory, baseName, encoding,
+				!commandLine.hasOption("compact"), getCompression(commandLine), threads);
+		try {
+			parser.parseRootDoc(rootDoc, splitRootWriter);
+
+			if (parser.getStatistics() != null) {
+				parser.getStatistics().addOutputFile(new File(directory, splitRootWriter.getManifestFilename()));
+				for (String packageName : parser.packages.keySet()) {
+					parser.getStatistics().addOutputFile(
+							new File(directory, splitRootWriter.getPackageFilename(packageName)));
+				}
+			}
+
+		} catch (XmlDocletException e) {
+			log.error(e.getMessage(), e);
+		} finally {
+			// stops the writer threads, if parsing failed
+			splitRootWriter.close();
+		}
+	}
+
+	/**
+	 * Creates the buffered stream to write the document to. With compression
+	 * enabled, the data is compressed on a background thread.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param fileOutputStream
+	 *            the stream of the output file, closed together with the
+	 *            returned stream
+	 * @return the stream to write the document to
+	 * @throws IOException
+	 *             if the compressing stream can't be created
+	 */
+	public static OutputStream createOutputStream(CommandLine commandLine, FileOutputStream fileOutputStream)
+			throws IOException {
+		CompressionEnum compression = getCompression(commandLine);
+		if (compression == null) {
+			return new BufferedOutputStream(fileOutputStream, 1024 * 1024);
+		}
+		return new AsyncOutputStream(compression.createOutputStream(fileOutputStream), "xml-doclet-compression");
+	}
+
+	/**
+	 * Returns the compression of the output file.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @return the compression or <code>null</code> for an uncompressed file
+	 */
+	public static CompressionEnum getCompression(CommandLine commandLine) {
+		if (!commandLine.hasOption("compress")) {
+			return null;
+		}
+		return CompressionEnum.fromName(commandLine.getOptionValue("compress"));
+	}
+
+	/**
+	 * Returns the name of the output file.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @return the output file name including the destination directory
+	 */
+	public static String getFilename(CommandLine commandLine) {
+		String filename = "javadoc.xml";
+		if (commandLine.hasOption("filename")) {
+			filename = commandLine.getOptionValue("filename");
+		}
+		CompressionEnum compression = getCompression(commandLine);
+		if (compression != null && !filename.endsWith(compression.getExtension())) {
+			filename += compression.getExtension();
+		}
+		if (commandLine.hasOption("d")) {
+			filename = commandLine.getOptionValue("d") + File.separator + filename;
+		}
+		return filename;
+	}
+
+	/**
+	 * Returns the files written by a run: the output file and the index file,
+	 * or the manifest of the split output and the package files it lists.
+	 * 
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @return the output files, empty for a dry run
+	 */
+	public static List<File> getOutputFiles(CommandLine commandLine) {
+		List<File> outputFiles = new ArrayList<File>();
+		if (commandLine.hasOption("dryrun")) {
+			return outputFiles;
+		}
+		if (commandLine.hasOption("split")) {
+			outputFiles.addAll(SplitRootWriter.getOutputFiles(new File(commandLine.getOptionValue("d", ".")),
+					commandLine.getOptionValue("filename", "javadoc.xml")));
+		} else {
+			outputFiles.add(new File(getFilename(commandLine)));
+			if (commandLine.hasOption("index")) {
+				outputFiles.add(new File(getFilename(commandLine) + ".idx"));
+			}
+		}
+		return outputFiles;
+	}
+
 	/**
 	 * Return the version of the Java Programming Language supported by this
 	 * doclet.
@@ -230,6 +800,7 @@ public class XmlDoclet {
 	 * @return the parsed command line arguments.
 	 */
 	public static CommandLine parseCommandLine(String[][] optionsArrayArray) {
+		Options options = createOptions();
 		try {
 			List<String> argumentList = new ArrayList<String>();
 			for (String[] optionsArray : optionsArrayArray) {
@@ -0,0 +1,476 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Documents many source roots in one JVM. The jobs are read from a manifest
+ * and run concurrently on a bounded thread pool through the
+ * {@link XmlDocletRunner}. All jobs share the JAXB context. Jobs with the
+ * same classpath and source path share the cache of type nodes and the failed
+ * lookups of missing annotation types.
+ * <p>
+ * The manifest is a properties file. Every job is configured by the keys
+ * starting with its name, relative paths are resolved against the directory
+ * of the manifest:
+ *
+ * <pre>
+ * main.sourcepath = src/main/java
+ * main.classpath = lib/a.jar:lib/b.jar
+ * main.packages = com.example
+ * main.output = target/javadoc-main.xml
+ * main.options = -compact
+ * </pre>
+ *
+ * <code>packages</code> lists the packages documented with their
+ * subpackages, separated by blanks or commas. <code>classpath</code> and
+ * <code>options</code> are optional.
+ */
+public class XmlDocletBatch {
+
+	private final static Logger log = LoggerFactory.getLogger(XmlDocletBatch.class);
+
+	protected final int threads;
+
+	protected final ConcurrentMap<String, TypeInfoCache> typeInfoCaches = new ConcurrentHashMap<String, TypeInfoCache>();
+
+	protected final ConcurrentMap<String, MissingAnnotationTypes> missingAnnotationTypes = new ConcurrentHashMap<String, MissingAnnotationTypes>();
+
+	/**
+	 * Creates the batch.
+	 *
+	 * @param threads
+	 *            the number of jobs run at the same time
+	 */
+	public XmlDocletBatch(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads < 1");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Reads the jobs of a manifest, sorted by name.
+	 *
+	 * @param manifest
+	 *            the properties file describing the jobs
+	 * @return the jobs
+	 * @throws IOException
+	 *             if the manifest can't be read or a job is incomplete
+	 */
+	public static List<Job> readManifest(File manifest) throws IOException {
+		Properties properties = new Properties();
+		InputStream inputStream = new FileInputStream(manifest);
+		try {
+			properties.load(inputStream);
+		} finally {
+			inputStream.close();
+		}
+
+		File baseDirectory = manifest.getAbsoluteFile().getParentFile();
+		TreeSet<String> names = new TreeSet<String>();
+		for (String key : properties.stringPropertyNames()) {
+			int dot = key.lastIndexOf('.');
+			if (dot <= 0) {
+				throw new IOException("Invalid key in " + manifest + ": " + key);
+			}
+			names.add(key.substring(0, dot));
+		}
+
+		List<Job> jobs = new ArrayList<Job>();
+		for (String name : names) {
+			Job job = new Job(name);
+			job.sourcepath = resolvePathList(baseDirectory, required(properties, manifest, name, "sourcepath"));
+			job.classpath = resolvePathList(baseDirectory, properties.getProperty(name + ".classpath", ""));
+			job.packages.addAll(split(required(properties, manifest, name, "packages")));
+			job.output = resolve(baseDirectory, required(properties, manifest, name, "output"));
+			job.options.addAll(split(properties.getProperty(name + ".options", "")));
+			jobs.add(job);
+		}
+		return jobs;
+	}
+
+	private static String required(Properties properties, File manifest, String name, String key)
+			throws IOException {
+		String value = properties.getProperty(name + "." + key);
+		if (value == null || value.trim().length() == 0) {
+			throw new IOException("Missing " + name + "." + key + " in " + manifest);
+		}
+		return value.trim();
+	}
+
+	private static List<String> split(String value) {
+		List<String> values = new ArrayList<String>();
+		for (String part : value.trim().split("[\\s,]+")) {
+			if (part.length() > 0) {
+				values.add(part);
+			}
+		}
+		return values;
+	}
+
+	private static File resolve(File baseDirectory, String path) {
+		File file = new File(path);
+		return file.isAbsolute() ? file : new File(baseDirectory, path);
+	}
+
+	private static String resolvePathList(File baseDirectory, String pathList) {
+		StringBuilder resolved = new StringBuilder();
+		for (String path : pathList.trim().split(File.pathSeparator)) {
+			if (path.length() > 0) {
+				if (resolved.length() > 0) {
+					resolved.append(File.pathSeparatorChar);
+				}
+				resolved.append(resolve(baseDirectory, path).getPath());
+			}
+		}
+		return resolved.toString();
+	}
+
+	/**
+	 * Runs the jobs and waits for all of them. A failing job does not stop
+	 * the others.
+	 *
+	 * @param jobs
+	 *            the jobs to run
+	 * @return the results in the order of the jobs
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting
+	 */
+	public List<Result> run(List<Job> jobs) throws InterruptedException {
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, jobs.size())));
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (final Job job : jobs) {
+				futures.add(executorService.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return run(job);
+					}
+				}));
+			}
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					throw new XmlDocletException(e.getCause().getMessage(), e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Runs one job in the calling thread.
+	 *
+	 * @param job
+	 *            the job to run
+	 * @return the result of the job
+	 */
+	public Result run(Job job) {
+		long start = System.nanoTime();
+		StringWriter messages = new StringWriter();
+		XmlDocletRunner runner = new XmlDocletRunner(messages);
+		String pathKey = getPathKey(job);
+		runner.setTypeInfoCache(getTypeInfoCache(pathKey));
+		runner.setMissingAnnotationTypes(new MissingAnnotationTypes(getMissingAnnotationTypes(pathKey)));
+
+		boolean success = true;
+		try {
+			File directory = job.output.getAbsoluteFile().getParentFile();
+			// another job may create the directory at the same time
+			if (!directory.mkdirs() && !directory.isDirectory()) {
+				throw new XmlDocletException("Unable to create " + directory);
+			}
+			runner.run(job.getArguments(), null);
+		} catch (XmlDocletException e) {
+			messages.append(e.getMessage()).append('\n');
+			success = false;
+		} catch (RuntimeException e) {
+			log.error(e.getMessage(), e);
+			messages.append(e.toString()).append('\n');
+			success = false;
+		}
+		return new Result(job, success, System.nanoTime() - start, messages.toString());
+	}
+
+	/**
+	 * Returns the key of the paths the types of a job are resolved from. The
+	 * same qualified name can denote different types on different paths, so
+	 * only jobs with the same key share the type nodes and the missing
+	 * annotation types.
+	 */
+	protected static String getPathKey(Job job) {
+		return job.classpath + File.pathSeparator + File.pathSeparator + job.sourcepath;
+	}
+
+	protected TypeInfoCache getTypeInfoCache(String key) {
+		TypeInfoCache newTypeInfoCache = new TypeInfoCache();
+		TypeInfoCache existing = typeInfoCaches.putIfAbsent(key, newTypeInfoCache);
+		return existing != null ? existing : newTypeInfoCache;
+	}
+
+	protected MissingAnnotationTypes getMissingAnnotationTypes(String key) {
+		MissingAnnotationTypes newMissingAnnotationTypes = new MissingAnnotationTypes();
+		MissingAnnotationTypes existing = missingAnnotationTypes.putIfAbsent(key, newMissingAnnotationTypes);
+		return existing != null ? existing : newMissingAnnotationTypes;
+	}
+
+	/**
+	 * Returns the cache of type nodes of a job, shared by all jobs with the
+	 * same classpath and source path.
+	 *
+	 * @param job
+	 *            the job
+	 * @return the cache
+	 */
+	public TypeInfoCache getTypeInfoCache(Job job) {
+		return getTypeInfoCache(getPathKey(job));
+	}
+
+	/**
+	 * Prints a table with the status, the time and the output size of every
+	 * job.
+	 *
+	 * @param results
+	 *            the results of the jobs
+	 * @param out
+	 *            the stream to print to
+	 */
+	public static void printTable(List<Result> results, PrintStream out) {
+		int nameWidth = 4;
+		for (Result result : results) {
+			nameWidth = Math.max(nameWidth, result.getJob().getName().length());
+		}
+		String format = "%-" + nameWidth + "s  %-6s  %10s  %12s%n";
+		out.printf(format, "job", "status", "time [ms]", "output [kB]");
+		long totalNanos = 0;
+		for (Result result : results) {
+			totalNanos += result.getNanos();
+			out.printf(format, result.getJob().getName(), result.isSuccess() ? "ok" : "failed",
+					TimeUnit.NANOSECONDS.toMillis(result.getNanos()), getSize(result.getJob().getOutputFiles()) / 1024);
+		}
+		out.printf(format, "sum", "", TimeUnit.NANOSECONDS.toMillis(totalNanos), "");
+	}
+
+	private static long getSize(List<File> files) {
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+		return size;
+	}
+
+	/**
+	 * Runs the jobs of a manifest, prints their messages and the table.
+	 *
+	 * @param args
+	 *            the command line arguments
+	 * @throws Exception
+	 *             if the manifest can't be read
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		Option threadsOption = new Option("threads", "Number of jobs run at the same time.\nDefault: number of processors");
+		threadsOption.setArgName("threads");
+		threadsOption.setArgs(1);
+		options.addOption(threadsOption);
+
+		CommandLine commandLine;
+		try {
+			commandLine = new BasicParser().parse(options, args);
+		} catch (ParseException e) {
+			commandLine = null;
+		}
+		if (commandLine == null || commandLine.getArgs().length != 1) {
+			new HelpFormatter().printHelp("java " + XmlDocletBatch.class.getName() + " [options] <manifest>", options);
+			System.exit(1);
+			return;
+		}
+
+		int threads = Integer.parseInt(commandLine.getOptionValue("threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		XmlDocletBatch batch = new XmlDocletBatch(threads);
+		List<Result> results = batch.run(readManifest(new File(commandLine.getArgs()[0])));
+
+		boolean success = true;
+		for (Result result : results) {
+			if (result.getMessages().length() > 0) {
+				System.err.println("[" + result.getJob().getName() + "]");
+				System.err.print(result.getMessages());
+			}
+			success &= result.isSuccess();
+		}
+		printTable(results, System.out);
+		System.exit(success ? 0 : 1);
+	}
+
+	/**
+	 * One javadoc run of the batch.
+	 */
+	public static class Job {
+
+		protected final String name;
+
+		protected String sourcepath;
+
+		protected String classpath = "";
+
+		protected final List<String> packages = new ArrayList<String>();
+
+		protected File output;
+
+		protected final List<String> options = new ArrayList<String>();
+
+		/**
+		 * Creates the job.
+		 *
+		 * @param name
+		 *            the name of the job in the manifest
+		 */
+		public Job(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return the name of the job in the manifest
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the output file
+		 */
+		public File getOutput() {
+			return output;
+		}
+
+		/**
+		 * @return the files written by the job, e.g. the compressed output
+		 *         file and its index or the files of the split output
+		 */
+		public List<File> getOutputFiles() {
+			List<String> arguments = getArguments();
+			CommandLine commandLine = XmlDoclet.parseCommandLine(new String[][] { arguments
+					.toArray(new String[arguments.size()]) });
+			if (commandLine == null) {
+				return Collections.emptyList();
+			}
+			return XmlDoclet.getOutputFiles(commandLine);
+		}
+
+		/**
+		 * @return the javadoc command line arguments of the job
+		 */
+		public List<String> getArguments() {
+			List<String> arguments = new ArrayList<String>();
+			arguments.addAll(Arrays.asList("-sourcepath", sourcepath));
+			if (classpath.length() > 0) {
+				arguments.addAll(Arrays.asList("-classpath", classpath));
+			}
+			StringBuilder subpackages = new StringBuilder();
+			for (String packageName : packages) {
+				if (subpackages.length() > 0) {
+					subpackages.append(':');
+				}
+				subpackages.append(packageName);
+			}
+			arguments.addAll(Arrays.asList("-subpackages", subpackages.toString()));
+			arguments.addAll(options);
+			arguments.addAll(Arrays.asList("-d", output.getAbsoluteFile().getParent(), "-filename", output.getName()));
+			return arguments;
+		}
+	}
+
+	/**
+	 * The outcome of a job.
+	 */
+	public static class Result {
+
+		protected final Job job;
+
+		protected final boolean success;
+
+		protected final long nanos;
+
+		protected final String messages;
+
+		/**
+		 * Creates the result.
+		 *
+		 * @param job
+		 *            the job
+		 * @param success
+		 *            <code>true</code> if javadoc succeeded
+		 * @param nanos
+		 *            the wall time of the job in nanoseconds
+		 * @param messages
+		 *            the messages of javadoc
+		 */
+		public Result(Job job, boolean success, long nanos, String messages) {
+			this.job = job;
+			this.success = success;
+			this.nanos = nanos;
+			this.messages = messages;
+		}
+
+		/**
+		 * @return the job
+		 */
+		public Job getJob() {
+			return job;
+		}
+
+		/**
+		 * @return <code>true</code> if javadoc succeeded
+		 */
+		public boolean isSuccess() {
+			return success;
+		}
+
+		/**
+		 * @return the wall time of the job in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the messages of javadoc, one per line
+		 */
+		public String getMessages() {
+			return messages;
+		}
+	}
+}
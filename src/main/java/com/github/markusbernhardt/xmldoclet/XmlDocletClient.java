@@ -0,0 +1,219 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thin client of the {@link XmlDocletDaemon}. It takes the same arguments as
+ * the <code>javadoc</code> command line with the doclet, sends them to the
+ * running daemon and prints its messages. Relative paths are resolved against
+ * the working directory of the client first. If no daemon is running, javadoc
+ * is run in-process instead.
+ */
+public class XmlDocletClient {
+
+	private final static Logger log = LoggerFactory.getLogger(XmlDocletClient.class);
+
+	/**
+	 * The options followed by a path or a path list.
+	 */
+	private static final Set<String> PATH_OPTIONS = new HashSet<String>(Arrays.asList("-d", "-sourcepath",
+			"-classpath", "-cp", "-bootclasspath", "-extdirs", "-statsfile", "-cache", "-overview"));
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+	private static final Set<PosixFilePermission> OWNER_PERMISSIONS = EnumSet.of(PosixFilePermission.OWNER_READ,
+			PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE);
+
+	protected final File portFile;
+
+	/**
+	 * Creates the client.
+	 *
+	 * @param portFile
+	 *            the port file written by the daemon
+	 */
+	public XmlDocletClient(File portFile) {
+		this.portFile = portFile;
+	}
+
+	/**
+	 * Runs javadoc in the daemon or, if none is running, in-process.
+	 *
+	 * @param arguments
+	 *            the javadoc command line arguments
+	 * @return the result of the run
+	 */
+	public XmlDocletDaemon.Response execute(List<String> arguments) {
+		List<String> absoluteArguments = toAbsolutePaths(arguments);
+		String[] portAndSecret = readPortFile();
+		if (portAndSecret != null) {
+			try {
+				return send(Integer.parseInt(portAndSecret[0]), portAndSecret[1], absoluteArguments);
+			} catch (IOException e) {
+				log.info("The daemon is not reachable, running javadoc in-process: " + e.getMessage());
+			}
+		}
+		return XmlDocletDaemon.execute(absoluteArguments);
+	}
+
+	protected XmlDocletDaemon.Response send(int port, String secret, List<String> arguments) throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(InetAddress.getByName(null), port), CONNECT_TIMEOUT_MILLIS);
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			XmlDocletDaemon.writeRequest(output, secret, arguments);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			return XmlDocletDaemon.readResponse(input);
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Reads the port file, if it has been written by a daemon of the current
+	 * user: a regular file owned by the user and not accessible by anybody
+	 * else. Otherwise the arguments could be sent to a port chosen by another
+	 * user.
+	 *
+	 * @return the port and the secret or <code>null</code> if no daemon is
+	 *         running
+	 */
+	protected String[] readPortFile() {
+		Path path = portFile.toPath();
+		if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+			return null;
+		}
+		try {
+			if (!isPrivate(path)) {
+				log.warn("Ignoring the port file " + portFile + ", it is not private to the current user");
+				return null;
+			}
+			Reader reader = new InputStreamReader(Files.newInputStream(path, LinkOption.NOFOLLOW_LINKS), "UTF-8");
+			try {
+				StringBuilder content = new StringBuilder();
+				char[] buffer = new char[256];
+				int read;
+				while ((read = reader.read(buffer)) >= 0) {
+					content.append(buffer, 0, read);
+				}
+				String[] portAndSecret = content.toString().trim().split(" ");
+				if (portAndSecret.length != 2 || !portAndSecret[0].matches("[0-9]{1,5}")) {
+					log.warn("Ignoring the invalid port file " + portFile);
+					return null;
+				}
+				return portAndSecret;
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			log.warn("Unable to read " + portFile + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the file is owned by the current user and,
+	 *         on POSIX file systems, neither readable nor writable by others
+	 */
+	protected static boolean isPrivate(Path path) throws IOException {
+		UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+		UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+				.lookupPrincipalByName(System.getProperty("user.name"));
+		if (!owner.equals(user)) {
+			return false;
+		}
+		if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			return OWNER_PERMISSIONS.containsAll(Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS));
+		}
+		return true;
+	}
+
+	/**
+	 * Resolves the relative paths of the arguments against the working
+	 * directory, as the daemon runs in another one. The destination
+	 * directory is added, if it is missing.
+	 *
+	 * @param arguments
+	 *            the javadoc command line arguments
+	 * @return the arguments with absolute paths
+	 */
+	public static List<String> toAbsolutePaths(List<String> arguments) {
+		List<String> absoluteArguments = new ArrayList<String>(arguments.size() + 2);
+		boolean hasDirectory = false;
+		for (int i = 0; i < arguments.size(); i++) {
+			String argument = arguments.get(i);
+			if (PATH_OPTIONS.contains(argument) && i + 1 < arguments.size()) {
+				hasDirectory |= argument.equals("-d");
+				absoluteArguments.add(argument);
+				absoluteArguments.add(toAbsolutePathList(arguments.get(++i)));
+			} else if (argument.endsWith(".java")) {
+				absoluteArguments.add(new File(argument).getAbsolutePath());
+			} else {
+				absoluteArguments.add(argument);
+			}
+		}
+		if (!hasDirectory) {
+			absoluteArguments.add("-d");
+			absoluteArguments.add(new File(".").getAbsoluteFile().getParent());
+		}
+		return absoluteArguments;
+	}
+
+	private static String toAbsolutePathList(String pathList) {
+		StringBuilder absolutePathList = new StringBuilder();
+		for (String path : pathList.split(File.pathSeparator, -1)) {
+			if (absolutePathList.length() > 0) {
+				absolutePathList.append(File.pathSeparatorChar);
+			}
+			absolutePathList.append(path.length() == 0 ? path : new File(path).getAbsolutePath());
+		}
+		return absolutePathList.toString();
+	}
+
+	/**
+	 * Runs javadoc like the command line, through the daemon if one is
+	 * running. The port file can be given by the system property
+	 * <code>xmldoclet.daemon.portfile</code>.
+	 *
+	 * @param args
+	 *            the javadoc command line arguments
+	 */
+	public static void main(String[] args) {
+		String portFile = System.getProperty("xmldoclet.daemon.portfile");
+		XmlDocletClient client = new XmlDocletClient(portFile != null ? new File(portFile)
+				: XmlDocletDaemon.DEFAULT_PORT_FILE);
+		XmlDocletDaemon.Response response = client.execute(Arrays.asList(args));
+		System.err.print(response.getMessages());
+		for (String outputFile : response.getOutputFiles()) {
+			System.out.println(outputFile);
+		}
+		log.info("javadoc " + (response.isSuccess() ? "finished" : "failed") + " in "
+				+ TimeUnit.NANOSECONDS.toMillis(response.getNanos()) + " ms");
+		System.exit(response.isSuccess() ? 0 : 1);
+	}
+}
@@ -0,0 +1,475 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived process running the doclet for many javadoc invocations, so JVM
+ * startup, class loading, JAXB initialization and JIT warmup are paid only
+ * once. It listens on a loopback socket and runs every request through the
+ * {@link XmlDocletRunner} on a thread pool.
+ * <p>
+ * The port and a random secret are written into the port file, which is
+ * created only readable by its owner and must not exist before. A request has
+ * to start with the secret and to arrive within the read timeout. The
+ * {@link XmlDocletClient} reads the file and sends its arguments.
+ * <p>
+ * Protocol, all strings as length prefixed UTF-8: the request consists of the
+ * secret, the number of arguments and the arguments. The response consists of
+ * the success flag, the latency in nanoseconds, the javadoc messages, the
+ * number of output files and their paths.
+ */
+public class XmlDocletDaemon {
+
+	private final static Logger log = LoggerFactory.getLogger(XmlDocletDaemon.class);
+
+	/**
+	 * The port file used if none is given.
+	 */
+	public static final File DEFAULT_PORT_FILE = new File(new File(System.getProperty("user.home"), ".xml-doclet"),
+			"daemon.port");
+
+	private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+	private static final int MAX_SECRET_LENGTH = 64;
+
+	private static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+	protected final File portFile;
+
+	protected final int threads;
+
+	protected final String secret;
+
+	protected final AtomicLong requests = new AtomicLong();
+
+	protected ServerSocket serverSocket;
+
+	protected ExecutorService executorService;
+
+	protected Thread acceptThread;
+
+	protected int readTimeout = DEFAULT_READ_TIMEOUT_MILLIS;
+
+	/**
+	 * Creates the daemon.
+	 *
+	 * @param portFile
+	 *            the file to write the port and the secret to
+	 * @param threads
+	 *            the number of requests handled at the same time
+	 */
+	public XmlDocletDaemon(File portFile, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads < 1");
+		}
+		this.portFile = portFile;
+		this.threads = threads;
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", b));
+		}
+		this.secret = hex.toString();
+	}
+
+	/**
+	 * Sets the time a client has to send its request in, after that the
+	 * connection is closed. The default is 10 seconds.
+	 *
+	 * @param readTimeout
+	 *            the timeout in milliseconds
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Binds the socket, writes the port file and starts accepting requests.
+	 *
+	 * @param port
+	 *            the port to listen on, 0 for any free port
+	 * @throws IOException
+	 *             if the socket can't be bound or the port file can't be
+	 *             written, e.g. because it exists already
+	 */
+	public synchronized void start(int port) throws IOException {
+		serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+		try {
+			writePortFile();
+		} catch (IOException e) {
+			serverSocket.close();
+			serverSocket = null;
+			throw e;
+		}
+		executorService = Executors.newFixedThreadPool(threads);
+		acceptThread = new Thread("xml-doclet-daemon") {
+			@Override
+			public void run() {
+				accept();
+			}
+		};
+		acceptThread.start();
+		log.info("Listening on " + serverSocket.getLocalSocketAddress() + ", port file " + portFile);
+	}
+
+	/**
+	 * @return the port the daemon listens on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting requests, waits for the running ones and deletes the
+	 * port file.
+	 */
+	public synchronized void close() {
+		if (serverSocket == null) {
+			return;
+		}
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		}
+		try {
+			acceptThread.join();
+			executorService.shutdown();
+			executorService.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!portFile.delete()) {
+			log.warn("Unable to delete " + portFile);
+		}
+		serverSocket = null;
+	}
+
+	/**
+	 * Creates the port file, only accessible by its owner from the start. An
+	 * existing file, or a symbolic link, is never reused, as somebody else
+	 * might own it or have it opened.
+	 */
+	protected void writePortFile() throws IOException {
+		Path path = portFile.toPath().toAbsolutePath();
+		boolean posix = path.getFileSystem().supportedFileAttributeViews().contains("posix");
+		Path parent = path.getParent();
+		if (!Files.isDirectory(parent)) {
+			if (posix) {
+				Files.createDirectories(parent,
+						PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			} else {
+				Files.createDirectories(parent);
+			}
+		}
+
+		Set<StandardOpenOption> openOptions = EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		SeekableByteChannel channel;
+		try {
+			if (posix) {
+				channel = Files.newByteChannel(path, openOptions, PosixFilePermissions.asFileAttribute(EnumSet.of(
+						PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+			} else {
+				channel = Files.newByteChannel(path, openOptions);
+			}
+		} catch (FileAlreadyExistsException e) {
+			throw new IOException("The port file " + portFile
+					+ " exists already. Another daemon is running, or delete the file if it isn't", e);
+		}
+		Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), "UTF-8");
+		try {
+			writer.write(serverSocket.getLocalPort() + " " + secret + "\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	protected void accept() {
+		while (true) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (SocketException e) {
+				// closed
+				return;
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+				return;
+			}
+			executorService.execute(new Runnable() {
+				@Override
+				public void run() {
+					handle(socket);
+				}
+			});
+		}
+	}
+
+	protected void handle(Socket socket) {
+		try {
+			// an unauthenticated client must neither block the thread nor
+			// make the daemon allocate large buffers
+			socket.setSoTimeout(readTimeout);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			if (!secret.equals(readString(input, MAX_SECRET_LENGTH))) {
+				log.warn("Rejected request from " + socket.getRemoteSocketAddress() + ": wrong secret");
+				return;
+			}
+			List<String> arguments = readArguments(input);
+			long number = requests.incrementAndGet();
+			Response response = execute(arguments);
+			log.info("Request " + number + " " + (response.isSuccess() ? "finished" : "failed") + " in "
+					+ TimeUnit.NANOSECONDS.toMillis(response.getNanos()) + " ms");
+			writeResponse(output, response);
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Runs javadoc with the doclet in the calling thread.
+	 *
+	 * @param arguments
+	 *            the javadoc command line arguments, with absolute paths
+	 * @return the result of the run
+	 */
+	public static Response execute(List<String> arguments) {
+		long start = System.nanoTime();
+		StringWriter messages = new StringWriter();
+		boolean success = true;
+		try {
+			new XmlDocletRunner(messages).run(arguments, null);
+		} catch (XmlDocletException e) {
+			messages.append(e.getMessage()).append('\n');
+			success = false;
+		} catch (RuntimeException e) {
+			log.error(e.getMessage(), e);
+			messages.append(e.toString()).append('\n');
+			success = false;
+		}
+
+		List<String> outputFiles = new ArrayList<String>();
+		if (success) {
+			CommandLine commandLine = XmlDoclet.parseCommandLine(new String[][] { arguments
+					.toArray(new String[arguments.size()]) });
+			if (commandLine != null) {
+				for (File outputFile : XmlDoclet.getOutputFiles(commandLine)) {
+					outputFiles.add(outputFile.getPath());
+				}
+			}
+		}
+		return new Response(success, System.nanoTime() - start, messages.toString(), outputFiles);
+	}
+
+	static void writeString(DataOutputStream output, String string) throws IOException {
+		byte[] bytes = string.getBytes("UTF-8");
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	static String readString(DataInputStream input) throws IOException {
+		return readString(input, MAX_STRING_LENGTH);
+	}
+
+	static String readString(DataInputStream input, int maxLength) throws IOException {
+		int length = input.readInt();
+		if (length < 0 || length > maxLength) {
+			throw new IOException("Invalid string length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	static void writeRequest(DataOutputStream output, String secret, List<String> arguments) throws IOException {
+		writeString(output, secret);
+		output.writeInt(arguments.size());
+		for (String argument : arguments) {
+			writeString(output, argument);
+		}
+		output.flush();
+	}
+
+	static List<String> readArguments(DataInputStream input) throws IOException {
+		int count = input.readInt();
+		if (count < 0 || count > 65536) {
+			throw new IOException("Invalid number of arguments: " + count);
+		}
+		List<String> arguments = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			arguments.add(readString(input));
+		}
+		return arguments;
+	}
+
+	static void writeResponse(DataOutputStream output, Response response) throws IOException {
+		output.writeBoolean(response.isSuccess());
+		output.writeLong(response.getNanos());
+		writeString(output, response.getMessages());
+		output.writeInt(response.getOutputFiles().size());
+		for (String outputFile : response.getOutputFiles()) {
+			writeString(output, outputFile);
+		}
+		output.flush();
+	}
+
+	static Response readResponse(DataInputStream input) throws IOException {
+		boolean success = input.readBoolean();
+		long nanos = input.readLong();
+		String messages = readString(input);
+		return new Response(success, nanos, messages, readArguments(input));
+	}
+
+	/**
+	 * Starts the daemon and runs it until the JVM is terminated.
+	 *
+	 * @param args
+	 *            the command line arguments
+	 * @throws Exception
+	 *             if the daemon can't be started
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		addOption(options, "port", "port", "Port to listen on, on the loopback interface only.\nDefault: any free port");
+		addOption(options, "portfile", "file", "File the port and the secret are written to.\nDefault: "
+				+ DEFAULT_PORT_FILE);
+		addOption(options, "threads", "threads", "Number of javadoc runs at the same time.\nDefault: number of processors");
+
+		CommandLine commandLine;
+		try {
+			commandLine = new BasicParser().parse(options, args);
+		} catch (ParseException e) {
+			new HelpFormatter().printHelp("java " + XmlDocletDaemon.class.getName() + " [options]", options);
+			System.exit(1);
+			return;
+		}
+
+		File portFile = commandLine.hasOption("portfile") ? new File(commandLine.getOptionValue("portfile"))
+				: DEFAULT_PORT_FILE;
+		int threads = Integer.parseInt(commandLine.getOptionValue("threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		final XmlDocletDaemon daemon = new XmlDocletDaemon(portFile, threads);
+		daemon.start(Integer.parseInt(commandLine.getOptionValue("port", "0")));
+		Runtime.getRuntime().addShutdownHook(new Thread("xml-doclet-daemon-shutdown") {
+			@Override
+			public void run() {
+				daemon.close();
+			}
+		});
+	}
+
+	private static void addOption(Options options, String name, String argName, String description) {
+		Option option = new Option(name, description);
+		option.setArgName(argName);
+		option.setArgs(1);
+		options.addOption(option);
+	}
+
+	/**
+	 * The result of a javadoc run.
+	 */
+	public static class Response {
+
+		protected final boolean success;
+
+		protected final long nanos;
+
+		protected final String messages;
+
+		protected final List<String> outputFiles;
+
+		/**
+		 * Creates the result.
+		 *
+		 * @param success
+		 *            <code>true</code> if javadoc succeeded
+		 * @param nanos
+		 *            the latency of the request in nanoseconds
+		 * @param messages
+		 *            the messages of javadoc
+		 * @param outputFiles
+		 *            the paths of the written files
+		 */
+		public Response(boolean success, long nanos, String messages, List<String> outputFiles) {
+			this.success = success;
+			this.nanos = nanos;
+			this.messages = messages;
+			this.outputFiles = Collections.unmodifiableList(outputFiles);
+		}
+
+		/**
+		 * @return <code>true</code> if javadoc succeeded
+		 */
+		public boolean isSuccess() {
+			return success;
+		}
+
+		/**
+		 * @return the time the daemon needed for the request in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the messages of javadoc, one per line
+		 */
+		public String getMessages() {
+			return messages;
+		}
+
+		/**
+		 * @return the paths of the written files
+		 */
+		public List<String> getOutputFiles() {
+			return outputFiles;
+		}
+	}
+}
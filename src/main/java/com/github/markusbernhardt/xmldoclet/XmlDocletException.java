@@ -0,0 +1,33 @@
+package com.github.markusbernhardt.xmldoclet;
+
+/**
+ * Unchecked exception used to tunnel checked exceptions (XML, JAXB or I/O
+ * errors) through interfaces that cannot declare them, like
+ * {@link RootListener}.
+ */
+public class XmlDocletException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new exception.
+	 * 
+	 * @param message
+	 *            the detail message
+	 */
+	public XmlDocletException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Creates a new exception.
+	 * 
+	 * @param message
+	 *            the detail message
+	 * @param cause
+	 *            the cause
+	 */
+	public XmlDocletException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,938 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationArgument;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationElement;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Constructor;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.EnumConstant;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.MethodParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TagInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.Types;
+import com.github.markusbernhardt.xmldoclet.xjc.Wildcard;
+
+/**
+ * Pull reader of documents valid against <code>javadoc.xsd</code>, building
+ * the object model of only one type at a time. It iterates over the
+ * {@link Annotation}, {@link Enum}, {@link Interface} and {@link Class} nodes
+ * in document order, {@link #getPackage()} returns the package of the
+ * current one:
+ *
+ * <pre>
+ * XmlDocletReader reader = new XmlDocletReader(inputStream, &quot;comment&quot;, &quot;tag&quot;);
+ * while (reader.hasNext()) {
+ *     Object typeNode = reader.next();
+ *     ...
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * Alternatively {@link #read(RootListener)} passes the whole document to a
+ * listener, e.g. a {@link RootBuilder} or one of the writers.
+ * <p>
+ * Elements whose name is given as skipped element are passed over without
+ * building any nodes, wherever they appear below a package or type, or as
+ * <code>types</code> section. The package and type elements themselves are
+ * never skipped.
+ * <p>
+ * The references of the type table are resolved: every <code>ref</code>
+ * points to the node of the <code>types</code> section with the same id. As
+ * that section comes last in the document written with the option
+ * -typetable, the iterator needs it in advance, read by
+ * {@link #readTypes(InputStream)} in a first pass over the document:
+ *
+ * <pre>
+ * Types types = XmlDocletReader.readTypes(new FileInputStream(file));
+ * XmlDocletReader reader = new XmlDocletReader(new FileInputStream(file), types);
+ * </pre>
+ *
+ * Without it, {@link #next()} fails on the first reference. Only
+ * {@link #read(RootListener)} accepts references to nodes still empty,
+ * which are filled in before {@link RootListener#endRoot(Root)}. Apart from
+ * the nodes of the type table, nothing is kept after a type has been
+ * returned. The reader is built on StAX, not on JAXB, and is not thread
+ * safe.
+ */
+public class XmlDocletReader implements Iterator<Object>, Closeable {
+
+	private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+	private static final int PACKAGE_START = 1;
+	private static final int TYPE = 2;
+	private static final int PACKAGE_END = 3;
+	private static final int END = 4;
+
+	protected final XMLStreamReader reader;
+
+	protected final Set<String> skippedElements;
+
+	protected final Map<String, TypeInfo> typeInfosById = new HashMap<String, TypeInfo>();
+
+	protected Package packageNode;
+
+	protected boolean packageStarted;
+
+	/**
+	 * <code>true</code> if the reader is positioned on the start of a type,
+	 * which hasn't been read yet, as the start of its package has been
+	 * reported first.
+	 */
+	protected boolean typePending;
+
+	protected Types types;
+
+	/**
+	 * <code>true</code> if the type table has been given to the constructor,
+	 * the <code>types</code> section of the document is skipped then.
+	 */
+	protected boolean typesGiven;
+
+	/**
+	 * <code>true</code> if references to nodes of the type table not read yet
+	 * are accepted, which are filled in later.
+	 */
+	protected boolean deferReferences;
+
+	/**
+	 * The node of the last event.
+	 */
+	protected Object node;
+
+	/**
+	 * The next type, read ahead by {@link #hasNext()}.
+	 */
+	protected Object nextType;
+
+	protected Package nextTypePackage;
+
+	protected boolean ended;
+
+	/**
+	 * Creates the reader. The input stream is not closed by this class.
+	 *
+	 * @param inputStream
+	 *            the document, its encoding is taken from the XML
+	 *            declaration
+	 * @param skippedElements
+	 *            the names of the elements to pass over, e.g.
+	 *            <code>comment</code> or <code>tag</code>
+	 * @throws XmlDocletException
+	 *             if the document can't be read
+	 */
+	public XmlDocletReader(InputStream inputStream, String... skippedElements) {
+		this.skippedElements = new HashSet<String>(Arrays.asList(skippedElements));
+		try {
+			this.reader = xmlInputFactory.createXMLStreamReader(inputStream);
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Creates the reader of a document with a type table, resolving the
+	 * references of the types returned by {@link #next()} immediately. The
+	 * input stream is not closed by this class.
+	 *
+	 * @param inputStream
+	 *            the document, its encoding is taken from the XML
+	 *            declaration
+	 * @param types
+	 *            the type table of the document, read by
+	 *            {@link #readTypes(InputStream)}, or <code>null</code>
+	 * @param skippedElements
+	 *            the names of the elements to pass over, e.g.
+	 *            <code>comment</code> or <code>tag</code>
+	 * @throws XmlDocletException
+	 *             if the document can't be read
+	 */
+	public XmlDocletReader(InputStream inputStream, Types types, String... skippedElements) {
+		this(inputStream, skippedElements);
+		if (types != null) {
+			for (TypeInfo typeInfo : types.getType()) {
+				typeInfosById.put(typeInfo.getId(), typeInfo);
+			}
+			this.types = types;
+			this.typesGiven = true;
+		}
+	}
+
+	/**
+	 * Reads only the <code>types</code> section of a document, passing over
+	 * the packages without building any nodes. The input stream is not closed
+	 * by this method.
+	 *
+	 * @param inputStream
+	 *            the document
+	 * @return the types node or <code>null</code> if there is none
+	 * @throws XmlDocletException
+	 *             if the document can't be read
+	 */
+	public static Types readTypes(InputStream inputStream) {
+		XmlDocletReader typesReader = new XmlDocletReader(inputStream);
+		try {
+			typesReader.reader.nextTag();
+			String name;
+			while ((name = typesReader.nextChild()) != null) {
+				if ("types".equals(name)) {
+					return typesReader.readTypes();
+				}
+				typesReader.skipElement();
+			}
+			return null;
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		} finally {
+			typesReader.close();
+		}
+	}
+
+	private static XMLInputFactory createXmlInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	/**
+	 * Reads the next type, if not done already.
+	 *
+	 * @return <code>true</code> if there is another type
+	 * @throws XmlDocletException
+	 *             if the document can't be read
+	 */
+	@Override
+	public boolean hasNext() {
+		while (nextType == null && !ended) {
+			int event = readEvent();
+			if (event == TYPE) {
+				nextType = node;
+				nextTypePackage = packageNode;
+			} else if (event == END) {
+				ended = true;
+			}
+		}
+		return nextType != null;
+	}
+
+	/**
+	 * Returns the next type: an {@link Annotation}, an {@link Enum}, an
+	 * {@link Interface} or a {@link Class}.
+	 *
+	 * @return the node of the type
+	 * @throws NoSuchElementException
+	 *             if there are no more types
+	 * @throws XmlDocletException
+	 *             if the document can't be read
+	 */
+	@Override
+	public Object next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Object type = nextType;
+		nextType = null;
+		return type;
+	}
+
+	/**
+	 * Not supported.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the package of the type returned last by {@link #next()}. It
+	 * only contains the package's own data (name, comment and tags), never
+	 * its types.
+	 *
+	 * @return the package node
+	 */
+	public Package getPackage() {
+		return nextTypePackage;
+	}
+
+	/**
+	 * Returns the <code>types</code> section written with the option
+	 * -typetable. Unless it has been given to the constructor, it is only
+	 * available once all types have been read, as it comes last in the
+	 * document.
+	 *
+	 * @return the types node or <code>null</code> if there is none
+	 */
+	public Types getTypes() {
+		return types;
+	}
+
+	/**
+	 * Reads the remaining document and passes its nodes to the listener, in
+	 * the order described by {@link RootListener}. The root node handed to
+	 * {@link RootListener#endRoot(Root)} carries the <code>types</code>
+	 * section, if any. Unless the type table has been given to the
+	 * constructor, the references of the types point to nodes which are only
+	 * filled in once that section has been read.
+	 *
+	 * @param listener
+	 *            the listener receiving the nodes
+	 * @throws XmlDocletException
+	 *             if the document can't be read
+	 */
+	public void read(RootListener listener) {
+		deferReferences = true;
+		Root rootNode = new Root();
+		listener.startRoot(rootNode);
+		while (true) {
+			switch (readEvent()) {
+			case PACKAGE_START:
+				listener.startPackage(packageNode);
+				break;
+			case TYPE:
+				if (node instanceof Annotation) {
+					listener.addAnnotation((Annotation) node);
+				} else if (node instanceof Enum) {
+					listener.addEnum((Enum) node);
+				} else if (node instanceof Interface) {
+					listener.addInterface((Interface) node);
+				} else {
+					listener.addClass((Class) node);
+				}
+				break;
+			case PACKAGE_END:
+				listener.endPackage((Package) node);
+				break;
+			default:
+				ended = true;
+				rootNode.setTypes(types);
+				listener.endRoot(rootNode);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Releases the resources of the parser. The input stream is not closed.
+	 */
+	@Override
+	public void close() {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads up to the next event of the document and sets {@link #node}.
+	 *
+	 * @return the event: PACKAGE_START, TYPE, PACKAGE_END or END
+	 */
+	protected int readEvent() {
+		try {
+			while (typePending || reader.hasNext()) {
+				int event = typePending ? XMLStreamConstants.START_ELEMENT : reader.next();
+				typePending = false;
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (packageNode == null) {
+						if ("package".equals(name)) {
+							packageNode = new Package();
+							packageNode.setName(reader.getAttributeValue(null, "name"));
+							packageStarted = false;
+						} else if ("types".equals(name) && typesGiven) {
+							skipElement();
+						} else if ("types".equals(name) && !skip(name)) {
+							types = readTypes();
+						} else if (!"root".equals(name)) {
+							skipElement();
+						}
+					} else if ("comment".equals(name) || "tag".equals(name)) {
+						if (skip(name)) {
+							continue;
+						}
+						if ("comment".equals(name)) {
+							packageNode.setComment(reader.getElementText());
+						} else {
+							packageNode.getTag().add(readTagInfo());
+						}
+					} else if (!packageStarted) {
+						packageStarted = true;
+						typePending = true;
+						node = packageNode;
+						return PACKAGE_START;
+					} else if ("annotation".equals(name)) {
+						node = readAnnotation();
+						return TYPE;
+					} else if ("enum".equals(name)) {
+						node = readEnum();
+						return TYPE;
+					} else if ("interface".equals(name)) {
+						node = readInterface();
+						return TYPE;
+					} else if ("class".equals(name)) {
+						node = readClass();
+						return TYPE;
+					} else {
+						skipElement();
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && packageNode != null) {
+					if (!packageStarted) {
+						// a package without types
+						packageStarted = true;
+						node = packageNode;
+						return PACKAGE_START;
+					}
+					node = packageNode;
+					packageNode = null;
+					return PACKAGE_END;
+				}
+			}
+			node = null;
+			return END;
+		} catch (XMLStreamException e) {
+			throw new XmlDocletException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Passes over the current element if it is to be skipped.
+	 *
+	 * @return <code>true</code> if the element has been skipped
+	 */
+	private boolean skip(String name) throws XMLStreamException {
+		if (skippedElements.contains(name)) {
+			skipElement();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Moves to the end of the current element, without looking at its
+	 * content.
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Moves to the start of the next child element, skipping the ones to be
+	 * passed over.
+	 *
+	 * @return the name of the child or <code>null</code> at the end of the
+	 *         current element
+	 */
+	private String nextChild() throws XMLStreamException {
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String name = reader.getLocalName();
+			if (!skip(name)) {
+				return name;
+			}
+		}
+		return null;
+	}
+
+	private String attribute(String name) {
+		return reader.getAttributeValue(null, name);
+	}
+
+	/**
+	 * Reads a boolean attribute, which must be present. Attributes left out
+	 * stay unset, so the getters return the schema default.
+	 */
+	private boolean booleanAttribute(String name) {
+		String value = reader.getAttributeValue(null, name).trim();
+		return "true".equals(value) || "1".equals(value);
+	}
+
+	protected Annotation readAnnotation() throws XMLStreamException {
+		Annotation node = new Annotation();
+		node.setName(attribute("name"));
+		node.setQualified(attribute("qualified"));
+		node.setScope(attribute("scope"));
+		if (attribute("included") != null) {
+			node.setIncluded(booleanAttribute("included"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("element".equals(name)) {
+				node.getElement().add(readAnnotationElement());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected AnnotationElement readAnnotationElement() throws XMLStreamException {
+		AnnotationElement node = new AnnotationElement();
+		node.setName(attribute("name"));
+		node.setQualified(attribute("qualified"));
+		node.setDefault(attribute("default"));
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("type".equals(name)) {
+				node.setType(readTypeInfo());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected AnnotationInstance readAnnotationInstance() throws XMLStreamException {
+		AnnotationInstance node = new AnnotationInstance();
+		node.setName(attribute("name"));
+		node.setQualified(attribute("qualified"));
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("argument".equals(name)) {
+				node.getArgument().add(readAnnotationArgument());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected AnnotationArgument readAnnotationArgument() throws XMLStreamException {
+		AnnotationArgument node = new AnnotationArgument();
+		node.setName(attribute("name"));
+		if (attribute("primitive") != null) {
+			node.setPrimitive(booleanAttribute("primitive"));
+		}
+		if (attribute("array") != null) {
+			node.setArray(booleanAttribute("array"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("type".equals(name)) {
+				node.setType(readTypeInfo());
+			} else if ("value".equals(name)) {
+				node.getValue().add(reader.getElementText());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected Enum readEnum() throws XMLStreamException {
+		Enum node = new Enum();
+		node.setName(attribute("name"));
+		node.setQualified(attribute("qualified"));
+		node.setScope(attribute("scope"));
+		if (attribute("included") != null) {
+			node.setIncluded(booleanAttribute("included"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("class".equals(name)) {
+				node.setClazz(readTypeInfo());
+			} else if ("interface".equals(name)) {
+				node.getInterface().add(readTypeInfo());
+			} else if ("constant".equals(name)) {
+				node.getConstant().add(readEnumConstant());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected EnumConstant readEnumConstant() throws XMLStreamException {
+		EnumConstant node = new EnumConstant();
+		node.setName(attribute("name"));
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected Interface readInterface() throws XMLStreamException {
+		Interface node = new Interface();
+		node.setName(attribute("name"));
+		node.setQualified(attribute("qualified"));
+		node.setScope(attribute("scope"));
+		if (attribute("included") != null) {
+			node.setIncluded(booleanAttribute("included"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("generic".equals(name)) {
+				node.getGeneric().add(readTypeParameter());
+			} else if ("interface".equals(name)) {
+				node.getInterface().add(readTypeInfo());
+			} else if ("method".equals(name)) {
+				node.getMethod().add(readMethod());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else if ("field".equals(name)) {
+				node.getField().add(readField());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected Class readClass() throws XMLStreamException {
+		Class node = new Class();
+		node.setName(attribute("name"));
+		node.setQualified(attribute("qualified"));
+		node.setScope(attribute("scope"));
+		if (attribute("abstract") != null) {
+			node.setAbstract(booleanAttribute("abstract"));
+		}
+		if (attribute("error") != null) {
+			node.setError(booleanAttribute("error"));
+		}
+		if (attribute("exception") != null) {
+			node.setException(booleanAttribute("exception"));
+		}
+		if (attribute("externalizable") != null) {
+			node.setExternalizable(booleanAttribute("externalizable"));
+		}
+		if (attribute("included") != null) {
+			node.setIncluded(booleanAttribute("included"));
+		}
+		if (attribute("serializable") != null) {
+			node.setSerializable(booleanAttribute("serializable"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("generic".equals(name)) {
+				node.getGeneric().add(readTypeParameter());
+			} else if ("class".equals(name)) {
+				node.setClazz(readTypeInfo());
+			} else if ("interface".equals(name)) {
+				node.getInterface().add(readTypeInfo());
+			} else if ("constructor".equals(name)) {
+				node.getConstructor().add(readConstructor());
+			} else if ("method".equals(name)) {
+				node.getMethod().add(readMethod());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else if ("field".equals(name)) {
+				node.getField().add(readField());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected Constructor readConstructor() throws XMLStreamException {
+		Constructor node = new Constructor();
+		node.setName(attribute("name"));
+		node.setSignature(attribute("signature"));
+		node.setQualified(attribute("qualified"));
+		node.setScope(attribute("scope"));
+		if (attribute("final") != null) {
+			node.setFinal(booleanAttribute("final"));
+		}
+		if (attribute("included") != null) {
+			node.setIncluded(booleanAttribute("included"));
+		}
+		if (attribute("native") != null) {
+			node.setNative(booleanAttribute("native"));
+		}
+		if (attribute("synchronized") != null) {
+			node.setSynchronized(booleanAttribute("synchronized"));
+		}
+		if (attribute("static") != null) {
+			node.setStatic(booleanAttribute("static"));
+		}
+		if (attribute("varArgs") != null) {
+			node.setVarArgs(booleanAttribute("varArgs"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("parameter".equals(name)) {
+				node.getParameter().add(readMethodParameter());
+			} else if ("exception".equals(name)) {
+				node.getException().add(readTypeInfo());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected Method readMethod() throws XMLStreamException {
+		Method node = new Method();
+		node.setName(attribute("name"));
+		node.setSignature(attribute("signature"));
+		node.setQualified(attribute("qualified"));
+		node.setScope(attribute("scope"));
+		if (attribute("abstract") != null) {
+			node.setAbstract(booleanAttribute("abstract"));
+		}
+		if (attribute("final") != null) {
+			node.setFinal(booleanAttribute("final"));
+		}
+		if (attribute("included") != null) {
+			node.setIncluded(booleanAttribute("included"));
+		}
+		if (attribute("native") != null) {
+			node.setNative(booleanAttribute("native"));
+		}
+		if (attribute("synchronized") != null) {
+			node.setSynchronized(booleanAttribute("synchronized"));
+		}
+		if (attribute("static") != null) {
+			node.setStatic(booleanAttribute("static"));
+		}
+		if (attribute("varArgs") != null) {
+			node.setVarArgs(booleanAttribute("varArgs"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("parameter".equals(name)) {
+				node.getParameter().add(readMethodParameter());
+			} else if ("return".equals(name)) {
+				node.setReturn(readTypeInfo());
+			} else if ("exception".equals(name)) {
+				node.getException().add(readTypeInfo());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected MethodParameter readMethodParameter() throws XMLStreamException {
+		MethodParameter node = new MethodParameter();
+		node.setName(attribute("name"));
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("type".equals(name)) {
+				node.setType(readTypeInfo());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected Field readField() throws XMLStreamException {
+		Field node = new Field();
+		node.setName(attribute("name"));
+		node.setQualified(attribute("qualified"));
+		node.setScope(attribute("scope"));
+		if (attribute("volatile") != null) {
+			node.setVolatile(booleanAttribute("volatile"));
+		}
+		if (attribute("transient") != null) {
+			node.setTransient(booleanAttribute("transient"));
+		}
+		if (attribute("static") != null) {
+			node.setStatic(booleanAttribute("static"));
+		}
+		if (attribute("final") != null) {
+			node.setFinal(booleanAttribute("final"));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("type".equals(name)) {
+				node.setType(readTypeInfo());
+			} else if ("comment".equals(name)) {
+				node.setComment(reader.getElementText());
+			} else if ("tag".equals(name)) {
+				node.getTag().add(readTagInfo());
+			} else if ("constant".equals(name)) {
+				node.setConstant(reader.getElementText());
+			} else if ("annotation".equals(name)) {
+				node.getAnnotation().add(readAnnotationInstance());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected TypeParameter readTypeParameter() throws XMLStreamException {
+		TypeParameter node = new TypeParameter();
+		node.setName(attribute("name"));
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("bound".equals(name)) {
+				node.getBound().add(reader.getElementText());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected TagInfo readTagInfo() throws XMLStreamException {
+		TagInfo node = new TagInfo();
+		node.setName(attribute("name"));
+		node.setText(attribute("text"));
+		skipElement();
+		return node;
+	}
+
+	protected Types readTypes() throws XMLStreamException {
+		// the nodes of the type table may refer to the ones following them
+		boolean deferred = deferReferences;
+		deferReferences = true;
+		Types node = new Types();
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("type".equals(name)) {
+				node.getType().add(readTypeInfo());
+			} else {
+				skipElement();
+			}
+		}
+		deferReferences = deferred;
+		return node;
+	}
+
+	/**
+	 * Reads a type reference. A node with an id is the one already handed
+	 * out to the references to it.
+	 */
+	protected TypeInfo readTypeInfo() throws XMLStreamException {
+		String id = attribute("id");
+		TypeInfo node = id != null ? getTypeInfo(id) : new TypeInfo();
+		node.setQualified(attribute("qualified"));
+		node.setDimension(attribute("dimension"));
+		String ref = attribute("ref");
+		if (ref != null) {
+			node.setRef(resolveReference(ref));
+		}
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("wildcard".equals(name)) {
+				node.setWildcard(readWildcard());
+			} else if ("generic".equals(name)) {
+				node.getGeneric().add(readTypeInfo());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	protected Wildcard readWildcard() throws XMLStreamException {
+		Wildcard node = new Wildcard();
+		String name;
+		while ((name = nextChild()) != null) {
+			if ("extendsBound".equals(name)) {
+				node.getExtendsBound().add(readTypeInfo());
+			} else if ("superBound".equals(name)) {
+				node.getSuperBound().add(readTypeInfo());
+			} else {
+				skipElement();
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the node of the type table a reference points to.
+	 *
+	 * @throws XmlDocletException
+	 *             if the node is unknown and can't be filled in later
+	 */
+	private TypeInfo resolveReference(String id) {
+		if (!deferReferences && !typeInfosById.containsKey(id)) {
+			throw new XmlDocletException("Unable to resolve the type reference " + id
+					+ ", pass the type table read by XmlDocletReader.readTypes to the constructor");
+		}
+		return getTypeInfo(id);
+	}
+
+	/**
+	 * Returns the node of the type table with the given id, creating it on
+	 * first use.
+	 */
+	private TypeInfo getTypeInfo(String id) {
+		TypeInfo typeInfo = typeInfosById.get(id);
+		if (typeInfo == null) {
+			typeInfo = new TypeInfo();
+			typeInfo.setId(id);
+			typeInfosById.put(id, typeInfo);
+		}
+		return typeInfo;
+	}
+}
@@ -0,0 +1,469 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.DocumentationTool;
+import javax.tools.DocumentationTool.DocumentationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.sun.javadoc.DocErrorReporter;
+import com.sun.javadoc.LanguageVersion;
+import com.sun.javadoc.RootDoc;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javadoc.Messager;
+
+/**
+ * Runs javadoc with the XmlDoclet in the calling thread and returns the
+ * object model, or streams the document into a given output stream. The
+ * sources may be files or in-memory {@link JavaFileObject}s, so no temporary
+ * files or forked processes are needed.
+ * <p>
+ * Each run uses its own javadoc task, file manager, options and parser. The
+ * run is handed to the doclet through a thread local, which is cleared when
+ * the run ends, so nothing of it stays reachable afterwards. Several threads
+ * can use one runner concurrently.
+ */
+public class XmlDocletRunner {
+
+	private final static Logger log = LoggerFactory.getLogger(XmlDocletRunner.class);
+
+	/**
+	 * The javadoc options that configure the file manager instead of javadoc
+	 * itself, if javadoc is called through its API.
+	 */
+	private static final Set<String> FILE_MANAGER_OPTIONS = new HashSet<String>(Arrays.asList("-classpath", "-cp",
+			"-sourcepath", "-bootclasspath", "-extdirs", "-encoding"));
+
+	private static final ThreadLocal<Invocation> INVOCATION = new ThreadLocal<Invocation>();
+
+	protected Writer out;
+
+	protected TypeInfoCache typeInfoCache;
+
+	protected MissingAnnotationTypes missingAnnotationTypes;
+
+	/**
+	 * Creates the runner logging the javadoc messages.
+	 */
+	public XmlDocletRunner() {
+	}
+
+	/**
+	 * Creates the runner writing the javadoc messages to the given writer.
+	 *
+	 * @param out
+	 *            the writer receiving the messages or <code>null</code> to log
+	 *            them
+	 */
+	public XmlDocletRunner(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Shares the cache of type nodes with other runs. It is not used for runs
+	 * with the option <code>-typetable</code>.
+	 *
+	 * @param typeInfoCache
+	 *            the cache or <code>null</code> to use one per run
+	 */
+	public void setTypeInfoCache(TypeInfoCache typeInfoCache) {
+		this.typeInfoCache = typeInfoCache;
+	}
+
+	/**
+	 * Shares the annotation types found missing with other runs. Only share
+	 * it between runs with the same classpath.
+	 *
+	 * @param missingAnnotationTypes
+	 *            the negative cache or <code>null</code> to use one per run
+	 */
+	public void setMissingAnnotationTypes(MissingAnnotationTypes missingAnnotationTypes) {
+		this.missingAnnotationTypes = missingAnnotationTypes;
+	}
+
+	/**
+	 * Runs javadoc like the command line does. The output options of the
+	 * doclet are honored, e.g. the document is written to
+	 * <code>javadoc.xml</code> unless <code>-dryrun</code> is given.
+	 *
+	 * @param arguments
+	 *            the javadoc and doclet options, package names and source
+	 *            file names
+	 * @param sources
+	 *            the additional sources to document, may be <code>null</code>
+	 * @return the object model or <code>null</code> if it has been streamed
+	 *         to the output files without being held in memory
+	 * @throws XmlDocletException
+	 *             if javadoc reported an error
+	 */
+	public Root run(List<String> arguments, Iterable<? extends JavaFileObject> sources) {
+		Invocation invocation = new Invocation(this);
+		execute(arguments, sources, invocation);
+		return invocation.root;
+	}
+
+	/**
+	 * Runs javadoc on the given source files and returns the object model
+	 * without writing any file.
+	 *
+	 * @param arguments
+	 *            the javadoc and doclet options
+	 * @param sourceFiles
+	 *            the source files to document
+	 * @return the object model
+	 * @throws XmlDocletException
+	 *             if javadoc reported an error
+	 */
+	public Root parse(List<String> arguments, File... sourceFiles) {
+		return parse(arguments, createSources(sourceFiles));
+	}
+
+	/**
+	 * Runs javadoc on the given sources and returns the object model without
+	 * writing any file.
+	 *
+	 * @param arguments
+	 *            the javadoc and doclet options
+	 * @param sources
+	 *            the sources to document
+	 * @return the object model
+	 * @throws XmlDocletException
+	 *             if javadoc reported an error
+	 */
+	public Root parse(List<String> arguments, Iterable<? extends JavaFileObject> sources) {
+		List<String> dryRunArguments = new ArrayList<String>(arguments);
+		dryRunArguments.add("-dryrun");
+		return run(dryRunArguments, sources);
+	}
+
+	/**
+	 * Runs javadoc on the given sources and streams the document into the
+	 * output stream. The output options of the doclet like <code>-d</code>,
+	 * <code>-split</code> or <code>-compress</code> are ignored.
+	 *
+	 * @param arguments
+	 *            the javadoc and doclet options
+	 * @param sources
+	 *            the sources to document
+	 * @param outputStream
+	 *            the stream to write the document to. It is not closed.
+	 * @throws XmlDocletException
+	 *             if javadoc reported an error or the document could not be
+	 *             written
+	 */
+	public void write(List<String> arguments, Iterable<? extends JavaFileObject> sources, OutputStream outputStream) {
+		Invocation invocation = new Invocation(this);
+		invocation.outputStream = outputStream;
+		execute(arguments, sources, invocation);
+	}
+
+	/**
+	 * Creates an in-memory source file.
+	 *
+	 * @param qualifiedName
+	 *            the qualified name of the top level type of the source
+	 * @param code
+	 *            the source code
+	 * @return the source file
+	 */
+	public static JavaFileObject createSource(String qualifiedName, final CharSequence code) {
+		URI uri = URI.create("string:///" + qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+		return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+	}
+
+	protected Iterable<? extends JavaFileObject> createSources(File... sourceFiles) {
+		StandardJavaFileManager fileManager = getDocumentationTool().getStandardFileManager(null, null, null);
+		try {
+			List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+			for (JavaFileObject source : fileManager.getJavaFileObjects(sourceFiles)) {
+				sources.add(source);
+			}
+			return sources;
+		} finally {
+			close(fileManager);
+		}
+	}
+
+	protected void execute(List<String> arguments, Iterable<? extends JavaFileObject> sources, Invocation invocation) {
+		DocumentationTool documentationTool = getDocumentationTool();
+		StandardJavaFileManager fileManager = documentationTool.getStandardFileManager(null, null, null);
+		PrintWriter messageWriter;
+		MessageWriters messageWriters = null;
+		if (out != null) {
+			messageWriter = new PrintWriter(out);
+		} else {
+			messageWriters = createMessageWriters();
+			messageWriter = messageWriters.noticeWriter;
+		}
+
+		try {
+			List<String> options = new ArrayList<String>();
+			List<String> sourceFileNames = new ArrayList<String>();
+			for (Iterator<String> iterator = arguments.iterator(); iterator.hasNext();) {
+				String argument = iterator.next();
+				if (FILE_MANAGER_OPTIONS.contains(argument)) {
+					fileManager.handleOption(argument, iterator);
+				} else if (argument.endsWith(JavaFileObject.Kind.SOURCE.extension)) {
+					sourceFileNames.add(argument);
+				} else {
+					options.add(argument);
+				}
+			}
+
+			List<JavaFileObject> allSources = new ArrayList<JavaFileObject>();
+			for (JavaFileObject source : fileManager.getJavaFileObjectsFromStrings(sourceFileNames)) {
+				allSources.add(source);
+			}
+			if (sources != null) {
+				for (JavaFileObject source : sources) {
+					allSources.add(source);
+				}
+			}
+
+			Boolean success;
+			INVOCATION.set(invocation);
+			try {
+				DocumentationTask task = documentationTool.getTask(messageWriter, fileManager, null, Doclet.class,
+						options, allSources.isEmpty() ? null : allSources);
+				if (messageWriters != null) {
+					registerMessager(task, messageWriters);
+				}
+				success = task.call();
+			} finally {
+				INVOCATION.remove();
+			}
+			if (invocation.exception != null) {
+				throw invocation.exception;
+			}
+			if (!Boolean.TRUE.equals(success)) {
+				throw new XmlDocletException("javadoc failed, see the messages for details");
+			}
+		} finally {
+			messageWriter.flush();
+			if (messageWriters != null) {
+				messageWriters.close();
+			}
+			close(fileManager);
+		}
+	}
+
+	protected MessageWriters createMessageWriters() {
+		return new MessageWriters(log);
+	}
+
+	/**
+	 * Makes javadoc write its errors, warnings and notices to writers of
+	 * their own. The tool API takes only one writer, so the messager holding
+	 * the three writers is registered in the context of the task before it
+	 * runs. Tasks of other javadoc implementations keep writing everything to
+	 * the one writer.
+	 */
+	protected static void registerMessager(DocumentationTask task, MessageWriters messageWriters) {
+		try {
+			Field field = task.getClass().getDeclaredField("context");
+			field.setAccessible(true);
+			Messager.preRegister((Context) field.get(task), "javadoc", messageWriters.errorWriter,
+					messageWriters.warningWriter, messageWriters.noticeWriter);
+		} catch (NoSuchFieldException e) {
+			log.debug("Messages logged as info, the javadoc task has no context: " + e.getMessage());
+		} catch (IllegalAccessException e) {
+			log.debug("Messages logged as info, the javadoc task has no context: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * The writers logging the javadoc messages with the level of their kind:
+	 * errors as errors, warnings as warnings and notices as info.
+	 */
+	protected static class MessageWriters {
+
+		protected final PrintWriter errorWriter;
+		protected final PrintWriter warningWriter;
+		protected final PrintWriter noticeWriter;
+
+		/**
+		 * Creates the writers logging to the given logger.
+		 *
+		 * @param log
+		 *            the logger to write to
+		 */
+		public MessageWriters(Logger log) {
+			errorWriter = new PrintWriter(new LoggingOutputStream(log, LoggingLevelEnum.ERROR), false);
+			warningWriter = new PrintWriter(new LoggingOutputStream(log, LoggingLevelEnum.WARN), false);
+			noticeWriter = new PrintWriter(new LoggingOutputStream(log, LoggingLevelEnum.INFO), false);
+		}
+
+		protected void close() {
+			errorWriter.close();
+			warningWriter.close();
+			noticeWriter.close();
+		}
+	}
+
+	protected DocumentationTool getDocumentationTool() {
+		DocumentationTool documentationTool = ToolProvider.getSystemDocumentationTool();
+		if (documentationTool == null) {
+			throw new XmlDocletException("No javadoc tool found, the runner needs a JDK");
+		}
+		return documentationTool;
+	}
+
+	private static void close(StandardJavaFileManager fileManager) {
+		try {
+			fileManager.close();
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * The state of one run, only referenced while javadoc runs.
+	 */
+	protected static class Invocation {
+
+		protected final XmlDocletRunner runner;
+
+		protected OutputStream outputStream;
+
+		protected Root root;
+
+		protected XmlDocletException exception;
+
+		/**
+		 * The start of the run, the start of the phase <code>javadoc</code>
+		 * of the statistics.
+		 */
+		protected final long startNanos = System.nanoTime();
+
+		protected final long startProcessCpuNanos = Statistics.getProcessCpuNanos();
+
+		protected Invocation(XmlDocletRunner runner) {
+			this.runner = runner;
+		}
+
+		/**
+		 * Creates the parser, sharing the caches of the runner.
+		 */
+		protected Parser createParser(CommandLine commandLine) {
+			Parser parser = XmlDoclet.createParser(commandLine);
+			if (runner.typeInfoCache != null && !commandLine.hasOption("typetable")) {
+				parser.setTypeInfoCache(runner.typeInfoCache);
+			}
+			if (runner.missingAnnotationTypes != null) {
+				parser.setMissingAnnotationTypes(runner.missingAnnotationTypes);
+			}
+			return parser;
+		}
+	}
+
+	/**
+	 * The doclet started by the runner. It delegates to the XmlDoclet and
+	 * hands the result to the run of the calling thread. Outside of a run it
+	 * behaves like the XmlDoclet.
+	 */
+	public static class Doclet {
+
+		/**
+		 * @see XmlDoclet#optionLength(String)
+		 *
+		 * @param optionName
+		 *            The name of the option.
+		 * @return number of arguments on the command line for an option
+		 *         including the option name itself.
+		 */
+		public static int optionLength(String optionName) {
+			return XmlDoclet.optionLength(optionName);
+		}
+
+		/**
+		 * @see XmlDoclet#validOptions(String[][], DocErrorReporter)
+		 *
+		 * @param optionsArrayArray
+		 *            The two dimensional array of options.
+		 * @param reporter
+		 *            The error reporter.
+		 * @return <code>true</code> if the options are valid.
+		 */
+		public static boolean validOptions(String optionsArrayArray[][], DocErrorReporter reporter) {
+			return XmlDoclet.validOptions(optionsArrayArray, reporter);
+		}
+
+		/**
+		 * @see XmlDoclet#languageVersion()
+		 *
+		 * @return LanguageVersion#JAVA_1_5
+		 */
+		public static LanguageVersion languageVersion() {
+			return XmlDoclet.languageVersion();
+		}
+
+		/**
+		 * Processes the JavaDoc documentation for the run of the calling
+		 * thread.
+		 *
+		 * @param rootDoc
+		 *            The root of the documentation tree.
+		 * @return <code>true</code> if processing was successful.
+		 */
+		public static boolean start(RootDoc rootDoc) {
+			Invocation invocation = INVOCATION.get();
+			if (invocation == null) {
+				return XmlDoclet.start(rootDoc);
+			}
+
+			CommandLine commandLine = XmlDoclet.parseCommandLine(rootDoc.options());
+			if (invocation.outputStream == null) {
+				invocation.root = XmlDoclet.process(commandLine, rootDoc, invocation.createParser(commandLine),
+						invocation.startNanos, invocation.startProcessCpuNanos);
+				return true;
+			}
+
+			StreamingRootWriter streamingRootWriter = null;
+			try {
+				String encoding = commandLine.getOptionValue("docencoding", "UTF-8");
+				streamingRootWriter = new StreamingRootWriter(invocation.outputStream, encoding,
+						!commandLine.hasOption("compact"));
+				invocation.createParser(commandLine).parseRootDoc(rootDoc, streamingRootWriter);
+				invocation.outputStream.flush();
+				return true;
+			} catch (XmlDocletException e) {
+				invocation.exception = e;
+			} catch (JAXBException e) {
+				invocation.exception = new XmlDocletException(e.getMessage(), e);
+			} catch (IOException e) {
+				invocation.exception = new XmlDocletException(e.getMessage(), e);
+			} finally {
+				if (streamingRootWriter != null) {
+					streamingRootWriter.close();
+				}
+			}
+			return false;
+		}
+	}
+}
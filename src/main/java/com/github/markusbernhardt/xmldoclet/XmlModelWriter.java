@@ -0,0 +1,797 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationArgument;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationElement;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Constructor;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.EnumConstant;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.MethodParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TagInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.Types;
+import com.github.markusbernhardt.xmldoclet.xjc.Wildcard;
+
+/**
+ * Writes the object model of <code>javadoc.xsd</code> as UTF-8 without JAXB.
+ * Every type of the schema has a method of its own writing the attributes and
+ * elements in schema order, the tag and attribute names are encoded once. The
+ * output is byte for byte the same as the one of the JAXB reference
+ * implementation with {@link javax.xml.bind.Marshaller#JAXB_FORMATTED_OUTPUT}
+ * set to <code>formatted</code>, including its indentation, which restarts at
+ * column 0 after eight levels.
+ * <p>
+ * The getters of the boolean attributes return the schema default if the
+ * attribute is left out, so the <code>isSet</code> methods generated from
+ * <code>bindings.xjb</code> decide whether an attribute is written. Lists are
+ * read only if they are set, so the writer never adds an empty list to a
+ * node. It is not thread safe.
+ */
+public class XmlModelWriter {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The most bytes a single character is written as.
+	 */
+	private static final int MAX_CHAR_BYTES = 6;
+
+	private static final byte[] XML_DECLARATION = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+	private static final byte[] EMPTY_TAG_END = bytes("/>");
+	private static final byte[] TRUE = bytes("true\"");
+	private static final byte[] FALSE = bytes("false\"");
+	private static final byte[] INDENT = bytes("\n                                ");
+
+	private static final Tag ROOT = new Tag("root");
+	private static final Tag PACKAGE = new Tag("package");
+	private static final Tag COMMENT = new Tag("comment");
+	private static final Tag TAG = new Tag("tag");
+	private static final Tag ANNOTATION = new Tag("annotation");
+	private static final Tag ENUM = new Tag("enum");
+	private static final Tag INTERFACE = new Tag("interface");
+	private static final Tag CLASS = new Tag("class");
+	private static final Tag TYPES = new Tag("types");
+	private static final Tag TYPE = new Tag("type");
+	private static final Tag ELEMENT = new Tag("element");
+	private static final Tag ARGUMENT = new Tag("argument");
+	private static final Tag VALUE = new Tag("value");
+	private static final Tag CONSTANT = new Tag("constant");
+	private static final Tag GENERIC = new Tag("generic");
+	private static final Tag CONSTRUCTOR = new Tag("constructor");
+	private static final Tag METHOD = new Tag("method");
+	private static final Tag FIELD = new Tag("field");
+	private static final Tag PARAMETER = new Tag("parameter");
+	private static final Tag EXCEPTION = new Tag("exception");
+	private static final Tag RETURN = new Tag("return");
+	private static final Tag WILDCARD = new Tag("wildcard");
+	private static final Tag EXTENDS_BOUND = new Tag("extendsBound");
+	private static final Tag SUPER_BOUND = new Tag("superBound");
+	private static final Tag BOUND = new Tag("bound");
+
+	private static final byte[] NAME = attributeName("name");
+	private static final byte[] QUALIFIED = attributeName("qualified");
+	private static final byte[] SCOPE = attributeName("scope");
+	private static final byte[] INCLUDED = attributeName("included");
+	private static final byte[] DEFAULT = attributeName("default");
+	private static final byte[] PRIMITIVE = attributeName("primitive");
+	private static final byte[] ARRAY = attributeName("array");
+	private static final byte[] SIGNATURE = attributeName("signature");
+	private static final byte[] ABSTRACT = attributeName("abstract");
+	private static final byte[] FINAL = attributeName("final");
+	private static final byte[] NATIVE = attributeName("native");
+	private static final byte[] SYNCHRONIZED = attributeName("synchronized");
+	private static final byte[] STATIC = attributeName("static");
+	private static final byte[] VAR_ARGS = attributeName("varArgs");
+	private static final byte[] ERROR = attributeName("error");
+	private static final byte[] EXCEPTION_ATTRIBUTE = attributeName("exception");
+	private static final byte[] EXTERNALIZABLE = attributeName("externalizable");
+	private static final byte[] SERIALIZABLE = attributeName("serializable");
+	private static final byte[] VOLATILE = attributeName("volatile");
+	private static final byte[] TRANSIENT = attributeName("transient");
+	private static final byte[] TEXT = attributeName("text");
+	private static final byte[] DIMENSION = attributeName("dimension");
+	private static final byte[] ID = attributeName("id");
+	private static final byte[] REF = attributeName("ref");
+
+	/**
+	 * The entities of the ASCII characters escaped in attribute values, the
+	 * same as the ones of JAXB.
+	 */
+	private static final byte[][] ATTRIBUTE_ENTITIES = new byte[0x80][];
+
+	/**
+	 * The entities of the ASCII characters escaped in text.
+	 */
+	private static final byte[][] TEXT_ENTITIES = new byte[0x80][];
+
+	static {
+		addEntity('&', "&amp;", false);
+		addEntity('<', "&lt;", false);
+		addEntity('>', "&gt;", false);
+		addEntity('"', "&quot;", true);
+		addEntity('\t', "&#x9;", true);
+		addEntity('\r', "&#xD;", false);
+		addEntity('\n', "&#xA;", true);
+	}
+
+	protected final OutputStream outputStream;
+
+	protected final boolean formatted;
+
+	protected final byte[] buffer = new byte[BUFFER_SIZE];
+
+	protected int position;
+
+	protected int depth;
+
+	/**
+	 * <code>true</code> while the start tag of the current element is still
+	 * missing its closing bracket, as the element may turn out to be empty.
+	 */
+	protected boolean startTagPending;
+
+	protected boolean seenText;
+
+	/**
+	 * Creates the writer. The output stream is neither flushed nor closed by
+	 * this class.
+	 *
+	 * @param outputStream
+	 *            the stream to write to
+	 * @param formatted
+	 *            <code>true</code> to indent nested elements
+	 */
+	public XmlModelWriter(OutputStream outputStream, boolean formatted) {
+		this(outputStream, formatted, 0);
+	}
+
+	/**
+	 * Creates the writer of a fragment, whose elements are indented as
+	 * children of an element at the given depth of a document.
+	 *
+	 * @param outputStream
+	 *            the stream to write to
+	 * @param formatted
+	 *            <code>true</code> to indent nested elements
+	 * @param depth
+	 *            the depth of the written elements, 1 for packages
+	 */
+	public XmlModelWriter(OutputStream outputStream, boolean formatted, int depth) {
+		this.outputStream = outputStream;
+		this.formatted = formatted;
+		this.depth = depth;
+	}
+
+	/**
+	 * Writes the complete document and passes all bytes on to the output
+	 * stream.
+	 *
+	 * @param root
+	 *            the document root
+	 * @throws IOException
+	 *             if the output stream fails
+	 */
+	public void write(Root root) throws IOException {
+		startDocument();
+		if (root.isSetPackage()) {
+			for (Package packageNode : root.getPackage()) {
+				write(packageNode);
+			}
+		}
+		endDocument(root.getTypes());
+	}
+
+	/**
+	 * Writes the XML declaration and the start of the root element.
+	 *
+	 * @throws IOException
+	 *             if the output stream fails
+	 */
+	public void startDocument() throws IOException {
+		write(XML_DECLARATION);
+		startTag(ROOT);
+	}
+
+	/**
+	 * Writes a package with all its types.
+	 *
+	 * @param packageNode
+	 *            the package
+	 * @throws IOException
+	 *             if the output stream fails
+	 */
+	public void write(Package packageNode) throws IOException {
+		writePackage(packageNode);
+	}
+
+	/**
+	 * Writes the types section, if any, and the end of the root element and
+	 * passes all bytes on to the output stream.
+	 *
+	 * @param types
+	 *            the types section or <code>null</code>
+	 * @throws IOException
+	 *             if the output stream fails
+	 */
+	public void endDocument(Types types) throws IOException {
+		if (types != null) {
+			writeTypes(types);
+		}
+		endTag(ROOT);
+		if (formatted) {
+			write((byte) '\n');
+		}
+		flush();
+	}
+
+	/**
+	 * Completes the start tag of the current element and passes all bytes on
+	 * to the output stream. Child elements written by another writer, e.g.
+	 * into a fragment file, may follow in the stream.
+	 *
+	 * @throws IOException
+	 *             if the output stream fails
+	 */
+	public void flushStartTag() throws IOException {
+		closeStartTag();
+		flush();
+	}
+
+	/**
+	 * Passes the buffered bytes on to the output stream, without flushing
+	 * it.
+	 *
+	 * @throws IOException
+	 *             if the output stream fails
+	 */
+	public void flush() throws IOException {
+		if (position > 0) {
+			outputStream.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	protected void writePackage(Package node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(PACKAGE);
+		attribute(NAME, node.getName());
+		text(COMMENT, node.getComment());
+		writeTagInfos(node.isSetTag() ? node.getTag() : null);
+		if (node.isSetAnnotation()) {
+			for (Annotation annotation : node.getAnnotation()) {
+				writeAnnotation(annotation);
+			}
+		}
+		if (node.isSetEnum()) {
+			for (Enum enumNode : node.getEnum()) {
+				writeEnum(enumNode);
+			}
+		}
+		if (node.isSetInterface()) {
+			for (Interface interfaceNode : node.getInterface()) {
+				writeInterface(interfaceNode);
+			}
+		}
+		if (node.isSetClazz()) {
+			for (Class classNode : node.getClazz()) {
+				writeClass(classNode);
+			}
+		}
+		endTag(PACKAGE);
+	}
+
+	protected void writeAnnotation(Annotation node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(ANNOTATION);
+		attribute(NAME, node.getName());
+		attribute(QUALIFIED, node.getQualified());
+		attribute(SCOPE, node.getScope());
+		attribute(INCLUDED, node.isSetIncluded(), node.isIncluded());
+		text(COMMENT, node.getComment());
+		writeTagInfos(node.isSetTag() ? node.getTag() : null);
+		if (node.isSetElement()) {
+			for (AnnotationElement element : node.getElement()) {
+				writeAnnotationElement(element);
+			}
+		}
+		writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+		endTag(ANNOTATION);
+	}
+
+	protected void writeAnnotationElement(AnnotationElement node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(ELEMENT);
+		attribute(NAME, node.getName());
+		attribute(QUALIFIED, node.getQualified());
+		attribute(DEFAULT, node.getDefault());
+		writeTypeInfo(TYPE, node.getType());
+		endTag(ELEMENT);
+	}
+
+	protected void writeAnnotationInstances(List<AnnotationInstance> nodes) throws IOException {
+		if (nodes == null) {
+			return;
+		}
+		for (AnnotationInstance node : nodes) {
+			if (node == null) {
+				continue;
+			}
+			startTag(ANNOTATION);
+			attribute(NAME, node.getName());
+			attribute(QUALIFIED, node.getQualified());
+			if (node.isSetArgument()) {
+				for (AnnotationArgument argument : node.getArgument()) {
+					writeAnnotationArgument(argument);
+				}
+			}
+			endTag(ANNOTATION);
+		}
+	}
+
+	protected void writeAnnotationArgument(AnnotationArgument node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(ARGUMENT);
+		attribute(NAME, node.getName());
+		attribute(PRIMITIVE, node.isSetPrimitive(), node.isPrimitive());
+		attribute(ARRAY, node.isSetArray(), node.isArray());
+		writeTypeInfo(TYPE, node.getType());
+		texts(VALUE, node.isSetValue() ? node.getValue() : null);
+		writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+		endTag(ARGUMENT);
+	}
+
+	protected void writeEnum(Enum node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(ENUM);
+		attribute(NAME, node.getName());
+		attribute(QUALIFIED, node.getQualified());
+		attribute(SCOPE, node.getScope());
+		attribute(INCLUDED, node.isSetIncluded(), node.isIncluded());
+		text(COMMENT, node.getComment());
+		writeTagInfos(node.isSetTag() ? node.getTag() : null);
+		writeTypeInfo(CLASS, node.getClazz());
+		writeTypeInfos(INTERFACE, node.isSetInterface() ? node.getInterface() : null);
+		if (node.isSetConstant()) {
+			for (EnumConstant constant : node.getConstant()) {
+				writeEnumConstant(constant);
+			}
+		}
+		writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+		endTag(ENUM);
+	}
+
+	protected void writeEnumConstant(EnumConstant node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(CONSTANT);
+		attribute(NAME, node.getName());
+		text(COMMENT, node.getComment());
+		writeTagInfos(node.isSetTag() ? node.getTag() : null);
+		writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+		endTag(CONSTANT);
+	}
+
+	protected void writeInterface(Interface node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(INTERFACE);
+		attribute(NAME, node.getName());
+		attribute(QUALIFIED, node.getQualified());
+		attribute(SCOPE, node.getScope());
+		attribute(INCLUDED, node.isSetIncluded(), node.isIncluded());
+		text(COMMENT, node.getComment());
+		writeTagInfos(node.isSetTag() ? node.getTag() : null);
+		writeTypeParameters(node.isSetGeneric() ? node.getGeneric() : null);
+		writeTypeInfos(INTERFACE, node.isSetInterface() ? node.getInterface() : null);
+		writeMethods(node.isSetMethod() ? node.getMethod() : null);
+		writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+		writeFields(node.isSetField() ? node.getField() : null);
+		endTag(INTERFACE);
+	}
+
+	protected void writeClass(Class node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(CLASS);
+		attribute(NAME, node.getName());
+		attribute(QUALIFIED, node.getQualified());
+		attribute(SCOPE, node.getScope());
+		attribute(ABSTRACT, node.isSetAbstract(), node.isAbstract());
+		attribute(ERROR, node.isSetError(), node.isError());
+		attribute(EXCEPTION_ATTRIBUTE, node.isSetException(), node.isException());
+		attribute(EXTERNALIZABLE, node.isSetExternalizable(), node.isExternalizable());
+		attribute(INCLUDED, node.isSetIncluded(), node.isIncluded());
+		attribute(SERIALIZABLE, node.isSetSerializable(), node.isSerializable());
+		text(COMMENT, node.getComment());
+		writeTagInfos(node.isSetTag() ? node.getTag() : null);
+		writeTypeParameters(node.isSetGeneric() ? node.getGeneric() : null);
+		writeTypeInfo(CLASS, node.getClazz());
+		writeTypeInfos(INTERFACE, node.isSetInterface() ? node.getInterface() : null);
+		if (node.isSetConstructor()) {
+			for (Constructor constructor : node.getConstructor()) {
+				writeConstructor(constructor);
+			}
+		}
+		writeMethods(node.isSetMethod() ? node.getMethod() : null);
+		writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+		writeFields(node.isSetField() ? node.getField() : null);
+		endTag(CLASS);
+	}
+
+	protected void writeConstructor(Constructor node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(CONSTRUCTOR);
+		attribute(NAME, node.getName());
+		attribute(SIGNATURE, node.getSignature());
+		attribute(QUALIFIED, node.getQualified());
+		attribute(SCOPE, node.getScope());
+		attribute(FINAL, node.isSetFinal(), node.isFinal());
+		attribute(INCLUDED, node.isSetIncluded(), node.isIncluded());
+		attribute(NATIVE, node.isSetNative(), node.isNative());
+		attribute(SYNCHRONIZED, node.isSetSynchronized(), node.isSynchronized());
+		attribute(STATIC, node.isSetStatic(), node.isStatic());
+		attribute(VAR_ARGS, node.isSetVarArgs(), node.isVarArgs());
+		text(COMMENT, node.getComment());
+		writeTagInfos(node.isSetTag() ? node.getTag() : null);
+		writeMethodParameters(node.isSetParameter() ? node.getParameter() : null);
+		writeTypeInfos(EXCEPTION, node.isSetException() ? node.getException() : null);
+		writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+		endTag(CONSTRUCTOR);
+	}
+
+	protected void writeMethods(List<Method> nodes) throws IOException {
+		if (nodes == null) {
+			return;
+		}
+		for (Method node : nodes) {
+			if (node == null) {
+				continue;
+			}
+			startTag(METHOD);
+			attribute(NAME, node.getName());
+			attribute(SIGNATURE, node.getSignature());
+			attribute(QUALIFIED, node.getQualified());
+			attribute(SCOPE, node.getScope());
+			attribute(ABSTRACT, node.isSetAbstract(), node.isAbstract());
+			attribute(FINAL, node.isSetFinal(), node.isFinal());
+			attribute(INCLUDED, node.isSetIncluded(), node.isIncluded());
+			attribute(NATIVE, node.isSetNative(), node.isNative());
+			attribute(SYNCHRONIZED, node.isSetSynchronized(), node.isSynchronized());
+			attribute(STATIC, node.isSetStatic(), node.isStatic());
+			attribute(VAR_ARGS, node.isSetVarArgs(), node.isVarArgs());
+			text(COMMENT, node.getComment());
+			writeTagInfos(node.isSetTag() ? node.getTag() : null);
+			writeMethodParameters(node.isSetParameter() ? node.getParameter() : null);
+			writeTypeInfo(RETURN, node.getReturn());
+			writeTypeInfos(EXCEPTION, node.isSetException() ? node.getException() : null);
+			writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+			endTag(METHOD);
+		}
+	}
+
+	protected void writeMethodParameters(List<MethodParameter> nodes) throws IOException {
+		if (nodes == null) {
+			return;
+		}
+		for (MethodParameter node : nodes) {
+			if (node == null) {
+				continue;
+			}
+			startTag(PARAMETER);
+			attribute(NAME, node.getName());
+			writeTypeInfo(TYPE, node.getType());
+			writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+			endTag(PARAMETER);
+		}
+	}
+
+	protected void writeFields(List<Field> nodes) throws IOException {
+		if (nodes == null) {
+			return;
+		}
+		for (Field node : nodes) {
+			if (node == null) {
+				continue;
+			}
+			startTag(FIELD);
+			attribute(NAME, node.getName());
+			attribute(QUALIFIED, node.getQualified());
+			attribute(SCOPE, node.getScope());
+			attribute(VOLATILE, node.isSetVolatile(), node.isVolatile());
+			attribute(TRANSIENT, node.isSetTransient(), node.isTransient());
+			attribute(STATIC, node.isSetStatic(), node.isStatic());
+			attribute(FINAL, node.isSetFinal(), node.isFinal());
+			writeTypeInfo(TYPE, node.getType());
+			text(COMMENT, node.getComment());
+			writeTagInfos(node.isSetTag() ? node.getTag() : null);
+			text(CONSTANT, node.getConstant());
+			writeAnnotationInstances(node.isSetAnnotation() ? node.getAnnotation() : null);
+			endTag(FIELD);
+		}
+	}
+
+	protected void writeTypeParameters(List<TypeParameter> nodes) throws IOException {
+		if (nodes == null) {
+			return;
+		}
+		for (TypeParameter node : nodes) {
+			if (node == null) {
+				continue;
+			}
+			startTag(GENERIC);
+			attribute(NAME, node.getName());
+			texts(BOUND, node.isSetBound() ? node.getBound() : null);
+			endTag(GENERIC);
+		}
+	}
+
+	protected void writeTagInfos(List<TagInfo> nodes) throws IOException {
+		if (nodes == null) {
+			return;
+		}
+		for (TagInfo node : nodes) {
+			if (node == null) {
+				continue;
+			}
+			startTag(TAG);
+			attribute(NAME, node.getName());
+			attribute(TEXT, node.getText());
+			endTag(TAG);
+		}
+	}
+
+	protected void writeTypes(Types node) throws IOException {
+		startTag(TYPES);
+		writeTypeInfos(TYPE, node.isSetType() ? node.getType() : null);
+		endTag(TYPES);
+	}
+
+	protected void writeTypeInfos(Tag tag, List<TypeInfo> nodes) throws IOException {
+		if (nodes == null) {
+			return;
+		}
+		for (TypeInfo node : nodes) {
+			writeTypeInfo(tag, node);
+		}
+	}
+
+	protected void writeTypeInfo(Tag tag, TypeInfo node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		startTag(tag);
+		attribute(QUALIFIED, node.getQualified());
+		attribute(DIMENSION, node.getDimension());
+		attribute(ID, node.getId());
+		Object ref = node.getRef();
+		if (ref != null) {
+			attribute(REF, ref instanceof TypeInfo ? ((TypeInfo) ref).getId() : ref.toString());
+		}
+		Wildcard wildcard = node.getWildcard();
+		if (wildcard != null) {
+			startTag(WILDCARD);
+			writeTypeInfos(EXTENDS_BOUND, wildcard.isSetExtendsBound() ? wildcard.getExtendsBound() : null);
+			writeTypeInfos(SUPER_BOUND, wildcard.isSetSuperBound() ? wildcard.getSuperBound() : null);
+			endTag(WILDCARD);
+		}
+		writeTypeInfos(GENERIC, node.isSetGeneric() ? node.getGeneric() : null);
+		endTag(tag);
+	}
+
+	/**
+	 * Starts an element. The start tag is closed by the next call, with
+	 * <code>/&gt;</code> if that is the end of the element.
+	 */
+	protected void startTag(Tag tag) throws IOException {
+		closeStartTag();
+		if (formatted && !seenText) {
+			indent();
+		}
+		depth++;
+		seenText = false;
+		write(tag.start);
+		startTagPending = true;
+	}
+
+	protected void endTag(Tag tag) throws IOException {
+		depth--;
+		if (startTagPending) {
+			write(EMPTY_TAG_END);
+			startTagPending = false;
+		} else {
+			if (formatted && !seenText) {
+				indent();
+			}
+			write(tag.end);
+		}
+		seenText = false;
+	}
+
+	private void closeStartTag() throws IOException {
+		if (startTagPending) {
+			write((byte) '>');
+			startTagPending = false;
+		}
+	}
+
+	/**
+	 * Writes a line break and the indentation of the current depth. Like
+	 * JAXB, at most seven levels are indented.
+	 */
+	private void indent() throws IOException {
+		write(INDENT, 0, 1 + 4 * (depth & 7));
+	}
+
+	protected void attribute(byte[] name, String value) throws IOException {
+		if (value != null) {
+			write(name);
+			escape(value, ATTRIBUTE_ENTITIES);
+			write((byte) '"');
+		}
+	}
+
+	/**
+	 * Writes a boolean attribute, if it is set. The getter of an attribute
+	 * left out returns the schema default, which is not written.
+	 */
+	protected void attribute(byte[] name, boolean set, boolean value) throws IOException {
+		if (set) {
+			write(name);
+			write(value ? TRUE : FALSE);
+		}
+	}
+
+	/**
+	 * Writes an element containing only text, if the text is not
+	 * <code>null</code>.
+	 */
+	protected void text(Tag tag, String value) throws IOException {
+		if (value != null) {
+			startTag(tag);
+			write((byte) '>');
+			startTagPending = false;
+			seenText = true;
+			escape(value, TEXT_ENTITIES);
+			endTag(tag);
+		}
+	}
+
+	protected void texts(Tag tag, List<String> values) throws IOException {
+		if (values != null) {
+			for (String value : values) {
+				text(tag, value);
+			}
+		}
+	}
+
+	/**
+	 * Writes the value as UTF-8, replacing the characters having an entity.
+	 * Plain ASCII characters, the bulk of all comments, take a single table
+	 * lookup. A surrogate is always combined with the following
+	 * character, as JAXB does, a trailing one is written as
+	 * <code>'?'</code>.
+	 */
+	private void escape(String value, byte[][] entities) throws IOException {
+		byte[] buffer = this.buffer;
+		int limit = buffer.length - MAX_CHAR_BYTES;
+		int position = this.position;
+		int length = value.length();
+		int i = 0;
+		while (i < length) {
+			if (position > limit) {
+				this.position = position;
+				flush();
+				position = 0;
+			}
+			char c = value.charAt(i++);
+			if (c < 0x80) {
+				byte[] entity = entities[c];
+				if (entity == null) {
+					buffer[position++] = (byte) c;
+				} else {
+					System.arraycopy(entity, 0, buffer, position, entity.length);
+					position += entity.length;
+				}
+			} else if (c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | (c >> 6));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			} else if (!Character.isSurrogate(c)) {
+				buffer[position++] = (byte) (0xE0 | (c >> 12));
+				buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			} else if (i < length) {
+				int codePoint = (((c & 0x3FF) << 10) | (value.charAt(i++) & 0x3FF)) + 0x10000;
+				buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else {
+				buffer[position++] = '?';
+			}
+		}
+		this.position = position;
+	}
+
+	private void write(byte b) throws IOException {
+		if (position == buffer.length) {
+			flush();
+		}
+		buffer[position++] = b;
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		write(bytes, 0, bytes.length);
+	}
+
+	private void write(byte[] bytes, int offset, int length) throws IOException {
+		if (length > buffer.length - position) {
+			flush();
+			if (length > buffer.length) {
+				outputStream.write(bytes, offset, length);
+				return;
+			}
+		}
+		System.arraycopy(bytes, offset, buffer, position, length);
+		position += length;
+	}
+
+	private static void addEntity(char c, String entity, boolean attributeOnly) {
+		ATTRIBUTE_ENTITIES[c] = bytes(entity);
+		if (!attributeOnly) {
+			TEXT_ENTITIES[c] = ATTRIBUTE_ENTITIES[c];
+		}
+	}
+
+	private static byte[] attributeName(String name) {
+		return bytes(" " + name + "=\"");
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(UTF_8);
+	}
+
+	/**
+	 * The encoded start and end tag of an element.
+	 */
+	protected static final class Tag {
+
+		final byte[] start;
+
+		final byte[] end;
+
+		Tag(String name) {
+			this.start = bytes("<" + name);
+			this.end = bytes("</" + name + ">");
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package com.github.markusbernhardt.xmldoclet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -63,15 +65,8 @@ public class AbstractTestParent {
 	 */
 	public Root executeJavadoc(String extendedClassPath, String[] sourcePaths, String[] packages, String[] sourceFiles,
 			String[] subPackages, String[] additionalArguments) {
+		Root root = null;
 		try {
-			OutputStream errors = new LoggingOutputStream(log, LoggingLevelEnum.ERROR);
-			OutputStream warnings = new LoggingOutputStream(log, LoggingLevelEnum.WARN);
-			OutputStream notices = new LoggingOutputStream(log, LoggingLevelEnum.INFO);
-
-			PrintWriter errorWriter = new PrintWriter(errors, false);
-			PrintWriter warningWriter = new PrintWriter(warnings, false);
-			PrintWriter noticeWriter = new PrintWriter(notices, false);
-
 			// aggregate arguments and packages
 			ArrayList<String> argumentList = new ArrayList<String>();
 
@@ -115,13 +110,7 @@ public class AbstractTestParent {
 
 			log.info("Executing doclet with arguments: " + join(" ", argumentList));
 
-			String[] arguments = argumentList.toArray(new String[] {});
-			com.sun.tools.javadoc.Main.execute("xml-doclet", errorWriter, warningWriter, noticeWriter,
-					XmlDoclet.class.getName(), arguments);
-
-			errors.close();
-			warnings.close();
-			notices.close();
+			root = new XmlDocletRunner().run(argumentList, null);
 
 			log.info("done with doclet processing");
 		} catch (Exception e) {
@@ -130,7 +119,31 @@ public class AbstractTestParent {
 			log.error("doclet error", e);
 		}
 
-		return XmlDoclet.root;
+		return root;
+	}
+
+	/**
+	 * Helper method to read a file.
+	 * 
+	 * @param file
+	 *            the file to read.
+	 * @return the content of the file
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static byte[] readAllBytes(File file) throws IOException {
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			inputStream.close();
+		}
 	}
 
 	/**
@@ -0,0 +1,89 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test group for the batch mode
+ */
+public class BatchTest extends AbstractTestParent {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * All jobs of a manifest are run, a failing job does not stop the others
+	 */
+	@Test
+	public void testBatch() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("simple.sourcepath", new File("src/test/java").getAbsolutePath());
+		properties.setProperty("simple.packages", "com.github.markusbernhardt.xmldoclet.simpledata");
+		properties.setProperty("simple.output", "out/simple.xml");
+		properties.setProperty("missing.sourcepath", new File("src/test/resources/missingdata").getAbsolutePath());
+		properties.setProperty("missing.packages", "com.github.markusbernhardt.xmldoclet.missingdata");
+		properties.setProperty("missing.output", "out/missing.xml");
+		properties.setProperty("missing.options", "-private -compact -compress gzip");
+		properties.setProperty("broken.sourcepath", new File("src/test/java").getAbsolutePath());
+		properties.setProperty("broken.packages", "com.github.markusbernhardt.xmldoclet.simpledata");
+		properties.setProperty("broken.output", "out/broken.xml");
+		properties.setProperty("broken.options", "-threads 0");
+		File manifest = temporaryFolder.newFile("batch.properties");
+		OutputStream outputStream = new FileOutputStream(manifest);
+		try {
+			properties.store(outputStream, null);
+		} finally {
+			outputStream.close();
+		}
+
+		List<XmlDocletBatch.Job> jobs = XmlDocletBatch.readManifest(manifest);
+		XmlDocletBatch batch = new XmlDocletBatch(2);
+		List<XmlDocletBatch.Result> results = batch.run(jobs);
+
+		assertEquals(3, results.size());
+		assertEquals("broken", results.get(0).getJob().getName());
+		assertFalse(results.get(0).isSuccess());
+		assertEquals("missing", results.get(1).getJob().getName());
+		assertTrue(results.get(1).getMessages(), results.get(1).isSuccess());
+		assertEquals("simple", results.get(2).getJob().getName());
+		assertTrue(results.get(2).getMessages(), results.get(2).isSuccess());
+		assertTrue(batch.getTypeInfoCache(jobs.get(2)).size() > 0);
+		assertSame(batch.getTypeInfoCache(jobs.get(0)), batch.getTypeInfoCache(jobs.get(2)));
+		assertNotSame(batch.getTypeInfoCache(jobs.get(1)), batch.getTypeInfoCache(jobs.get(2)));
+		List<File> outputFiles = results.get(1).getJob().getOutputFiles();
+		assertEquals(Arrays.asList(new File(temporaryFolder.getRoot(), "out/missing.xml.gz")), outputFiles);
+		for (File outputFile : outputFiles) {
+			assertTrue(outputFile.getPath(), outputFile.length() > 0);
+		}
+
+		File directory = temporaryFolder.newFolder("single");
+		new XmlDocletRunner().run(Arrays.asList("-sourcepath", new File("src/test/java").getAbsolutePath(),
+				"-subpackages", "com.github.markusbernhardt.xmldoclet.simpledata", "-d", directory.getPath()), null);
+		assertArrayEquals(readAllBytes(new File(directory, "javadoc.xml")),
+				readAllBytes(new File(temporaryFolder.getRoot(), "out/simple.xml")));
+
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		XmlDocletBatch.printTable(results, new PrintStream(table, true, "UTF-8"));
+		String[] lines = table.toString("UTF-8").split("\r?\n");
+		assertEquals(5, lines.length);
+		assertTrue(lines[1], lines[1].matches("broken +failed .*"));
+		assertTrue(lines[3], lines[3].matches("simple +ok +[0-9]+ +[0-9]+"));
+	}
+}
@@ -0,0 +1,183 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the persistent parse cache
+ */
+public class CacheTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * A run taking every class from the cache writes the same document as a
+	 * run without cache
+	 */
+	@Test
+	public void testCache() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		String cache = new File(directory, "cache").getPath();
+
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-d",
+				directory.getPath(), "-filename", "javadoc.xml" });
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-cache", cache,
+				"-d", directory.getPath(), "-filename", "cold.xml" });
+		int fragments = countFragments(new File(cache));
+		assertTrue(fragments > 0);
+
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-cache", cache,
+				"-threads", "2", "-d", directory.getPath(), "-filename", "warm.xml" });
+		assertEquals(fragments, countFragments(new File(cache)));
+
+		byte[] expected = readAllBytes(new File(directory, "javadoc.xml"));
+		assertArrayEquals(expected, readAllBytes(new File(directory, "cold.xml")));
+		assertArrayEquals(expected, readAllBytes(new File(directory, "warm.xml")));
+	}
+
+	/**
+	 * Unreadable fragments are parsed again, also by a parallel run which
+	 * decides on hit or miss before the workers start
+	 */
+	@Test
+	public void testCacheUnreadable() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		File cache = new File(directory, "cache");
+
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-cache",
+				cache.getPath(), "-d", directory.getPath(), "-filename", "javadoc.xml" });
+		File[] files = cache.listFiles();
+		for (File file : files) {
+			write(file, "<fragment");
+		}
+
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-cache",
+				cache.getPath(), "-threads", "2", "-d", directory.getPath(), "-filename", "unreadable.xml" });
+		assertEquals(files.length, countFragments(cache));
+		assertArrayEquals(readAllBytes(new File(directory, "javadoc.xml")),
+				readAllBytes(new File(directory, "unreadable.xml")));
+	}
+
+	/**
+	 * The least recently used fragments exceeding the cache size are evicted
+	 */
+	@Test
+	public void testCacheSize() throws Exception {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-cache",
+				cache.getPath(), "-cachesize", "3", "-dryrun" });
+		assertEquals(3, countFragments(cache));
+	}
+
+	/**
+	 * The access level is part of the key, a run with a different one doesn't
+	 * take the fragments lacking the private members
+	 */
+	@Test
+	public void testCacheAccessLevel() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		File cache = new File(directory, "cache");
+
+		run(directory, "protected.xml", "-protected");
+		run(directory, "private.xml", "-private");
+		run(directory, "protected-cached.xml", "-protected", "-cache", cache.getPath());
+		int fragments = countFragments(cache);
+		assertTrue(fragments > 0);
+		run(directory, "private-cached.xml", "-private", "-cache", cache.getPath());
+		// every class of the first run is parsed again, plus the private ones
+		assertTrue(countFragments(cache) > 2 * fragments);
+
+		byte[] expected = readAllBytes(new File(directory, "private.xml"));
+		assertFalse(Arrays.equals(readAllBytes(new File(directory, "protected.xml")), expected));
+		assertArrayEquals(readAllBytes(new File(directory, "protected.xml")),
+				readAllBytes(new File(directory, "protected-cached.xml")));
+		assertArrayEquals(expected, readAllBytes(new File(directory, "private-cached.xml")));
+	}
+
+	/**
+	 * The source files of the supertypes are part of the key, a changed
+	 * superclass invalidates the fragments of its subclasses
+	 */
+	@Test
+	public void testCacheSupertypeChanged() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		File cache = new File(directory, "cache");
+		File sources = new File(directory, "src");
+		write(new File(sources, "p/A.java"), "package p; public class A {}");
+		write(new File(sources, "p/B.java"), "package p; public class B extends A {}");
+		List<String> arguments = Arrays.asList("-sourcepath", sources.getPath(), "-subpackages", "p", "-cache",
+				cache.getPath(), "-dryrun");
+
+		new XmlDocletRunner().run(arguments, null);
+		assertEquals(2, countFragments(cache));
+		new XmlDocletRunner().run(arguments, null);
+		assertEquals(2, countFragments(cache));
+
+		write(new File(sources, "p/A.java"), "package p; public class A implements java.io.Serializable {}");
+		Root rootNode = new XmlDocletRunner().run(arguments, null);
+		assertEquals(4, countFragments(cache));
+		assertTrue(rootNode.getPackage().get(0).getClazz().get(1).isSerializable());
+	}
+
+	/**
+	 * Classes with a missing annotation type are not cached, so every run
+	 * reports the missing type
+	 */
+	@Test
+	public void testCacheMissingAnnotation() throws Exception {
+		File cache = new File(temporaryFolder.getRoot(), "cache");
+		executeJavadoc(null, new String[] { "./src/test/resources/missingdata" }, null, null,
+				new String[] { "com.github.markusbernhardt.xmldoclet.missingdata" }, new String[] { "-cache",
+						cache.getPath(), "-dryrun" });
+		assertEquals(0, countFragments(cache));
+	}
+
+	/**
+	 * Runs javadoc with the given access level, which
+	 * {@link #executeJavadoc(String, String[], String[], String[], String[], String[])}
+	 * always sets to -private.
+	 */
+	private static void run(File directory, String filename, String... options) {
+		List<String> arguments = new ArrayList<String>(Arrays.asList(options));
+		arguments.addAll(Arrays.asList("-sourcepath", "./src/test/java", "-subpackages", SIMPLEDATA[0], "-d",
+				directory.getPath(), "-filename", filename));
+		new XmlDocletRunner().run(arguments, null);
+	}
+
+	private static void write(File file, String content) throws Exception {
+		file.getParentFile().mkdirs();
+		FileOutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(content.getBytes("UTF-8"));
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	private static int countFragments(File cache) {
+		return cache.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.getName().endsWith(".xml");
+			}
+		}).length;
+	}
+}
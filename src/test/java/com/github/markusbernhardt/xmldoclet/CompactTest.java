@@ -0,0 +1,83 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.simpledata.Class3;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the compact output
+ */
+public class CompactTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * Default values are left out of the object model, but the getters still
+	 * return them
+	 */
+	@Test
+	public void testCompactModel() {
+		String[] sourceFiles = new String[] { "./src/test/java/com/github/markusbernhardt/xmldoclet/simpledata/Class3.java" };
+		Root rootNode = executeJavadoc(null, null, null, sourceFiles, null, new String[] { "-dryrun", "-compact" });
+
+		Class classNode = rootNode.getPackage().get(0).getClazz().get(0);
+		assertEquals(Class3.class.getName(), classNode.getQualified());
+		assertFalse(classNode.isAbstract());
+		assertTrue(classNode.isIncluded());
+
+		Method methodNode = classNode.getMethod().get(0);
+		assertFalse(methodNode.isFinal());
+		assertFalse(methodNode.isStatic());
+	}
+
+	/**
+	 * The compact document is valid, smaller than the formatted one and the
+	 * streamed variant is identical
+	 */
+	@Test
+	public void testCompactOutput() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-d",
+				directory.getPath(), "-filename", "javadoc.xml" });
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-compact",
+				"-d", directory.getPath(), "-filename", "compact.xml" });
+		Root streamedRoot = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA,
+				new String[] { "-compact", "-stream", "-d", directory.getPath(), "-filename", "stream.xml" });
+		assertNull(streamedRoot);
+
+		File compactFile = new File(directory, "compact.xml");
+		SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		Schema schema = schemaFactory.newSchema(new File("./src/main/xjc/javadoc.xsd"));
+		schema.newValidator().validate(new StreamSource(compactFile));
+
+		byte[] compact = readAllBytes(compactFile);
+		String compactString = new String(compact, "UTF-8");
+		assertFalse(compactString.contains("final=\"false\""));
+		assertFalse(compactString.contains("included=\"true\""));
+		assertFalse(compactString.contains("\n    <"));
+		assertTrue(compact.length < new File(directory, "javadoc.xml").length());
+
+		assertArrayEquals(compact, readAllBytes(new File(directory, "stream.xml")));
+	}
+}
@@ -0,0 +1,111 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test group for the compressed output
+ */
+public class CompressTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The decompressed documents are identical to the uncompressed one and the
+	 * file names carry the extension of the format
+	 */
+	@Test
+	public void testCompress() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-d",
+				directory.getPath(), "-filename", "javadoc.xml" });
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-compress",
+				"gzip", "-d", directory.getPath(), "-filename", "javadoc.xml" });
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-compress",
+				"deflate", "-stream", "-d", directory.getPath(), "-filename", "javadoc.xml" });
+
+		byte[] expected = readAllBytes(new File(directory, "javadoc.xml"));
+		assertArrayEquals(expected, readAll(new GZIPInputStream(new FileInputStream(new File(directory,
+				"javadoc.xml.gz")))));
+		assertArrayEquals(expected, readAll(new InflaterInputStream(new FileInputStream(new File(directory,
+				"javadoc.xml.deflate")))));
+	}
+
+	/**
+	 * Data larger than several buffers arrives completely and in order
+	 */
+	@Test
+	public void testAsyncOutputStream() throws Exception {
+		byte[] data = new byte[3 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(data);
+
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		AsyncOutputStream outputStream = new AsyncOutputStream(target, "test");
+		outputStream.write(data, 0, 1000);
+		for (int i = 1000; i < 2000; i++) {
+			outputStream.write(data[i]);
+		}
+		outputStream.flush();
+		outputStream.write(data, 2000, data.length - 2000);
+		outputStream.close();
+
+		assertArrayEquals(data, target.toByteArray());
+	}
+
+	/**
+	 * A failure of the background thread is reported to the writing thread
+	 */
+	@Test
+	public void testAsyncOutputStreamFailure() throws Exception {
+		OutputStream failingTarget = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+
+		AsyncOutputStream outputStream = new AsyncOutputStream(failingTarget, "test");
+		byte[] data = new byte[64 * 1024];
+		try {
+			for (int i = 0; i < 1000; i++) {
+				outputStream.write(data);
+			}
+			outputStream.close();
+			fail("IOException expected");
+		} catch (IOException e) {
+			assertFalse(e.getMessage().isEmpty());
+		}
+	}
+
+	private static byte[] readAll(InputStream inputStream) throws IOException {
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+}
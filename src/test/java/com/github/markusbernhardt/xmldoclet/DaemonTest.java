@@ -0,0 +1,185 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test group for the daemon and its client
+ */
+public class DaemonTest extends AbstractTestParent {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The daemon writes the same document as an in-process run and reports
+	 * the output file and the latency
+	 */
+	@Test
+	public void testDaemon() throws Exception {
+		File portFile = new File(temporaryFolder.getRoot(), "daemon.port");
+		File daemonDirectory = temporaryFolder.newFolder("daemon");
+		File localDirectory = temporaryFolder.newFolder("local");
+
+		XmlDocletDaemon daemon = new XmlDocletDaemon(portFile, 2);
+		daemon.start(0);
+		try {
+			assertTrue(portFile.isFile());
+			XmlDocletDaemon.Response response = new XmlDocletClient(portFile).execute(arguments(daemonDirectory));
+			assertTrue(response.getMessages(), response.isSuccess());
+			assertTrue(response.getNanos() > 0);
+			assertEquals(Arrays.asList(new File(daemonDirectory, "javadoc.xml").getPath()),
+					response.getOutputFiles());
+		} finally {
+			daemon.close();
+		}
+		assertFalse(portFile.exists());
+
+		XmlDocletDaemon.Response response = new XmlDocletClient(portFile).execute(arguments(localDirectory));
+		assertTrue(response.getMessages(), response.isSuccess());
+		assertArrayEquals(readAllBytes(new File(localDirectory, "javadoc.xml")),
+				readAllBytes(new File(daemonDirectory, "javadoc.xml")));
+	}
+
+	/**
+	 * Requests without the secret of the port file are rejected
+	 */
+	@Test(expected = EOFException.class)
+	public void testWrongSecret() throws Exception {
+		File portFile = new File(temporaryFolder.getRoot(), "daemon.port");
+		XmlDocletDaemon daemon = new XmlDocletDaemon(portFile, 1);
+		daemon.start(0);
+		Socket socket = new Socket(InetAddress.getByName(null), daemon.getPort());
+		try {
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			XmlDocletDaemon.writeRequest(output, "wrong", arguments(temporaryFolder.getRoot()));
+			XmlDocletDaemon.readResponse(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+		} finally {
+			socket.close();
+			daemon.close();
+		}
+	}
+
+	/**
+	 * The port file is created only accessible by its owner
+	 */
+	@Test
+	public void testPortFilePermissions() throws Exception {
+		File portFile = new File(temporaryFolder.getRoot(), "daemon/daemon.port");
+		Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		XmlDocletDaemon daemon = new XmlDocletDaemon(portFile, 1);
+		daemon.start(0);
+		try {
+			assertEquals(PosixFilePermissions.fromString("rw-------"),
+					Files.getPosixFilePermissions(portFile.toPath()));
+			assertEquals(PosixFilePermissions.fromString("rwx------"),
+					Files.getPosixFilePermissions(portFile.getParentFile().toPath()));
+			assertNotNull(new XmlDocletClient(portFile).readPortFile());
+		} finally {
+			daemon.close();
+		}
+	}
+
+	/**
+	 * An existing port file, which might belong to somebody else, is neither
+	 * overwritten nor reused
+	 */
+	@Test
+	public void testExistingPortFile() throws Exception {
+		File portFile = temporaryFolder.newFile("daemon.port");
+		XmlDocletDaemon daemon = new XmlDocletDaemon(portFile, 1);
+		try {
+			daemon.start(0);
+			fail("The existing port file has been reused");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("exists already"));
+		}
+		assertEquals(0, portFile.length());
+		daemon.close();
+		assertTrue(portFile.exists());
+	}
+
+	/**
+	 * The client ignores port files which are accessible by others or are
+	 * symbolic links
+	 */
+	@Test
+	public void testPortFileNotPrivate() throws Exception {
+		Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		File portFile = temporaryFolder.newFile("daemon.port");
+		Files.write(portFile.toPath(), "12345 secret\n".getBytes("UTF-8"));
+		XmlDocletClient client = new XmlDocletClient(portFile);
+
+		Files.setPosixFilePermissions(portFile.toPath(), PosixFilePermissions.fromString("rw-r--r--"));
+		assertNull(client.readPortFile());
+		Files.setPosixFilePermissions(portFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+		assertArrayEquals(new String[] { "12345", "secret" }, client.readPortFile());
+
+		File link = new File(temporaryFolder.getRoot(), "link.port");
+		Files.createSymbolicLink(link.toPath(), portFile.toPath());
+		assertNull(new XmlDocletClient(link).readPortFile());
+	}
+
+	/**
+	 * A client not sending its request in time is disconnected
+	 */
+	@Test
+	public void testReadTimeout() throws Exception {
+		File portFile = new File(temporaryFolder.getRoot(), "daemon.port");
+		XmlDocletDaemon daemon = new XmlDocletDaemon(portFile, 1);
+		daemon.setReadTimeout(200);
+		daemon.start(0);
+		Socket socket = new Socket(InetAddress.getByName(null), daemon.getPort());
+		try {
+			socket.setSoTimeout(10000);
+			assertEquals(-1, socket.getInputStream().read());
+		} finally {
+			socket.close();
+			daemon.close();
+		}
+	}
+
+	/**
+	 * Relative paths are resolved against the working directory of the client
+	 */
+	@Test
+	public void testAbsolutePaths() {
+		String workingDirectory = new File("").getAbsolutePath();
+		List<String> arguments = XmlDocletClient.toAbsolutePaths(Arrays.asList("-sourcepath", "src" + File.pathSeparator
+				+ "/tmp", "-compact", "Foo.java"));
+		assertEquals(Arrays.asList("-sourcepath", workingDirectory + File.separator + "src" + File.pathSeparator
+				+ new File("/tmp").getAbsolutePath(), "-compact", workingDirectory + File.separator + "Foo.java", "-d",
+				workingDirectory), arguments);
+	}
+
+	private static List<String> arguments(File directory) {
+		return new ArrayList<String>(Arrays.asList("-private", "-sourcepath", "./src/test/java", "-subpackages",
+				"com.github.markusbernhardt.xmldoclet.simpledata", "-d", directory.getPath()));
+	}
+}
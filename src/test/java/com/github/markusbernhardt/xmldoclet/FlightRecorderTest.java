@@ -0,0 +1,87 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the flight recorder events
+ */
+public class FlightRecorderTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * A recording contains one event for the tree, one per converted type and
+	 * one for the output
+	 */
+	@Test
+	public void testEvents() throws Exception {
+		Assume.assumeTrue(FlightRecorderEvents.isAvailable());
+
+		File directory = temporaryFolder.getRoot();
+		File recordingFile = new File(directory, "xmldoclet.jfr");
+		Root rootNode;
+		Recording recording = new Recording();
+		try {
+			recording.enable("com.github.markusbernhardt.xmldoclet.ParseRootDoc");
+			recording.enable("com.github.markusbernhardt.xmldoclet.ConvertType");
+			recording.enable("com.github.markusbernhardt.xmldoclet.WriteDocument");
+			recording.start();
+			rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] {
+					"-d", directory.getPath() });
+			recording.stop();
+			recording.dump(recordingFile.toPath());
+		} finally {
+			recording.close();
+		}
+
+		Map<String, RecordedEvent> convertTypeEvents = new HashMap<String, RecordedEvent>();
+		int parseRootDocEvents = 0;
+		int writeDocumentEvents = 0;
+		for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile.toPath())) {
+			String name = event.getEventType().getName();
+			if (name.endsWith(".ConvertType")) {
+				convertTypeEvents.put(event.getString("qualified"), event);
+			} else if (name.endsWith(".ParseRootDoc")) {
+				parseRootDocEvents++;
+			} else if (name.endsWith(".WriteDocument")) {
+				writeDocumentEvents++;
+				assertEquals("save", event.getString("mode"));
+				assertTrue(event.getString("file").endsWith("javadoc.xml"));
+			}
+		}
+		assertEquals(1, parseRootDocEvents);
+		assertEquals(1, writeDocumentEvents);
+
+		Package packageNode = rootNode.getPackage().get(0);
+		assertEquals(packageNode.getClazz().size() + packageNode.getInterface().size()
+				+ packageNode.getEnum().size() + packageNode.getAnnotation().size(), convertTypeEvents.size());
+		for (Class classNode : packageNode.getClazz()) {
+			RecordedEvent event = convertTypeEvents.get(classNode.getQualified());
+			assertEquals("class", event.getString("kind"));
+			assertEquals(classNode.getMethod().size(), event.getInt("methods"));
+			assertEquals(classNode.getField().size(), event.getInt("fields"));
+			assertEquals(classNode.getConstructor().size(), event.getInt("constructors"));
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.simpledata.Annotation3;
+import com.github.markusbernhardt.xmldoclet.simpledata.Class1;
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the type index
+ */
+public class IndexTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * Every type can be read from the document with the position in the
+	 * index, and the document itself is unchanged
+	 */
+	@Test
+	public void testIndex() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA,
+				new String[] { "-d", directory.getPath(), "-filename", "javadoc.xml" });
+		Root indexedRoot = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA,
+				new String[] { "-index", "-d", directory.getPath(), "-filename", "indexed.xml" });
+		assertNull(indexedRoot);
+
+		File document = new File(directory, "indexed.xml");
+		assertArrayEquals(readAllBytes(new File(directory, "javadoc.xml")), readAllBytes(document));
+
+		TypeIndex typeIndex = TypeIndex.read(new File(directory, "indexed.xml.idx"));
+		Package packageNode = rootNode.getPackage().get(0);
+		assertEquals(packageNode.getAnnotation().size() + packageNode.getEnum().size()
+				+ packageNode.getInterface().size() + packageNode.getClazz().size(), typeIndex.size());
+
+		for (TypeIndex.Entry entry : typeIndex.getEntries()) {
+			String element = new String(typeIndex.readElement(document, entry.getQualified()), "UTF-8");
+			assertTrue(element.startsWith("<"));
+			assertTrue(element.endsWith(">"));
+			assertTrue(element.contains("qualified=\"" + entry.getQualified() + "\""));
+		}
+
+		TypeIndex.Entry classEntry = typeIndex.get(Class1.class.getName());
+		assertEquals(TypeIndex.CLASS, classEntry.getKind());
+		Class classNode = JaxbSupport.createUnmarshaller()
+				.unmarshal(new StreamSource(new ByteArrayInputStream(typeIndex.readElement(document,
+						Class1.class.getName()))), Class.class).getValue();
+		assertEquals(Class1.class.getName(), classNode.getQualified());
+
+		TypeIndex.Entry annotationEntry = typeIndex.get(Annotation3.class.getName());
+		assertEquals(TypeIndex.ANNOTATION, annotationEntry.getKind());
+		Annotation annotationNode = JaxbSupport.createUnmarshaller()
+				.unmarshal(new StreamSource(new ByteArrayInputStream(typeIndex.readElement(document,
+						Annotation3.class.getName()))), Annotation.class).getValue();
+		assertEquals(Annotation3.class.getName(), annotationNode.getQualified());
+
+		assertNull(typeIndex.get("com.example.Unknown"));
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the shared JAXB context
+ */
+public class JaxbSupportTest extends AbstractTestParent {
+
+	private final static Logger log = LoggerFactory.getLogger(JaxbSupportTest.class);
+
+	/**
+	 * Every doclet run uses the same context
+	 */
+	@Test
+	public void testSharedContext() throws Exception {
+		JAXBContext context = JaxbSupport.getContext();
+		assertNotNull(context);
+		assertSame(context, JaxbSupport.getContext());
+
+		Marshaller marshaller = JaxbSupport.acquireMarshaller();
+		JaxbSupport.releaseMarshaller(marshaller);
+		assertSame(marshaller, JaxbSupport.acquireMarshaller());
+		JaxbSupport.releaseMarshaller(marshaller);
+	}
+
+	/**
+	 * Measures the startup cost saved by the shared context. Getting the
+	 * shared context and a pooled marshaller for many runs must be cheaper
+	 * than creating one context.
+	 */
+	@Test
+	public void testStartupTime() throws Exception {
+		JaxbSupport.getContext();
+		log.info("Shared JAXB context created in " + JaxbSupport.getContextCreationNanos() / 1000000 + " ms");
+
+		long start = System.nanoTime();
+		JAXBContext.newInstance(Root.class).createMarshaller();
+		long unsharedNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < 100; i++) {
+			JaxbSupport.releaseMarshaller(JaxbSupport.acquireMarshaller());
+		}
+		long sharedNanos = System.nanoTime() - start;
+
+		log.info("New JAXB context: " + unsharedNanos / 1000 + " us, 100 shared marshallers: " + sharedNanos / 1000
+				+ " us");
+		assertTrue(sharedNanos < unsharedNanos);
+	}
+}
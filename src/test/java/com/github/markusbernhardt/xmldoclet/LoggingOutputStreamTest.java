@@ -0,0 +1,133 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit test group for the stream logging the javadoc messages
+ */
+public class LoggingOutputStreamTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Logger log = LoggerFactory.getLogger(LoggingOutputStreamTest.class);
+
+	private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+	private final LoggingLevel recordingLevel = new LoggingLevel() {
+		@Override
+		public void log(Logger log, String message) {
+			messages.add(message);
+		}
+	};
+
+	/**
+	 * Every line is logged once, trimmed, empty lines are skipped
+	 */
+	@Test
+	public void testLines() throws Exception {
+		LoggingOutputStream stream = new LoggingOutputStream(log, recordingLevel, UTF8, 64);
+		stream.write("first line\n\n  second line \r\nthird".getBytes(UTF8));
+		assertEquals(Arrays.asList("first line", "second line"), messages);
+		stream.write('\n');
+		assertEquals(Arrays.asList("first line", "second line", "third"), messages);
+	}
+
+	/**
+	 * Multi-byte characters split between writes and flushes are decoded as a
+	 * whole
+	 */
+	@Test
+	public void testMultiByteCharacters() throws Exception {
+		String line = "Gr\u00fc\u00dfe \u20ac \ud83d\ude00";
+		byte[] bytes = line.getBytes(UTF8);
+		LoggingOutputStream stream = new LoggingOutputStream(log, recordingLevel, UTF8, 64);
+		for (byte b : bytes) {
+			stream.write(b);
+			stream.flush();
+		}
+		stream.write('\n');
+		StringBuilder logged = new StringBuilder();
+		for (String message : messages) {
+			logged.append(message);
+		}
+		assertEquals(line.replace(" ", ""), logged.toString().replace(" ", ""));
+		for (String message : messages) {
+			assertTrue(message, message.indexOf('\ufffd') < 0);
+		}
+	}
+
+	/**
+	 * Long lines are logged in pieces of the maximum length
+	 */
+	@Test
+	public void testMaxLineLength() throws Exception {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			line.append("\u00e4bcdefgh");
+		}
+		LoggingOutputStream stream = new LoggingOutputStream(log, recordingLevel, UTF8, 16);
+		stream.write((line + "\n").getBytes(UTF8));
+		StringBuilder logged = new StringBuilder();
+		for (String message : messages) {
+			assertTrue(message.getBytes(UTF8).length <= 16);
+			logged.append(message);
+		}
+		assertEquals(line.toString(), logged.toString());
+	}
+
+	/**
+	 * Lines written at once by concurrent writers are not mixed
+	 */
+	@Test
+	public void testConcurrentWriters() throws Exception {
+		final LoggingOutputStream stream = new LoggingOutputStream(log, recordingLevel, UTF8, 1024);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final String line = "writer " + t + " \u00fcberall\n";
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 1000; i++) {
+							stream.write(line.getBytes(UTF8));
+						}
+					} catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(4000, messages.size());
+		for (String message : messages) {
+			assertTrue(message, message.matches("writer \\d \u00fcberall"));
+		}
+	}
+
+	/**
+	 * Closing logs the incomplete line, writing afterwards fails
+	 */
+	@Test(expected = IOException.class)
+	public void testClose() throws Exception {
+		LoggingOutputStream stream = new LoggingOutputStream(log, recordingLevel, UTF8, 64);
+		stream.write("last".getBytes(UTF8));
+		stream.close();
+		assertEquals(Arrays.asList("last"), messages);
+		stream.write('x');
+	}
+}
@@ -3,7 +3,9 @@ package com.github.markusbernhardt.xmldoclet;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -36,6 +38,26 @@ public class MethodTest extends AbstractTestParent {
 				new String[] { "-dryrun" });
 	}
 
+	/**
+	 * testing that identical return types share one node
+	 */
+	@Test
+	public void testMethod1SharedTypes() {
+		String[] sourceFiles = new String[] { "./src/test/java/com/github/markusbernhardt/xmldoclet/simpledata/Method1.java" };
+		Root rootNode = executeJavadoc(null, null, null, sourceFiles, null, new String[] { "-dryrun" });
+
+		Package packageNode = rootNode.getPackage().get(0);
+		Class classNode = packageNode.getClazz().get(0);
+		List<Method> testMethods = classNode.getMethod();
+
+		TypeInfo integerNode = findByMethodName("method2", testMethods).getReturn();
+		assertSame(integerNode, findByMethodName("method6", testMethods).getReturn());
+		assertSame(integerNode, findByMethodName("method7", testMethods).getReturn());
+		assertNotSame(integerNode, findByMethodName("method3", testMethods).getReturn());
+		assertSame(findByMethodName("method1", testMethods).getReturn(), findByMethodName("method4", testMethods)
+				.getReturn());
+	}
+
 	/**
 	 * testing a returns of methodNodes
 	 */
@@ -0,0 +1,132 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for annotation types missing on the classpath
+ */
+public class MissingAnnotationTest extends AbstractTestParent {
+
+	/**
+	 * Every occurrence of a missing annotation type is documented, not only
+	 * the first one looked up
+	 */
+	@Test
+	public void testMissingAnnotation() {
+		Root rootNode = executeJavadoc(null, new String[] { "./src/test/resources/missingdata" }, null, null,
+				new String[] { "com.github.markusbernhardt.xmldoclet.missingdata" }, new String[] { "-dryrun" });
+
+		Class classNode = rootNode.getPackage().get(0).getClazz().get(0);
+		assertMissingAnnotation(classNode.getAnnotation().get(0));
+		assertMissingAnnotation(classNode.getField().get(0).getAnnotation().get(0));
+		assertMissingAnnotation(classNode.getMethod().get(0).getAnnotation().get(0));
+		assertEquals("java.lang.Deprecated", classNode.getMethod().get(0).getAnnotation().get(1).getQualified());
+	}
+
+	/**
+	 * Occurrences are counted per type, the qualified name of the first one is
+	 * kept
+	 */
+	@Test
+	public void testOccurrences() {
+		MissingAnnotationTypes missingAnnotationTypes = new MissingAnnotationTypes();
+		assertTrue(missingAnnotationTypes.isEmpty());
+
+		assertEquals("lombok.Data", missingAnnotationTypes.add("lombok.Data", "lombok.Data", "Class1"));
+		assertEquals("lombok.Data", missingAnnotationTypes.add("lombok.Data", null, "Class2"));
+		assertNull(missingAnnotationTypes.add("Generated", null, "Class1"));
+
+		assertFalse(missingAnnotationTypes.isEmpty());
+		assertTrue(missingAnnotationTypes.contains("", "Generated"));
+		assertFalse(missingAnnotationTypes.contains("", "lombok.Value"));
+		assertEquals(Long.valueOf(2), missingAnnotationTypes.getOccurrences().get("lombok.Data"));
+		assertEquals(Long.valueOf(1), missingAnnotationTypes.getOccurrences().get("Generated"));
+		assertEquals(Arrays.asList("Generated", "lombok.Data"),
+				new ArrayList<String>(missingAnnotationTypes.getOccurrences().keySet()));
+	}
+
+	/**
+	 * Caches sharing the lookups know the types missing in each other, but
+	 * count only their own occurrences
+	 */
+	@Test
+	public void testSharedLookups() {
+		MissingAnnotationTypes shared = new MissingAnnotationTypes();
+		MissingAnnotationTypes first = new MissingAnnotationTypes(shared);
+		MissingAnnotationTypes second = new MissingAnnotationTypes(shared);
+		assertEquals("lombok.Data", first.add("p.Class1", "Data", "lombok.Data", "p.Class1"));
+		assertEquals("lombok.Data", first.add("p.Class1", "Data", null, "p.Class1.field"));
+
+		assertFalse(second.isEmpty());
+		assertTrue(second.contains("p.Class1", "Data"));
+		assertTrue(second.getOccurrences().isEmpty());
+		assertEquals("lombok.Data", second.add("p.Class1", "Data", null, "p.Class1"));
+		assertEquals(Long.valueOf(2), first.getOccurrences().get("lombok.Data"));
+		assertEquals(Long.valueOf(1), second.getOccurrences().get("lombok.Data"));
+		assertTrue(shared.getOccurrences().isEmpty());
+	}
+
+	/**
+	 * The same name imported from different packages in two compilation units
+	 * is looked up in each of them and counted by the qualified name reported
+	 * for it
+	 */
+	@Test
+	public void testSameNameDifferentImports() {
+		MissingAnnotationTypes missingAnnotationTypes = new MissingAnnotationTypes();
+		assertEquals("first.Data", missingAnnotationTypes.add("p.Class2", "Data", "first.Data", "p.Class2"));
+		assertTrue(missingAnnotationTypes.contains("p.Class2", "Data"));
+		assertFalse(missingAnnotationTypes.contains("p.Class3", "Data"));
+		assertEquals("second.Data", missingAnnotationTypes.add("p.Class3", "Data", "second.Data", "p.Class3"));
+		assertEquals("first.Data", missingAnnotationTypes.add("p.Class2", "Data", null, "p.Class2.field1"));
+		assertEquals(Long.valueOf(2), missingAnnotationTypes.getOccurrences().get("first.Data"));
+		assertEquals(Long.valueOf(1), missingAnnotationTypes.getOccurrences().get("second.Data"));
+	}
+
+	/**
+	 * Every occurrence of two missing annotation types with the same name from
+	 * different imports is documented with the name javadoc reports for it
+	 */
+	@Test
+	public void testSameNameDifferentImportsDocumented() {
+		XmlDocletRunner runner = new XmlDocletRunner();
+		MissingAnnotationTypes missingAnnotationTypes = new MissingAnnotationTypes();
+		runner.setMissingAnnotationTypes(missingAnnotationTypes);
+		Root rootNode = runner.run(Arrays.asList("-sourcepath", "./src/test/resources/missingdata", "-subpackages",
+				"com.github.markusbernhardt.xmldoclet.missingdata", "-dryrun"), null);
+
+		Class class2Node = null;
+		Class class3Node = null;
+		for (Class classNode : rootNode.getPackage().get(0).getClazz()) {
+			if (classNode.getName().equals("Class2")) {
+				class2Node = classNode;
+			} else if (classNode.getName().equals("Class3")) {
+				class3Node = classNode;
+			}
+		}
+		String qualified = class2Node.getAnnotation().get(0).getQualified();
+		assertTrue(qualified.endsWith("Data"));
+		assertEquals(qualified, class2Node.getField().get(0).getAnnotation().get(0).getQualified());
+		assertEquals(qualified, class3Node.getAnnotation().get(0).getQualified());
+		assertTrue(missingAnnotationTypes.contains(class2Node.getQualified(), "Data"));
+		assertTrue(missingAnnotationTypes.contains(class3Node.getQualified(), "Data"));
+		assertEquals(Long.valueOf(3), missingAnnotationTypes.getOccurrences().get(qualified));
+	}
+
+	private void assertMissingAnnotation(AnnotationInstance annotationNode) {
+		assertEquals("Data", annotationNode.getName());
+		assertEquals("lombok.Data", annotationNode.getQualified());
+	}
+}
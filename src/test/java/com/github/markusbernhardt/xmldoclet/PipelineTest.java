@@ -0,0 +1,76 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.ObjectFactory;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the pipelined output
+ */
+public class PipelineTest extends AbstractTestParent {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The pipelined document is identical to the document marshalled at once
+	 */
+	@Test
+	public void testPipeline() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" }, new String[] {
+				"-d", directory.getPath(), "-filename", "javadoc.xml" });
+		Root pipelinedRoot = executeJavadoc(".", new String[] { "./src/test/java" }, null, null,
+				new String[] { "com" },
+				new String[] { "-pipeline", "1", "-d", directory.getPath(), "-filename", "pipeline.xml" });
+		assertNull(pipelinedRoot);
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" }, new String[] {
+				"-pipeline", "4", "-threads", "2", "-d", directory.getPath(), "-filename", "parallel.xml" });
+
+		byte[] expected = readAllBytes(new File(directory, "javadoc.xml"));
+		assertArrayEquals(expected, readAllBytes(new File(directory, "pipeline.xml")));
+		assertArrayEquals(expected, readAllBytes(new File(directory, "parallel.xml")));
+	}
+
+	/**
+	 * A failure of the writer thread reaches the parsing thread
+	 */
+	@Test
+	public void testPipelineFailure() {
+		RootRecorder recorder = new RootRecorder() {
+			@Override
+			public void addClass(Class classNode) {
+				throw new XmlDocletException("disk full");
+			}
+		};
+		ObjectFactory objectFactory = new ObjectFactory();
+		Root rootNode = objectFactory.createRoot();
+		Package packageNode = objectFactory.createPackage();
+
+		PipelinedRootListener listener = new PipelinedRootListener(recorder, 1);
+		try {
+			listener.startRoot(rootNode);
+			listener.startPackage(packageNode);
+			listener.addClass(objectFactory.createClass());
+			listener.endPackage(packageNode);
+			listener.endRoot(rootNode);
+			fail("XmlDocletException expected");
+		} catch (XmlDocletException e) {
+			assertEquals("disk full", e.getCause().getMessage());
+		} finally {
+			listener.close();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the output assembled from package fragments
+ */
+public class SpillTest extends AbstractTestParent {
+
+	private static final String[] SOURCE_PATHS = new String[] { "./src/main/java", "./src/test/java" };
+
+	private static final String[] SUBPACKAGES = new String[] { "com.github.markusbernhardt.xmldoclet" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The assembled document is identical to the document written at once
+	 * and no fragment is left over
+	 */
+	@Test
+	public void testSpill() throws Exception {
+		assertSameAsSave();
+	}
+
+	/**
+	 * Same with the compact output
+	 */
+	@Test
+	public void testSpillCompact() throws Exception {
+		assertSameAsSave("-compact");
+	}
+
+	/**
+	 * Same with the type table, written after the fragments
+	 */
+	@Test
+	public void testSpillTypeTable() throws Exception {
+		assertSameAsSave("-typetable");
+	}
+
+	/**
+	 * Same with the packages converted in parallel and written on a separate
+	 * thread
+	 */
+	@Test
+	public void testSpillThreadsAndPipeline() throws Exception {
+		assertSameAsSave("-threads", "4", "-pipeline", "2");
+	}
+
+	/**
+	 * The fragments are copied through the compressing stream
+	 */
+	@Test
+	public void testSpillCompressed() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		executeJavadoc(".", SOURCE_PATHS, null, null, SUBPACKAGES, new String[] { "-d", directory.getPath(),
+				"-filename", "javadoc.xml" });
+		executeJavadoc(".", SOURCE_PATHS, null, null, SUBPACKAGES, new String[] { "-spill", "-compress", "gzip",
+				"-d", directory.getPath(), "-filename", "spill.xml" });
+
+		assertArrayEquals(readAllBytes(new File(directory, "javadoc.xml")),
+				readGzip(new File(directory, "spill.xml.gz")));
+		assertEquals(Arrays.asList("javadoc.xml", "spill.xml.gz"), listFiles(directory));
+	}
+
+	private void assertSameAsSave(String... options) throws Exception {
+		File directory = temporaryFolder.getRoot();
+		List<String> arguments = new ArrayList<String>(Arrays.asList(options));
+		arguments.addAll(Arrays.asList("-d", directory.getPath()));
+		List<String> saveArguments = new ArrayList<String>(arguments);
+		saveArguments.addAll(Arrays.asList("-filename", "javadoc.xml"));
+		executeJavadoc(".", SOURCE_PATHS, null, null, SUBPACKAGES,
+				saveArguments.toArray(new String[saveArguments.size()]));
+
+		arguments.addAll(Arrays.asList("-spill", "-filename", "spill.xml"));
+		Root spilledRoot = executeJavadoc(".", SOURCE_PATHS, null, null, SUBPACKAGES,
+				arguments.toArray(new String[arguments.size()]));
+		assertNull(spilledRoot);
+
+		assertArrayEquals(readAllBytes(new File(directory, "javadoc.xml")),
+				readAllBytes(new File(directory, "spill.xml")));
+		assertEquals(Arrays.asList("javadoc.xml", "spill.xml"), listFiles(directory));
+	}
+
+	private static List<String> listFiles(File directory) {
+		String[] names = directory.list();
+		Arrays.sort(names);
+		return Arrays.asList(names);
+	}
+
+	private static byte[] readGzip(File file) throws Exception {
+		InputStream inputStream = new GZIPInputStream(new FileInputStream(file));
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) >= 0) {
+				outputStream.write(buffer, 0, read);
+			}
+			return outputStream.toByteArray();
+		} finally {
+			inputStream.close();
+		}
+	}
+}
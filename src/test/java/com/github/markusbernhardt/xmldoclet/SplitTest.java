@@ -0,0 +1,164 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.Marshaller;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.apache.commons.cli.CommandLine;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.ObjectFactory;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the output split by package
+ */
+public class SplitTest extends AbstractTestParent {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * Every package file is valid, contains exactly the package of the unsplit
+	 * document and is listed in the manifest
+	 */
+	@Test
+	public void testSplit() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" },
+				new String[] { "-dryrun" });
+		Root splitRoot = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" },
+				new String[] { "-split", "package", "-d", directory.getPath() });
+		assertNull(splitRoot);
+
+		NodeList manifestEntries = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new File(directory, "javadoc.manifest.xml")).getDocumentElement()
+				.getElementsByTagName("package");
+		assertEquals(rootNode.getPackage().size(), manifestEntries.getLength());
+
+		SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		Schema schema = schemaFactory.newSchema(new File("./src/main/xjc/javadoc.xsd"));
+		for (int i = 0; i < rootNode.getPackage().size(); i++) {
+			Package packageNode = rootNode.getPackage().get(i);
+			Element manifestEntry = (Element) manifestEntries.item(i);
+			assertEquals(packageNode.getName(), manifestEntry.getAttribute("name"));
+
+			File packageFile = new File(directory, manifestEntry.getAttribute("file"));
+			assertEquals("javadoc-" + packageNode.getName() + ".xml", packageFile.getName());
+			assertEquals(String.valueOf(packageFile.length()), manifestEntry.getAttribute("size"));
+			int types = packageNode.getAnnotation().size() + packageNode.getEnum().size()
+					+ packageNode.getInterface().size() + packageNode.getClazz().size();
+			assertEquals(String.valueOf(types), manifestEntry.getAttribute("types"));
+			schema.newValidator().validate(new StreamSource(packageFile));
+
+			Root packageRoot = new ObjectFactory().createRoot();
+			packageRoot.getPackage().add(packageNode);
+			Marshaller marshaller = JaxbSupport.acquireMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			marshaller.marshal(packageRoot, expected);
+			JaxbSupport.releaseMarshaller(marshaller);
+			assertArrayEquals(expected.toByteArray(), readAllBytes(packageFile));
+		}
+	}
+
+	/**
+	 * The types are collected in a copy of the package node passed by the
+	 * parser, which keeps that node until the end of the run
+	 */
+	@Test
+	public void testPackageNodeNotFilled() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		SplitRootWriter splitRootWriter = new SplitRootWriter(directory, "javadoc.xml", "UTF-8", true, null, 1);
+		try {
+			Package packageNode = new Package();
+			packageNode.setName("com.example");
+			Class classNode = new Class();
+			classNode.setName("Example");
+			classNode.setQualified("com.example.Example");
+
+			splitRootWriter.startRoot(new Root());
+			splitRootWriter.startPackage(packageNode);
+			splitRootWriter.addClass(classNode);
+			splitRootWriter.endPackage(packageNode);
+			splitRootWriter.endRoot(new Root());
+
+			assertTrue(packageNode.getClazz().isEmpty());
+			Element manifestEntry = (Element) DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.parse(new File(directory, "javadoc.manifest.xml")).getDocumentElement()
+					.getElementsByTagName("package").item(0);
+			assertEquals("1", manifestEntry.getAttribute("types"));
+		} finally {
+			splitRootWriter.close();
+		}
+	}
+
+	/**
+	 * The options writing a single document are rejected instead of being
+	 * ignored
+	 */
+	@Test
+	public void testSplitRejectsSingleDocumentOptions() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		for (String[] options : new String[][] { { "-stream" }, { "-pipeline", "2" }, { "-index" } }) {
+			String[] arguments = new String[options.length + 4];
+			System.arraycopy(options, 0, arguments, 0, options.length);
+			System.arraycopy(new String[] { "-split", "package", "-d", directory.getPath() }, 0, arguments,
+					options.length, 4);
+			executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" }, arguments);
+			assertFalse(options[0], new File(directory, "javadoc.manifest.xml").exists());
+		}
+	}
+
+	/**
+	 * Closing the writer stops its threads, also if the run never ended
+	 */
+	@Test
+	public void testClose() throws Exception {
+		SplitRootWriter splitRootWriter = new SplitRootWriter(temporaryFolder.getRoot(), "javadoc.xml", "UTF-8",
+				true, null, 2);
+		splitRootWriter.startRoot(new Root());
+		splitRootWriter.close();
+		assertTrue(splitRootWriter.executor.isShutdown());
+	}
+
+	/**
+	 * The files reported for a split run are the manifest and every package
+	 * file, all of them written
+	 */
+	@Test
+	public void testSplitOutputFiles() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		String[] arguments = new String[] { "-split", "package", "-d", directory.getPath(), "-filename", "api.xml",
+				"-compress", "gzip" };
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" }, arguments);
+
+		CommandLine commandLine = XmlDoclet.parseCommandLine(new String[][] { { "-split", "package" },
+				{ "-d", directory.getPath() }, { "-filename", "api.xml" }, { "-compress", "gzip" } });
+		List<File> outputFiles = XmlDoclet.getOutputFiles(commandLine);
+		assertEquals(new File(directory, "api.manifest.xml"), outputFiles.get(0));
+		assertEquals(directory.listFiles().length, outputFiles.size());
+		for (File outputFile : outputFiles) {
+			assertTrue(outputFile.getPath(), outputFile.isFile());
+		}
+	}
+}
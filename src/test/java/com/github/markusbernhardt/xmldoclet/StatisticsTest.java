@@ -0,0 +1,102 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the statistics
+ */
+public class StatisticsTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The statistics file contains the phases and the nodes of the document
+	 */
+	@Test
+	public void testStatisticsFile() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		File statisticsFile = new File(directory, "stats.json");
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] {
+				"-statsfile", statisticsFile.getPath(), "-d", directory.getPath() });
+
+		int classes = 0;
+		int methods = 0;
+		for (Package packageNode : rootNode.getPackage()) {
+			classes += packageNode.getClazz().size();
+			for (Class classNode : packageNode.getClazz()) {
+				methods += classNode.getMethod().size();
+			}
+		}
+
+		String statistics = new String(readAllBytes(statisticsFile), "UTF-8");
+		assertEquals(1, number(statistics, "packages"));
+		assertEquals(classes, number(statistics, "classes"));
+		assertTrue(number(statistics, "methods") >= methods);
+		assertTrue(number(statistics, "typeInfos") > 0);
+		assertEquals(new File(directory, "javadoc.xml").length(), number(statistics, "outputBytes"));
+		assertTrue(statistics.contains("\"parse\": { \"wallNanos\": "));
+		assertTrue(statistics.contains("\"write\": { \"wallNanos\": "));
+		assertTrue(statistics.contains("\"qualified\": \"com.github.markusbernhardt.xmldoclet.simpledata."));
+	}
+
+	/**
+	 * The statistics count the nodes streamed to the output file, too
+	 */
+	@Test
+	public void testStatisticsStream() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		File statisticsFile = new File(directory, "stats.json");
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA,
+				new String[] { "-dryrun" });
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-stream",
+				"-statsfile", statisticsFile.getPath(), "-d", directory.getPath() });
+
+		String statistics = new String(readAllBytes(statisticsFile), "UTF-8");
+		assertEquals(rootNode.getPackage().get(0).getClazz().size(), number(statistics, "classes"));
+		assertEquals(rootNode.getPackage().get(0).getEnum().size(), number(statistics, "enums"));
+		assertTrue(statistics.contains("\"parse and write\": { \"wallNanos\": "));
+	}
+
+	/**
+	 * The phase javadoc of an in-process run starts with the run, not with the
+	 * JVM, and the peak heap is sampled during the run
+	 */
+	@Test
+	public void testStatisticsRunStart() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		File statisticsFile = new File(directory, "stats.json");
+		long start = System.nanoTime();
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, SIMPLEDATA, new String[] { "-statsfile",
+				statisticsFile.getPath(), "-dryrun" });
+		long runNanos = System.nanoTime() - start;
+
+		String statistics = new String(readAllBytes(statisticsFile), "UTF-8");
+		Matcher matcher = Pattern.compile("\"javadoc\": \\{ \"wallNanos\": ([0-9]+), \"processCpuNanos\": (-?[0-9]+)")
+				.matcher(statistics);
+		assertTrue(matcher.find());
+		assertTrue(Long.parseLong(matcher.group(1)) <= runNanos);
+		assertTrue(number(statistics, "peakHeapBytes") > 0);
+	}
+
+	private static long number(String json, String name) {
+		Matcher matcher = Pattern.compile("\"" + name + "\": (-?[0-9]+)").matcher(json);
+		assertTrue(name, matcher.find());
+		return Long.parseLong(matcher.group(1));
+	}
+}
@@ -0,0 +1,121 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.Marshaller;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the streaming output
+ */
+public class StreamTest extends AbstractTestParent {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The streamed document is valid and identical to the document marshalled
+	 * at once
+	 */
+	@Test
+	public void testStream() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		Root streamedRoot = executeJavadoc(".", new String[] { "./src/test/java" }, null, null,
+				new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" },
+				new String[] { "-stream", "-d", directory.getPath(), "-filename", "stream.xml" });
+		assertNull(streamedRoot);
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null,
+				new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" },
+				new String[] { "-d", directory.getPath(), "-filename", "javadoc.xml" });
+
+		File streamedFile = new File(directory, "stream.xml");
+		SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		Schema schema = schemaFactory.newSchema(new File("./src/main/xjc/javadoc.xsd"));
+		schema.newValidator().validate(new StreamSource(streamedFile));
+
+		assertArrayEquals(readAllBytes(new File(directory, "javadoc.xml")), readAllBytes(streamedFile));
+	}
+
+	/**
+	 * A writer closed without ending the document returns its marshaller to
+	 * the pool exactly once
+	 */
+	@Test
+	public void testCloseReleasesMarshaller() throws Exception {
+		StreamingRootWriter streamingRootWriter = new StreamingRootWriter(new ByteArrayOutputStream(), "UTF-8", true);
+		streamingRootWriter.startRoot(new Root());
+		streamingRootWriter.close();
+		streamingRootWriter.close();
+
+		// drains the pool, which holds at most 16 marshallers
+		List<Marshaller> marshallers = new ArrayList<Marshaller>();
+		for (int i = 0; i < 17; i++) {
+			marshallers.add(JaxbSupport.acquireMarshaller());
+		}
+		try {
+			assertEquals(1, Collections.frequency(marshallers, streamingRootWriter.marshaller));
+		} finally {
+			for (Marshaller marshaller : marshallers) {
+				JaxbSupport.releaseMarshaller(marshaller);
+			}
+		}
+	}
+
+	/**
+	 * The stream writer escapes and indents exactly like JAXB, also non-ASCII
+	 * characters, surrogate pairs, carriage returns and characters the
+	 * encoding can't represent
+	 */
+	@Test
+	public void testSameAsJaxb() throws Exception {
+		Root rootNode = XmlModelWriterTest.createEdgeCaseRoot();
+		for (String encoding : new String[] { "UTF-8", "ISO-8859-1", "US-ASCII" }) {
+			for (boolean indent : new boolean[] { true, false }) {
+				Marshaller marshaller = JaxbSupport.acquireMarshaller();
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				try {
+					marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, indent);
+					marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+					marshaller.marshal(rootNode, expected);
+				} finally {
+					JaxbSupport.releaseMarshaller(marshaller);
+				}
+
+				ByteArrayOutputStream actual = new ByteArrayOutputStream();
+				StreamingRootWriter streamingRootWriter = new StreamingRootWriter(actual, encoding, indent);
+				streamingRootWriter.startRoot(rootNode);
+				for (Package packageNode : rootNode.getPackage()) {
+					streamingRootWriter.startPackage(packageNode);
+					for (Class classNode : packageNode.getClazz()) {
+						streamingRootWriter.addClass(classNode);
+					}
+					streamingRootWriter.endPackage(packageNode);
+				}
+				streamingRootWriter.endRoot(rootNode);
+
+				assertEquals(encoding + " " + indent, new String(expected.toByteArray(), encoding), new String(
+						actual.toByteArray(), encoding));
+				assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the parallel conversion
+ */
+public class ThreadsTest extends AbstractTestParent {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * A parallel run writes exactly the same document as a single threaded run
+	 */
+	@Test
+	public void testThreads() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		Root singleRoot = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" },
+				new String[] { "-d", directory.getPath(), "-filename", "single.xml" });
+		Root parallelRoot = executeJavadoc(".", new String[] { "./src/test/java" }, null, null,
+				new String[] { "com" },
+				new String[] { "-threads", "4", "-d", directory.getPath(), "-filename", "parallel.xml" });
+
+		assertEquals(2, singleRoot.getPackage().size());
+		assertEquals(singleRoot.getPackage().size(), parallelRoot.getPackage().size());
+		assertArrayEquals(readAllBytes(new File(directory, "single.xml")),
+				readAllBytes(new File(directory, "parallel.xml")));
+	}
+
+	/**
+	 * Parallel conversion combined with the streaming output
+	 */
+	@Test
+	public void testThreadsStream() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" }, new String[] {
+				"-d", directory.getPath(), "-filename", "single.xml" });
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" }, new String[] {
+				"-stream", "-threads", "3", "-d", directory.getPath(), "-filename", "parallel.xml" });
+
+		assertArrayEquals(readAllBytes(new File(directory, "single.xml")),
+				readAllBytes(new File(directory, "parallel.xml")));
+	}
+}
@@ -0,0 +1,82 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+
+/**
+ * Unit test group for the interned type nodes
+ */
+public class TypeInfoCacheTest extends AbstractTestParent {
+
+	private static final String SIMPLEDATA = "com.github.markusbernhardt.xmldoclet.simpledata";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * No output mode modifies the shared type nodes, so a cache shared between
+	 * runs still holds the nodes as they were created
+	 */
+	@Test
+	public void testNodesNotModified() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		TypeInfoCache typeInfoCache = new TypeInfoCache();
+		run(typeInfoCache, "-dryrun");
+		Map<String, String> expected = snapshot(typeInfoCache);
+		assertTrue(expected.size() > 0);
+
+		run(typeInfoCache, "-d", directory.getPath(), "-stats");
+		run(typeInfoCache, "-d", directory.getPath(), "-compact", "-threads", "2");
+		run(typeInfoCache, "-d", directory.getPath(), "-stream", "-index");
+		run(typeInfoCache, "-d", directory.getPath(), "-pipeline", "2", "-compress", "gzip");
+		run(typeInfoCache, "-d", directory.getPath(), "-spill");
+		run(typeInfoCache, "-d", new File(directory, "split").getPath(), "-split", "package");
+		run(typeInfoCache, "-d", directory.getPath(), "-typetable");
+		assertEquals(expected, snapshot(typeInfoCache));
+	}
+
+	private static void run(TypeInfoCache typeInfoCache, String... options) {
+		List<String> arguments = new ArrayList<String>(Arrays.asList(options));
+		arguments.addAll(Arrays.asList("-sourcepath", "./src/test/java", "-subpackages", SIMPLEDATA));
+		XmlDocletRunner runner = new XmlDocletRunner();
+		runner.setTypeInfoCache(typeInfoCache);
+		runner.run(arguments, null);
+	}
+
+	/**
+	 * Marshals every cached node, keyed on its cache key.
+	 */
+	private static Map<String, String> snapshot(TypeInfoCache typeInfoCache) throws Exception {
+		Map<String, String> snapshot = new TreeMap<String, String>();
+		Marshaller marshaller = JaxbSupport.acquireMarshaller();
+		try {
+			for (Map.Entry<String, TypeInfo> entry : typeInfoCache.typeInfos.entrySet()) {
+				StringWriter writer = new StringWriter();
+				marshaller.marshal(new JAXBElement<TypeInfo>(new QName("type"), TypeInfo.class, entry.getValue()),
+						writer);
+				snapshot.put(entry.getKey(), writer.toString());
+			}
+		} finally {
+			JaxbSupport.releaseMarshaller(marshaller);
+		}
+		return snapshot;
+	}
+}
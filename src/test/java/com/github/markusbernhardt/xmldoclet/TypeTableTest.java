@@ -0,0 +1,87 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+
+/**
+ * Unit test group for the type table output mode
+ */
+public class TypeTableTest extends AbstractTestParent {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * testing the references of method return types
+	 */
+	@Test
+	public void testTypeTable() {
+		String[] sourceFiles = new String[] { "./src/test/java/com/github/markusbernhardt/xmldoclet/simpledata/Method1.java" };
+		Root rootNode = executeJavadoc(null, null, null, sourceFiles, null, new String[] { "-dryrun", "-typetable" });
+
+		Package packageNode = rootNode.getPackage().get(0);
+		Class classNode = packageNode.getClazz().get(0);
+		assertNotNull(rootNode.getTypes());
+
+		Method methodNode = classNode.getMethod().get(1);
+		assertEquals("method2", methodNode.getName());
+		TypeInfo returnNode = methodNode.getReturn();
+		assertNull(returnNode.getQualified());
+		assertNull(returnNode.getId());
+
+		TypeInfo typeNode = (TypeInfo) returnNode.getRef();
+		assertEquals("java.lang.Integer", typeNode.getQualified());
+		assertNotNull(typeNode.getId());
+		assertSame(typeNode, rootNode.getTypes().getType().get(rootNode.getTypes().getType().indexOf(typeNode)));
+	}
+
+	/**
+	 * The written document is valid, its references resolve and streaming
+	 * writes the same document
+	 */
+	@Test
+	public void testTypeTableFile() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null,
+				new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" }, new String[] { "-typetable",
+						"-d", directory.getPath(), "-filename", "javadoc.xml" });
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null,
+				new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" }, new String[] { "-typetable",
+						"-stream", "-threads", "2", "-d", directory.getPath(), "-filename", "stream.xml" });
+
+		File file = new File(directory, "javadoc.xml");
+		SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		schemaFactory.newSchema(new File("./src/main/xjc/javadoc.xsd")).newValidator()
+				.validate(new StreamSource(file));
+		assertArrayEquals(readAllBytes(file), readAllBytes(new File(directory, "stream.xml")));
+
+		Root rootNode = (Root) JAXBContext.newInstance(Root.class).createUnmarshaller().unmarshal(file);
+		for (Package packageNode : rootNode.getPackage()) {
+			for (Class classNode : packageNode.getClazz()) {
+				for (Method methodNode : classNode.getMethod()) {
+					assertNotNull(((TypeInfo) methodNode.getReturn().getRef()).getQualified());
+				}
+			}
+		}
+	}
+}
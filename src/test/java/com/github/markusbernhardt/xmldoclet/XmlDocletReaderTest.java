@@ -0,0 +1,288 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.Types;
+
+/**
+ * Unit test group for the pull reader of the generated document
+ */
+public class XmlDocletReaderTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The nodes read back are written to the same document
+	 */
+	@Test
+	public void testReadWrite() throws Exception {
+		assertReadWrite(true);
+	}
+
+	/**
+	 * Same with the compact output
+	 */
+	@Test
+	public void testReadWriteCompact() throws Exception {
+		assertReadWrite(false, "-compact");
+	}
+
+	/**
+	 * Same with the type table, the references point to its nodes
+	 */
+	@Test
+	public void testReadWriteTypeTable() throws Exception {
+		Root rootNode = assertReadWrite(true, "-typetable");
+		assertNotNull(rootNode.getTypes());
+		for (Package packageNode : rootNode.getPackage()) {
+			for (Class classNode : packageNode.getClazz()) {
+				TypeInfo superclass = classNode.getClazz();
+				if (superclass != null) {
+					TypeInfo typeInfo = (TypeInfo) superclass.getRef();
+					assertTrue(rootNode.getTypes().getType().contains(typeInfo));
+					assertNotNull(typeInfo.getQualified());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The iterator returns the types of the document in order, each with its
+	 * package
+	 */
+	@Test
+	public void testIterator() throws Exception {
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-dryrun" });
+		List<String> expected = new ArrayList<String>();
+		for (Package packageNode : rootNode.getPackage()) {
+			for (Annotation annotationNode : packageNode.getAnnotation()) {
+				expected.add(packageNode.getName() + " " + annotationNode.getQualified());
+			}
+			for (Enum enumNode : packageNode.getEnum()) {
+				expected.add(packageNode.getName() + " " + enumNode.getQualified());
+			}
+			for (Interface interfaceNode : packageNode.getInterface()) {
+				expected.add(packageNode.getName() + " " + interfaceNode.getQualified());
+			}
+			for (Class classNode : packageNode.getClazz()) {
+				expected.add(packageNode.getName() + " " + classNode.getQualified());
+			}
+		}
+
+		List<String> actual = new ArrayList<String>();
+		XmlDocletReader reader = new XmlDocletReader(new ByteArrayInputStream(write(rootNode, true)));
+		try {
+			while (reader.hasNext()) {
+				Object typeNode = reader.next();
+				String qualified;
+				if (typeNode instanceof Annotation) {
+					qualified = ((Annotation) typeNode).getQualified();
+				} else if (typeNode instanceof Enum) {
+					qualified = ((Enum) typeNode).getQualified();
+				} else if (typeNode instanceof Interface) {
+					qualified = ((Interface) typeNode).getQualified();
+				} else {
+					qualified = ((Class) typeNode).getQualified();
+				}
+				actual.add(reader.getPackage().getName() + " " + qualified);
+				assertTrue(reader.getPackage().getClazz().isEmpty());
+			}
+			assertNull(reader.getTypes());
+		} finally {
+			reader.close();
+		}
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * With the type table read in advance, the references of every type
+	 * returned by the iterator are resolved immediately
+	 */
+	@Test
+	public void testIteratorTypeTable() throws Exception {
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-dryrun", "-typetable" });
+		byte[] document = write(rootNode, true);
+		Types types = XmlDocletReader.readTypes(new ByteArrayInputStream(document));
+		assertEquals(rootNode.getTypes().getType().size(), types.getType().size());
+
+		XmlDocletReader reader = new XmlDocletReader(new ByteArrayInputStream(document), types);
+		int references = 0;
+		try {
+			while (reader.hasNext()) {
+				Object typeNode = reader.next();
+				if (typeNode instanceof Class) {
+					for (Method methodNode : ((Class) typeNode).getMethod()) {
+						TypeInfo returnNode = methodNode.getReturn();
+						if (returnNode != null && returnNode.getRef() != null) {
+							TypeInfo typeInfo = (TypeInfo) returnNode.getRef();
+							assertTrue(types.getType().contains(typeInfo));
+							assertNotNull(typeInfo.getQualified());
+							references++;
+						}
+					}
+				}
+			}
+			assertSame(types, reader.getTypes());
+		} finally {
+			reader.close();
+		}
+		assertTrue(references > 0);
+	}
+
+	/**
+	 * Without the type table, the iterator fails on the first reference
+	 * instead of returning empty nodes
+	 */
+	@Test(expected = XmlDocletException.class)
+	public void testIteratorTypeTableMissing() throws Exception {
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-dryrun", "-typetable" });
+		XmlDocletReader reader = new XmlDocletReader(new ByteArrayInputStream(write(rootNode, true)));
+		try {
+			while (reader.hasNext()) {
+				reader.next();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * The iterator ends after the last type
+	 */
+	@Test(expected = NoSuchElementException.class)
+	public void testIteratorEnd() throws Exception {
+		XmlDocletReader reader = new XmlDocletReader(new ByteArrayInputStream(write(new Root(), true)));
+		assertFalse(reader.hasNext());
+		reader.next();
+	}
+
+	/**
+	 * Skipped elements are passed over, everything else is read
+	 */
+	@Test
+	public void testSkip() throws Exception {
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-dryrun", "-typetable" });
+		XmlDocletReader reader = new XmlDocletReader(new ByteArrayInputStream(write(rootNode, true)), "comment",
+				"tag", "types");
+		RootBuilder builder = new RootBuilder();
+		try {
+			reader.read(builder);
+		} finally {
+			reader.close();
+		}
+		Root readRoot = builder.getRoot();
+
+		assertNull(readRoot.getTypes());
+		assertEquals(rootNode.getPackage().size(), readRoot.getPackage().size());
+		assertEquals(countTypes(rootNode), countTypes(readRoot));
+		int methods = 0;
+		for (Package packageNode : readRoot.getPackage()) {
+			assertNull(packageNode.getComment());
+			assertTrue(packageNode.getTag().isEmpty());
+			for (Class classNode : packageNode.getClazz()) {
+				assertNull(classNode.getComment());
+				assertTrue(classNode.getTag().isEmpty());
+				for (Method methodNode : classNode.getMethod()) {
+					assertNull(methodNode.getComment());
+					assertTrue(methodNode.getTag().isEmpty());
+					assertNotNull(methodNode.getName());
+					methods++;
+				}
+			}
+		}
+		assertTrue(methods > 0);
+	}
+
+	/**
+	 * A package without types is reported like any other
+	 */
+	@Test
+	public void testEmptyPackage() throws Exception {
+		Root rootNode = new Root();
+		Package packageNode = new Package();
+		packageNode.setName("empty");
+		packageNode.setComment("comment");
+		rootNode.getPackage().add(packageNode);
+
+		RootBuilder builder = new RootBuilder();
+		XmlDocletReader reader = new XmlDocletReader(new ByteArrayInputStream(write(rootNode, false)));
+		try {
+			reader.read(builder);
+		} finally {
+			reader.close();
+		}
+		assertEquals(1, builder.getRoot().getPackage().size());
+		assertEquals("empty", builder.getRoot().getPackage().get(0).getName());
+		assertEquals("comment", builder.getRoot().getPackage().get(0).getComment());
+	}
+
+	private Root assertReadWrite(boolean formatted, String... options) throws Exception {
+		File directory = temporaryFolder.getRoot();
+		String[] arguments = new String[options.length + 2];
+		System.arraycopy(options, 0, arguments, 0, options.length);
+		arguments[options.length] = "-d";
+		arguments[options.length + 1] = directory.getPath();
+		executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null, arguments);
+		byte[] expected = readAllBytes(new File(directory, "javadoc.xml"));
+
+		RootBuilder builder = new RootBuilder();
+		XmlDocletReader reader = new XmlDocletReader(new ByteArrayInputStream(expected));
+		try {
+			reader.read(builder);
+		} finally {
+			reader.close();
+		}
+		Root rootNode = builder.getRoot();
+		assertSame(rootNode.getTypes(), reader.getTypes());
+		assertArrayEquals(expected, write(rootNode, formatted));
+		return rootNode;
+	}
+
+	private static byte[] write(Root rootNode, boolean formatted) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		new XmlModelWriter(outputStream, formatted).write(rootNode);
+		return outputStream.toByteArray();
+	}
+
+	private static int countTypes(Root rootNode) {
+		int count = 0;
+		for (Package packageNode : rootNode.getPackage()) {
+			count += packageNode.getAnnotation().size() + packageNode.getEnum().size()
+					+ packageNode.getInterface().size() + packageNode.getClazz().size();
+		}
+		return count;
+	}
+}
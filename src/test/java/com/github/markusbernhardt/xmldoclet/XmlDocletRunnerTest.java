@@ -0,0 +1,175 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the in-process runner
+ */
+public class XmlDocletRunnerTest extends AbstractTestParent {
+
+	private static final List<String> SIMPLEDATA = Arrays.asList("-private", "-sourcepath", "./src/test/java",
+			"-subpackages", "com.github.markusbernhardt.xmldoclet.simpledata");
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * In-memory sources are documented without any file being written
+	 */
+	@Test
+	public void testMemorySource() {
+		String code = "package memory;\n/** Held in memory. */\npublic class Memory {\n"
+				+ "\t/** @return the answer */\n\tpublic int answer() { return 42; }\n}\n";
+		Root rootNode = new XmlDocletRunner().parse(Collections.<String> emptyList(),
+				Arrays.asList(XmlDocletRunner.createSource("memory.Memory", code)));
+
+		Class classNode = rootNode.getPackage().get(0).getClazz().get(0);
+		assertEquals("memory.Memory", classNode.getQualified());
+		assertEquals("Held in memory.", classNode.getComment());
+		assertEquals("answer", classNode.getMethod().get(0).getName());
+	}
+
+	/**
+	 * Source files given as paths are documented like on the command line
+	 */
+	@Test
+	public void testSourceFiles() {
+		File sourceFile = new File("./src/test/java/com/github/markusbernhardt/xmldoclet/simpledata/Class1.java");
+		Root rootNode = new XmlDocletRunner().parse(Arrays.asList("-private"), sourceFile);
+		assertEquals("com.github.markusbernhardt.xmldoclet.simpledata.Class1", rootNode.getPackage().get(0)
+				.getClazz().get(0).getQualified());
+	}
+
+	/**
+	 * The streamed document is identical to the output file of a run
+	 */
+	@Test
+	public void testWrite() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		List<String> arguments = new ArrayList<String>(SIMPLEDATA);
+		arguments.addAll(Arrays.asList("-d", directory.getPath(), "-stream"));
+		XmlDocletRunner runner = new XmlDocletRunner();
+		assertNull(runner.run(arguments, null));
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		runner.write(SIMPLEDATA, null, outputStream);
+		assertArrayEquals(readAllBytes(new File(directory, "javadoc.xml")), outputStream.toByteArray());
+	}
+
+	/**
+	 * Concurrent runs in one JVM do not interfere
+	 */
+	@Test
+	public void testConcurrentRuns() throws Exception {
+		final XmlDocletRunner runner = new XmlDocletRunner();
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		runner.write(SIMPLEDATA, null, expected);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executorService.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() {
+						ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+						runner.write(SIMPLEDATA, null, outputStream);
+						return outputStream.toByteArray();
+					}
+				}));
+			}
+			for (Future<byte[]> future : futures) {
+				assertArrayEquals(expected.toByteArray(), future.get());
+			}
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Without a writer, the javadoc messages are logged with the level of
+	 * their kind
+	 */
+	@Test
+	public void testMessageLevels() {
+		final List<String> messages = new ArrayList<String>();
+		final Logger logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(),
+				new java.lang.Class<?>[] { Logger.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (args != null && args.length == 1 && args[0] instanceof String) {
+							synchronized (messages) {
+								messages.add(method.getName() + " " + args[0]);
+							}
+						}
+						return null;
+					}
+				});
+		XmlDocletRunner runner = new XmlDocletRunner() {
+			@Override
+			protected MessageWriters createMessageWriters() {
+				return new MessageWriters(logger);
+			}
+		};
+		String code = "package memory;\n/** @see \"unterminated */\npublic class Memory {}\n";
+		runner.parse(Collections.<String> emptyList(),
+				Arrays.asList(XmlDocletRunner.createSource("memory.Memory", code)));
+		try {
+			runner.parse(Collections.<String> emptyList(),
+					Arrays.asList(XmlDocletRunner.createSource("memory.Broken", "package memory; class {")));
+			fail();
+		} catch (XmlDocletException e) {
+			// expected
+		}
+
+		assertTrue(messages.toString(), contains(messages, "warn ", "Memory.java:3: warning"));
+		assertTrue(messages.toString(), contains(messages, "error ", "Broken.java:1: error"));
+		assertTrue(messages.toString(), contains(messages, "info ", "Loading source"));
+		assertFalse(messages.toString(), contains(messages, "info ", "Memory.java:"));
+	}
+
+	private static boolean contains(List<String> messages, String level, String text) {
+		for (String message : messages) {
+			if (message.startsWith(level) && message.contains(text)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A failing javadoc run is reported as exception
+	 */
+	@Test(expected = XmlDocletException.class)
+	public void testFailure() {
+		new XmlDocletRunner().parse(Arrays.asList("-threads", "0"),
+				Arrays.asList(XmlDocletRunner.createSource("memory.Memory", "package memory; public class Memory {}")));
+	}
+}
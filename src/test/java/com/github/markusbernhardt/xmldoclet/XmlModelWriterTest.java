@@ -0,0 +1,200 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import javax.xml.bind.Marshaller;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationArgument;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.MethodParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TagInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.Types;
+
+/**
+ * Unit test group for the JAXB free writer
+ */
+public class XmlModelWriterTest extends AbstractTestParent {
+
+	private static final String[] SIMPLEDATA = new String[] { "com.github.markusbernhardt.xmldoclet.simpledata" };
+
+	private static final String SPECIAL_CHARACTERS = "a&b<c>d\"e'f\tg\rh\ni]]>j \u00e9\u20ac\ud83d\ude00 \u0001";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The whole test corpus is written exactly like JAXB does
+	 */
+	@Test
+	public void testSameAsJaxb() throws Exception {
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-dryrun" });
+		assertNotNull(rootNode);
+		assertSameAsJaxb(rootNode);
+	}
+
+	/**
+	 * The type references of the type table are written like JAXB does
+	 */
+	@Test
+	public void testTypeTableSameAsJaxb() throws Exception {
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-dryrun", "-typetable" });
+		assertNotNull(rootNode.getTypes());
+		assertSameAsJaxb(rootNode);
+	}
+
+	/**
+	 * Escaping, empty elements, non-ASCII characters and deep nesting
+	 */
+	@Test
+	public void testEdgeCasesSameAsJaxb() throws Exception {
+		assertSameAsJaxb(createEdgeCaseRoot());
+	}
+
+	/**
+	 * The saved file is the same as the one written via JAXB
+	 */
+	@Test
+	public void testSave() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-d", directory.getPath() });
+
+		assertArrayEquals(marshal(rootNode, true), readAllBytes(new File(directory, "javadoc.xml")));
+	}
+
+	/**
+	 * Any name of UTF-8 selects the writer
+	 */
+	@Test
+	public void testSaveUtf8Alias() throws Exception {
+		File directory = temporaryFolder.getRoot();
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, SIMPLEDATA, null, null,
+				new String[] { "-d", directory.getPath(), "-docencoding", "utf8" });
+
+		assertArrayEquals(marshal(rootNode, true), readAllBytes(new File(directory, "javadoc.xml")));
+	}
+
+	/**
+	 * A document larger than the buffer of the writer
+	 */
+	@Test
+	public void testLargeComment() throws Exception {
+		StringBuilder comment = new StringBuilder();
+		while (comment.length() < 200000) {
+			comment.append("Lorem ipsum <b>dolor</b> sit amet, \u00e9\u20ac\ud83d\ude00\n");
+		}
+		Root rootNode = new Root();
+		Package packageNode = new Package();
+		packageNode.setComment(comment.toString());
+		rootNode.getPackage().add(packageNode);
+
+		assertSameAsJaxb(rootNode);
+	}
+
+	/**
+	 * Creates a document with special characters in attributes and text,
+	 * empty elements, type references and deep nesting.
+	 */
+	static Root createEdgeCaseRoot() {
+		Root rootNode = new Root();
+		Package packageNode = new Package();
+		packageNode.setName(SPECIAL_CHARACTERS);
+		packageNode.setComment(SPECIAL_CHARACTERS);
+		rootNode.getPackage().add(packageNode);
+		rootNode.getPackage().add(new Package());
+
+		Class classNode = new Class();
+		classNode.setName("C");
+		classNode.setAbstract(true);
+		classNode.setIncluded(false);
+		classNode.setScope("");
+		classNode.setComment("");
+		packageNode.getClazz().add(classNode);
+
+		TagInfo tagNode = new TagInfo();
+		tagNode.setName("@see");
+		tagNode.setText(SPECIAL_CHARACTERS);
+		classNode.getTag().add(tagNode);
+		classNode.getTag().add(new TagInfo());
+
+		TypeInfo typeNode = new TypeInfo();
+		typeNode.setQualified("java.util.List");
+		typeNode.setId("T1");
+		Types types = new Types();
+		types.getType().add(typeNode);
+		rootNode.setTypes(types);
+
+		TypeInfo referenceNode = new TypeInfo();
+		referenceNode.setRef(typeNode);
+		classNode.setClazz(referenceNode);
+
+		Method methodNode = new Method();
+		methodNode.setName("m");
+		methodNode.setStatic(false);
+		MethodParameter parameterNode = new MethodParameter();
+		parameterNode.setName("p");
+		TypeInfo nested = new TypeInfo();
+		parameterNode.setType(nested);
+		for (int i = 0; i < 12; i++) {
+			TypeInfo generic = new TypeInfo();
+			generic.setQualified("G" + i);
+			nested.getGeneric().add(generic);
+			nested = generic;
+		}
+		methodNode.getParameter().add(parameterNode);
+		classNode.getMethod().add(methodNode);
+
+		Field fieldNode = new Field();
+		fieldNode.setName("f");
+		fieldNode.setConstant(SPECIAL_CHARACTERS);
+		AnnotationInstance annotationNode = new AnnotationInstance();
+		AnnotationArgument argumentNode = new AnnotationArgument();
+		argumentNode.setArray(true);
+		argumentNode.getValue().add(SPECIAL_CHARACTERS);
+		argumentNode.getValue().add("");
+		annotationNode.getArgument().add(argumentNode);
+		fieldNode.getAnnotation().add(annotationNode);
+		classNode.getField().add(fieldNode);
+
+		return rootNode;
+	}
+
+	private void assertSameAsJaxb(Root rootNode) throws Exception {
+		for (boolean formatted : new boolean[] { true, false }) {
+			byte[] expected = marshal(rootNode, formatted);
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			new XmlModelWriter(actual, formatted).write(rootNode);
+			assertEquals(new String(expected, "UTF-8"), new String(actual.toByteArray(), "UTF-8"));
+			assertArrayEquals(expected, actual.toByteArray());
+		}
+	}
+
+	private static byte[] marshal(Root rootNode, boolean formatted) throws Exception {
+		Marshaller marshaller = JaxbSupport.acquireMarshaller();
+		try {
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			marshaller.marshal(rootNode, outputStream);
+			return outputStream.toByteArray();
+		} finally {
+			JaxbSupport.releaseMarshaller(marshaller);
+		}
+	}
+}
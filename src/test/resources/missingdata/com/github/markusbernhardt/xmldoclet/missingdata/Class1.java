@@ -0,0 +1,22 @@
+package com.github.markusbernhardt.xmldoclet.missingdata;
+
+/**
+ * Class1, annotated with an annotation type that is not on the classpath
+ */
+@lombok.Data
+public class Class1 {
+
+	/**
+	 * field1
+	 */
+	@lombok.Data
+	public int field1;
+
+	/**
+	 * method1
+	 */
+	@lombok.Data
+	@Deprecated
+	public void method1() {
+	}
+}
@@ -0,0 +1,17 @@
+package com.github.markusbernhardt.xmldoclet.missingdata;
+
+import first.Data;
+
+/**
+ * Class2, annotated with a missing annotation type named like the one of
+ * Class3, but imported from another package
+ */
+@Data
+public class Class2 {
+
+	/**
+	 * field1
+	 */
+	@Data
+	public int field1;
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.github.markusbernhardt.xmldoclet.missingdata;
+
+import second.Data;
+
+/**
+ * Class3, annotated with a missing annotation type named like the one of
+ * Class2, but imported from another package
+ */
+@Data
+public class Class3 {
+}
\ No newline at end of file
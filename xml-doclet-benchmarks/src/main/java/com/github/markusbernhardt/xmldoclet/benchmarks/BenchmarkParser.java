@@ -0,0 +1,30 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import com.github.markusbernhardt.xmldoclet.Parser;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+import com.sun.javadoc.AnnotationDesc;
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Type;
+
+/**
+ * Parser making the benchmarked steps accessible.
+ */
+public class BenchmarkParser extends Parser {
+
+	@Override
+	public Class parseClass(ClassDoc classDoc) {
+		return super.parseClass(classDoc);
+	}
+
+	@Override
+	public TypeInfo parseTypeInfo(Type type) {
+		return super.parseTypeInfo(type);
+	}
+
+	@Override
+	public AnnotationInstance parseAnnotationDesc(AnnotationDesc annotationDesc, String programElement) {
+		return super.parseAnnotationDesc(annotationDesc, programElement);
+	}
+}
@@ -0,0 +1,49 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import com.sun.javadoc.LanguageVersion;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * Doclet keeping the documentation tree, so the benchmarks can parse it
+ * again and again without running javadoc.
+ */
+public class CapturingDoclet {
+
+	private static RootDoc rootDoc;
+
+	/**
+	 * Keeps the documentation tree.
+	 * 
+	 * @param rootDoc
+	 *            the root of the documentation tree
+	 * @return <code>true</code>
+	 */
+	public static boolean start(RootDoc rootDoc) {
+		CapturingDoclet.rootDoc = rootDoc;
+		return true;
+	}
+
+	/**
+	 * @return the Java language version supported by the doclet
+	 */
+	public static LanguageVersion languageVersion() {
+		return LanguageVersion.JAVA_1_5;
+	}
+
+	/**
+	 * Runs javadoc with this doclet.
+	 * 
+	 * @param arguments
+	 *            the javadoc arguments
+	 * @return the documentation tree
+	 */
+	public static synchronized RootDoc execute(String... arguments) {
+		rootDoc = null;
+		int result = com.sun.tools.javadoc.Main.execute("xml-doclet-benchmarks", CapturingDoclet.class.getName(),
+				CapturingDoclet.class.getClassLoader(), arguments);
+		if (result != 0 || rootDoc == null) {
+			throw new IllegalStateException("javadoc failed with result " + result);
+		}
+		return rootDoc;
+	}
+}
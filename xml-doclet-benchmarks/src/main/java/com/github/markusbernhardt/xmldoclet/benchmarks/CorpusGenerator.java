@@ -0,0 +1,296 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes a synthetic source tree to document. The sources only depend on the
+ * configuration, so every run of a benchmark sees the same corpus.
+ * <p>
+ * Every package contains an annotation type, an enum, an interface and the
+ * configured number of classes. The classes are generic, implement the
+ * interface and have annotated and commented fields and methods. The depth of
+ * the generic field and return types, the number of annotations per member,
+ * the length of the comments and the number of enum constants can be raised
+ * to stress single aspects of the doclet.
+ */
+public class CorpusGenerator {
+
+	/**
+	 * The root package of the generated sources.
+	 */
+	public static final String ROOT_PACKAGE = "corpus";
+
+	protected int packages = 4;
+
+	protected int classesPerPackage = 25;
+
+	protected int membersPerClass = 8;
+
+	protected int genericDepth = 1;
+
+	protected int annotationsPerMember = 1;
+
+	protected int commentLines = 0;
+
+	protected int enumConstants = 16;
+
+	/**
+	 * @param packages
+	 *            the number of packages. Default: 4
+	 * @return this generator
+	 */
+	public CorpusGenerator setPackages(int packages) {
+		this.packages = packages;
+		return this;
+	}
+
+	/**
+	 * @param classesPerPackage
+	 *            the number of classes in every package. Default: 25
+	 * @return this generator
+	 */
+	public CorpusGenerator setClassesPerPackage(int classesPerPackage) {
+		this.classesPerPackage = classesPerPackage;
+		return this;
+	}
+
+	/**
+	 * @param membersPerClass
+	 *            the number of fields and of methods of every class. Default:
+	 *            8
+	 * @return this generator
+	 */
+	public CorpusGenerator setMembersPerClass(int membersPerClass) {
+		this.membersPerClass = membersPerClass;
+		return this;
+	}
+
+	/**
+	 * @param genericDepth
+	 *            the nesting depth of the type arguments of the field and
+	 *            return types, e.g. 2 for
+	 *            <code>Map&lt;K, List&lt;Map&lt;K, List&lt;T&gt;&gt;&gt;&gt;</code>.
+	 *            Default: 1
+	 * @return this generator
+	 */
+	public CorpusGenerator setGenericDepth(int genericDepth) {
+		this.genericDepth = genericDepth;
+		return this;
+	}
+
+	/**
+	 * @param annotationsPerMember
+	 *            the number of annotation types every class, field and method
+	 *            is annotated with, besides the standard annotations. Default:
+	 *            1
+	 * @return this generator
+	 */
+	public CorpusGenerator setAnnotationsPerMember(int annotationsPerMember) {
+		this.annotationsPerMember = annotationsPerMember;
+		return this;
+	}
+
+	/**
+	 * @param commentLines
+	 *            the number of additional lines of every comment. Default: 0
+	 * @return this generator
+	 */
+	public CorpusGenerator setCommentLines(int commentLines) {
+		this.commentLines = commentLines;
+		return this;
+	}
+
+	/**
+	 * @param enumConstants
+	 *            the number of constants of the enum of every package.
+	 *            Default: 16
+	 * @return this generator
+	 */
+	public CorpusGenerator setEnumConstants(int enumConstants) {
+		this.enumConstants = enumConstants;
+		return this;
+	}
+
+	/**
+	 * Writes the source tree.
+	 *
+	 * @param sourcePath
+	 *            the directory to use as source path
+	 * @throws IOException
+	 *             if a file could not be written
+	 */
+	public void generate(File sourcePath) throws IOException {
+		for (int p = 0; p < packages; p++) {
+			String packageName = packageName(p);
+			File directory = new File(sourcePath, packageName.replace('.', File.separatorChar));
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Unable to create " + directory);
+			}
+			for (int a = 0; a < annotationsPerMember; a++) {
+				write(new File(directory, markerName(a) + ".java"), generateAnnotation(packageName, a));
+			}
+			write(new File(directory, "State.java"), generateEnum(packageName));
+			write(new File(directory, "Service.java"), generateInterface(packageName));
+			for (int c = 0; c < classesPerPackage; c++) {
+				write(new File(directory, "Class" + c + ".java"), generateClass(packageName, c));
+			}
+		}
+	}
+
+	/**
+	 * @param index
+	 *            the index of the package
+	 * @return the name of the package
+	 */
+	public static String packageName(int index) {
+		return ROOT_PACKAGE + ".p" + index;
+	}
+
+	protected static String markerName(int index) {
+		return index == 0 ? "Marker" : "Marker" + index;
+	}
+
+	protected String generateAnnotation(String packageName, int index) {
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(packageName).append(";\n\n");
+		source.append("/**\n * Marker annotation with elements of all kinds.\n");
+		appendCommentLines(source, "");
+		source.append(" */\n");
+		source.append("@java.lang.annotation.Documented\n");
+		source.append("@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n");
+		source.append("public @interface ").append(markerName(index)).append(" {\n");
+		source.append("\t/** the value */\n\tString value() default \"\";\n");
+		source.append("\t/** the count */\n\tint count() default 0;\n");
+		source.append("\t/** the flags */\n\tboolean[] flags() default {};\n");
+		source.append("\t/** the state */\n\tState state() default State.S0;\n");
+		source.append("\t/** the type */\n\tClass<?> type() default Object.class;\n");
+		source.append("}\n");
+		return source.toString();
+	}
+
+	protected String generateEnum(String packageName) {
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(packageName).append(";\n\n");
+		source.append("/**\n * States of the generated classes.\n */\n");
+		source.append("public enum State {\n");
+		for (int i = 0; i < enumConstants; i++) {
+			source.append("\t/** state ").append(i).append(" */\n\tS").append(i)
+					.append(i < enumConstants - 1 ? ",\n" : ";\n");
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+
+	protected String generateInterface(String packageName) {
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(packageName).append(";\n\n");
+		source.append("/**\n * Service implemented by the generated classes.\n *\n");
+		source.append(" * @param <T>\n *            the type of the handled values\n */\n");
+		source.append("public interface Service<T extends Comparable<? super T>> {\n");
+		source.append("\t/**\n\t * Handles values.\n\t *\n\t * @param values\n\t *            the values\n");
+		source.append("\t * @return the number of handled values\n\t */\n");
+		source.append("\tint handle(java.util.List<? extends T> values);\n");
+		source.append("}\n");
+		return source.toString();
+	}
+
+	protected String generateClass(String packageName, int index) {
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(packageName).append(";\n\n");
+		source.append("import java.util.List;\nimport java.util.Map;\n\n");
+		source.append("/**\n * Class").append(index).append(" of the synthetic corpus. It handles values of the\n");
+		source.append(" * type <code>T</code> and maps them by <code>K</code>.\n");
+		appendCommentLines(source, "");
+		source.append(" *\n");
+		source.append(" * @param <T>\n *            the type of the values\n");
+		source.append(" * @param <K>\n *            the type of the keys\n");
+		source.append(" * @author generator\n * @since 1.").append(index).append("\n */\n");
+		for (int a = 0; a < annotationsPerMember; a++) {
+			source.append("@").append(markerName(a)).append("(value = \"class").append(index).append("\", count = ")
+					.append(index).append(", flags = { true, false }, state = State.S").append(state(index))
+					.append(", type = List.class)\n");
+		}
+		source.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		source.append("public class Class").append(index).append("<T extends Comparable<? super T>, K>");
+		if (index > 0) {
+			source.append(" extends Class").append(index - 1).append("<T, K>");
+		}
+		source.append(" implements Service<T>, java.io.Serializable {\n\n");
+		source.append("\tprivate static final long serialVersionUID = ").append(index).append("L;\n\n");
+
+		for (int m = 0; m < membersPerClass; m++) {
+			source.append("\t/**\n\t * Values number ").append(m).append(", grouped by key.\n");
+			appendCommentLines(source, "\t");
+			source.append("\t */\n");
+			for (int a = 0; a < annotationsPerMember; a++) {
+				source.append("\t@").append(markerName(a)).append("(value = \"field").append(m).append("\", count = ")
+						.append(m).append(")\n");
+			}
+			source.append("\tprotected ").append(genericType("T")).append(" field").append(m).append(";\n\n");
+		}
+
+		source.append("\t/**\n\t * Creates the class.\n\t */\n");
+		source.append("\tpublic Class").append(index).append("() {\n\t}\n\n");
+
+		source.append("\t@Override\n\tpublic int handle(List<? extends T> values) {\n\t\treturn values.size();\n\t}\n\n");
+
+		for (int m = 0; m < membersPerClass; m++) {
+			source.append("\t/**\n\t * Converts the values number ").append(m).append(".\n");
+			appendCommentLines(source, "\t");
+			source.append("\t *\n");
+			source.append("\t * @param key\n\t *            the key\n");
+			source.append("\t * @param numbers\n\t *            the numbers\n");
+			source.append("\t * @return the converted values\n");
+			source.append("\t * @throws java.io.IOException\n\t *             never\n\t */\n");
+			for (int a = 0; a < annotationsPerMember; a++) {
+				source.append("\t@").append(markerName(a)).append("(value = \"method").append(m)
+						.append("\", state = State.S").append(state(m)).append(")\n");
+			}
+			source.append("\t@Deprecated\n");
+			source.append("\tpublic <E extends Number> ").append(genericType("? extends E")).append(" method").append(m)
+					.append("(K key, E[] numbers, int... indices) throws java.io.IOException {\n");
+			source.append("\t\treturn null;\n\t}\n\n");
+		}
+
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * @param elementType
+	 *            the innermost type argument
+	 * @return the map type nested to the generic depth
+	 */
+	protected String genericType(String elementType) {
+		String type = elementType;
+		for (int i = 0; i < genericDepth; i++) {
+			type = "Map<K, List<" + type + ">>";
+		}
+		return type;
+	}
+
+	protected int state(int index) {
+		return index % Math.min(16, enumConstants);
+	}
+
+	protected void appendCommentLines(StringBuilder source, String indentation) {
+		for (int i = 0; i < commentLines; i++) {
+			source.append(indentation).append(" * Line ").append(i)
+					.append(" of the long description, which repeats itself to make the comment grow. It contains")
+					.append(" <b>markup</b>, {@link java.util.List links} and <code>code</code>.\n");
+		}
+	}
+
+	protected void write(File file, String source) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+	}
+}
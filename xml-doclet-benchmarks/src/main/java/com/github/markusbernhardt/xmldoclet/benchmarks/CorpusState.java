@@ -0,0 +1,117 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.markusbernhardt.xmldoclet.Parser;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.sun.javadoc.AnnotationDesc;
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.ConstructorDoc;
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.Parameter;
+import com.sun.javadoc.ProgramElementDoc;
+import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.Type;
+
+/**
+ * The synthetic corpus, documented once per benchmark run. It provides the
+ * documentation tree and the parts of it handed to the benchmarked steps.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+	protected File directory;
+
+	protected RootDoc rootDoc;
+
+	/**
+	 * The classes of the corpus, without enums, interfaces and annotation
+	 * types.
+	 */
+	protected final List<ClassDoc> classDocs = new ArrayList<ClassDoc>();
+
+	/**
+	 * The types of all fields, method return values and parameters.
+	 */
+	protected final List<Type> types = new ArrayList<Type>();
+
+	/**
+	 * The annotations of all types and members.
+	 */
+	protected final List<AnnotationDesc> annotationDescs = new ArrayList<AnnotationDesc>();
+
+	/**
+	 * The names of the elements annotated by {@link #annotationDescs}.
+	 */
+	protected final List<String> programElements = new ArrayList<String>();
+
+	/**
+	 * The object model of the corpus.
+	 */
+	protected Root rootNode;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("xml-doclet-benchmarks").toFile();
+		File sourcePath = new File(directory, "src");
+		new CorpusGenerator().generate(sourcePath);
+
+		rootDoc = CapturingDoclet.execute("-quiet", "-private", "-sourcepath", sourcePath.getPath(), "-subpackages",
+				CorpusGenerator.ROOT_PACKAGE);
+		for (ClassDoc classDoc : rootDoc.classes()) {
+			if (classDoc.isOrdinaryClass()) {
+				classDocs.add(classDoc);
+			}
+			addAnnotations(classDoc);
+			for (FieldDoc fieldDoc : classDoc.fields()) {
+				types.add(fieldDoc.type());
+				addAnnotations(fieldDoc);
+			}
+			for (ConstructorDoc constructorDoc : classDoc.constructors()) {
+				addAnnotations(constructorDoc);
+			}
+			for (MethodDoc methodDoc : classDoc.methods()) {
+				types.add(methodDoc.returnType());
+				for (Parameter parameter : methodDoc.parameters()) {
+					types.add(parameter.type());
+				}
+				addAnnotations(methodDoc);
+			}
+		}
+
+		rootNode = new Parser().parseRootDoc(rootDoc);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		delete(directory);
+	}
+
+	protected void addAnnotations(ProgramElementDoc programElementDoc) {
+		for (AnnotationDesc annotationDesc : programElementDoc.annotations()) {
+			annotationDescs.add(annotationDesc);
+			programElements.add(programElementDoc.qualifiedName());
+		}
+	}
+
+	protected static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,60 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the parser steps. Every operation processes the whole
+ * corpus, e.g. all classes. A new parser is created for every iteration, so
+ * the type cache is only empty at the start of an iteration, like at the
+ * start of a javadoc run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	protected BenchmarkParser parser;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		parser = new BenchmarkParser();
+	}
+
+	@Benchmark
+	public void parseClass(CorpusState corpus, Blackhole blackhole) {
+		for (int i = 0; i < corpus.classDocs.size(); i++) {
+			blackhole.consume(parser.parseClass(corpus.classDocs.get(i)));
+		}
+	}
+
+	@Benchmark
+	public void parseTypeInfo(CorpusState corpus, Blackhole blackhole) {
+		for (int i = 0; i < corpus.types.size(); i++) {
+			blackhole.consume(parser.parseTypeInfo(corpus.types.get(i)));
+		}
+	}
+
+	@Benchmark
+	public void parseAnnotationDesc(CorpusState corpus, Blackhole blackhole) {
+		for (int i = 0; i < corpus.annotationDescs.size(); i++) {
+			blackhole.consume(parser.parseAnnotationDesc(corpus.annotationDescs.get(i),
+					corpus.programElements.get(i)));
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markusbernhardt.xmldoclet.XmlDoclet;
+
+/**
+ * Benchmark of writing the object model of the whole corpus to a UTF-8 file,
+ * like the doclet does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark {
+
+	protected CommandLine commandLine;
+
+	@Setup(Level.Trial)
+	public void setUp(CorpusState corpus) {
+		commandLine = XmlDoclet.parseCommandLine(new String[][] {
+				{ "-d", new File(corpus.directory, "out").getPath() }, { "-filename", "javadoc.xml" } });
+		new File(corpus.directory, "out").mkdirs();
+	}
+
+	@Benchmark
+	public void save(CorpusState corpus) {
+		XmlDoclet.save(commandLine, corpus.rootNode);
+	}
+}
@@ -0,0 +1,189 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * End-to-end scale test. For every size step a synthetic corpus is generated
+ * and documented by the doclet in a JVM of its own. The wall time of the
+ * javadoc run, the peak resident set size of the JVM and the size of the
+ * output are recorded, so it shows where the doclet stops scaling.
+ * <p>
+ * A size step is given as <code>&lt;packages&gt;x&lt;classes&gt;</code>,
+ * e.g. <code>10x100</code> for 10 packages with 100 classes each.
+ */
+public class ScaleHarness {
+
+	/**
+	 * The Options instance to parse command line strings.
+	 */
+	public final static Options options;
+
+	static {
+		options = new Options();
+
+		OptionBuilder.withArgName("members");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Number of fields and of methods of every class.\nDefault: 8");
+		options.addOption(OptionBuilder.create("members"));
+
+		OptionBuilder.withArgName("depth");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Nesting depth of the generic types.\nDefault: 1");
+		options.addOption(OptionBuilder.create("generics"));
+
+		OptionBuilder.withArgName("annotations");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Number of annotations of every class, field and method.\nDefault: 1");
+		options.addOption(OptionBuilder.create("annotations"));
+
+		OptionBuilder.withArgName("lines");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Number of additional lines of every comment.\nDefault: 0");
+		options.addOption(OptionBuilder.create("comments"));
+
+		OptionBuilder.withArgName("constants");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Number of constants of the enum of every package.\nDefault: 16");
+		options.addOption(OptionBuilder.create("enums"));
+
+		OptionBuilder.withArgName("options");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Options of the doclet, separated by blanks, e.g. \"-stream -compact\".\nDefault: none");
+		options.addOption(OptionBuilder.create("doclet"));
+
+		OptionBuilder.withArgName("options");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Options of the JVM running the doclet, separated by blanks.\nDefault: none");
+		options.addOption(OptionBuilder.create("jvm"));
+
+		OptionBuilder.withArgName("file");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("CSV file the results are written to.\nDefault: scale.csv");
+		options.addOption(OptionBuilder.create("results"));
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		CommandLine commandLine;
+		try {
+			CommandLineParser commandLineParser = new PosixParser();
+			commandLine = commandLineParser.parse(options, args);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			commandLine = null;
+		}
+		if (commandLine == null || commandLine.getArgs().length == 0) {
+			new HelpFormatter().printHelp("ScaleHarness [options] <packages>x<classes>...", options);
+			System.exit(1);
+			return;
+		}
+
+		PrintWriter results = new PrintWriter(new OutputStreamWriter(new FileOutputStream(
+				commandLine.getOptionValue("results", "scale.csv")), "UTF-8"));
+		try {
+			results.println("packages,classes,result,wallMillis,peakRssKb,sourceBytes,outputBytes");
+			System.out.println(String.format("%8s %8s %6s %10s %12s %14s %14s", "packages", "classes", "result",
+					"wall ms", "peak RSS kB", "source bytes", "output bytes"));
+			for (String step : commandLine.getArgs()) {
+				String[] size = step.split("x");
+				int packages = Integer.parseInt(size[0]);
+				int classes = Integer.parseInt(size[1]);
+				String line = runStep(commandLine, packages, classes);
+				results.println(line);
+				results.flush();
+				System.out.println(String.format("%8s %8s %6s %10s %12s %14s %14s", (Object[]) line.split(",")));
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/**
+	 * Generates the corpus of a step and runs the doclet on it.
+	 * 
+	 * @return the CSV line of the step
+	 */
+	protected static String runStep(CommandLine commandLine, int packages, int classes) throws IOException,
+			InterruptedException {
+		File directory = Files.createTempDirectory("xml-doclet-scale").toFile();
+		try {
+			File sourcePath = new File(directory, "src");
+			File outputDirectory = new File(directory, "out");
+			outputDirectory.mkdirs();
+			new CorpusGenerator().setPackages(packages).setClassesPerPackage(classes)
+					.setMembersPerClass(Integer.parseInt(commandLine.getOptionValue("members", "8")))
+					.setGenericDepth(Integer.parseInt(commandLine.getOptionValue("generics", "1")))
+					.setAnnotationsPerMember(Integer.parseInt(commandLine.getOptionValue("annotations", "1")))
+					.setCommentLines(Integer.parseInt(commandLine.getOptionValue("comments", "0")))
+					.setEnumConstants(Integer.parseInt(commandLine.getOptionValue("enums", "16")))
+					.generate(sourcePath);
+
+			List<String> command = new ArrayList<String>();
+			command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+			command.addAll(split(commandLine.getOptionValue("jvm")));
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(ScaleRun.class.getName());
+			command.add(sourcePath.getPath());
+			command.add(outputDirectory.getPath());
+			command.addAll(split(commandLine.getOptionValue("doclet")));
+
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			String result = "-1,-1,-1";
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(ScaleRun.RESULT)) {
+						result = line.substring(ScaleRun.RESULT.length()).trim().replace(' ', ',');
+					} else {
+						System.err.println(line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			process.waitFor();
+
+			return packages + "," + classes + "," + result + "," + size(sourcePath) + "," + size(outputDirectory);
+		} finally {
+			CorpusState.delete(directory);
+		}
+	}
+
+	protected static List<String> split(String value) {
+		if (value == null || value.trim().isEmpty()) {
+			return new ArrayList<String>();
+		}
+		return Arrays.asList(value.trim().split("\\s+"));
+	}
+
+	protected static long size(File file) {
+		File[] files = file.listFiles();
+		if (files == null) {
+			return file.length();
+		}
+		long size = 0;
+		for (File child : files) {
+			size += size(child);
+		}
+		return size;
+	}
+}
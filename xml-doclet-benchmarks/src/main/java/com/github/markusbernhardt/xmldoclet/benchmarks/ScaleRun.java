@@ -0,0 +1,69 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.markusbernhardt.xmldoclet.XmlDoclet;
+
+/**
+ * A single step of the {@link ScaleHarness}, run in a JVM of its own so the
+ * peak memory of the step is not influenced by the other steps. It runs the
+ * doclet like the unit tests do and prints the result line read by the
+ * harness.
+ */
+public class ScaleRun {
+
+	/**
+	 * Prefix of the result line.
+	 */
+	public static final String RESULT = "scale-result:";
+
+	/**
+	 * Runs the doclet.
+	 * 
+	 * @param args
+	 *            the source path, the output directory and the options of the
+	 *            doclet
+	 */
+	public static void main(String[] args) throws IOException {
+		List<String> arguments = new ArrayList<String>(Arrays.asList("-quiet", "-private", "-sourcepath", args[0],
+				"-subpackages", CorpusGenerator.ROOT_PACKAGE, "-d", args[1]));
+		arguments.addAll(Arrays.asList(args).subList(2, args.length));
+
+		long start = System.nanoTime();
+		int result = com.sun.tools.javadoc.Main.execute("xml-doclet", XmlDoclet.class.getName(),
+				arguments.toArray(new String[arguments.size()]));
+		long wallMillis = (System.nanoTime() - start) / 1000000;
+
+		System.out.println(RESULT + " " + result + " " + wallMillis + " " + peakResidentSetKilobytes());
+	}
+
+	/**
+	 * @return the peak resident set size of this process in kB, or -1 if it
+	 *         is not available on this platform
+	 */
+	protected static long peakResidentSetKilobytes() throws IOException {
+		File status = new File("/proc/self/status");
+		if (!status.canRead()) {
+			return -1;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(status), "US-ASCII"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("VmHWM:")) {
+					return Long.parseLong(line.substring(6).replace("kB", "").trim());
+				}
+			}
+			return -1;
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.github.markusbernhardt.xmldoclet.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.markusbernhardt.xmldoclet.JaxbSupport;
+import com.github.markusbernhardt.xmldoclet.XmlModelWriter;
+
+/**
+ * Benchmark of writing the object model of the whole corpus into memory, via
+ * JAXB and via the {@link XmlModelWriter}. Both write the same bytes, the
+ * buffer is reused, so only the serialization itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+
+	@Param({ "true", "false" })
+	public boolean formatted;
+
+	protected Marshaller marshaller;
+
+	protected final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(16 * 1024 * 1024);
+
+	@Setup(Level.Trial)
+	public void setUp() throws JAXBException {
+		marshaller = JaxbSupport.acquireMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		JaxbSupport.releaseMarshaller(marshaller);
+	}
+
+	@Benchmark
+	public int jaxb(CorpusState corpus) throws JAXBException {
+		outputStream.reset();
+		marshaller.marshal(corpus.rootNode, outputStream);
+		return outputStream.size();
+	}
+
+	@Benchmark
+	public int modelWriter(CorpusState corpus) throws IOException {
+		outputStream.reset();
+		new XmlModelWriter(outputStream, formatted).write(corpus.rootNode);
+		return outputStream.size();
+	}
+}
@@ -0,0 +1,137 @@
+package com.github.markusbernhardt.xmldoclet.jdk9;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A documentation comment split into its main description and its block
+ * tags, following the rules of the legacy javadoc tool: a block tag starts
+ * with an <code>@</code> as first character of a line, the main text and the
+ * tag texts are trimmed at the end and the inner line breaks are kept. So the
+ * text of the comments is identical to the one produced by the
+ * <code>com.sun.javadoc</code> based doclet.
+ */
+public class DocComment {
+
+	/**
+	 * Comment without text and tags.
+	 */
+	public static final DocComment EMPTY = new DocComment("");
+
+	protected String text = "";
+
+	protected final List<Tag> tags = new ArrayList<Tag>();
+
+	/**
+	 * Splits a comment.
+	 *
+	 * @param comment
+	 *            the raw comment text as returned by
+	 *            {@link javax.lang.model.util.Elements#getDocComment(javax.lang.model.element.Element)}
+	 */
+	public DocComment(String comment) {
+		parse(comment);
+	}
+
+	/**
+	 * @return the main description, empty if there is none
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return the block tags in the order of the comment
+	 */
+	public List<Tag> getTags() {
+		return Collections.unmodifiableList(tags);
+	}
+
+	private void parse(String comment) {
+		final int inText = 1;
+		final int tagGap = 2;
+		final int tagName = 3;
+
+		int state = tagGap;
+		boolean newLine = true;
+		String name = null;
+		int tagStart = 0;
+		int textStart = 0;
+		int lastNonWhite = -1;
+		int length = comment.length();
+		for (int i = 0; i < length; i++) {
+			char c = comment.charAt(i);
+			boolean white = Character.isWhitespace(c);
+			if (state == tagName) {
+				if (white) {
+					name = comment.substring(tagStart, i);
+					state = tagGap;
+				}
+			} else if (state == tagGap && !white) {
+				textStart = i;
+				state = inText;
+			}
+			if (state == inText && newLine && c == '@') {
+				addComponent(name, comment, textStart, lastNonWhite + 1);
+				tagStart = i;
+				state = tagName;
+			}
+			if (c == '\n') {
+				newLine = true;
+			} else if (!white) {
+				lastNonWhite = i;
+				newLine = false;
+			}
+		}
+
+		if (state == tagName) {
+			name = comment.substring(tagStart, length);
+		}
+		if (state != inText) {
+			textStart = length;
+		}
+		addComponent(name, comment, textStart, lastNonWhite + 1);
+	}
+
+	private void addComponent(String name, String comment, int from, int to) {
+		String componentText = to <= from ? "" : comment.substring(from, to);
+		if (name == null) {
+			text = componentText;
+		} else if ("@exception".equals(name)) {
+			tags.add(new Tag("@throws", componentText));
+		} else {
+			tags.add(new Tag(name, componentText));
+		}
+	}
+
+	/**
+	 * A block tag of a comment.
+	 */
+	public static class Tag {
+
+		protected final String kind;
+
+		protected final String text;
+
+		protected Tag(String kind, String text) {
+			this.kind = kind;
+			this.text = text;
+		}
+
+		/**
+		 * @return the kind of the tag, e.g. <code>@param</code>. The tag
+		 *         <code>@exception</code> has the kind <code>@throws</code>.
+		 */
+		public String getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return the text following the tag name
+		 */
+		public String getText() {
+			return text;
+		}
+	}
+}
@@ -0,0 +1,1266 @@
+package com.github.markusbernhardt.xmldoclet.jdk9;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.MissingAnnotationTypes;
+import com.github.markusbernhardt.xmldoclet.RootBuilder;
+import com.github.markusbernhardt.xmldoclet.RootListener;
+import com.github.markusbernhardt.xmldoclet.TypeInfoCache;
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationArgument;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationElement;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Constructor;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.EnumConstant;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.MethodParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.ObjectFactory;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TagInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeInfo;
+import com.github.markusbernhardt.xmldoclet.xjc.TypeParameter;
+import com.github.markusbernhardt.xmldoclet.xjc.Wildcard;
+
+/**
+ * Parser creating the XML tree from the language model of javac, as provided
+ * by the <code>jdk.javadoc.doclet</code> API or an annotation processor. The
+ * created nodes are identical to the ones of the
+ * {@link com.github.markusbernhardt.xmldoclet.Parser} for the
+ * <code>com.sun.javadoc</code> API, apart from the order of the types: the
+ * packages and the types within a package are sorted by name.
+ */
+public class ElementParser {
+
+	private final static Logger log = LoggerFactory.getLogger(ElementParser.class);
+
+	private static final Comparator<Element> BY_QUALIFIED_NAME = new Comparator<Element>() {
+		@Override
+		public int compare(Element element1, Element element2) {
+			return qualifiedName(element1).compareTo(qualifiedName(element2));
+		}
+	};
+
+	protected final Elements elements;
+
+	protected final Types types;
+
+	protected final Predicate<Element> included;
+
+	protected ObjectFactory objectFactory = new ObjectFactory();
+
+	protected TypeInfoCache typeInfoCache = new TypeInfoCache();
+
+	protected MissingAnnotationTypes missingAnnotationTypes = new MissingAnnotationTypes();
+
+	protected boolean compact = false;
+
+	/**
+	 * Creates the parser.
+	 *
+	 * @param elements
+	 *            the element utilities of the compiler
+	 * @param types
+	 *            the type utilities of the compiler
+	 * @param included
+	 *            decides which members are documented, e.g.
+	 *            {@link jdk.javadoc.doclet.DocletEnvironment#isIncluded(Element)}
+	 */
+	public ElementParser(Elements elements, Types types, Predicate<Element> included) {
+		this.elements = elements;
+		this.types = types;
+		this.included = included;
+	}
+
+	/**
+	 * Enables the compact output. Boolean attributes equal to their default
+	 * value in the schema are left out of the object model.
+	 *
+	 * @param compact
+	 *            <code>true</code> to leave out default values
+	 */
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+
+	/**
+	 * Returns the cache sharing the type nodes between all references.
+	 *
+	 * @return the type cache, e.g. to log its hits and misses
+	 */
+	public TypeInfoCache getTypeInfoCache() {
+		return typeInfoCache;
+	}
+
+	/**
+	 * Returns the annotation types found missing so far.
+	 *
+	 * @return the annotation types not on the classpath
+	 */
+	public MissingAnnotationTypes getMissingAnnotationTypes() {
+		return missingAnnotationTypes;
+	}
+
+	/**
+	 * Parses the given types.
+	 *
+	 * @param typeElements
+	 *            the types to document, nested types included
+	 * @return The root node, containing everything parsed
+	 */
+	public Root parse(Collection<? extends TypeElement> typeElements) {
+		RootBuilder rootBuilder = new RootBuilder();
+		parse(typeElements, rootBuilder);
+		return rootBuilder.getRoot();
+	}
+
+	/**
+	 * Parses the given types without building the whole object model in
+	 * memory. Every type is handed to the listener as soon as it has been
+	 * parsed.
+	 *
+	 * @param typeElements
+	 *            the types to document, nested types included
+	 * @param listener
+	 *            The listener receiving the parsed nodes in document order
+	 */
+	public void parse(Collection<? extends TypeElement> typeElements, RootListener listener) {
+		Root rootNode = objectFactory.createRoot();
+		listener.startRoot(rootNode);
+
+		for (List<TypeElement> packageTypeElements : groupByPackage(typeElements).values()) {
+			Package packageNode = parsePackage(elements.getPackageOf(packageTypeElements.get(0)));
+			listener.startPackage(packageNode);
+			parseTypeElements(packageTypeElements, listener);
+			listener.endPackage(packageNode);
+		}
+
+		listener.endRoot(rootNode);
+
+		missingAnnotationTypes.logSummary(log);
+		log.debug(typeInfoCache.toString());
+	}
+
+	/**
+	 * Groups the types by package. The packages and the types within a
+	 * package are sorted by name.
+	 *
+	 * @param typeElements
+	 *            the types to group
+	 * @return the types grouped by package name
+	 */
+	protected Map<String, List<TypeElement>> groupByPackage(Collection<? extends TypeElement> typeElements) {
+		List<TypeElement> sortedTypeElements = new ArrayList<TypeElement>(typeElements);
+		sortedTypeElements.sort(BY_QUALIFIED_NAME);
+
+		Map<String, List<TypeElement>> typeElementsByPackage = new TreeMap<String, List<TypeElement>>();
+		for (TypeElement typeElement : sortedTypeElements) {
+			String packageName = elements.getPackageOf(typeElement).getQualifiedName().toString();
+			List<TypeElement> packageTypeElements = typeElementsByPackage.get(packageName);
+			if (packageTypeElements == null) {
+				packageTypeElements = new ArrayList<TypeElement>();
+				typeElementsByPackage.put(packageName, packageTypeElements);
+			}
+			packageTypeElements.add(typeElement);
+		}
+		return typeElementsByPackage;
+	}
+
+	/**
+	 * Parses the types of one package and hands them to the listener in the
+	 * order required by the schema: annotations, enums, interfaces, classes.
+	 *
+	 * @param typeElements
+	 *            the types of one package
+	 * @param listener
+	 *            the listener receiving the parsed nodes
+	 */
+	protected void parseTypeElements(List<TypeElement> typeElements, RootListener listener) {
+		for (TypeElement typeElement : typeElements) {
+			if (typeElement.getKind() == ElementKind.ANNOTATION_TYPE) {
+				listener.addAnnotation(parseAnnotationType(typeElement));
+			}
+		}
+		for (TypeElement typeElement : typeElements) {
+			if (typeElement.getKind() == ElementKind.ENUM) {
+				listener.addEnum(parseEnum(typeElement));
+			}
+		}
+		for (TypeElement typeElement : typeElements) {
+			if (typeElement.getKind() == ElementKind.INTERFACE) {
+				listener.addInterface(parseInterface(typeElement));
+			}
+		}
+		for (TypeElement typeElement : typeElements) {
+			if (typeElement.getKind().isClass() && typeElement.getKind() != ElementKind.ENUM) {
+				listener.addClass(parseClass(typeElement));
+			}
+		}
+	}
+
+	protected Package parsePackage(PackageElement packageElement) {
+		Package packageNode = objectFactory.createPackage();
+		packageNode.setName(packageElement.getQualifiedName().toString());
+		DocComment docComment = parseDocComment(packageElement);
+		if (docComment.getText().length() > 0) {
+			packageNode.setComment(docComment.getText());
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			packageNode.getTag().add(parseTag(tag));
+		}
+
+		return packageNode;
+	}
+
+	/**
+	 * Parse an annotation.
+	 *
+	 * @param typeElement
+	 *            the annotation type
+	 * @return the annotation node
+	 */
+	protected Annotation parseAnnotationType(TypeElement typeElement) {
+		Annotation annotationNode = objectFactory.createAnnotation();
+		annotationNode.setName(typeName(typeElement));
+		annotationNode.setQualified(typeElement.getQualifiedName().toString());
+		DocComment docComment = parseDocComment(typeElement);
+		if (docComment.getText().length() > 0) {
+			annotationNode.setComment(docComment.getText());
+		}
+		if (flag(included.test(typeElement), true)) {
+			annotationNode.setIncluded(included.test(typeElement));
+		}
+		annotationNode.setScope(parseScope(typeElement));
+
+		for (ExecutableElement executableElement : members(ElementFilter.methodsIn(typeElement
+				.getEnclosedElements()))) {
+			annotationNode.getElement().add(parseAnnotationTypeElement(executableElement));
+		}
+
+		for (AnnotationMirror annotationMirror : typeElement.getAnnotationMirrors()) {
+			annotationNode.getAnnotation().add(
+					parseAnnotationMirror(annotationMirror, typeElement.getQualifiedName().toString()));
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			annotationNode.getTag().add(parseTag(tag));
+		}
+
+		return annotationNode;
+	}
+
+	/**
+	 * Parse the elements of an annotation
+	 *
+	 * @param executableElement
+	 *            the element of the annotation type
+	 * @return the annotation element node
+	 */
+	protected AnnotationElement parseAnnotationTypeElement(ExecutableElement executableElement) {
+		AnnotationElement annotationElementNode = objectFactory.createAnnotationElement();
+		annotationElementNode.setName(executableElement.getSimpleName().toString());
+		annotationElementNode.setQualified(qualifiedName(executableElement));
+		annotationElementNode.setType(parseTypeInfo(executableElement.getReturnType()));
+
+		AnnotationValue value = executableElement.getDefaultValue();
+		if (value != null) {
+			annotationElementNode.setDefault(annotationValueString(value));
+		}
+
+		return annotationElementNode;
+	}
+
+	/**
+	 * Parses annotation instances of an annotable program element
+	 *
+	 * @param annotationMirror
+	 *            the annotation instance
+	 * @param programElement
+	 *            the name of the annotated element, used for error messages
+	 * @return representation of annotations
+	 */
+	protected AnnotationInstance parseAnnotationMirror(AnnotationMirror annotationMirror, String programElement) {
+		AnnotationInstance annotationInstanceNode = objectFactory.createAnnotationInstance();
+
+		DeclaredType annotationType = annotationMirror.getAnnotationType();
+		if (annotationType.getKind() == TypeKind.ERROR) {
+			missingAnnotationTypes.add(annotationType.toString(), null, programElement);
+		} else {
+			TypeElement annotationTypeElement = (TypeElement) annotationType.asElement();
+			annotationInstanceNode.setName(typeName(annotationTypeElement));
+			annotationInstanceNode.setQualified(annotationTypeElement.getQualifiedName().toString());
+		}
+
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> elementValue : annotationMirror
+				.getElementValues().entrySet()) {
+			AnnotationArgument annotationArgumentNode = objectFactory.createAnnotationArgument();
+			annotationArgumentNode.setName(elementValue.getKey().getSimpleName().toString());
+
+			TypeMirror annotationArgumentType = elementValue.getKey().getReturnType();
+			annotationArgumentNode.setType(parseTypeInfo(annotationArgumentType));
+			boolean primitive = componentType(annotationArgumentType).getKind().isPrimitive();
+			if (flag(primitive, false)) {
+				annotationArgumentNode.setPrimitive(primitive);
+			}
+			boolean array = annotationArgumentType.getKind() == TypeKind.ARRAY;
+			if (flag(array, false)) {
+				annotationArgumentNode.setArray(array);
+			}
+
+			Object objValue = elementValue.getValue().getValue();
+			if (objValue instanceof List) {
+				for (Object annotationValue : (List<?>) objValue) {
+					Object value = ((AnnotationValue) annotationValue).getValue();
+					if (value instanceof AnnotationMirror) {
+						annotationArgumentNode.getAnnotation().add(
+								parseAnnotationMirror((AnnotationMirror) value, programElement));
+					} else if (value instanceof VariableElement) {
+						annotationArgumentNode.getValue().add(qualifiedName((VariableElement) value));
+					} else {
+						annotationArgumentNode.getValue().add(annotationArgumentString(value));
+					}
+				}
+			} else if (objValue instanceof VariableElement) {
+				annotationArgumentNode.getValue().add(((VariableElement) objValue).getSimpleName().toString());
+			} else {
+				annotationArgumentNode.getValue().add(annotationArgumentString(objValue));
+			}
+			annotationInstanceNode.getArgument().add(annotationArgumentNode);
+		}
+
+		return annotationInstanceNode;
+	}
+
+	protected Enum parseEnum(TypeElement typeElement) {
+		Enum enumNode = objectFactory.createEnum();
+		enumNode.setName(typeName(typeElement));
+		enumNode.setQualified(typeElement.getQualifiedName().toString());
+		DocComment docComment = parseDocComment(typeElement);
+		if (docComment.getText().length() > 0) {
+			enumNode.setComment(docComment.getText());
+		}
+		if (flag(included.test(typeElement), true)) {
+			enumNode.setIncluded(included.test(typeElement));
+		}
+		enumNode.setScope(parseScope(typeElement));
+
+		TypeMirror superClassType = typeElement.getSuperclass();
+		if (superClassType.getKind() != TypeKind.NONE) {
+			enumNode.setClazz(parseTypeInfo(superClassType));
+		}
+
+		for (TypeMirror interfaceType : typeElement.getInterfaces()) {
+			enumNode.getInterface().add(parseTypeInfo(interfaceType));
+		}
+
+		for (VariableElement field : members(ElementFilter.fieldsIn(typeElement.getEnclosedElements()))) {
+			if (field.getKind() == ElementKind.ENUM_CONSTANT) {
+				enumNode.getConstant().add(parseEnumConstant(field));
+			}
+		}
+
+		for (AnnotationMirror annotationMirror : typeElement.getAnnotationMirrors()) {
+			enumNode.getAnnotation().add(
+					parseAnnotationMirror(annotationMirror, typeElement.getQualifiedName().toString()));
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			enumNode.getTag().add(parseTag(tag));
+		}
+
+		return enumNode;
+	}
+
+	/**
+	 * Parses an enum constant
+	 *
+	 * @param variableElement
+	 *            the enum constant
+	 * @return the enum constant node
+	 */
+	protected EnumConstant parseEnumConstant(VariableElement variableElement) {
+		EnumConstant enumConstant = objectFactory.createEnumConstant();
+		enumConstant.setName(variableElement.getSimpleName().toString());
+		DocComment docComment = parseDocComment(variableElement);
+		if (docComment.getText().length() > 0) {
+			enumConstant.setComment(docComment.getText());
+		}
+
+		for (AnnotationMirror annotationMirror : variableElement.getAnnotationMirrors()) {
+			enumConstant.getAnnotation().add(parseAnnotationMirror(annotationMirror, qualifiedName(variableElement)));
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			enumConstant.getTag().add(parseTag(tag));
+		}
+
+		return enumConstant;
+	}
+
+	protected Interface parseInterface(TypeElement typeElement) {
+		Interface interfaceNode = objectFactory.createInterface();
+		interfaceNode.setName(typeName(typeElement));
+		interfaceNode.setQualified(typeElement.getQualifiedName().toString());
+		DocComment docComment = parseDocComment(typeElement);
+		if (docComment.getText().length() > 0) {
+			interfaceNode.setComment(docComment.getText());
+		}
+		if (flag(included.test(typeElement), true)) {
+			interfaceNode.setIncluded(included.test(typeElement));
+		}
+		interfaceNode.setScope(parseScope(typeElement));
+
+		for (TypeParameterElement typeParameterElement : typeElement.getTypeParameters()) {
+			interfaceNode.getGeneric().add(parseTypeParameter(typeParameterElement));
+		}
+
+		for (TypeMirror interfaceType : typeElement.getInterfaces()) {
+			interfaceNode.getInterface().add(parseTypeInfo(interfaceType));
+		}
+
+		for (ExecutableElement method : members(ElementFilter.methodsIn(typeElement.getEnclosedElements()))) {
+			interfaceNode.getMethod().add(parseMethod(method));
+		}
+
+		for (AnnotationMirror annotationMirror : typeElement.getAnnotationMirrors()) {
+			interfaceNode.getAnnotation().add(
+					parseAnnotationMirror(annotationMirror, typeElement.getQualifiedName().toString()));
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			interfaceNode.getTag().add(parseTag(tag));
+		}
+
+		for (VariableElement field : members(ElementFilter.fieldsIn(typeElement.getEnclosedElements()))) {
+			interfaceNode.getField().add(parseField(field));
+		}
+
+		return interfaceNode;
+	}
+
+	protected Class parseClass(TypeElement typeElement) {
+		Class classNode = objectFactory.createClass();
+		classNode.setName(typeName(typeElement));
+		classNode.setQualified(typeElement.getQualifiedName().toString());
+		DocComment docComment = parseDocComment(typeElement);
+		if (docComment.getText().length() > 0) {
+			classNode.setComment(docComment.getText());
+		}
+		Set<Modifier> modifiers = typeElement.getModifiers();
+		if (flag(modifiers.contains(Modifier.ABSTRACT), false)) {
+			classNode.setAbstract(modifiers.contains(Modifier.ABSTRACT));
+		}
+		boolean error = isSubclassOf(typeElement, "java.lang.Error");
+		if (flag(error, false)) {
+			classNode.setError(error);
+		}
+		boolean exception = isSubclassOf(typeElement, "java.lang.Exception");
+		if (flag(exception, false)) {
+			classNode.setException(exception);
+		}
+		boolean externalizable = isSubtypeOf(typeElement, "java.io.Externalizable");
+		if (flag(externalizable, false)) {
+			classNode.setExternalizable(externalizable);
+		}
+		if (flag(included.test(typeElement), true)) {
+			classNode.setIncluded(included.test(typeElement));
+		}
+		boolean serializable = isSubtypeOf(typeElement, "java.io.Serializable");
+		if (flag(serializable, false)) {
+			classNode.setSerializable(serializable);
+		}
+		classNode.setScope(parseScope(typeElement));
+
+		for (TypeParameterElement typeParameterElement : typeElement.getTypeParameters()) {
+			classNode.getGeneric().add(parseTypeParameter(typeParameterElement));
+		}
+
+		TypeMirror superClassType = typeElement.getSuperclass();
+		if (superClassType.getKind() != TypeKind.NONE) {
+			classNode.setClazz(parseTypeInfo(superClassType));
+		}
+
+		for (TypeMirror interfaceType : typeElement.getInterfaces()) {
+			classNode.getInterface().add(parseTypeInfo(interfaceType));
+		}
+
+		for (ExecutableElement method : members(ElementFilter.methodsIn(typeElement.getEnclosedElements()))) {
+			classNode.getMethod().add(parseMethod(method));
+		}
+
+		for (AnnotationMirror annotationMirror : typeElement.getAnnotationMirrors()) {
+			classNode.getAnnotation().add(
+					parseAnnotationMirror(annotationMirror, typeElement.getQualifiedName().toString()));
+		}
+
+		for (ExecutableElement constructor : members(ElementFilter.constructorsIn(typeElement
+				.getEnclosedElements()))) {
+			classNode.getConstructor().add(parseConstructor(constructor));
+		}
+
+		for (VariableElement field : members(ElementFilter.fieldsIn(typeElement.getEnclosedElements()))) {
+			if (field.getKind() == ElementKind.FIELD) {
+				classNode.getField().add(parseField(field));
+			}
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			classNode.getTag().add(parseTag(tag));
+		}
+
+		return classNode;
+	}
+
+	protected Constructor parseConstructor(ExecutableElement executableElement) {
+		Constructor constructorNode = objectFactory.createConstructor();
+
+		constructorNode.setName(executableElement.getEnclosingElement().getSimpleName().toString());
+		constructorNode.setQualified(qualifiedName(executableElement));
+		DocComment docComment = parseDocComment(executableElement);
+		if (docComment.getText().length() > 0) {
+			constructorNode.setComment(docComment.getText());
+		}
+		Set<Modifier> modifiers = executableElement.getModifiers();
+		constructorNode.setScope(parseScope(executableElement));
+		if (flag(included.test(executableElement), true)) {
+			constructorNode.setIncluded(included.test(executableElement));
+		}
+		if (flag(modifiers.contains(Modifier.FINAL), false)) {
+			constructorNode.setFinal(modifiers.contains(Modifier.FINAL));
+		}
+		if (flag(modifiers.contains(Modifier.NATIVE), false)) {
+			constructorNode.setNative(modifiers.contains(Modifier.NATIVE));
+		}
+		if (flag(modifiers.contains(Modifier.STATIC), false)) {
+			constructorNode.setStatic(modifiers.contains(Modifier.STATIC));
+		}
+		if (flag(modifiers.contains(Modifier.SYNCHRONIZED), false)) {
+			constructorNode.setSynchronized(modifiers.contains(Modifier.SYNCHRONIZED));
+		}
+		if (flag(executableElement.isVarArgs(), false)) {
+			constructorNode.setVarArgs(executableElement.isVarArgs());
+		}
+		constructorNode.setSignature(signature(executableElement));
+
+		for (VariableElement parameter : executableElement.getParameters()) {
+			constructorNode.getParameter().add(parseMethodParameter(parameter));
+		}
+
+		for (TypeMirror exceptionType : executableElement.getThrownTypes()) {
+			constructorNode.getException().add(parseTypeInfo(exceptionType));
+		}
+
+		for (AnnotationMirror annotationMirror : executableElement.getAnnotationMirrors()) {
+			constructorNode.getAnnotation().add(
+					parseAnnotationMirror(annotationMirror, qualifiedName(executableElement)));
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			constructorNode.getTag().add(parseTag(tag));
+		}
+
+		return constructorNode;
+	}
+
+	protected Method parseMethod(ExecutableElement executableElement) {
+		Method methodNode = objectFactory.createMethod();
+
+		methodNode.setName(executableElement.getSimpleName().toString());
+		methodNode.setQualified(qualifiedName(executableElement));
+		DocComment docComment = parseDocComment(executableElement);
+		if (docComment.getText().length() > 0) {
+			methodNode.setComment(docComment.getText());
+		}
+		Set<Modifier> modifiers = executableElement.getModifiers();
+		methodNode.setScope(parseScope(executableElement));
+		if (flag(modifiers.contains(Modifier.ABSTRACT), false)) {
+			methodNode.setAbstract(modifiers.contains(Modifier.ABSTRACT));
+		}
+		if (flag(included.test(executableElement), true)) {
+			methodNode.setIncluded(included.test(executableElement));
+		}
+		if (flag(modifiers.contains(Modifier.FINAL), false)) {
+			methodNode.setFinal(modifiers.contains(Modifier.FINAL));
+		}
+		if (flag(modifiers.contains(Modifier.NATIVE), false)) {
+			methodNode.setNative(modifiers.contains(Modifier.NATIVE));
+		}
+		if (flag(modifiers.contains(Modifier.STATIC), false)) {
+			methodNode.setStatic(modifiers.contains(Modifier.STATIC));
+		}
+		if (flag(modifiers.contains(Modifier.SYNCHRONIZED), false)) {
+			methodNode.setSynchronized(modifiers.contains(Modifier.SYNCHRONIZED));
+		}
+		if (flag(executableElement.isVarArgs(), false)) {
+			methodNode.setVarArgs(executableElement.isVarArgs());
+		}
+		methodNode.setSignature(signature(executableElement));
+		methodNode.setReturn(parseTypeInfo(executableElement.getReturnType()));
+
+		for (VariableElement parameter : executableElement.getParameters()) {
+			methodNode.getParameter().add(parseMethodParameter(parameter));
+		}
+
+		for (TypeMirror exceptionType : executableElement.getThrownTypes()) {
+			methodNode.getException().add(parseTypeInfo(exceptionType));
+		}
+
+		for (AnnotationMirror annotationMirror : executableElement.getAnnotationMirrors()) {
+			methodNode.getAnnotation().add(parseAnnotationMirror(annotationMirror, qualifiedName(executableElement)));
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			methodNode.getTag().add(parseTag(tag));
+		}
+
+		return methodNode;
+	}
+
+	protected MethodParameter parseMethodParameter(VariableElement parameter) {
+		MethodParameter parameterMethodNode = objectFactory.createMethodParameter();
+		parameterMethodNode.setName(parameter.getSimpleName().toString());
+		parameterMethodNode.setType(parseTypeInfo(parameter.asType()));
+
+		for (AnnotationMirror annotationMirror : parameter.getAnnotationMirrors()) {
+			parameterMethodNode.getAnnotation().add(
+					parseAnnotationMirror(annotationMirror, typeString(parameter.asType())));
+		}
+
+		return parameterMethodNode;
+	}
+
+	protected Field parseField(VariableElement variableElement) {
+		Field fieldNode = objectFactory.createField();
+		fieldNode.setType(parseTypeInfo(variableElement.asType()));
+		fieldNode.setName(variableElement.getSimpleName().toString());
+		fieldNode.setQualified(qualifiedName(variableElement));
+		DocComment docComment = parseDocComment(variableElement);
+		if (docComment.getText().length() > 0) {
+			fieldNode.setComment(docComment.getText());
+		}
+		Set<Modifier> modifiers = variableElement.getModifiers();
+		fieldNode.setScope(parseScope(variableElement));
+		if (flag(modifiers.contains(Modifier.FINAL), false)) {
+			fieldNode.setFinal(modifiers.contains(Modifier.FINAL));
+		}
+		if (flag(modifiers.contains(Modifier.STATIC), false)) {
+			fieldNode.setStatic(modifiers.contains(Modifier.STATIC));
+		}
+		if (flag(modifiers.contains(Modifier.VOLATILE), false)) {
+			fieldNode.setVolatile(modifiers.contains(Modifier.VOLATILE));
+		}
+		if (flag(modifiers.contains(Modifier.TRANSIENT), false)) {
+			fieldNode.setTransient(modifiers.contains(Modifier.TRANSIENT));
+		}
+		fieldNode.setConstant(constantValueExpression(variableElement.getConstantValue()));
+
+		for (AnnotationMirror annotationMirror : variableElement.getAnnotationMirrors()) {
+			fieldNode.getAnnotation().add(parseAnnotationMirror(annotationMirror, qualifiedName(variableElement)));
+		}
+
+		for (DocComment.Tag tag : docComment.getTags()) {
+			fieldNode.getTag().add(parseTag(tag));
+		}
+
+		return fieldNode;
+	}
+
+	/**
+	 * Returns the node describing a type reference. Structurally identical
+	 * references share the same node from the {@link TypeInfoCache}.
+	 *
+	 * @param type
+	 *            the referenced type
+	 * @return the shared type node
+	 */
+	protected TypeInfo parseTypeInfo(TypeMirror type) {
+		String key = typeInfoKey(type, new StringBuilder()).toString();
+		TypeInfo typeInfoNode = typeInfoCache.get(key);
+		if (typeInfoNode == null) {
+			typeInfoNode = typeInfoCache.putIfAbsent(key, createTypeInfo(type));
+		}
+		return typeInfoNode;
+	}
+
+	/**
+	 * Appends the key identifying the structure of a type reference: its
+	 * qualified name, dimension, wildcard bounds and type arguments. The key
+	 * is the same as the one of the legacy parser.
+	 *
+	 * @param type
+	 *            the referenced type
+	 * @param key
+	 *            the builder to append the key to
+	 * @return the given builder
+	 */
+	protected StringBuilder typeInfoKey(TypeMirror type, StringBuilder key) {
+		key.append(qualifiedTypeName(type)).append(dimension(type));
+
+		TypeMirror componentType = componentType(type);
+		if (componentType.getKind() == TypeKind.WILDCARD) {
+			WildcardType wildcard = (WildcardType) componentType;
+			key.append(" extends(");
+			if (wildcard.getExtendsBound() != null) {
+				typeInfoKey(wildcard.getExtendsBound(), key).append(',');
+			}
+			key.append(") super(");
+			if (wildcard.getSuperBound() != null) {
+				typeInfoKey(wildcard.getSuperBound(), key).append(',');
+			}
+			key.append(')');
+		}
+
+		List<? extends TypeMirror> typeArguments = typeArguments(type);
+		if (!typeArguments.isEmpty()) {
+			key.append('<');
+			for (TypeMirror typeArgument : typeArguments) {
+				typeInfoKey(typeArgument, key).append(',');
+			}
+			key.append('>');
+		}
+
+		return key;
+	}
+
+	/**
+	 * Creates a new node describing a type reference.
+	 *
+	 * @param type
+	 *            the referenced type
+	 * @return the new type node
+	 */
+	protected TypeInfo createTypeInfo(TypeMirror type) {
+		TypeInfo typeInfoNode = objectFactory.createTypeInfo();
+		typeInfoNode.setQualified(qualifiedTypeName(type));
+		String dimension = dimension(type);
+		if (dimension.length() > 0) {
+			typeInfoNode.setDimension(dimension);
+		}
+
+		TypeMirror componentType = componentType(type);
+		if (componentType.getKind() == TypeKind.WILDCARD) {
+			typeInfoNode.setWildcard(parseWildcard((WildcardType) componentType));
+		}
+
+		for (TypeMirror typeArgument : typeArguments(type)) {
+			typeInfoNode.getGeneric().add(parseTypeInfo(typeArgument));
+		}
+
+		return typeInfoNode;
+	}
+
+	protected Wildcard parseWildcard(WildcardType wildcard) {
+		Wildcard wildcardNode = objectFactory.createWildcard();
+
+		if (wildcard.getExtendsBound() != null) {
+			wildcardNode.getExtendsBound().add(parseTypeInfo(wildcard.getExtendsBound()));
+		}
+
+		if (wildcard.getSuperBound() != null) {
+			wildcardNode.getSuperBound().add(parseTypeInfo(wildcard.getSuperBound()));
+		}
+
+		return wildcardNode;
+	}
+
+	/**
+	 * Parse type variables for generics. Like in the legacy API, the implicit
+	 * bound <code>java.lang.Object</code> is left out.
+	 *
+	 * @param typeParameterElement
+	 *            the type variable
+	 * @return the type parameter node
+	 */
+	protected TypeParameter parseTypeParameter(TypeParameterElement typeParameterElement) {
+		TypeParameter typeParameter = objectFactory.createTypeParameter();
+		typeParameter.setName(typeParameterElement.getSimpleName().toString());
+
+		List<? extends TypeMirror> bounds = typeParameterElement.getBounds();
+		if (bounds.size() != 1 || !"java.lang.Object".equals(qualifiedTypeName(bounds.get(0)))) {
+			for (TypeMirror bound : bounds) {
+				typeParameter.getBound().add(qualifiedTypeName(bound));
+			}
+		}
+
+		return typeParameter;
+	}
+
+	protected TagInfo parseTag(DocComment.Tag tag) {
+		TagInfo tagNode = objectFactory.createTagInfo();
+		tagNode.setName(tag.getKind());
+		tagNode.setText(tag.getText());
+		return tagNode;
+	}
+
+	/**
+	 * Returns the documentation comment of an element.
+	 *
+	 * @param element
+	 *            the documented element
+	 * @return the split comment, empty if there is none
+	 */
+	protected DocComment parseDocComment(Element element) {
+		String comment = elements.getDocComment(element);
+		if (comment == null) {
+			return DocComment.EMPTY;
+		}
+		return new DocComment(comment);
+	}
+
+	/**
+	 * Checks whether a boolean attribute is set. In compact mode an attribute
+	 * with the default value of the schema is left unset, so it is not
+	 * written. The getters of the nodes still return the default.
+	 *
+	 * @param value
+	 *            the value of the attribute
+	 * @param defaultValue
+	 *            the default value of the attribute in the schema
+	 * @return <code>true</code> if the attribute is set
+	 */
+	protected boolean flag(boolean value, boolean defaultValue) {
+		return !compact || value != defaultValue;
+	}
+
+	/**
+	 * Returns string representation of scope
+	 *
+	 * @param element
+	 *            the element
+	 * @return private, protected, public or an empty string for package
+	 *         private elements
+	 */
+	protected String parseScope(Element element) {
+		Set<Modifier> modifiers = element.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			return "private";
+		} else if (modifiers.contains(Modifier.PROTECTED)) {
+			return "protected";
+		} else if (modifiers.contains(Modifier.PUBLIC)) {
+			return "public";
+		}
+		return "";
+	}
+
+	/**
+	 * Returns the documented members of a type, in the order of declaration.
+	 *
+	 * @param members
+	 *            the members of one kind
+	 * @return the included members
+	 */
+	protected <T extends Element> List<T> members(List<T> members) {
+		List<T> includedMembers = new ArrayList<T>(members.size());
+		for (T member : members) {
+			if (included.test(member)) {
+				includedMembers.add(member);
+			}
+		}
+		return includedMembers;
+	}
+
+	/**
+	 * Returns the name of a type including the names of the enclosing types,
+	 * e.g. <code>Outer.Inner</code>.
+	 *
+	 * @param typeElement
+	 *            the type
+	 * @return the name without package
+	 */
+	protected String typeName(TypeElement typeElement) {
+		String qualifiedName = typeElement.getQualifiedName().toString();
+		String packageName = elements.getPackageOf(typeElement).getQualifiedName().toString();
+		if (packageName.isEmpty()) {
+			return qualifiedName;
+		}
+		return qualifiedName.substring(packageName.length() + 1);
+	}
+
+	/**
+	 * Returns the qualified name of a type or a member of a type.
+	 *
+	 * @param element
+	 *            the type or member
+	 * @return the qualified name, e.g. <code>java.lang.String.length</code>.
+	 *         Like in the legacy API, a constructor has the name of its
+	 *         class.
+	 */
+	protected static String qualifiedName(Element element) {
+		if (element instanceof TypeElement) {
+			return ((TypeElement) element).getQualifiedName().toString();
+		}
+		if (element.getKind() == ElementKind.CONSTRUCTOR) {
+			return qualifiedName(element.getEnclosingElement());
+		}
+		return qualifiedName(element.getEnclosingElement()) + "." + element.getSimpleName();
+	}
+
+	/**
+	 * @return <code>true</code> if the class extends the given class
+	 */
+	protected boolean isSubclassOf(TypeElement typeElement, String superClassName) {
+		TypeMirror type = typeElement.asType();
+		while (type.getKind() == TypeKind.DECLARED) {
+			TypeElement element = (TypeElement) types.asElement(type);
+			if (element.getQualifiedName().contentEquals(superClassName)) {
+				return true;
+			}
+			type = element.getSuperclass();
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the type is assignable to the given type
+	 */
+	protected boolean isSubtypeOf(TypeElement typeElement, String superTypeName) {
+		TypeElement superTypeElement = elements.getTypeElement(superTypeName);
+		if (superTypeElement == null) {
+			return false;
+		}
+		return types.isSubtype(types.erasure(typeElement.asType()), types.erasure(superTypeElement.asType()));
+	}
+
+	/**
+	 * Returns the signature of a method or constructor, e.g.
+	 * <code>(java.lang.String, java.util.List&lt;T&gt;...)</code>.
+	 *
+	 * @param executableElement
+	 *            the method or constructor
+	 * @return the signature as written by the legacy API
+	 */
+	protected String signature(ExecutableElement executableElement) {
+		StringBuilder signature = new StringBuilder("(");
+		for (VariableElement parameter : executableElement.getParameters()) {
+			if (signature.length() > 1) {
+				signature.append(", ");
+			}
+			signature.append(typeString(parameter.asType()));
+		}
+		if (executableElement.isVarArgs()) {
+			signature.replace(signature.length() - 2, signature.length(), "...");
+		}
+		return signature.append(')').toString();
+	}
+
+	/**
+	 * Returns the complete name of a type including the type arguments.
+	 *
+	 * @param type
+	 *            the type
+	 * @return the name, e.g. <code>java.util.List&lt;? extends T&gt;[]</code>
+	 */
+	protected String typeString(TypeMirror type) {
+		switch (type.getKind()) {
+		case ARRAY:
+			return typeString(((ArrayType) type).getComponentType()) + "[]";
+		case DECLARED:
+			DeclaredType declaredType = (DeclaredType) type;
+			StringBuilder typeString = new StringBuilder();
+			if (declaredType.getEnclosingType().getKind() == TypeKind.DECLARED) {
+				typeString.append(typeString(declaredType.getEnclosingType())).append('.')
+						.append(declaredType.asElement().getSimpleName());
+			} else {
+				typeString.append(qualifiedTypeName(declaredType));
+			}
+			String separator = "<";
+			for (TypeMirror typeArgument : declaredType.getTypeArguments()) {
+				typeString.append(separator).append(typeString(typeArgument));
+				separator = ",";
+			}
+			if (!declaredType.getTypeArguments().isEmpty()) {
+				typeString.append('>');
+			}
+			return typeString.toString();
+		case WILDCARD:
+			WildcardType wildcard = (WildcardType) type;
+			if (wildcard.getExtendsBound() != null) {
+				return "? extends " + typeString(wildcard.getExtendsBound());
+			}
+			if (wildcard.getSuperBound() != null) {
+				return "? super " + typeString(wildcard.getSuperBound());
+			}
+			return "?";
+		default:
+			return qualifiedTypeName(type);
+		}
+	}
+
+	/**
+	 * Returns the qualified name of a type without dimension and type
+	 * arguments, the name of a type variable or the keyword of a primitive
+	 * type.
+	 *
+	 * @param type
+	 *            the type
+	 * @return the name, e.g. <code>java.util.List</code>
+	 */
+	protected String qualifiedTypeName(TypeMirror type) {
+		TypeMirror componentType = componentType(type);
+		switch (componentType.getKind()) {
+		case DECLARED:
+		case ERROR:
+			Element element = types.asElement(componentType);
+			if (element instanceof TypeElement) {
+				return ((TypeElement) element).getQualifiedName().toString();
+			}
+			return componentType.toString();
+		case TYPEVAR:
+			return ((TypeVariable) componentType).asElement().getSimpleName().toString();
+		case WILDCARD:
+			return "?";
+		default:
+			if (componentType.getKind().isPrimitive() || componentType.getKind() == TypeKind.VOID) {
+				return componentType.getKind().name().toLowerCase(Locale.ENGLISH);
+			}
+			return componentType.toString();
+		}
+	}
+
+	/**
+	 * @return the dimension of an array type, e.g. <code>[][]</code>
+	 */
+	protected String dimension(TypeMirror type) {
+		StringBuilder dimension = new StringBuilder();
+		while (type.getKind() == TypeKind.ARRAY) {
+			dimension.append("[]");
+			type = ((ArrayType) type).getComponentType();
+		}
+		return dimension.toString();
+	}
+
+	/**
+	 * @return the type arguments of a parameterized type or of the components
+	 *         of a parameterized array type
+	 */
+	protected List<? extends TypeMirror> typeArguments(TypeMirror type) {
+		TypeMirror componentType = componentType(type);
+		if (componentType.getKind() != TypeKind.DECLARED) {
+			return new ArrayList<TypeMirror>();
+		}
+		return ((DeclaredType) componentType).getTypeArguments();
+	}
+
+	/**
+	 * @return the type of the components of an array type, the type itself
+	 *         otherwise
+	 */
+	protected TypeMirror componentType(TypeMirror type) {
+		while (type.getKind() == TypeKind.ARRAY) {
+			type = ((ArrayType) type).getComponentType();
+		}
+		return type;
+	}
+
+	/**
+	 * Returns a value of an annotation argument as written by the legacy API:
+	 * strings unquoted, characters as number, types by qualified name.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the string representation
+	 */
+	protected String annotationArgumentString(Object value) {
+		if (value instanceof Character) {
+			return Integer.toString((Character) value);
+		}
+		if (value instanceof TypeMirror) {
+			return qualifiedTypeName((TypeMirror) value) + dimension((TypeMirror) value);
+		}
+		if (value instanceof AnnotationMirror) {
+			return annotationMirrorString((AnnotationMirror) value);
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * Returns an annotation value as written in source code, e.g. the default
+	 * value of an annotation element. An array with a single element is
+	 * written without braces.
+	 *
+	 * @param annotationValue
+	 *            the value
+	 * @return the source representation
+	 */
+	protected String annotationValueString(AnnotationValue annotationValue) {
+		Object value = annotationValue.getValue();
+		if (value instanceof List) {
+			List<?> values = (List<?>) value;
+			StringBuilder valueString = new StringBuilder();
+			if (values.size() != 1) {
+				valueString.append('{');
+			}
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) {
+					valueString.append(", ");
+				}
+				valueString.append(annotationValueString((AnnotationValue) values.get(i)));
+			}
+			if (values.size() != 1) {
+				valueString.append('}');
+			}
+			return valueString.toString();
+		}
+		if (value instanceof VariableElement) {
+			return qualifiedName((VariableElement) value);
+		}
+		if (value instanceof TypeMirror) {
+			return typeString((TypeMirror) value) + ".class";
+		}
+		if (value instanceof AnnotationMirror) {
+			return annotationMirrorString((AnnotationMirror) value);
+		}
+		return constantValueExpression(value);
+	}
+
+	/**
+	 * @return the annotation as written in source code, e.g.
+	 *         <code>@java.lang.SuppressWarnings("unused")</code>
+	 */
+	protected String annotationMirrorString(AnnotationMirror annotationMirror) {
+		StringBuilder annotationString = new StringBuilder("@");
+		annotationString.append(qualifiedTypeName(annotationMirror.getAnnotationType()));
+		Map<? extends ExecutableElement, ? extends AnnotationValue> elementValues = annotationMirror
+				.getElementValues();
+		if (!elementValues.isEmpty()) {
+			annotationString.append('(');
+			String separator = "";
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> elementValue : elementValues
+					.entrySet()) {
+				annotationString.append(separator);
+				String name = elementValue.getKey().getSimpleName().toString();
+				if (elementValues.size() != 1 || !"value".equals(name)) {
+					annotationString.append(name).append('=');
+				}
+				annotationString.append(annotationValueString(elementValue.getValue()));
+				separator = ", ";
+			}
+			annotationString.append(')');
+		}
+		return annotationString.toString();
+	}
+
+	/**
+	 * Returns a constant as written by the legacy API, e.g. <code>"a\n"</code>,
+	 * <code>'c'</code>, <code>0x7f</code> for bytes or <code>1L</code>.
+	 *
+	 * @param value
+	 *            the value of the constant or <code>null</code>
+	 * @return the source representation or <code>null</code>
+	 */
+	protected static String constantValueExpression(Object value) {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof Character) {
+			return sourceForm((Character) value, '\'');
+		}
+		if (value instanceof Byte) {
+			return "0x" + Integer.toString((Byte) value & 0xff, 16);
+		}
+		if (value instanceof String) {
+			return sourceForm((String) value, '"');
+		}
+		if (value instanceof Double) {
+			return sourceForm((Double) value, 'd');
+		}
+		if (value instanceof Float) {
+			return sourceForm(((Float) value).doubleValue(), 'f');
+		}
+		if (value instanceof Long) {
+			return value + "L";
+		}
+		return value.toString();
+	}
+
+	private static String sourceForm(double value, char suffix) {
+		if (Double.isNaN(value)) {
+			return "0" + suffix + "/0" + suffix;
+		}
+		if (value == Double.POSITIVE_INFINITY) {
+			return "1" + suffix + "/0" + suffix;
+		}
+		if (value == Double.NEGATIVE_INFINITY) {
+			return "-1" + suffix + "/0" + suffix;
+		}
+		return suffix == 'f' ? value + "f" : Double.toString(value);
+	}
+
+	private static String sourceForm(Object value, char quote) {
+		String string = value.toString();
+		StringBuilder sourceForm = new StringBuilder(string.length() + 2);
+		sourceForm.append(quote);
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '\b':
+				sourceForm.append("\\b");
+				break;
+			case '\t':
+				sourceForm.append("\\t");
+				break;
+			case '\n':
+				sourceForm.append("\\n");
+				break;
+			case '\f':
+				sourceForm.append("\\f");
+				break;
+			case '\r':
+				sourceForm.append("\\r");
+				break;
+			case '"':
+				sourceForm.append("\\\"");
+				break;
+			case '\'':
+				sourceForm.append("\\'");
+				break;
+			case '\\':
+				sourceForm.append("\\\\");
+				break;
+			default:
+				if (c >= ' ' && c <= '~') {
+					sourceForm.append(c);
+				} else {
+					sourceForm.append(String.format("\\u%04x", (int) c));
+				}
+			}
+		}
+		return sourceForm.append(quote).toString();
+	}
+}
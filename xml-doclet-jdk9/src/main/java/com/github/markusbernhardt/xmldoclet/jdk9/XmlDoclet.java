@@ -0,0 +1,249 @@
+package com.github.markusbernhardt.xmldoclet.jdk9;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.CompressionEnum;
+import com.github.markusbernhardt.xmldoclet.StreamingRootWriter;
+import com.github.markusbernhardt.xmldoclet.XmlDocletException;
+
+import jdk.javadoc.doclet.Doclet;
+import jdk.javadoc.doclet.DocletEnvironment;
+import jdk.javadoc.doclet.Reporter;
+
+/**
+ * Doclet class for the <code>jdk.javadoc.doclet</code> API of JDK 9 and
+ * later. It writes the same document as the
+ * {@link com.github.markusbernhardt.xmldoclet.XmlDoclet} for the legacy
+ * <code>com.sun.javadoc</code> API and supports its output options.
+ */
+public class XmlDoclet implements Doclet {
+
+	private final static Logger log = LoggerFactory.getLogger(XmlDoclet.class);
+
+	/**
+	 * The options of the legacy doclet supported by this doclet. The option
+	 * -stream is accepted for compatibility, the document is always streamed.
+	 */
+	protected static final List<String> SUPPORTED_OPTIONS = Collections.unmodifiableList(Arrays.asList("d",
+			"docencoding", "dryrun", "filename", "compact", "compress", "stream"));
+
+	protected final List<String[]> optionsArrayList = new ArrayList<String[]>();
+
+	protected Reporter reporter;
+
+	@Override
+	public void init(Locale locale, Reporter reporter) {
+		this.reporter = reporter;
+	}
+
+	@Override
+	public String getName() {
+		return "XmlDoclet";
+	}
+
+	@Override
+	public Set<? extends Doclet.Option> getSupportedOptions() {
+		Options options = com.github.markusbernhardt.xmldoclet.XmlDoclet.createOptions();
+		Set<Doclet.Option> supportedOptions = new LinkedHashSet<Doclet.Option>();
+		for (String name : SUPPORTED_OPTIONS) {
+			supportedOptions.add(new CommandLineOption(options.getOption(name)));
+		}
+		return supportedOptions;
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latest();
+	}
+
+	/**
+	 * Processes the documented elements.
+	 * <p>
+	 * The doclet is loaded by a class loader of its own from the docletpath.
+	 * It becomes the context class loader while running, so JAXB finds its
+	 * implementation there.
+	 *
+	 * @param environment
+	 *            the documented elements and the compiler utilities
+	 * @return <code>true</code> if processing was successful.
+	 */
+	@Override
+	public boolean run(DocletEnvironment environment) {
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		thread.setContextClassLoader(XmlDoclet.class.getClassLoader());
+		try {
+			return process(environment);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+
+	/**
+	 * Parses the documented elements and writes the output file.
+	 *
+	 * @param environment
+	 *            the documented elements and the compiler utilities
+	 * @return <code>true</code> if processing was successful.
+	 */
+	protected boolean process(DocletEnvironment environment) {
+		CommandLine commandLine = com.github.markusbernhardt.xmldoclet.XmlDoclet.parseCommandLine(optionsArrayList
+				.toArray(new String[optionsArrayList.size()][]));
+		if (commandLine == null) {
+			return false;
+		}
+
+		ElementParser parser = new ElementParser(environment.getElementUtils(), environment.getTypeUtils(),
+				environment::isIncluded);
+		parser.setCompact(commandLine.hasOption("compact"));
+		Set<TypeElement> typeElements = ElementFilter.typesIn(environment.getIncludedElements());
+		if (commandLine.hasOption("dryrun")) {
+			parser.parse(typeElements);
+		} else {
+			write(commandLine, parser, typeElements);
+		}
+		return true;
+	}
+
+	/**
+	 * Parse the elements and write every type to the output file as soon as
+	 * it has been parsed. The document is always streamed, as the object model
+	 * is not needed afterwards. So it is also written with the same escaping
+	 * as by the JAXB implementation of JDK 8.
+	 *
+	 * @param commandLine
+	 *            the parsed command line arguments
+	 * @param parser
+	 *            the parser to use
+	 * @param typeElements
+	 *            the documented types
+	 */
+	protected void write(CommandLine commandLine, ElementParser parser, Set<TypeElement> typeElements) {
+		FileOutputStream fileOutputStream = null;
+		OutputStream outputStream = null;
+		StreamingRootWriter streamingRootWriter = null;
+		try {
+			fileOutputStream = new FileOutputStream(
+					com.github.markusbernhardt.xmldoclet.XmlDoclet.getFilename(commandLine));
+			outputStream = com.github.markusbernhardt.xmldoclet.XmlDoclet.createOutputStream(commandLine,
+					fileOutputStream);
+
+			streamingRootWriter = new StreamingRootWriter(outputStream, commandLine.getOptionValue("docencoding",
+					"UTF-8"), !commandLine.hasOption("compact"));
+			parser.parse(typeElements, streamingRootWriter);
+			outputStream.flush();
+
+		} catch (XmlDocletException e) {
+			log.error(e.getMessage(), e);
+		} catch (JAXBException e) {
+			log.error(e.getMessage(), e);
+		} catch (FileNotFoundException e) {
+			log.error(e.getMessage(), e);
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		} finally {
+			if (streamingRootWriter != null) {
+				streamingRootWriter.close();
+			}
+			try {
+				if (outputStream != null) {
+					outputStream.close();
+				}
+				if (fileOutputStream != null) {
+					fileOutputStream.close();
+				}
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Checks the argument of an option, like the legacy doclet does.
+	 *
+	 * @param name
+	 *            the name of the option without dash
+	 * @param arguments
+	 *            the arguments of the option
+	 * @return the error message or <code>null</code> if the argument is valid
+	 */
+	protected String validate(String name, List<String> arguments) {
+		if ("compress".equals(name) && CompressionEnum.fromName(arguments.get(0)) == null) {
+			return "Invalid compression: " + arguments.get(0);
+		}
+		return null;
+	}
+
+	/**
+	 * An option of the legacy command line, collected for
+	 * {@link com.github.markusbernhardt.xmldoclet.XmlDoclet#parseCommandLine(String[][])}.
+	 */
+	protected class CommandLineOption implements Doclet.Option {
+
+		protected final org.apache.commons.cli.Option option;
+
+		protected CommandLineOption(org.apache.commons.cli.Option option) {
+			this.option = option;
+		}
+
+		@Override
+		public int getArgumentCount() {
+			return Math.max(option.getArgs(), 0);
+		}
+
+		@Override
+		public String getDescription() {
+			return option.getDescription().replace('\n', ' ');
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.STANDARD;
+		}
+
+		@Override
+		public List<String> getNames() {
+			return Collections.singletonList("-" + option.getOpt());
+		}
+
+		@Override
+		public String getParameters() {
+			return getArgumentCount() > 0 ? "<" + option.getArgName() + ">" : "";
+		}
+
+		@Override
+		public boolean process(String name, List<String> arguments) {
+			String error = validate(option.getOpt(), arguments);
+			if (error != null) {
+				reporter.print(Diagnostic.Kind.ERROR, error);
+				return false;
+			}
+			List<String> optionsArray = new ArrayList<String>();
+			optionsArray.add(name);
+			optionsArray.addAll(arguments);
+			optionsArrayList.add(optionsArray.toArray(new String[optionsArray.size()]));
+			return true;
+		}
+	}
+}
@@ -0,0 +1,367 @@
+package com.github.markusbernhardt.xmldoclet.jdk9;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import javax.xml.bind.JAXBException;
+
+import com.github.markusbernhardt.xmldoclet.JaxbSupport;
+import com.github.markusbernhardt.xmldoclet.RootListener;
+import com.github.markusbernhardt.xmldoclet.StreamingRootWriter;
+import com.github.markusbernhardt.xmldoclet.XmlDocletException;
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.ObjectFactory;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Annotation processor writing the XML document during the normal javac
+ * compilation, so no separate javadoc run is needed. It claims no
+ * annotations and only documents the types compiled.
+ * <p>
+ * The document is written into the class output directory once all rounds
+ * are over. If only some files are recompiled, the types of the previous
+ * document that still exist and were not recompiled are kept. This merge
+ * targets the incremental builds of plain javac and Maven, which keep the
+ * class output directory. The processor is not registered for the
+ * incremental compilation of Gradle: Gradle deletes the output of aggregating
+ * processors before every run and only passes them the annotated types, so
+ * the merged document would lose types. Without the registration Gradle
+ * recompiles all sources whenever the processor is on the processor path.
+ * <p>
+ * Options, passed as <code>-A&lt;name&gt;=&lt;value&gt;</code>:
+ * <ul>
+ * <li><code>xmldoclet.filename</code>: name of the output file relative to
+ * the class output directory. Default: javadoc.xml</li>
+ * <li><code>xmldoclet.access</code>: the minimum access of the documented
+ * types and members, like the javadoc options: public, protected, package or
+ * private. Default: protected</li>
+ * <li><code>xmldoclet.compact</code>: <code>true</code> to leave out default
+ * attribute values and indentation. Default: false</li>
+ * </ul>
+ */
+public class XmlDocletProcessor extends AbstractProcessor {
+
+	/**
+	 * Option with the name of the output file.
+	 */
+	public static final String OPTION_FILENAME = "xmldoclet.filename";
+
+	/**
+	 * Option with the minimum access of the documented elements.
+	 */
+	public static final String OPTION_ACCESS = "xmldoclet.access";
+
+	/**
+	 * Option enabling the compact output.
+	 */
+	public static final String OPTION_COMPACT = "xmldoclet.compact";
+
+	protected static final List<String> ACCESS_LEVELS = Arrays.asList("public", "protected", "package", "private");
+
+	private static final Comparator<Object> BY_QUALIFIED_NAME = new Comparator<Object>() {
+		@Override
+		public int compare(Object node1, Object node2) {
+			return qualifiedName(node1).compareTo(qualifiedName(node2));
+		}
+	};
+
+	protected final Set<TypeElement> typeElements = new LinkedHashSet<TypeElement>();
+
+	protected int access;
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return new HashSet<String>(Arrays.asList("*"));
+	}
+
+	@Override
+	public Set<String> getSupportedOptions() {
+		return new HashSet<String>(Arrays.asList(OPTION_FILENAME, OPTION_ACCESS, OPTION_COMPACT));
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latest();
+	}
+
+	/**
+	 * Collects the types of every round and writes the document after the
+	 * last one.
+	 */
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+		if (!roundEnvironment.processingOver()) {
+			for (TypeElement typeElement : ElementFilter.typesIn(roundEnvironment.getRootElements())) {
+				collect(typeElement);
+			}
+			return false;
+		}
+
+		access = ACCESS_LEVELS.indexOf(processingEnv.getOptions().getOrDefault(OPTION_ACCESS, "protected"));
+		if (access < 0) {
+			error("Invalid access: " + processingEnv.getOptions().get(OPTION_ACCESS));
+			return false;
+		}
+
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		thread.setContextClassLoader(XmlDocletProcessor.class.getClassLoader());
+		try {
+			write();
+		} catch (XmlDocletException e) {
+			error(e.getMessage());
+		} catch (JAXBException e) {
+			error(e.toString());
+		} catch (IOException e) {
+			error(e.toString());
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a type and its nested types.
+	 *
+	 * @param typeElement
+	 *            the type
+	 */
+	protected void collect(TypeElement typeElement) {
+		typeElements.add(typeElement);
+		for (TypeElement nestedTypeElement : ElementFilter.typesIn(typeElement.getEnclosedElements())) {
+			collect(nestedTypeElement);
+		}
+	}
+
+	/**
+	 * Parses the collected types, merges them with the previous document and
+	 * writes the result.
+	 */
+	protected void write() throws IOException, JAXBException {
+		String filename = processingEnv.getOptions().getOrDefault(OPTION_FILENAME, "javadoc.xml");
+		boolean compact = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_COMPACT));
+
+		List<TypeElement> includedTypeElements = new ArrayList<TypeElement>();
+		for (TypeElement typeElement : typeElements) {
+			if (isIncluded(typeElement)) {
+				includedTypeElements.add(typeElement);
+			}
+		}
+
+		ElementParser parser = new ElementParser(processingEnv.getElementUtils(), processingEnv.getTypeUtils(),
+				this::isIncluded);
+		parser.setCompact(compact);
+		Root rootNode = parser.parse(includedTypeElements);
+		Root previousRootNode = readPrevious(filename);
+		if (previousRootNode != null) {
+			rootNode = merge(previousRootNode, rootNode);
+		}
+
+		FileObject fileObject = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", filename,
+				typeElements.toArray(new Element[typeElements.size()]));
+		OutputStream outputStream = fileObject.openOutputStream();
+		StreamingRootWriter streamingRootWriter = new StreamingRootWriter(outputStream, "UTF-8", !compact);
+		try {
+			replay(rootNode, streamingRootWriter);
+		} finally {
+			streamingRootWriter.close();
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Reads the document written by the previous compilation.
+	 *
+	 * @param filename
+	 *            the name of the document
+	 * @return the root node or <code>null</code> if there is no document
+	 */
+	protected Root readPrevious(String filename) throws JAXBException {
+		try {
+			FileObject fileObject = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", filename);
+			InputStream inputStream = fileObject.openInputStream();
+			try {
+				return (Root) JaxbSupport.createUnmarshaller().unmarshal(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} catch (FileNotFoundException e) {
+			return null;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+					"Previous " + filename + " not readable, documenting the compiled types only: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the types of the previous document that have not been compiled
+	 * again, but still exist, to the new document, including the annotation
+	 * types. The comment and tags of a package whose package-info.java has not
+	 * been compiled again are taken from the previous document as well. The
+	 * packages and the types within a package are sorted by name.
+	 *
+	 * @param previousRootNode
+	 *            the root of the previous document
+	 * @param rootNode
+	 *            the root of the compiled types
+	 * @return the root of the merged document
+	 */
+	protected Root merge(Root previousRootNode, Root rootNode) {
+		Set<String> compiled = new HashSet<String>();
+		for (TypeElement typeElement : typeElements) {
+			compiled.add(typeElement.getQualifiedName().toString());
+		}
+
+		Map<String, Package> packageNodes = new TreeMap<String, Package>();
+		for (Package packageNode : rootNode.getPackage()) {
+			packageNodes.put(packageNode.getName(), packageNode);
+		}
+		for (Package previousPackageNode : previousRootNode.getPackage()) {
+			Package packageNode = packageNodes.get(previousPackageNode.getName());
+			if (packageNode == null) {
+				packageNode = new ObjectFactory().createPackage();
+				packageNode.setName(previousPackageNode.getName());
+			}
+			if (packageNode.getComment() == null && packageNode.getTag().isEmpty()) {
+				// package-info.java has not been recompiled, its documentation
+				// is only available from the previous document
+				packageNode.setComment(previousPackageNode.getComment());
+				packageNode.getTag().addAll(previousPackageNode.getTag());
+			}
+			// the annotation types of the package are kept like all other types
+			int size = packageNode.getAnnotation().size() + packageNode.getEnum().size()
+					+ packageNode.getInterface().size() + packageNode.getClazz().size();
+			keepPrevious(previousPackageNode.getAnnotation(), packageNode.getAnnotation(), compiled);
+			keepPrevious(previousPackageNode.getEnum(), packageNode.getEnum(), compiled);
+			keepPrevious(previousPackageNode.getInterface(), packageNode.getInterface(), compiled);
+			keepPrevious(previousPackageNode.getClazz(), packageNode.getClazz(), compiled);
+			if (packageNode.getAnnotation().size() + packageNode.getEnum().size() + packageNode.getInterface().size()
+					+ packageNode.getClazz().size() > size) {
+				packageNodes.put(packageNode.getName(), packageNode);
+			}
+		}
+
+		Root mergedRootNode = new ObjectFactory().createRoot();
+		for (Package packageNode : packageNodes.values()) {
+			packageNode.getAnnotation().sort(BY_QUALIFIED_NAME);
+			packageNode.getEnum().sort(BY_QUALIFIED_NAME);
+			packageNode.getInterface().sort(BY_QUALIFIED_NAME);
+			packageNode.getClazz().sort(BY_QUALIFIED_NAME);
+			mergedRootNode.getPackage().add(packageNode);
+		}
+		return mergedRootNode;
+	}
+
+	private <T> void keepPrevious(List<T> previousNodes, List<T> nodes, Set<String> compiled) {
+		for (T node : previousNodes) {
+			String qualified = qualifiedName(node);
+			if (!compiled.contains(qualified) && processingEnv.getElementUtils().getTypeElement(qualified) != null) {
+				nodes.add(node);
+			}
+		}
+	}
+
+	/**
+	 * Hands a complete object model to a listener.
+	 *
+	 * @param rootNode
+	 *            the root node
+	 * @param listener
+	 *            the listener
+	 */
+	protected void replay(Root rootNode, RootListener listener) {
+		listener.startRoot(rootNode);
+		for (Package packageNode : rootNode.getPackage()) {
+			listener.startPackage(packageNode);
+			for (Annotation annotationNode : packageNode.getAnnotation()) {
+				listener.addAnnotation(annotationNode);
+			}
+			for (Enum enumNode : packageNode.getEnum()) {
+				listener.addEnum(enumNode);
+			}
+			for (Interface interfaceNode : packageNode.getInterface()) {
+				listener.addInterface(interfaceNode);
+			}
+			for (Class classNode : packageNode.getClazz()) {
+				listener.addClass(classNode);
+			}
+			listener.endPackage(packageNode);
+		}
+		listener.endRoot(rootNode);
+	}
+
+	/**
+	 * Decides whether an element is documented, by its access and the access
+	 * of the enclosing types.
+	 *
+	 * @param element
+	 *            the type or member
+	 * @return <code>true</code> if the element is documented
+	 */
+	protected boolean isIncluded(Element element) {
+		if (accessLevel(element) > access) {
+			return false;
+		}
+		Element enclosingElement = element.getEnclosingElement();
+		if (element instanceof TypeElement && enclosingElement instanceof TypeElement) {
+			return isIncluded(enclosingElement);
+		}
+		return true;
+	}
+
+	private static int accessLevel(Element element) {
+		Set<Modifier> modifiers = element.getModifiers();
+		if (modifiers.contains(Modifier.PUBLIC)) {
+			return 0;
+		} else if (modifiers.contains(Modifier.PROTECTED)) {
+			return 1;
+		} else if (modifiers.contains(Modifier.PRIVATE)) {
+			return 3;
+		}
+		return 2;
+	}
+
+	private static String qualifiedName(Object node) {
+		if (node instanceof Annotation) {
+			return ((Annotation) node).getQualified();
+		} else if (node instanceof Enum) {
+			return ((Enum) node).getQualified();
+		} else if (node instanceof Interface) {
+			return ((Interface) node).getQualified();
+		}
+		return ((Class) node).getQualified();
+	}
+
+	private void error(String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "xml-doclet: " + message);
+	}
+}
@@ -0,0 +1,140 @@
+package com.github.markusbernhardt.xmldoclet.jdk9;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.DocumentationTool;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test group for the annotation processor. It compiles the test data of
+ * the legacy doclet.
+ */
+public class XmlDocletProcessorTest {
+
+	private static final String SIMPLEDATA = "com.github.markusbernhardt.xmldoclet.simpledata";
+
+	private static final File SIMPLEDATA_DIRECTORY = new File("../src/test/java/"
+			+ SIMPLEDATA.replace('.', File.separatorChar));
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The processor writes the same document as the doclet
+	 */
+	@Test
+	public void testDocument() throws Exception {
+		File classesDirectory = temporaryFolder.newFolder("classes");
+		compile(classesDirectory, sourceFiles());
+
+		assertArrayEquals(Files.readAllBytes(executeJavadoc().toPath()),
+				Files.readAllBytes(new File(classesDirectory, "javadoc.xml").toPath()));
+	}
+
+	/**
+	 * Recompiling a single file keeps the other types of the previous document
+	 */
+	@Test
+	public void testIncremental() throws Exception {
+		File classesDirectory = temporaryFolder.newFolder("classes");
+		compile(classesDirectory, sourceFiles());
+		compile(classesDirectory, Collections.singletonList(new File(SIMPLEDATA_DIRECTORY, "Class3.java")));
+
+		assertArrayEquals(Files.readAllBytes(executeJavadoc().toPath()),
+				Files.readAllBytes(new File(classesDirectory, "javadoc.xml").toPath()));
+	}
+
+	/**
+	 * The documentation of a package is kept if its package-info.java is not
+	 * recompiled
+	 */
+	@Test
+	public void testIncrementalPackageComment() throws Exception {
+		File sourceDirectory = temporaryFolder.newFolder("src");
+		File packageDirectory = new File(sourceDirectory, "p");
+		packageDirectory.mkdirs();
+		File packageInfo = new File(packageDirectory, "package-info.java");
+		Files.write(packageInfo.toPath(), "/** Package comment. @since 1.0 */ package p;".getBytes("UTF-8"));
+		File classA = new File(packageDirectory, "A.java");
+		Files.write(classA.toPath(), "package p; public class A {}".getBytes("UTF-8"));
+		File classB = new File(packageDirectory, "B.java");
+		Files.write(classB.toPath(), "package p; public class B {}".getBytes("UTF-8"));
+
+		File classesDirectory = temporaryFolder.newFolder("classes");
+		compile(classesDirectory, sourceDirectory.getPath(), Arrays.asList(packageInfo, classA, classB));
+		byte[] expected = Files.readAllBytes(new File(classesDirectory, "javadoc.xml").toPath());
+		assertTrue(new String(expected, "UTF-8").contains("Package comment."));
+		compile(classesDirectory, sourceDirectory.getPath(), Collections.singletonList(classB));
+
+		assertArrayEquals(expected, Files.readAllBytes(new File(classesDirectory, "javadoc.xml").toPath()));
+	}
+
+	private void compile(File classesDirectory, List<File> files) throws IOException {
+		compile(classesDirectory, "../src/test/java", files);
+	}
+
+	/**
+	 * Compiles source files with the processor, documenting private elements.
+	 *
+	 * @param classesDirectory
+	 *            the class output directory, also used as class path
+	 * @param sourcePath
+	 *            the source path
+	 * @param files
+	 *            the source files
+	 */
+	private void compile(File classesDirectory, String sourcePath, List<File> files) throws IOException {
+		List<String> arguments = Arrays.asList("-Axmldoclet.access=private", "-sourcepath", sourcePath, "-classpath", classesDirectory.getPath(), "-d", classesDirectory.getPath());
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try {
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, arguments, null,
+					fileManager.getJavaFileObjectsFromFiles(files));
+			task.setProcessors(Collections.singletonList(new XmlDocletProcessor()));
+			assertTrue(task.call());
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private List<File> sourceFiles() {
+		List<File> files = new ArrayList<File>();
+		for (File file : SIMPLEDATA_DIRECTORY.listFiles()) {
+			if (file.getName().endsWith(".java")) {
+				files.add(file);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Processes the test data with the doclet.
+	 *
+	 * @return the output file
+	 */
+	private File executeJavadoc() throws IOException {
+		File directory = temporaryFolder.newFolder("javadoc");
+		List<String> arguments = new ArrayList<String>(Arrays.asList("-private", "-sourcepath", "../src/test/java",
+				"-subpackages", SIMPLEDATA, "-d", directory.getPath()));
+
+		DocumentationTool documentationTool = ToolProvider.getSystemDocumentationTool();
+		assertTrue(documentationTool.getTask(null, null, null, XmlDoclet.class, arguments, null).call());
+		return new File(directory, "javadoc.xml");
+	}
+}
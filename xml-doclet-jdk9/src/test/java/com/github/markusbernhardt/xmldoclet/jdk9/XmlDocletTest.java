@@ -0,0 +1,138 @@
+package com.github.markusbernhardt.xmldoclet.jdk9;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.DocumentationTool;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.markusbernhardt.xmldoclet.JaxbSupport;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationInstance;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the doclet of the jdk.javadoc.doclet API. It documents
+ * the test data of the legacy doclet.
+ */
+public class XmlDocletTest {
+
+	private static final String SIMPLEDATA = "com.github.markusbernhardt.xmldoclet.simpledata";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * The document contains the types with their members, comments, tags and
+	 * annotations
+	 */
+	@Test
+	public void testDocument() throws Exception {
+		File file = executeJavadoc("javadoc.xml");
+		Root rootNode = (Root) JaxbSupport.createUnmarshaller().unmarshal(file);
+
+		assertEquals(1, rootNode.getPackage().size());
+		Package packageNode = rootNode.getPackage().get(0);
+		assertEquals(SIMPLEDATA, packageNode.getName());
+		assertFalse(packageNode.getAnnotation().isEmpty());
+		assertFalse(packageNode.getEnum().isEmpty());
+		assertFalse(packageNode.getInterface().isEmpty());
+
+		Class classNode = findClass(packageNode, SIMPLEDATA + ".Class3");
+		assertEquals("Class3", classNode.getComment());
+		assertEquals("java.lang.Object", classNode.getClazz().getQualified());
+		assertEquals(SIMPLEDATA + ".Class3", classNode.getConstructor().get(0).getQualified());
+
+		Method methodNode = classNode.getMethod().get(0);
+		assertEquals("method1", methodNode.getName());
+		assertEquals("()", methodNode.getSignature());
+		assertEquals("int", methodNode.getReturn().getQualified());
+		assertEquals("@return", methodNode.getTag().get(0).getName());
+
+		AnnotationInstance annotationNode = findClass(packageNode, SIMPLEDATA + ".Class21").getAnnotation().get(0);
+		assertEquals("Annotation10", annotationNode.getName());
+		assertTrue(annotationNode.getArgument().get(0).isPrimitive());
+		assertEquals(Arrays.asList("97"), annotationNode.getArgument().get(0).getValue());
+	}
+
+	/**
+	 * Line breaks in attributes are escaped like by the legacy doclet, with
+	 * and without -stream
+	 */
+	@Test
+	public void testStream() throws Exception {
+		byte[] document = Files.readAllBytes(executeJavadoc("javadoc.xml").toPath());
+		assertTrue(new String(document, "UTF-8").contains("&lt;Fun&gt;&#xA;"));
+		assertArrayEquals(document, Files.readAllBytes(executeJavadoc("stream.xml", "-stream").toPath()));
+	}
+
+	/**
+	 * The compact document is smaller and contains the same model
+	 */
+	@Test
+	public void testCompact() throws Exception {
+		File file = executeJavadoc("javadoc.xml");
+		File compactFile = executeJavadoc("compact.xml", "-compact");
+		assertTrue(compactFile.length() < file.length());
+
+		Root rootNode = (Root) JaxbSupport.createUnmarshaller().unmarshal(compactFile);
+		Class classNode = findClass(rootNode.getPackage().get(0), SIMPLEDATA + ".Class3");
+		assertTrue(classNode.isIncluded());
+		assertFalse(classNode.isAbstract());
+		assertEquals("public", classNode.getScope());
+	}
+
+	/**
+	 * No file is written in a dry run
+	 */
+	@Test
+	public void testDryRun() throws Exception {
+		assertFalse(executeJavadoc("dryrun.xml", "-dryrun").exists());
+	}
+
+	/**
+	 * Processes the test data of the legacy doclet.
+	 *
+	 * @param filename
+	 *            the name of the output file
+	 * @param additionalArguments
+	 *            options of the doclet
+	 * @return the output file
+	 */
+	private File executeJavadoc(String filename, String... additionalArguments) throws IOException {
+		List<String> arguments = new ArrayList<String>();
+		arguments.addAll(Arrays.asList("-private", "-sourcepath", "../src/test/java", "-subpackages", SIMPLEDATA,
+				"-d", temporaryFolder.getRoot().getPath(), "-filename", filename));
+		arguments.addAll(Arrays.asList(additionalArguments));
+
+		DocumentationTool documentationTool = ToolProvider.getSystemDocumentationTool();
+		assertTrue(documentationTool.getTask(null, null, null, XmlDoclet.class, arguments, null).call());
+		return new File(temporaryFolder.getRoot(), filename);
+	}
+
+	private Class findClass(Package packageNode, String qualified) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getQualified().equals(qualified)) {
+				return classNode;
+			}
+		}
+		fail("Class not found: " + qualified);
+		return null;
+	}
+}